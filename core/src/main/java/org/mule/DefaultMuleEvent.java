@@ -32,6 +32,7 @@ import org.mule.transaction.TransactionCoordination;
 import org.mule.transformer.types.DataTypeFactory;
 import org.mule.transport.DefaultReplyToHandler;
 import org.mule.util.CaseInsensitiveHashMap;
+import org.mule.util.CopyOnWriteCaseInsensitiveMap;
 import org.mule.util.store.DeserializationPostInitialisable;
 
 import java.io.IOException;
@@ -93,7 +94,7 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
 
     private transient Map<String, Object> serializedData = null;
 
-    private Map<String, Object> flowVariables = new CaseInsensitiveHashMap/* <String, Object> */(6);
+    private Map<String, Object> flowVariables = new CopyOnWriteCaseInsensitiveMap<Object>();
 
     // Constructors
 
@@ -893,7 +894,41 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
 
     private void writeObject(ObjectOutputStream out) throws IOException
     {
-        out.defaultWriteObject();
+        for (Map.Entry<String, Object> entry : flowVariables.entrySet())
+        {
+            Object value = entry.getValue();
+            if (value != null && !(value instanceof Serializable))
+            {
+                String message = String.format(
+                    "Unable to serialize the flow variable %s, which is of type %s ", entry.getKey(), value);
+                logger.error(message);
+                throw new IOException(message);
+            }
+        }
+
+        // the fields written by default, except for the flow variables, which are written in
+        // a CaseInsensitiveHashMap so that previous versions can read the event
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("message", message);
+        fields.put("session", session);
+        fields.put("credentials", credentials);
+        fields.put("encoding", encoding);
+        fields.put("exchangePattern", exchangePattern);
+        fields.put("messageSourceURI", messageSourceURI);
+        fields.put("messageSourceName", messageSourceName);
+        fields.put("replyToHandler", replyToHandler);
+        fields.put("transacted", transacted);
+        fields.put("synchronous", synchronous);
+        fields.put("stopFurtherProcessing", stopFurtherProcessing);
+        fields.put("timeout", timeout);
+        fields.put("processingTime", processingTime);
+        fields.put("replyToDestination", replyToDestination);
+        fields.put("ignoredPropertyOverrides", ignoredPropertyOverrides);
+        fields.put("notificationsEnabled", notificationsEnabled);
+        fields.put("flowVariables", new CaseInsensitiveHashMap(flowVariables));
+        out.writeFields();
+
         // Can be null if service call originates from MuleClient
         if (serializedData != null)
         {
@@ -910,23 +945,21 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
                 out.writeObject(getFlowConstruct() != null ? getFlowConstruct().getName() : "null");
             }
         }
-        for (Map.Entry<String, Object> entry : flowVariables.entrySet())
-        {
-            Object value = entry.getValue();
-            if (value != null && !(value instanceof Serializable))
-            {
-                String message = String.format(
-                    "Unable to serialize the flow variable %s, which is of type %s ", entry.getKey(), value);
-                logger.error(message);
-                throw new IOException(message);
-            }
-        }
-
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
     {
         in.defaultReadObject();
+        if (flowVariables != null && !(flowVariables instanceof CopyOnWriteCaseInsensitiveMap))
+        {
+            flowVariables = new CopyOnWriteCaseInsensitiveMap<Object>(flowVariables);
+        }
+        if (message instanceof DefaultMuleMessage)
+        {
+            // the message used the flow variables as its invocation properties, but they are
+            // written as a copy of their own by each of them
+            ((DefaultMuleMessage) message).setInvocationProperties(flowVariables);
+        }
         serializedData = new HashMap<String, Object>();
 
         try
@@ -946,9 +979,13 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
         this.message = message;
         if (message instanceof DefaultMuleMessage)
         {
-            for (String name : message.getInvocationPropertyNames())
+            // a message that already uses the flow variables of this event has nothing to add to them
+            if (((DefaultMuleMessage) message).getInvocationProperties() != flowVariables)
             {
-                setFlowVariable(name, message.getInvocationProperty(name));
+                for (String name : message.getInvocationPropertyNames())
+                {
+                    setFlowVariable(name, message.getInvocationProperty(name));
+                }
             }
             ((DefaultMuleMessage) message).setInvocationProperties(flowVariables);
             if (session instanceof DefaultMuleSession)
@@ -959,10 +996,12 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
     }
 
     /**
-     * This method does a complete deep copy of the event.
+     * This method does a complete copy of the event.
      *
      * This method should be used whenever the event is going to be executed
      * in a different context and changes to that event must not effect the source event.
+     * The properties of the message and the flow variables are shared with the source event
+     * until either event changes them.
      *
      * @param event the event that must be copied
      * @return the copied event
@@ -997,14 +1036,23 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
     /**
      * Copies the variables from source event to destination event.
      *
-     * Eliminates any previous flow variables from source event.
+     * Eliminates any previous flow variables from source event. The variables are shared
+     * by both events until either changes them.
      *
      * @param source the event from which we should take the variables.
      * @param destination the event to which we should copy the variables.
      */
+    @SuppressWarnings("unchecked")
     public static void copyVariables(DefaultMuleEvent source, DefaultMuleEvent destination)
     {
-        destination.flowVariables = new CaseInsensitiveHashMap(source.flowVariables);
+        if (source.flowVariables instanceof CopyOnWriteCaseInsensitiveMap)
+        {
+            destination.flowVariables = ((CopyOnWriteCaseInsensitiveMap<Object>) source.flowVariables).copy();
+        }
+        else
+        {
+            destination.flowVariables = new CopyOnWriteCaseInsensitiveMap<Object>(source.flowVariables);
+        }
         ((DefaultMuleMessage) destination.getMessage()).setInvocationProperties(destination.flowVariables);
         ((DefaultMuleMessage) destination.getMessage()).resetAccessControl();
     }
@@ -26,6 +26,7 @@ import org.mule.config.MuleManifest;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.message.ds.ByteArrayDataSource;
 import org.mule.message.ds.StringDataSource;
+import org.mule.model.streaming.RepeatableInputStream;
 import org.mule.transformer.TransformerUtils;
 import org.mule.transformer.types.DataTypeFactory;
 import org.mule.transformer.types.MimeTypes;
@@ -221,30 +222,9 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
 
     protected void copyMessageProperties(MuleMessage muleMessage)
     {
-        // explicitly copy INBOUND message properties over. This cannot be done in the loop below
-        Map<String, Object> inboundProperties =
-                ((DefaultMuleMessage) muleMessage).properties.getScopedProperties(PropertyScope.INBOUND);
-        addInboundProperties(inboundProperties);
-
-        for (PropertyScope scope : new PropertyScope[]{PropertyScope.INBOUND,
-            PropertyScope.OUTBOUND})
-        {
-            try
-            {
-                for (String name : muleMessage.getPropertyNames(scope))
-                {
-                    Object value = muleMessage.getProperty(name, scope);
-                    if (value != null)
-                    {
-                        setProperty(name, value, scope);
-                    }
-                }
-            }
-            catch (IllegalArgumentException iae)
-            {
-                // ignore non-registered property scope
-            }
-        }
+        assertAccess(WRITE);
+        // the INBOUND and OUTBOUND properties are shared with the copied message until either changes them
+        properties.copyProperties(((DefaultMuleMessage) muleMessage).properties);
     }
 
     private void copyAttachments(MuleMessage previous)
@@ -348,6 +328,11 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         // If no conversion is necessary, just return the payload as-is
         if (resultType.isCompatibleWith(source))
         {
+            // a repeatable stream is returned from the beginning every time
+            if (getPayload() instanceof RepeatableInputStream)
+            {
+                return (T) ((RepeatableInputStream) getPayload()).newStream();
+            }
             return (T) getPayload();
         }
 
@@ -358,6 +343,11 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
             throw new TransformerException(CoreMessages.noTransformerFoundForMessage(source, resultType));
         }
 
+        if (getPayload() instanceof RepeatableInputStream)
+        {
+            ((RepeatableInputStream) getPayload()).rewind();
+        }
+
         // Pass in the message itself
         Object result = transformer.transform(this, encoding);
 
@@ -387,6 +377,10 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
      */
     protected boolean isPayloadConsumed(Class<?> inputCls)
     {
+        if (RepeatableInputStream.class.isAssignableFrom(inputCls))
+        {
+            return false;
+        }
         return InputStream.class.isAssignableFrom(inputCls) || isConsumedFromAdditional(inputCls);
     }
 
@@ -1512,6 +1506,16 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         setMimeType(dt == null ? null : dt.getMimeType());
     }
 
+    /**
+     * Sets the data type of a message read back from its serialized form. Unlike
+     * {@link #setDataType(DataType)} the encoding and mime type properties are left
+     * as they are, as they are restored along with the other properties.
+     */
+    public void restoreDataType(DataType<?> dt)
+    {
+        dataType = dt;
+    }
+
     //////////////////////////////// ThreadSafeAccess Impl ///////////////////////////////
 
     /**
@@ -1965,20 +1969,9 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
             attachments.put(name, getOutboundAttachment(name));
         }
 
-        Map<String, Object> newInboundProperties = new HashMap<String, Object>(3);
-        for (String name : getOutboundPropertyNames())
-        {
-            newInboundProperties.put(name, getOutboundProperty(name));
-        }
-
-        newMessage.clearProperties(PropertyScope.INBOUND);
         newMessage.clearProperties(PropertyScope.INVOCATION);
-        newMessage.clearProperties(PropertyScope.OUTBOUND);
-
-        for (Map.Entry<String, Object> s : newInboundProperties.entrySet())
-        {
-            newMessage.setInboundProperty(s.getKey(), s.getValue());
-        }
+        newMessage.assertAccess(WRITE);
+        newMessage.properties.copyOutboundToInbound(properties);
 
         newMessage.inboundAttachments.clear();
         newMessage.outboundAttachments.clear();
@@ -2000,6 +1993,11 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         properties.sessionMap = sessionProperties;
     }
 
+    Map<String, Object> getInvocationProperties()
+    {
+        return properties.invocationMap;
+    }
+
     void setInvocationProperties(Map<String, Object> invocationProperties)
     {
         properties.invocationMap = invocationProperties;
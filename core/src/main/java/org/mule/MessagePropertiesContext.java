@@ -12,15 +12,17 @@ import org.mule.api.MuleSession;
 import org.mule.api.transport.PropertyScope;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.util.CaseInsensitiveHashMap;
+import org.mule.util.CopyOnWriteCaseInsensitiveMap;
 import org.mule.util.MapUtils;
 import org.mule.util.ObjectUtils;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.AbstractMap;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -45,6 +47,11 @@ import org.apache.commons.logging.LogFactory;
  * used once a {@link MuleEvent} has been created as there is no {@link MuleSession} and therefore Session
  * scope properties before this time</li>
  * </ol>
+ * The inbound and outbound properties are stored in {@link CopyOnWriteCaseInsensitiveMap}s, so copying
+ * the properties of a message to a new one shares them until either message modifies them.
+ * <p/>
+ * The serialized form is still the one of the scoped map of properties and the set of property names that
+ * this class used to hold, so that messages can be exchanged with and stored by previous versions.
  */
 public class MessagePropertiesContext implements Serializable
 {
@@ -53,27 +60,17 @@ public class MessagePropertiesContext implements Serializable
 
     private static Log logger = LogFactory.getLog(MessagePropertiesContext.class);
 
-    /**
-     * Map of maps containing the scoped properties, each scope has its own Map.
-     */
-    protected Map<PropertyScope, Map<String, Object>> scopedMap;
+    protected CopyOnWriteCaseInsensitiveMap<Object> inboundMap = new CopyOnWriteCaseInsensitiveMap<Object>();
+    protected CopyOnWriteCaseInsensitiveMap<Object> outboundMap = new CopyOnWriteCaseInsensitiveMap<Object>();
 
     protected Map<String, Object> invocationMap = new UndefinedInvocationPropertiesMap();
     protected transient Map<String, Object> sessionMap = new UndefinedSessionPropertiesMap();
 
-    /**
-     * The union of all property names from all scopes.
-     */
-    protected Set<String> keySet;
-
-    @SuppressWarnings("unchecked")
-    public MessagePropertiesContext()
-    {
-        keySet = new TreeSet<String>();
-        scopedMap = new TreeMap<PropertyScope, Map<String, Object>>(new PropertyScope.ScopeComparator());
-        scopedMap.put(PropertyScope.INBOUND, new CaseInsensitiveHashMap/* <String, Object> */(6));
-        scopedMap.put(PropertyScope.OUTBOUND, new CaseInsensitiveHashMap/* <String, Object> */(6));
-    }
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("scopedMap", Map.class),
+        new ObjectStreamField("keySet", Set.class),
+        new ObjectStreamField("invocationMap", Map.class)
+    };
 
     protected Map<String, Object> getScopedProperties(PropertyScope scope)
     {
@@ -85,14 +82,17 @@ public class MessagePropertiesContext implements Serializable
         {
             return invocationMap;
         }
+        else if (PropertyScope.INBOUND.equals(scope))
+        {
+            return inboundMap;
+        }
+        else if (PropertyScope.OUTBOUND.equals(scope))
+        {
+            return outboundMap;
+        }
         else
         {
-            Map<String, Object> map = scopedMap.get(scope);
-            if (map == null)
-            {
-                throw new IllegalArgumentException("Scope not registered: " + scope);
-            }
-            return map;
+            throw new IllegalArgumentException("Scope not registered: " + scope);
         }
     }
 
@@ -105,16 +105,56 @@ public class MessagePropertiesContext implements Serializable
     {
         if (properties != null)
         {
-            Map<String, Object> props = new HashMap<String, Object>(properties.size());
-            for (Map.Entry<String, Object> entry : properties.entrySet())
+            inboundMap.putAll(properties);
+        }
+    }
+
+    /**
+     * Copies the inbound properties and the outbound properties that are not null of another context to
+     * this one. The properties are shared with the other context, without copying them, when this one
+     * does not have any property of those scopes yet.
+     *
+     * @param source the context to copy the properties from
+     */
+    protected void copyProperties(MessagePropertiesContext source)
+    {
+        if (inboundMap.isEmpty())
+        {
+            inboundMap = source.inboundMap.copy();
+        }
+        else
+        {
+            inboundMap.putAll(source.inboundMap);
+        }
+
+        if (outboundMap.isEmpty() && !source.outboundMap.containsValue(null))
+        {
+            outboundMap = source.outboundMap.copy();
+        }
+        else
+        {
+            for (Map.Entry<String, Object> entry : source.outboundMap.entrySet())
             {
-                props.put(entry.getKey(), entry.getValue());
+                if (entry.getValue() != null)
+                {
+                    outboundMap.put(entry.getKey(), entry.getValue());
+                }
             }
-            getScopedProperties(PropertyScope.INBOUND).putAll(props);
-            keySet.addAll(props.keySet());
         }
     }
 
+    /**
+     * Replaces the inbound properties of this context with the outbound properties of another one, and
+     * removes the outbound properties of this context.
+     *
+     * @param source the context to copy the outbound properties from
+     */
+    protected void copyOutboundToInbound(MessagePropertiesContext source)
+    {
+        inboundMap = source.outboundMap.copy();
+        outboundMap = new CopyOnWriteCaseInsensitiveMap<Object>();
+    }
+
     /**
      * @deprecated use the overloaded version with an explicit lookup scope. This method will now use only the
      *             outbound scope.
@@ -142,12 +182,8 @@ public class MessagePropertiesContext implements Serializable
      */
     public void clearProperties()
     {
-        Map<String, Object> props = getScopedProperties(PropertyScope.INVOCATION);
-        keySet.removeAll(props.keySet());
-        props.clear();
-        props = getScopedProperties(PropertyScope.OUTBOUND);
-        keySet.removeAll(props.keySet());
-        props.clear();
+        getScopedProperties(PropertyScope.INVOCATION).clear();
+        getScopedProperties(PropertyScope.OUTBOUND).clear();
     }
 
     public void clearProperties(PropertyScope scope)
@@ -158,9 +194,7 @@ public class MessagePropertiesContext implements Serializable
             return;
         }
 
-        Map<String, Object> props = getScopedProperties(scope);
-        keySet.removeAll(props.keySet());
-        props.clear();
+        getScopedProperties(scope).clear();
     }
 
     /**
@@ -175,8 +209,6 @@ public class MessagePropertiesContext implements Serializable
         Object value = getScopedProperties(PropertyScope.OUTBOUND).remove(key);
         Object inv = getScopedProperties(PropertyScope.INVOCATION).remove(key);
 
-        keySet.remove(key);
-
         if (value == null)
         {
             value = inv;
@@ -198,17 +230,7 @@ public class MessagePropertiesContext implements Serializable
             return removeProperty(key);
         }
 
-        Object value = getScopedProperties(scope).remove(key);
-
-        // Only remove the property from the keySet if it does not exist in any other scope besides this one.
-        if (getProperty(key, PropertyScope.OUTBOUND) == null
-            && getProperty(key, PropertyScope.INVOCATION) == null
-            && getProperty(key, PropertyScope.INBOUND) == null)
-        {
-            keySet.remove(key);
-        }
-
-        return value;
+        return getScopedProperties(scope).remove(key);
     }
 
     /**
@@ -222,7 +244,6 @@ public class MessagePropertiesContext implements Serializable
     public void setProperty(String key, Object value)
     {
         getScopedProperties(DEFAULT_SCOPE).put(key, value);
-        keySet.add(key);
     }
 
     /**
@@ -241,7 +262,6 @@ public class MessagePropertiesContext implements Serializable
         }
 
         getScopedProperties(scope).put(key, value);
-        keySet.add(key);
     }
 
     /**
@@ -251,7 +271,10 @@ public class MessagePropertiesContext implements Serializable
     public Set<String> getPropertyNames()
     {
         Set<String> allProps = new HashSet<String>();
-        allProps.addAll(keySet);
+        allProps.addAll(inboundMap.keySet());
+        allProps.addAll(outboundMap.keySet());
+        allProps.addAll(invocationMap.keySet());
+        allProps.addAll(sessionMap.keySet());
         return allProps;
     }
 
@@ -332,12 +355,12 @@ public class MessagePropertiesContext implements Serializable
     {
         StringBuffer buf = new StringBuffer(128);
         buf.append("Properties{");
-        for (Map.Entry<PropertyScope, Map<String, Object>> entry : scopedMap.entrySet())
-        {
-            buf.append(entry.getKey()).append(":");
-            buf.append(MapUtils.toString(entry.getValue(), false));
-            buf.append(", ");
-        }
+        buf.append(PropertyScope.INBOUND).append(":");
+        buf.append(MapUtils.toString(inboundMap, false));
+        buf.append(", ");
+        buf.append(PropertyScope.OUTBOUND).append(":");
+        buf.append(MapUtils.toString(outboundMap, false));
+        buf.append(", ");
         buf.append("}");
         return buf.toString();
     }
@@ -349,7 +372,7 @@ public class MessagePropertiesContext implements Serializable
     {
         for (PropertyScope scope : new PropertyScope[]{PropertyScope.INBOUND, PropertyScope.OUTBOUND})
         {
-            for (Map.Entry<String, Object> entry : scopedMap.get(scope).entrySet())
+            for (Map.Entry<String, Object> entry : getScopedProperties(scope).entrySet())
             {
                 Object value = entry.getValue();
                 if (value != null && !(value instanceof Serializable))
@@ -377,15 +400,62 @@ public class MessagePropertiesContext implements Serializable
                 }
             }
         }
-        out.defaultWriteObject();
+        Map<PropertyScope, Map<String, Object>> scopedMap = new TreeMap<PropertyScope, Map<String, Object>>(
+            new PropertyScope.ScopeComparator());
+        scopedMap.put(PropertyScope.INBOUND, toCaseInsensitiveHashMap(inboundMap));
+        scopedMap.put(PropertyScope.OUTBOUND, toCaseInsensitiveHashMap(outboundMap));
+
+        Set<String> keySet = new TreeSet<String>();
+        keySet.addAll(inboundMap.keySet());
+        keySet.addAll(outboundMap.keySet());
+        keySet.addAll(invocationMap.keySet());
+
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("scopedMap", scopedMap);
+        fields.put("keySet", keySet);
+        // the flow variables of an event, which previous versions would not be able to read
+        fields.put("invocationMap", invocationMap instanceof CopyOnWriteCaseInsensitiveMap
+                                    ? toCaseInsensitiveHashMap(invocationMap) : invocationMap);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> toCaseInsensitiveHashMap(Map<String, Object> properties)
+    {
+        Map<String, Object> map = new CaseInsensitiveHashMap(properties.size());
+        map.putAll(properties);
+        return map;
     }
 
+    @SuppressWarnings("unchecked")
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
     {
-        in.defaultReadObject();
+        ObjectInputStream.GetField fields = in.readFields();
+        Map<PropertyScope, Map<String, Object>> scopedMap = (Map<PropertyScope, Map<String, Object>>) fields.get(
+            "scopedMap", null);
+        inboundMap = new CopyOnWriteCaseInsensitiveMap<Object>();
+        outboundMap = new CopyOnWriteCaseInsensitiveMap<Object>();
+        if (scopedMap != null)
+        {
+            putAll(scopedMap.get(PropertyScope.INBOUND), inboundMap);
+            putAll(scopedMap.get(PropertyScope.OUTBOUND), outboundMap);
+        }
+        invocationMap = (Map<String, Object>) fields.get("invocationMap", null);
+        if (invocationMap == null)
+        {
+            invocationMap = new UndefinedInvocationPropertiesMap();
+        }
         sessionMap = new UndefinedSessionPropertiesMap();
     }
 
+    private void putAll(Map<String, Object> source, Map<String, Object> target)
+    {
+        if (source != null)
+        {
+            target.putAll(source);
+        }
+    }
+
     private static class UndefinedSessionPropertiesMap extends AbstractMap<String, Object>
         implements Serializable
     {
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.api.serialization;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Defines how objects are turned into bytes and back when Mule needs to send them
+ * across the wire or keep them in a persistent store, for example the session
+ * propagated by the session handlers or the items of a persistent queue.
+ * <p/>
+ * The default implementation is registered in the registry under
+ * {@link org.mule.api.config.MuleProperties#OBJECT_SERIALIZER}. Implementations must be
+ * thread safe and must be able to read what they write even after a restart.
+ */
+public interface ObjectSerializer
+{
+
+    /**
+     * Serializes an object into a byte array.
+     *
+     * @param object the object to serialize, may be null
+     * @return the serialized form of the object
+     * @throws SerializationException if the object cannot be serialized
+     */
+    byte[] serialize(Object object) throws SerializationException;
+
+    /**
+     * Serializes an object into a stream. The stream is closed once the object is
+     * written.
+     *
+     * @param object the object to serialize, may be null
+     * @param out the stream to write to
+     * @throws SerializationException if the object cannot be serialized
+     */
+    void serialize(Object object, OutputStream out) throws SerializationException;
+
+    /**
+     * Deserializes an object previously serialized by this serializer.
+     *
+     * @param bytes the serialized form of the object
+     * @return the deserialized object
+     * @throws SerializationException if the bytes cannot be deserialized
+     */
+    <T> T deserialize(byte[] bytes) throws SerializationException;
+
+    /**
+     * Deserializes an object from a stream. The stream is closed once the object is
+     * read.
+     *
+     * @param in the stream to read from
+     * @return the deserialized object
+     * @throws SerializationException if the stream cannot be deserialized
+     */
+    <T> T deserialize(InputStream in) throws SerializationException;
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.api.serialization;
+
+import org.mule.api.MuleRuntimeException;
+import org.mule.config.i18n.MessageFactory;
+
+/**
+ * Thrown by an {@link ObjectSerializer} when an object cannot be serialized or
+ * deserialized.
+ */
+public class SerializationException extends MuleRuntimeException
+{
+
+    private static final long serialVersionUID = -2550225226351711742L;
+
+    public SerializationException(String message)
+    {
+        super(MessageFactory.createStaticMessage(message));
+    }
+
+    public SerializationException(String message, Throwable cause)
+    {
+        super(MessageFactory.createStaticMessage(message), cause);
+    }
+}
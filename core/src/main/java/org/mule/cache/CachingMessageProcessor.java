@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.cache.CachingStrategy;
+import org.mule.api.lifecycle.Disposable;
+import org.mule.api.lifecycle.Initialisable;
+import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.processor.AbstractMessageProcessorOwner;
+import org.mule.processor.chain.DefaultMessageProcessorChainBuilder;
+
+import java.util.List;
+
+/**
+ * The <code>CachingMessageProcessor</code> processes its nested message processors
+ * through a {@link CachingStrategy}, so that they are only executed when there is no
+ * cached response for the event.
+ * <p/>
+ * When no strategy is configured, an {@link ObjectStoreCachingStrategy} with the
+ * default settings is used.
+ */
+public class CachingMessageProcessor extends AbstractMessageProcessorOwner implements Initialisable, MessageProcessor
+{
+
+    private List<MessageProcessor> messageProcessors;
+    private MessageProcessor ownedMessageProcessor;
+    private CachingStrategy cachingStrategy;
+    private boolean ownsCachingStrategy;
+
+    @Override
+    public MuleEvent process(MuleEvent event) throws MuleException
+    {
+        return cachingStrategy.process(event, ownedMessageProcessor);
+    }
+
+    @Override
+    public void initialise() throws InitialisationException
+    {
+        if (cachingStrategy == null)
+        {
+            ObjectStoreCachingStrategy defaultStrategy = new ObjectStoreCachingStrategy();
+            if (flowConstruct != null)
+            {
+                defaultStrategy.setGlobalName(flowConstruct.getName() + "-cache");
+            }
+            defaultStrategy.setMuleContext(muleContext);
+            defaultStrategy.initialise();
+            cachingStrategy = defaultStrategy;
+            ownsCachingStrategy = true;
+        }
+
+        try
+        {
+            this.ownedMessageProcessor = new DefaultMessageProcessorChainBuilder().chain(messageProcessors)
+                    .build();
+        }
+        catch (MuleException e)
+        {
+            throw new InitialisationException(e, this);
+        }
+        super.initialise();
+    }
+
+    @Override
+    public void dispose()
+    {
+        super.dispose();
+        if (ownsCachingStrategy && cachingStrategy instanceof Disposable)
+        {
+            ((Disposable) cachingStrategy).dispose();
+        }
+    }
+
+    @Override
+    protected List<MessageProcessor> getOwnedMessageProcessors()
+    {
+        return messageProcessors;
+    }
+
+    public void setMessageProcessors(List<MessageProcessor> messageProcessors) throws MuleException
+    {
+        this.messageProcessors = messageProcessors;
+    }
+
+    public CachingStrategy getCachingStrategy()
+    {
+        return cachingStrategy;
+    }
+
+    public void setCachingStrategy(CachingStrategy cachingStrategy)
+    {
+        this.cachingStrategy = cachingStrategy;
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.VoidMuleEvent;
+import org.mule.api.DefaultMuleException;
+import org.mule.api.GlobalNameableObject;
+import org.mule.api.MuleContext;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleEventKeyGenerator;
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.NameableObject;
+import org.mule.api.cache.CachingStrategy;
+import org.mule.api.cache.InvalidatableCachingStrategy;
+import org.mule.api.cache.InvalidateCacheException;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.lifecycle.Disposable;
+import org.mule.api.lifecycle.Initialisable;
+import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.api.routing.filter.Filter;
+import org.mule.api.store.ListableObjectStore;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.ObjectStoreManager;
+import org.mule.api.transport.PropertyScope;
+import org.mule.keygenerator.ExpressionMuleEventKeyGenerator;
+import org.mule.keygenerator.SHA256MuleEventKeyGenerator;
+import org.mule.management.stats.AllStatistics;
+import org.mule.management.stats.CachingStrategyStatistics;
+import org.mule.util.store.MonitoredObjectStoreWrapper;
+
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Implements {@link CachingStrategy} keeping the responses in an {@link ObjectStore}.
+ * <p/>
+ * Requests are identified by the key that the configured {@link MuleEventKeyGenerator}
+ * generates for them, by default the SHA-256 digest of the payload. Only the payload
+ * and the inbound and outbound properties of a response are kept, so a cached response
+ * never carries flow or session variables from the event that originated it. Streamed
+ * payloads are read into memory before being cached so that the response can be
+ * returned any number of times.
+ * <p/>
+ * When no store is configured, an in memory store is obtained from the
+ * {@link ObjectStoreManager} that is limited to {@link #setMaxEntries(int)} entries,
+ * removing the oldest entries first, and expires them after {@link #setEntryTTL(int)}
+ * milliseconds. The entries removed that way are counted as evictions, like the
+ * invalidated ones. The evictions done by a configured store are not visible to the
+ * strategy and are not counted.
+ * <p/>
+ * The statistics and the default store are named after the strategy. Without a
+ * configured name, the bean name is used, so that the name is kept across restarts.
+ */
+public class ObjectStoreCachingStrategy implements CachingStrategy, InvalidatableCachingStrategy, NameableObject, GlobalNameableObject, MuleContextAware, Initialisable, Disposable
+{
+
+    public static final int DEFAULT_MAX_ENTRIES = 4000;
+    public static final int DEFAULT_ENTRY_TTL = 5 * 60 * 1000;
+    public static final int DEFAULT_EXPIRATION_INTERVAL = 5 * 1000;
+    public static final String DEFAULT_NAME = "caching-strategy";
+
+    protected Log logger = LogFactory.getLog(getClass());
+
+    private String name;
+    private String globalName;
+    private MuleContext muleContext;
+    private MuleEventKeyGenerator keyGenerator = new SHA256MuleEventKeyGenerator();
+    private ObjectStore<CachedResponse> store;
+    private Filter filter;
+    private boolean persistent = false;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private int entryTTL = DEFAULT_ENTRY_TTL;
+    private int expirationInterval = DEFAULT_EXPIRATION_INTERVAL;
+    private CachingStrategyStatistics statistics;
+    private EvictionCountingStore monitoredStore;
+
+    @Override
+    public void initialise() throws InitialisationException
+    {
+        if (name == null)
+        {
+            name = uniqueName(globalName != null ? globalName : DEFAULT_NAME);
+        }
+
+        statistics = new CachingStrategyStatistics(name);
+        if (muleContext.getStatistics() != null)
+        {
+            muleContext.getStatistics().add(statistics);
+        }
+
+        if (store == null)
+        {
+            ObjectStoreManager objectStoreManager = muleContext.getRegistry().lookupObject(
+                MuleProperties.OBJECT_STORE_MANAGER);
+            if (maxEntries == 0)
+            {
+                store = objectStoreManager.getObjectStore(name, persistent);
+            }
+            else
+            {
+                // the store is monitored here rather than by the manager, so that the
+                // entries it expires can be counted
+                monitoredStore = new EvictionCountingStore(objectStoreManager.getObjectStore(name,
+                    persistent), maxEntries, entryTTL, expirationInterval, name, statistics);
+                monitoredStore.setMuleContext(muleContext);
+                monitoredStore.initialise();
+                store = monitoredStore;
+            }
+        }
+    }
+
+    /**
+     * Appends a counter to the given name when another strategy already uses it, as
+     * the default strategies of cache scopes are all named after their flow.
+     */
+    private String uniqueName(String baseName)
+    {
+        AllStatistics allStatistics = muleContext.getStatistics();
+        if (allStatistics == null)
+        {
+            return baseName;
+        }
+
+        String uniqueName = baseName;
+        for (int i = 2; allStatistics.getCachingStrategyStatistics(uniqueName) != null; i++)
+        {
+            uniqueName = baseName + "-" + i;
+        }
+        return uniqueName;
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (monitoredStore != null)
+        {
+            monitoredStore.dispose();
+        }
+        if (muleContext.getStatistics() != null)
+        {
+            muleContext.getStatistics().remove(statistics);
+        }
+    }
+
+    @Override
+    public MuleEvent process(MuleEvent request, MessageProcessor messageProcessor) throws MuleException
+    {
+        if (filter != null && !filter.accept(request.getMessage()))
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Request not accepted by the filter, processing it without the cache");
+            }
+            return messageProcessor.process(request);
+        }
+
+        Serializable key;
+        try
+        {
+            key = keyGenerator.generateKey(request);
+        }
+        catch (NotSerializableException e)
+        {
+            throw new DefaultMuleException(e);
+        }
+
+        CachedResponse cachedResponse = lookup(key);
+        if (cachedResponse != null)
+        {
+            statistics.incHits();
+            return cachedResponse.toEvent(request);
+        }
+
+        statistics.incMisses();
+        MuleEvent response = messageProcessor.process(request);
+        if (isCacheable(response))
+        {
+            cache(key, response.getMessage());
+        }
+        return response;
+    }
+
+    private CachedResponse lookup(Serializable key)
+    {
+        CachedResponse cachedResponse;
+        try
+        {
+            cachedResponse = store.retrieve(key);
+        }
+        catch (ObjectDoesNotExistException e)
+        {
+            return null;
+        }
+        catch (ObjectStoreException e)
+        {
+            logger.warn("Unable to retrieve the cached response for key " + key + ", processing the request", e);
+            return null;
+        }
+
+        if (cachedResponse != null && cachedResponse.isExpired(System.currentTimeMillis()))
+        {
+            // the store may not have been monitored yet, so the entry is dropped here
+            try
+            {
+                removeEntry(key, true);
+            }
+            catch (InvalidateCacheException e)
+            {
+                logger.warn("Unable to remove the expired response for key " + key, e);
+            }
+            return null;
+        }
+        return cachedResponse;
+    }
+
+    protected boolean isCacheable(MuleEvent response)
+    {
+        return response != null && !VoidMuleEvent.getInstance().equals(response)
+               && response.getMessage() != null && response.getMessage().getExceptionPayload() == null;
+    }
+
+    private void cache(Serializable key, MuleMessage message)
+    {
+        try
+        {
+            Object payload = message.getPayload();
+            if (payload instanceof InputStream
+                || (message instanceof DefaultMuleMessage && ((DefaultMuleMessage) message).isConsumable()))
+            {
+                // reading the stream replaces the payload of the response with its content
+                payload = message.getPayloadAsBytes();
+            }
+
+            CachedResponse cachedResponse = new CachedResponse(payload, copyProperties(message,
+                PropertyScope.INBOUND), copyProperties(message, PropertyScope.OUTBOUND),
+                entryTTL > 0 ? System.currentTimeMillis() + entryTTL : Long.MAX_VALUE);
+
+            try
+            {
+                store.store(key, cachedResponse);
+            }
+            catch (ObjectAlreadyExistsException e)
+            {
+                // another thread cached the same request or the entry expired meanwhile
+                removeEntry(key, false);
+                store.store(key, cachedResponse);
+            }
+        }
+        catch (Exception e)
+        {
+            logger.warn("Unable to cache the response for key " + key, e);
+        }
+    }
+
+    private HashMap<String, Object> copyProperties(MuleMessage message, PropertyScope scope)
+    {
+        HashMap<String, Object> properties = new HashMap<String, Object>();
+        for (String propertyName : message.getPropertyNames(scope))
+        {
+            properties.put(propertyName, message.getProperty(propertyName, scope));
+        }
+        return properties;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void invalidate()
+    {
+        try
+        {
+            int size = store instanceof ListableObjectStore
+                       ? ((ListableObjectStore<CachedResponse>) store).allKeys().size() : 0;
+            store.clear();
+            statistics.incEvictions(size);
+        }
+        catch (ObjectStoreException e)
+        {
+            throw new InvalidateCacheException("Unable to invalidate the cache " + name, e);
+        }
+    }
+
+    @Override
+    public void invalidate(Serializable key) throws InvalidateCacheException
+    {
+        if (key == null)
+        {
+            throw new IllegalArgumentException("Cannot invalidate a null key");
+        }
+        removeEntry(key, true);
+    }
+
+    private void removeEntry(Serializable key, boolean eviction)
+    {
+        try
+        {
+            store.remove(key);
+            if (eviction)
+            {
+                statistics.incEvictions(1);
+            }
+        }
+        catch (ObjectDoesNotExistException e)
+        {
+            // already gone
+        }
+        catch (ObjectStoreException e)
+        {
+            throw new InvalidateCacheException("Unable to invalidate the entry " + key + " of the cache "
+                                               + name, e);
+        }
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        this.muleContext = context;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    @Override
+    public String getGlobalName()
+    {
+        return globalName;
+    }
+
+    @Override
+    public void setGlobalName(String globalName)
+    {
+        this.globalName = globalName;
+    }
+
+    public MuleEventKeyGenerator getKeyGenerator()
+    {
+        return keyGenerator;
+    }
+
+    public void setKeyGenerator(MuleEventKeyGenerator keyGenerator)
+    {
+        this.keyGenerator = keyGenerator;
+    }
+
+    /**
+     * Generates the keys evaluating an expression on the requests instead of using
+     * the configured key generator.
+     */
+    public void setKeyGenerationExpression(String expression)
+    {
+        ExpressionMuleEventKeyGenerator expressionKeyGenerator = new ExpressionMuleEventKeyGenerator();
+        expressionKeyGenerator.setExpression(expression);
+        this.keyGenerator = expressionKeyGenerator;
+    }
+
+    public ObjectStore<CachedResponse> getStore()
+    {
+        return store;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setStore(ObjectStore<?> store)
+    {
+        this.store = (ObjectStore<CachedResponse>) store;
+    }
+
+    public Filter getFilter()
+    {
+        return filter;
+    }
+
+    public void setFilter(Filter filter)
+    {
+        this.filter = filter;
+    }
+
+    public boolean isPersistent()
+    {
+        return persistent;
+    }
+
+    public void setPersistent(boolean persistent)
+    {
+        this.persistent = persistent;
+    }
+
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getEntryTTL()
+    {
+        return entryTTL;
+    }
+
+    public void setEntryTTL(int entryTTL)
+    {
+        this.entryTTL = entryTTL;
+    }
+
+    public int getExpirationInterval()
+    {
+        return expirationInterval;
+    }
+
+    public void setExpirationInterval(int expirationInterval)
+    {
+        this.expirationInterval = expirationInterval;
+    }
+
+    public CachingStrategyStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Expires the entries of the default store, counting the ones it removes as
+     * evictions.
+     */
+    private static class EvictionCountingStore extends MonitoredObjectStoreWrapper<CachedResponse>
+    {
+
+        private final CachingStrategyStatistics statistics;
+        private volatile Thread expiringThread;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        EvictionCountingStore(ObjectStore<?> baseStore, int maxEntries, int entryTTL,
+                              int expirationInterval, String name, CachingStrategyStatistics statistics)
+        {
+            super((ListableObjectStore) baseStore, maxEntries, entryTTL, expirationInterval);
+            this.name = name;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void expire()
+        {
+            expiringThread = Thread.currentThread();
+            try
+            {
+                super.expire();
+            }
+            finally
+            {
+                expiringThread = null;
+            }
+        }
+
+        @Override
+        public CachedResponse remove(Serializable key) throws ObjectStoreException
+        {
+            CachedResponse removed = super.remove(key);
+            if (removed != null && Thread.currentThread() == expiringThread)
+            {
+                statistics.incEvictions(1);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * The part of a response that is kept in the store.
+     */
+    public static class CachedResponse implements Serializable
+    {
+        private static final long serialVersionUID = 6281930458672130975L;
+
+        private final Object payload;
+        private final HashMap<String, Object> inboundProperties;
+        private final HashMap<String, Object> outboundProperties;
+        private final long expiresAt;
+
+        CachedResponse(Object payload, HashMap<String, Object> inboundProperties,
+                       HashMap<String, Object> outboundProperties, long expiresAt)
+        {
+            this.payload = payload;
+            this.inboundProperties = inboundProperties;
+            this.outboundProperties = outboundProperties;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now)
+        {
+            return now >= expiresAt;
+        }
+
+        /**
+         * Creates the response for a request, keeping the flow and session variables
+         * of the request.
+         */
+        MuleEvent toEvent(MuleEvent request)
+        {
+            MuleMessage message = new DefaultMuleMessage(payload, request.getMessage(),
+                request.getMuleContext());
+            message.clearProperties(PropertyScope.INBOUND);
+            message.clearProperties(PropertyScope.OUTBOUND);
+            message.addProperties(copy(inboundProperties), PropertyScope.INBOUND);
+            message.addProperties(copy(outboundProperties), PropertyScope.OUTBOUND);
+            return new DefaultMuleEvent(message, request);
+        }
+
+        private Map<String, Object> copy(Map<String, Object> properties)
+        {
+            return new HashMap<String, Object>(properties);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.mule.api.context.MuleContextAware;
 import org.mule.api.context.WorkManager;
 import org.mule.config.pool.ThreadPoolFactory;
 import org.mule.work.MuleWorkManager;
+import org.mule.work.SharedPoolWorkManager;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -224,6 +225,11 @@ public class ImmutableThreadingProfile implements ThreadingProfile
                         + ", threadFactory=" + threadFactory + "}";
     }
 
+    /**
+     * Creates a {@link MuleWorkManager} with a pool of its own, or a
+     * {@link SharedPoolWorkManager} if the {@link SharedPoolWorkManager#SHARED_POOL_PROPERTY}
+     * system property is set.
+     */
     public static class DefaultWorkManagerFactory implements WorkManagerFactory, MuleContextAware
     {
 
@@ -231,7 +237,9 @@ public class ImmutableThreadingProfile implements ThreadingProfile
 
         public WorkManager createWorkManager(ThreadingProfile profile, String name, int shutdownTimeout)
         {
-            final WorkManager workManager = new MuleWorkManager(profile, name, shutdownTimeout);
+            final WorkManager workManager = Boolean.getBoolean(SharedPoolWorkManager.SHARED_POOL_PROPERTY)
+                                            ? new SharedPoolWorkManager(name, shutdownTimeout)
+                                            : new MuleWorkManager(profile, name, shutdownTimeout);
             if (muleContext != null)
             {
                 MuleContextAware contextAware = (MuleContextAware) workManager;
@@ -247,4 +255,26 @@ public class ImmutableThreadingProfile implements ThreadingProfile
         }
     }
 
+    /**
+     * Creates {@link SharedPoolWorkManager}s, which run their work on a pool shared by
+     * all of them.
+     */
+    public static class SharedPoolWorkManagerFactory implements WorkManagerFactory, MuleContextAware
+    {
+
+        protected MuleContext muleContext;
+
+        public WorkManager createWorkManager(ThreadingProfile profile, String name, int shutdownTimeout)
+        {
+            SharedPoolWorkManager workManager = new SharedPoolWorkManager(name, shutdownTimeout);
+            workManager.setMuleContext(muleContext != null ? muleContext : profile.getMuleContext());
+            return workManager;
+        }
+
+        public void setMuleContext(MuleContext context)
+        {
+            this.muleContext = context;
+        }
+    }
+
 }
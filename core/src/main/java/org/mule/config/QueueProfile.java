@@ -27,6 +27,7 @@ public class QueueProfile
 {
     private int maxOutstandingMessages = 0;
     private QueueStore<Serializable> objectStore;
+    private boolean lockFree = false;
 
     public static QueueProfile newInstancePersistingToDefaultMemoryQueueStore(MuleContext muleContext)
     {
@@ -54,6 +55,7 @@ public class QueueProfile
     {
         this.maxOutstandingMessages = queueProfile.getMaxOutstandingMessages();
         this.objectStore = queueProfile.objectStore;
+        this.lockFree = queueProfile.isLockFree();
     }
 
     public QueueProfile(int maxOutstandingMessages, QueueStore<Serializable> objectStore)
@@ -84,6 +86,28 @@ public class QueueProfile
         this.maxOutstandingMessages = maxOutstandingMessages;
     }
 
+    /**
+     * Whether the queue keeps its messages in a lock-free structure, which scales
+     * better when many threads put and take messages concurrently.
+     *
+     * @return true if the queue is lock-free
+     */
+    public boolean isLockFree()
+    {
+        return lockFree;
+    }
+
+    /**
+     * Whether the queue keeps its messages in a lock-free structure, which scales
+     * better when many threads put and take messages concurrently.
+     *
+     * @param lockFree true for the queue to be lock-free
+     */
+    public void setLockFree(boolean lockFree)
+    {
+        this.lockFree = lockFree;
+    }
+
     public QueueConfiguration configureQueue(MuleContext context, String component, QueueManager queueManager)
         throws InitialisationException
     {
@@ -99,7 +123,7 @@ public class QueueProfile
         {
             ((MuleContextAware) objectStore).setMuleContext(context);
         }
-        return new QueueConfiguration(context, maxOutstandingMessages, objectStore);
+        return new QueueConfiguration(context, maxOutstandingMessages, objectStore, lockFree);
     }
 
     public ListableObjectStore<Serializable> getObjectStore()
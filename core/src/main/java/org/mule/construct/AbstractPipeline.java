@@ -11,6 +11,7 @@ import org.mule.api.MessagingException;
 import org.mule.api.MuleContext;
 import org.mule.api.MuleEvent;
 import org.mule.api.MuleException;
+import org.mule.api.construct.FlowConstruct;
 import org.mule.api.construct.FlowConstructInvalidException;
 import org.mule.api.construct.Pipeline;
 import org.mule.api.endpoint.InboundEndpoint;
@@ -62,6 +63,7 @@ public abstract class AbstractPipeline extends AbstractFlowConstruct implements
     private Map<MessageProcessor, String> flowMap = new LinkedHashMap<MessageProcessor, String>();
 
     protected ProcessingStrategy processingStrategy;
+    protected final InFlightBudget inFlightBudget = new InFlightBudget(0);
     private boolean canProcessMessage = false;
 
     public AbstractPipeline(String name, MuleContext muleContext)
@@ -103,6 +105,8 @@ public abstract class AbstractPipeline extends AbstractFlowConstruct implements
 
                 MuleEvent result = null;
                 MessagingException exceptionThrown = null;
+                // only counted when the pipeline has a limit
+                boolean counted = inFlightBudget.acquire();
                 try
                 {
                     return processNext(event);
@@ -114,6 +118,10 @@ public abstract class AbstractPipeline extends AbstractFlowConstruct implements
                 }
                 finally
                 {
+                    if (counted)
+                    {
+                        inFlightBudget.release();
+                    }
                     MuleEvent notificationEvent = result != null ? result : event;
                     muleContext.getNotificationManager().fireNotification(
                             new PipelineMessageNotification(AbstractPipeline.this, notificationEvent,
@@ -188,6 +196,38 @@ public abstract class AbstractPipeline extends AbstractFlowConstruct implements
         this.processingStrategy = processingStrategy;
     }
 
+    /**
+     * @return the events in flight in this pipeline, which message sources use to stop
+     *         accepting messages while the pipeline is busy
+     */
+    public InFlightBudget getInFlightBudget()
+    {
+        return inFlightBudget;
+    }
+
+    /**
+     * @return the maximum number of events in flight, 0 if there is no limit
+     */
+    public int getMaxInFlight()
+    {
+        return inFlightBudget.getMaxInFlight();
+    }
+
+    public void setMaxInFlight(int maxInFlight)
+    {
+        inFlightBudget.setMaxInFlight(maxInFlight);
+    }
+
+    /**
+     * @return true if the given flow construct is a pipeline that has reached its
+     *         maximum number of events in flight
+     */
+    public static boolean isInFlightBudgetExhausted(FlowConstruct flowConstruct)
+    {
+        return flowConstruct instanceof AbstractPipeline
+               && ((AbstractPipeline) flowConstruct).inFlightBudget.isExhausted();
+    }
+
     @Override
     protected void doInitialise() throws MuleException
     {
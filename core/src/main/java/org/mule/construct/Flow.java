@@ -145,6 +145,7 @@ public class Flow extends AbstractPipeline implements MessageProcessor
         {
             statistics = new FlowConstructStatistics(getConstructType(), name);
         }
+        statistics.setInFlightBudget(inFlightBudget);
         statistics.setEnabled(muleContext.getStatistics().isEnabled());
         muleContext.getStatistics().add(statistics);
     }
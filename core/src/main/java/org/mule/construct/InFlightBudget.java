@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.construct;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the work that is in flight in a flow: the events being processed by the
+ * threads that received them, and the events that are queued for or being processed
+ * by the asynchronous stages of the flow.
+ * <p/>
+ * The budget is not enforced by the flow itself. Message sources check
+ * {@link #isExhausted()} before they accept more messages, or wait in
+ * {@link #awaitAvailable(long)} until {@link #release()} makes room, so that a busy
+ * flow pushes back on its sources instead of queuing up events.
+ * <p/>
+ * Events are only counted while there is a limit, so that flows without one do not
+ * pay for the count.
+ */
+public class InFlightBudget
+{
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // the threads in awaitAvailable, so that release only takes the lock when needed
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object lock = new Object();
+    private volatile int maxInFlight;
+
+    /**
+     * @param maxInFlight the maximum number of events in flight, or 0 or less for no
+     *            limit
+     */
+    public InFlightBudget(int maxInFlight)
+    {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Counts one more event in flight.
+     *
+     * @return true if the event was counted, in which case it has to be released, false
+     *         if there is no limit
+     */
+    public boolean acquire()
+    {
+        if (maxInFlight <= 0)
+        {
+            return false;
+        }
+        inFlight.incrementAndGet();
+        return true;
+    }
+
+    public void release()
+    {
+        // events recovered from a persistent queue after a restart are released
+        // without having been acquired
+        for (;;)
+        {
+            int current = inFlight.get();
+            if (current <= 0)
+            {
+                return;
+            }
+            if (inFlight.compareAndSet(current, current - 1))
+            {
+                break;
+            }
+        }
+        signalWaiters();
+    }
+
+    /**
+     * Waits until the budget is not exhausted, without acquiring it: the event is
+     * counted once the flow processes it.
+     *
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return true if the budget is not exhausted, false if it still is after the timeout
+     */
+    public boolean awaitAvailable(long timeout) throws InterruptedException
+    {
+        if (!isExhausted())
+        {
+            return true;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        synchronized (lock)
+        {
+            // counted before checking again, so that a release after the check signals
+            waiters.incrementAndGet();
+            try
+            {
+                while (isExhausted())
+                {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                    {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+                return true;
+            }
+            finally
+            {
+                waiters.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return true if the flow has a limit and it has been reached
+     */
+    public boolean isExhausted()
+    {
+        int max = maxInFlight;
+        return max > 0 && inFlight.get() >= max;
+    }
+
+    /**
+     * @return the events in flight, which are only counted while there is a limit
+     */
+    public int getInFlight()
+    {
+        return inFlight.get();
+    }
+
+    public int getMaxInFlight()
+    {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight)
+    {
+        this.maxInFlight = maxInFlight;
+        signalWaiters();
+    }
+
+    private void signalWaiters()
+    {
+        if (waiters.get() > 0)
+        {
+            synchronized (lock)
+            {
+                lock.notifyAll();
+            }
+        }
+    }
+}
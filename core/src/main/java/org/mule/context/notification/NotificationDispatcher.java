@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.context.notification;
+
+import org.mule.api.context.notification.ServerNotification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.spi.work.Work;
+
+/**
+ * Delivers the notifications queued in its {@link NotificationRingBuffer} to the
+ * listeners of a {@link ServerNotificationManager}, draining them in batches.
+ */
+class NotificationDispatcher implements Work
+{
+
+    static final int BATCH_SIZE = 256;
+
+    private final ServerNotificationManager manager;
+    private final NotificationRingBuffer buffer;
+    private volatile Thread dispatchThread;
+
+    NotificationDispatcher(ServerNotificationManager manager, int capacity)
+    {
+        this.manager = manager;
+        this.buffer = new NotificationRingBuffer(capacity);
+    }
+
+    NotificationRingBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * @return whether the current thread is the one that delivers the notifications
+     *         of this dispatcher
+     */
+    boolean isDispatchThread()
+    {
+        return Thread.currentThread() == dispatchThread;
+    }
+
+    @Override
+    public void run()
+    {
+        dispatchThread = Thread.currentThread();
+        List<ServerNotification> batch = new ArrayList<ServerNotification>(BATCH_SIZE);
+        try
+        {
+            while (!manager.isDisposed())
+            {
+                if (buffer.drainTo(batch, BATCH_SIZE) == 0)
+                {
+                    buffer.awaitNotification(manager.getDispatchTimeout(), TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                for (ServerNotification notification : batch)
+                {
+                    manager.notifyListeners(notification);
+                }
+                batch.clear();
+            }
+        }
+        finally
+        {
+            dispatchThread = null;
+        }
+    }
+
+    @Override
+    public void release()
+    {
+        // nothing to do, the dispatcher stops when the manager is disposed
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.context.notification;
+
+import org.mule.api.context.notification.ServerNotification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded ring buffer of notifications that any number of threads can offer to
+ * without locking and that a single consumer thread drains in batches.
+ * <p/>
+ * Producers claim a sequence with a CAS on the tail and then publish the
+ * notification in its slot, so the consumer stops at the first slot that is not
+ * published yet. The consumer frees the slots it reads before it moves the head,
+ * which is what makes a slot available to producers again, and wakes up the
+ * producers waiting in {@link #awaitRoom(long, TimeUnit)}.
+ * <p/>
+ * Notifications that must not be lost while there is no consumer yet can be added
+ * to an unbounded overflow queue with {@link #addToOverflow(ServerNotification)}.
+ * While the overflow queue is not empty every notification offered goes to it too,
+ * and the consumer only takes from it once the ring is empty, so that the
+ * notifications stay in order.
+ */
+class NotificationRingBuffer
+{
+
+    private final AtomicReferenceArray<ServerNotification> slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final Queue<ServerNotification> overflow = new ConcurrentLinkedQueue<ServerNotification>();
+    private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<Thread>();
+
+    // only written by the consumer
+    private volatile long head;
+    private volatile Thread waitingConsumer;
+
+    /**
+     * @param capacity the maximum number of queued notifications, rounded up to a
+     *            power of two
+     */
+    NotificationRingBuffer(int capacity)
+    {
+        int size = 1;
+        while (size < capacity)
+        {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<ServerNotification>(size);
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(ServerNotification notification)
+    {
+        if (!overflow.isEmpty())
+        {
+            addToOverflow(notification);
+            return true;
+        }
+
+        long sequence;
+        do
+        {
+            sequence = tail.get();
+            if (sequence - head >= capacity)
+            {
+                return false;
+            }
+        }
+        while (!tail.compareAndSet(sequence, sequence + 1));
+
+        slots.set((int) sequence & mask, notification);
+        signalConsumer();
+        return true;
+    }
+
+    /**
+     * Queues a notification that did not fit in the ring, without any bound.
+     */
+    void addToOverflow(ServerNotification notification)
+    {
+        overflow.add(notification);
+        signalConsumer();
+    }
+
+    /**
+     * Moves the published notifications to the batch. Must only be called by the
+     * consumer thread.
+     *
+     * @return the number of notifications added to the batch
+     */
+    int drainTo(List<ServerNotification> batch, int maxNotifications)
+    {
+        long sequence = head;
+        int drained = 0;
+        while (drained < maxNotifications)
+        {
+            int index = (int) sequence & mask;
+            ServerNotification notification = slots.get(index);
+            if (notification == null)
+            {
+                break;
+            }
+            slots.lazySet(index, null);
+            batch.add(notification);
+            sequence++;
+            drained++;
+        }
+        head = sequence;
+
+        if (drained > 0)
+        {
+            // checked after moving the head so that a producer either is seen here or sees the room
+            for (Thread producer : waitingProducers)
+            {
+                LockSupport.unpark(producer);
+            }
+            return drained;
+        }
+
+        ServerNotification notification;
+        while (drained < maxNotifications && (notification = overflow.poll()) != null)
+        {
+            batch.add(notification);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Waits until a notification is published or the timeout expires. Must only be
+     * called by the consumer thread.
+     */
+    void awaitNotification(long timeout, TimeUnit unit)
+    {
+        waitingConsumer = Thread.currentThread();
+        try
+        {
+            // checked after publishing the waiting consumer so that a producer either
+            // sees it or the published notification is seen here
+            if (slots.get((int) head & mask) == null && overflow.isEmpty())
+            {
+                LockSupport.parkNanos(this, unit.toNanos(timeout));
+            }
+        }
+        finally
+        {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * Waits until the consumer makes room in the ring or the timeout expires.
+     */
+    void awaitRoom(long timeout, TimeUnit unit)
+    {
+        Thread producer = Thread.currentThread();
+        waitingProducers.add(producer);
+        try
+        {
+            // checked after registering so that the consumer either sees this thread or
+            // the room it makes is seen here
+            if (tail.get() - head >= capacity)
+            {
+                LockSupport.parkNanos(this, unit.toNanos(timeout));
+            }
+        }
+        finally
+        {
+            waitingProducers.remove(producer);
+        }
+    }
+
+    private void signalConsumer()
+    {
+        Thread consumer = waitingConsumer;
+        if (consumer != null)
+        {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * @return a copy of the queued notifications, which may miss the ones being
+     *         published or drained concurrently
+     */
+    List<ServerNotification> snapshot()
+    {
+        List<ServerNotification> notifications = new ArrayList<ServerNotification>();
+        long end = tail.get();
+        for (long sequence = head; sequence < end; sequence++)
+        {
+            ServerNotification notification = slots.get((int) sequence & mask);
+            if (notification != null)
+            {
+                notifications.add(notification);
+            }
+        }
+        notifications.addAll(overflow);
+        return notifications;
+    }
+
+    int size()
+    {
+        return (int) Math.max(0, tail.get() - head) + overflow.size();
+    }
+
+    int capacity()
+    {
+        return capacity;
+    }
+}
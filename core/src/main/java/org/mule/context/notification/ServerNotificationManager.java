@@ -7,6 +7,7 @@
 package org.mule.context.notification;
 
 import org.mule.api.MuleContext;
+import org.mule.api.config.MuleProperties;
 import org.mule.api.context.MuleContextAware;
 import org.mule.api.context.WorkManager;
 import org.mule.api.context.notification.BlockingServerEvent;
@@ -19,13 +20,16 @@ import org.mule.util.ClassUtils;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.resource.spi.work.Work;
 import javax.resource.spi.work.WorkException;
@@ -59,17 +63,65 @@ import org.apache.commons.logging.LogFactory;
  * <li>Disabling an event or interface disables all uses of that class or any subclass.</li>
  * <li>Enquiring whether an event is enabled returns true if any subclass is enabled.</li>
  * </ul>
+ *
+ * <p>Notifications that are not {@link BlockingServerEvent}s are queued in bounded ring
+ * buffers and delivered in batches by dispatch threads taken from the work manager.
+ * With more than one dispatch thread, each notification class is assigned to one of
+ * them, so the notifications of a class are still delivered in order but a slow
+ * listener of one class does not delay the others. When a buffer is full, the
+ * {@link OverflowPolicy} decides whether the notification is dropped or the thread
+ * that fires it waits, which it only does once the manager is started. The queue capacity, the number of dispatch threads and the
+ * overflow policy are read from the {@link #QUEUE_CAPACITY_PROPERTY},
+ * {@link #DISPATCH_THREADS_PROPERTY} and {@link #OVERFLOW_POLICY_PROPERTY} system
+ * properties, and can only be changed before the first notification is queued.</p>
  */
 public class ServerNotificationManager implements Work, Disposable, ServerNotificationHandler, MuleContextAware
 {
     public static final String NULL_SUBSCRIPTION = "NULL";
+
+    public static final String QUEUE_CAPACITY_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "notifications.queueCapacity";
+    public static final String DISPATCH_THREADS_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "notifications.dispatchThreads";
+    public static final String OVERFLOW_POLICY_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "notifications.overflowPolicy";
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 65536;
+
+    // the longest a thread waits for room before checking for disposal and interruption
+    private static final long OVERFLOW_WAIT_MILLIS = 100;
+
+    /**
+     * What to do with a notification when the queue of its dispatch thread is full
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * The thread that fires the notification waits until it can be queued. A
+         * dispatch thread delivers it itself instead, as it could be waiting for itself.
+         * Before the manager is started, when nothing drains the queue yet, the
+         * notification is kept in an unbounded overflow queue instead.
+         */
+        WAIT,
+        /**
+         * The notification is discarded and counted in
+         * {@link ServerNotificationManager#getDroppedNotifications()}
+         */
+        DROP
+    }
+
     protected Log logger = LogFactory.getLog(getClass());
     private boolean dynamic = false;
     private Configuration configuration = new Configuration();
     private AtomicBoolean disposed = new AtomicBoolean(false);
-    private BlockingDeque<ServerNotification> eventQueue = new LinkedBlockingDeque<ServerNotification>();
     private MuleContext muleContext;
 
+    private int queueCapacity = Integer.getInteger(QUEUE_CAPACITY_PROPERTY, DEFAULT_QUEUE_CAPACITY);
+    private int dispatchThreads = Integer.getInteger(DISPATCH_THREADS_PROPERTY, 1);
+    private OverflowPolicy overflowPolicy = OverflowPolicy.valueOf(System.getProperty(OVERFLOW_POLICY_PROPERTY, OverflowPolicy.WAIT.name()).toUpperCase());
+    private volatile NotificationDispatcher[] dispatchers;
+    private final ConcurrentMap<Class<?>, NotificationDispatcher> dispatchersByType = new ConcurrentHashMap<Class<?>, NotificationDispatcher>();
+    private final AtomicInteger nextDispatcher = new AtomicInteger();
+    private final AtomicLong droppedNotifications = new AtomicLong();
+    private volatile boolean started = false;
+
     @Override
     public boolean isNotificationDynamic()
     {
@@ -89,14 +141,140 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
 
     public void start(WorkManager workManager, WorkListener workListener) throws LifecycleException
     {
+        NotificationDispatcher[] current = getDispatchers();
         try
         {
             workManager.scheduleWork(this, WorkManager.INDEFINITE, null, workListener);
+            for (int i = 1; i < current.length; i++)
+            {
+                workManager.scheduleWork(current[i], WorkManager.INDEFINITE, null, workListener);
+            }
         }
         catch (WorkException e)
         {
             throw new LifecycleException(e, this);
         }
+        started = true;
+    }
+
+    /**
+     * @param queueCapacity the maximum number of notifications queued for each
+     *            dispatch thread
+     */
+    public void setQueueCapacity(int queueCapacity)
+    {
+        checkNotQueuing();
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    public void setDispatchThreads(int dispatchThreads)
+    {
+        checkNotQueuing();
+        this.dispatchThreads = Math.max(1, dispatchThreads);
+    }
+
+    public int getDispatchThreads()
+    {
+        return dispatchThreads;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy)
+    {
+        checkNotQueuing();
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public OverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return the number of notifications waiting to be delivered
+     */
+    public int getQueuedNotifications()
+    {
+        int queued = 0;
+        for (NotificationDispatcher dispatcher : getDispatchers())
+        {
+            queued += dispatcher.getBuffer().size();
+        }
+        return queued;
+    }
+
+    /**
+     * @return the number of notifications discarded because their queue was full
+     */
+    public long getDroppedNotifications()
+    {
+        return droppedNotifications.get();
+    }
+
+    private void checkNotQueuing()
+    {
+        if (dispatchers != null)
+        {
+            throw new IllegalStateException("The notification queues can not be changed once notifications are queued");
+        }
+    }
+
+    private NotificationDispatcher[] getDispatchers()
+    {
+        NotificationDispatcher[] current = dispatchers;
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = dispatchers;
+                if (current == null)
+                {
+                    current = new NotificationDispatcher[dispatchThreads];
+                    for (int i = 0; i < current.length; i++)
+                    {
+                        current[i] = new NotificationDispatcher(this, queueCapacity);
+                    }
+                    dispatchers = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private NotificationDispatcher getDispatcher(Class<?> type)
+    {
+        NotificationDispatcher[] current = getDispatchers();
+        if (current.length == 1)
+        {
+            return current[0];
+        }
+        NotificationDispatcher dispatcher = dispatchersByType.get(type);
+        if (dispatcher == null)
+        {
+            dispatcher = current[(nextDispatcher.getAndIncrement() & Integer.MAX_VALUE) % current.length];
+            NotificationDispatcher existing = dispatchersByType.putIfAbsent(type, dispatcher);
+            if (existing != null)
+            {
+                dispatcher = existing;
+            }
+        }
+        return dispatcher;
+    }
+
+    private boolean isDispatchThread()
+    {
+        for (NotificationDispatcher dispatcher : getDispatchers())
+        {
+            if (dispatcher.isDispatchThread())
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     public void addInterfaceToType(Class<? extends ServerNotificationListener> iface, Class<? extends ServerNotification> event)
@@ -197,22 +375,57 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
             }
             else
             {
-                try
+                NotificationDispatcher dispatcher = getDispatcher(notification.getClass());
+                if (!dispatcher.getBuffer().offer(notification))
+                {
+                    queueOnOverflow(dispatcher, notification);
+                }
+            }
+        }
+        else
+        {
+            logger.warn("Notification not enqueued after ServerNotificationManager disposal: " + notification);
+        }
+    }
+
+    private void queueOnOverflow(NotificationDispatcher dispatcher, ServerNotification notification)
+    {
+        NotificationRingBuffer buffer = dispatcher.getBuffer();
+        if (overflowPolicy == OverflowPolicy.WAIT)
+        {
+            if (!started)
+            {
+                // nothing drains the queue yet, so waiting would block the startup
+                buffer.addToOverflow(notification);
+                return;
+            }
+            if (isDispatchThread())
+            {
+                notifyListeners(notification);
+                return;
+            }
+            while (!buffer.offer(notification))
+            {
+                if (disposed.get())
                 {
-                    eventQueue.put(notification);
+                    return;
                 }
-                catch (InterruptedException e)
+                if (Thread.currentThread().isInterrupted())
                 {
-                    if (!disposed.get())
-                    {
-                        logger.error("Failed to queue notification: " + notification, e);
-                    }
+                    logger.error("Failed to queue notification: " + notification);
+                    droppedNotifications.incrementAndGet();
+                    return;
                 }
+                buffer.awaitRoom(OVERFLOW_WAIT_MILLIS, TimeUnit.MILLISECONDS);
             }
         }
         else
         {
-            logger.warn("Notification not enqueued after ServerNotificationManager disposal: " + notification);
+            droppedNotifications.incrementAndGet();
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Notification queue is full, dropping notification: " + notification);
+            }
         }
     }
 
@@ -256,33 +469,39 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
         dispose();
     }
 
+    /**
+     * Delivers the notifications of the first dispatch thread, the others are
+     * scheduled separately on {@link #start(WorkManager, WorkListener)}.
+     */
     @Override
     public void run()
     {
-        while (!disposed.get())
-        {
-            try
-            {
-                int timeout = muleContext.getConfiguration().getDefaultQueueTimeout();
-                ServerNotification notification = eventQueue.poll(timeout, TimeUnit.MILLISECONDS);
-                if (notification != null)
-                {
-                    notifyListeners(notification);
-                }
-            }
-            catch (InterruptedException e)
-            {
-                Thread.currentThread().interrupt();
-            }
-        }
+        getDispatchers()[0].run();
+    }
+
+    boolean isDisposed()
+    {
+        return disposed.get();
+    }
+
+    long getDispatchTimeout()
+    {
+        return muleContext.getConfiguration().getDefaultQueueTimeout();
     }
 
     /**
-     * @return DIRECT reference to an event queue
+     * @return a copy of the notifications waiting to be delivered
+     * @deprecated use {@link #getQueuedNotifications()} to monitor the queues
      */
+    @Deprecated
     public Queue<ServerNotification> getEventQueue()
     {
-        return eventQueue;
+        Queue<ServerNotification> queue = new LinkedList<ServerNotification>();
+        for (NotificationDispatcher dispatcher : getDispatchers())
+        {
+            queue.addAll(dispatcher.getBuffer().snapshot());
+        }
+        return queue;
     }
 
     /**
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.el.mvel;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache of compiled expressions that can be used concurrently and is bounded both
+ * by the number of expressions and by their total weight, which is the length of
+ * the expressions.
+ * <p/>
+ * Expressions are evicted with the CLOCK algorithm: a hit marks an expression as
+ * recently used and the eviction skips, and unmarks, the marked expressions once.
+ * Lookups never lock. Only one thread evicts at a time while the others go on
+ * adding expressions, so the bounds can be exceeded for a short time.
+ */
+public class CompiledExpressionCache
+{
+
+    private final int maxSize;
+    private final long maxWeight;
+
+    private final ConcurrentMap<String, CachedExpression> expressions = new ConcurrentHashMap<String, CachedExpression>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong weight = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // guarded by evictionLock
+    private Iterator<Map.Entry<String, CachedExpression>> clockHand;
+
+    /**
+     * @param maxSize the maximum number of cached expressions
+     * @param maxWeight the maximum number of characters of all the cached expressions
+     */
+    public CompiledExpressionCache(int maxSize, long maxWeight)
+    {
+        if (maxSize < 1 || maxWeight < 1)
+        {
+            throw new IllegalArgumentException("The bounds of the cache must be positive");
+        }
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @return the compiled expression, or null if it is not cached
+     */
+    public Serializable get(String expression)
+    {
+        CachedExpression cached = expressions.get(expression);
+        if (cached == null)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        if (!cached.referenced)
+        {
+            cached.referenced = true;
+        }
+        return cached.compiledExpression;
+    }
+
+    /**
+     * Caches a compiled expression unless another thread cached it first.
+     *
+     * @return the compiled expression that is cached for the expression
+     */
+    public Serializable putIfAbsent(String expression, Serializable compiledExpression)
+    {
+        CachedExpression cached = new CachedExpression(compiledExpression, expression.length());
+        CachedExpression existing = expressions.putIfAbsent(expression, cached);
+        if (existing != null)
+        {
+            return existing.compiledExpression;
+        }
+        size.incrementAndGet();
+        weight.addAndGet(cached.weight);
+        if (isOverBounds())
+        {
+            evict();
+        }
+        return compiledExpression;
+    }
+
+    public void clear()
+    {
+        evictionLock.lock();
+        try
+        {
+            for (Iterator<Map.Entry<String, CachedExpression>> it = expressions.entrySet().iterator(); it.hasNext();)
+            {
+                remove(it.next());
+            }
+            clockHand = null;
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean isOverBounds()
+    {
+        return size.get() > maxSize || weight.get() > maxWeight;
+    }
+
+    private void evict()
+    {
+        if (!evictionLock.tryLock())
+        {
+            return;
+        }
+        try
+        {
+            // every expression is unmarked in the first round, so two rounds always evict enough
+            int remainingSteps = 2 * (expressions.size() + 1);
+            while (isOverBounds() && remainingSteps-- > 0)
+            {
+                if (clockHand == null || !clockHand.hasNext())
+                {
+                    clockHand = expressions.entrySet().iterator();
+                    if (!clockHand.hasNext())
+                    {
+                        return;
+                    }
+                }
+                Map.Entry<String, CachedExpression> entry = clockHand.next();
+                if (entry.getValue().referenced)
+                {
+                    entry.getValue().referenced = false;
+                }
+                else if (remove(entry))
+                {
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean remove(Map.Entry<String, CachedExpression> entry)
+    {
+        if (expressions.remove(entry.getKey(), entry.getValue()))
+        {
+            size.decrementAndGet();
+            weight.addAndGet(-entry.getValue().weight);
+            return true;
+        }
+        return false;
+    }
+
+    public int getSize()
+    {
+        return size.get();
+    }
+
+    /**
+     * @return the number of characters of all the cached expressions
+     */
+    public long getWeight()
+    {
+        return weight.get();
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CompiledExpressionCache{size=" + getSize() + ", weight=" + getWeight() + ", hits=" + getHits()
+               + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "}";
+    }
+
+    private static class CachedExpression
+    {
+
+        private final Serializable compiledExpression;
+        private final int weight;
+        // racy on purpose, a lost update only changes which expression is evicted
+        private boolean referenced;
+
+        CachedExpression(Serializable compiledExpression, int weight)
+        {
+            this.compiledExpression = compiledExpression;
+            this.weight = Math.max(1, weight);
+        }
+    }
+}
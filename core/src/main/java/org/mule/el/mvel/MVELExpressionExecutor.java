@@ -6,12 +6,12 @@
  */
 package org.mule.el.mvel;
 
+import org.mule.api.config.MuleProperties;
 import org.mule.api.el.ExpressionExecutor;
 import org.mule.api.expression.InvalidExpressionException;
 
 import java.io.Serializable;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.mule.mvel2.MVEL;
 import org.mule.mvel2.ParserContext;
 import org.mule.mvel2.optimizers.OptimizerFactory;
@@ -23,21 +23,43 @@ public class MVELExpressionExecutor implements ExpressionExecutor<MVELExpression
 
     private static Logger log = LoggerFactory.getLogger(MVELExpressionExecutor.class);
 
-    protected static final int COMPILED_EXPRESSION_MAX_CACHE_SIZE = 1000;
+    public static final String CACHE_SIZE_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX
+                                                     + "mvel.compiledExpressionsCacheSize";
+    public static final String CACHE_WEIGHT_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX
+                                                       + "mvel.compiledExpressionsCacheWeight";
+
+    /**
+     * The MVEL optimizer used to access properties and methods. Defaults to
+     * {@link OptimizerFactory#SAFE_REFLECTIVE}. {@link OptimizerFactory#DYNAMIC} starts with reflection and
+     * generates bytecode with ASM for the accessors of the expressions that are executed often.
+     */
+    public static final String OPTIMIZER_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "mvel.optimizer";
+
+    protected static final int COMPILED_EXPRESSION_MAX_CACHE_SIZE = Integer.getInteger(CACHE_SIZE_PROPERTY, 1000);
+    protected static final long COMPILED_EXPRESSION_MAX_CACHE_WEIGHT = Long.getLong(CACHE_WEIGHT_PROPERTY, 1000000);
+
+    // Use reflective optimizer rather than default to avoid concurrency issues with JIT complication.
+    // See MULE-6630
+    private static final String OPTIMIZER = System.getProperty(OPTIMIZER_PROPERTY, OptimizerFactory.SAFE_REFLECTIVE);
 
     protected ParserContext parserContext;
-    protected LRUMap compiledExpressionsCache = new LRUMap(COMPILED_EXPRESSION_MAX_CACHE_SIZE);
+    protected CompiledExpressionCache compiledExpressionsCache;
 
     public MVELExpressionExecutor(ParserContext parserContext)
+    {
+        this(parserContext, new CompiledExpressionCache(COMPILED_EXPRESSION_MAX_CACHE_SIZE,
+            COMPILED_EXPRESSION_MAX_CACHE_WEIGHT));
+    }
+
+    public MVELExpressionExecutor(ParserContext parserContext, CompiledExpressionCache compiledExpressionsCache)
     {
         this.parserContext = parserContext;
+        this.compiledExpressionsCache = compiledExpressionsCache;
     }
 
     public Object execute(String expression, MVELExpressionLanguageContext context)
     {
-        // Use reflective optimizer rather than default to avoid concurrency issues with JIT complication.
-        // See MULE-6630
-        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
+        OptimizerFactory.setDefaultOptimizer(OPTIMIZER);
 
         if (log.isTraceEnabled())
         {
@@ -60,16 +82,21 @@ public class MVELExpressionExecutor implements ExpressionExecutor<MVELExpression
      */
     protected Serializable getCompiledExpression(String expression)
     {
-        if (compiledExpressionsCache.containsKey(expression))
+        Serializable compiledExpression = compiledExpressionsCache.get(expression);
+        if (compiledExpression == null)
         {
-            return (Serializable) compiledExpressionsCache.get(expression);
-        }
-        else
-        {
-            Serializable compiledExpression = MVEL.compileExpression(expression, parserContext);
-            compiledExpressionsCache.put(expression, compiledExpression);
-            return compiledExpression;
+            compiledExpression = compiledExpressionsCache.putIfAbsent(expression,
+                MVEL.compileExpression(expression, parserContext));
         }
+        return compiledExpression;
+    }
+
+    /**
+     * @return the cache of compiled expressions, which holds the hit, miss and eviction counts
+     */
+    public CompiledExpressionCache getCompiledExpressionsCache()
+    {
+        return compiledExpressionsCache;
     }
 
 }
@@ -82,6 +82,15 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
         createStaticContext();
     }
 
+    /**
+     * @return the cache of compiled expressions, or null if this expression language is
+     *         not initialised
+     */
+    public CompiledExpressionCache getCompiledExpressionCache()
+    {
+        return expressionExecutor != null ? expressionExecutor.getCompiledExpressionsCache() : null;
+    }
+
     protected void createStaticContext()
     {
         staticContext = new StaticVariableResolverFactory(parserContext, muleContext);
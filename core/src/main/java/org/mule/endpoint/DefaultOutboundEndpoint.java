@@ -23,6 +23,7 @@ import org.mule.api.processor.MessageProcessor;
 import org.mule.api.retry.RetryPolicyTemplate;
 import org.mule.api.transaction.TransactionConfig;
 import org.mule.api.transport.Connector;
+import org.mule.management.stats.FlowConstructStatistics;
 import org.mule.processor.AbstractRedeliveryPolicy;
 import org.mule.transport.AbstractConnector;
 import org.mule.util.StringUtils;
@@ -89,7 +90,24 @@ public class DefaultOutboundEndpoint extends AbstractEndpoint implements Outboun
 
     public MuleEvent process(MuleEvent event) throws MuleException
     {
-        MuleEvent result = getMessageProcessorChain(event.getFlowConstruct()).process(event);
+        MuleEvent result;
+        FlowConstructStatistics statistics = event.getFlowConstruct() != null ? event.getFlowConstruct().getStatistics() : null;
+        if (statistics != null && statistics.isEnabled())
+        {
+            long startNanos = System.nanoTime();
+            try
+            {
+                result = getMessageProcessorChain(event.getFlowConstruct()).process(event);
+            }
+            finally
+            {
+                statistics.addOutboundEndpointLatency(getName(), System.nanoTime() - startNanos);
+            }
+        }
+        else
+        {
+            result = getMessageProcessorChain(event.getFlowConstruct()).process(event);
+        }
         // A filter in a one-way outbound endpoint (sync or async) should not filter the flow.
         if (!getExchangePattern().hasResponse())
         {
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.execution;
+
+import org.mule.api.MessagingException;
+import org.mule.api.MuleEvent;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.construct.MessageProcessorPathResolver;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.management.stats.FlowConstructStatistics;
+
+/**
+ * Intercepts MessageProcessor execution to record its latency in the statistics of
+ * the flow, by processor path. The latency of a processor that invokes the rest of
+ * the chain includes the time taken by the processors it invokes.
+ */
+class ProcessorLatencyExecutionInterceptor implements MessageProcessorExecutionInterceptor
+{
+
+    private final MessageProcessorExecutionInterceptor next;
+
+    ProcessorLatencyExecutionInterceptor(MessageProcessorExecutionInterceptor next)
+    {
+        this.next = next;
+    }
+
+    @Override
+    public MuleEvent execute(MessageProcessor messageProcessor, MuleEvent event) throws MessagingException
+    {
+        FlowConstruct flowConstruct = event.getFlowConstruct();
+        FlowConstructStatistics statistics = flowConstruct != null ? flowConstruct.getStatistics() : null;
+        if (statistics == null || !statistics.isEnabled() || !(flowConstruct instanceof MessageProcessorPathResolver))
+        {
+            return next.execute(messageProcessor, event);
+        }
+
+        String processorPath = ((MessageProcessorPathResolver) flowConstruct).getProcessorPath(messageProcessor);
+        if (processorPath == null)
+        {
+            return next.execute(messageProcessor, event);
+        }
+
+        long startNanos = System.nanoTime();
+        try
+        {
+            return next.execute(messageProcessor, event);
+        }
+        finally
+        {
+            statistics.addProcessorLatency(processorPath, System.nanoTime() - startNanos);
+        }
+    }
+}
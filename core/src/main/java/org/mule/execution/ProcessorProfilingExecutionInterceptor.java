@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.execution;
+
+import org.mule.api.MessagingException;
+import org.mule.api.MuleEvent;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.construct.MessageProcessorPathResolver;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.management.stats.AllStatistics;
+import org.mule.management.stats.ProcessorProfilingStatistics;
+
+/**
+ * Intercepts MessageProcessor execution to attribute its wall time, CPU time and
+ * allocated bytes to its processor path when processor profiling is enabled.
+ */
+class ProcessorProfilingExecutionInterceptor implements MessageProcessorExecutionInterceptor
+{
+
+    private final MessageProcessorExecutionInterceptor next;
+
+    ProcessorProfilingExecutionInterceptor(MessageProcessorExecutionInterceptor next)
+    {
+        this.next = next;
+    }
+
+    @Override
+    public MuleEvent execute(MessageProcessor messageProcessor, MuleEvent event) throws MessagingException
+    {
+        AllStatistics statistics = event.getMuleContext().getStatistics();
+        ProcessorProfilingStatistics profiling = statistics != null ? statistics.getProcessorProfilingStatistics() : null;
+        FlowConstruct flowConstruct = event.getFlowConstruct();
+        if (profiling == null || !profiling.isEnabled() || !(flowConstruct instanceof MessageProcessorPathResolver))
+        {
+            return next.execute(messageProcessor, event);
+        }
+
+        String processorPath = ((MessageProcessorPathResolver) flowConstruct).getProcessorPath(messageProcessor);
+        if (processorPath == null)
+        {
+            return next.execute(messageProcessor, event);
+        }
+
+        ProcessorProfilingStatistics.Measurement measurement = profiling.start(processorPath);
+        try
+        {
+            return next.execute(messageProcessor, event);
+        }
+        finally
+        {
+            profiling.stop(measurement);
+        }
+    }
+}
@@ -28,6 +28,24 @@ public class ProcessingTimeInterceptor extends AbstractEnvelopeInterceptor
         setFlowConstruct(fc);
     }
 
+    @Override
+    public MuleEvent process(MuleEvent event) throws MuleException
+    {
+        ProcessingTime time = event.getProcessingTime();
+        long startNanos = System.nanoTime();
+        try
+        {
+            return super.process(event);
+        }
+        finally
+        {
+            if (time != null)
+            {
+                time.addFlowExecutionLatency(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
     @Override
     public MuleEvent before(MuleEvent event) throws MuleException
     {
@@ -23,6 +23,8 @@ public class AllStatistics
     private long startTime;
     private ApplicationStatistics appStats;
     private Map<String, FlowConstructStatistics> flowConstructStats = new HashMap<String, FlowConstructStatistics>();
+    private Map<String, CachingStrategyStatistics> cachingStrategyStats = new HashMap<String, CachingStrategyStatistics>();
+    private final ProcessorProfilingStatistics processorProfilingStats = new ProcessorProfilingStatistics();
 
     /**
      * 
@@ -65,6 +67,11 @@ public class AllStatistics
         {
             statistics.clear();
         }
+        for (CachingStrategyStatistics statistics : cachingStrategyStats.values())
+        {
+            statistics.clear();
+        }
+        processorProfilingStats.clear();
         startTime = System.currentTimeMillis();
     }
 
@@ -87,6 +94,10 @@ public class AllStatistics
         {
             statistics.setEnabled(b);
         }
+        for (CachingStrategyStatistics statistics : cachingStrategyStats.values())
+        {
+            statistics.setEnabled(b);
+        }
     }
 
     public synchronized long getStartTime()
@@ -129,6 +140,38 @@ public class AllStatistics
         return flowConstructStats.values();
     }
 
+    public synchronized void add(CachingStrategyStatistics stat)
+    {
+        if (stat != null)
+        {
+            stat.setEnabled(isStatisticsEnabled);
+            cachingStrategyStats.put(stat.getName(), stat);
+        }
+    }
+
+    public synchronized void remove(CachingStrategyStatistics stat)
+    {
+        if (stat != null)
+        {
+            cachingStrategyStats.remove(stat.getName());
+        }
+    }
+
+    public synchronized Collection<CachingStrategyStatistics> getCachingStrategyStatistics()
+    {
+        return cachingStrategyStats.values();
+    }
+
+    public synchronized CachingStrategyStatistics getCachingStrategyStatistics(String name)
+    {
+        return cachingStrategyStats.get(name);
+    }
+
+    public ProcessorProfilingStatistics getProcessorProfilingStatistics()
+    {
+        return processorProfilingStats;
+    }
+
     public FlowConstructStatistics getApplicationStatistics()
     {
         return appStats;
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import org.mule.api.management.stats.Statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>CachingStrategyStatistics</code> counts the hits, misses and evictions of
+ * a caching strategy.
+ */
+public class CachingStrategyStatistics implements Statistics
+{
+    private static final long serialVersionUID = -2370468295186421947L;
+
+    private final String name;
+    private boolean enabled;
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    public CachingStrategyStatistics(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Are statistics logged
+     */
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Enable statistics logs (this is a dynamic parameter)
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public void clear()
+    {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    public void incHits()
+    {
+        if (enabled)
+        {
+            hits.incrementAndGet();
+        }
+    }
+
+    public void incMisses()
+    {
+        if (enabled)
+        {
+            misses.incrementAndGet();
+        }
+    }
+
+    public void incEvictions(long count)
+    {
+        if (enabled)
+        {
+            evictions.addAndGet(count);
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+}
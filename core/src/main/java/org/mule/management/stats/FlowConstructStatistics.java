@@ -7,8 +7,13 @@
 package org.mule.management.stats;
 
 import org.mule.api.processor.ProcessingStrategy;
+import org.mule.construct.InFlightBudget;
 import org.mule.processor.strategy.AsynchronousProcessingStrategy;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class FlowConstructStatistics extends AbstractFlowConstructStatistics implements QueueStatistics
@@ -18,6 +23,10 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
     private final AtomicLong fatalError = new AtomicLong(0);
     private int threadPoolSize = 0;
     protected final ComponentStatistics flowStatistics = new ComponentStatistics();
+    protected final LatencyHistogram processingLatency = new LatencyHistogram();
+    private final ConcurrentMap<String, LatencyHistogram> processorLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, LatencyHistogram> outboundEndpointLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    private transient InFlightBudget inFlightBudget;
     
     // these can't sensibly converted to AtomicLong as they are processed together
     // in incQueuedEvent
@@ -94,6 +103,12 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
         {
             flowStatistics.clear();
         }
+        if (processingLatency != null)
+        {
+            processingLatency.clear();
+            processorLatencies.clear();
+            outboundEndpointLatencies.clear();
+        }
     }
 
     public void addCompleteFlowExecutionTime(long time)
@@ -106,6 +121,84 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
         flowStatistics.addExecutionBranchTime(time == total, time, total);
     }
 
+    /**
+     * Records the time it took to process one branch of the flow.
+     *
+     * @param nanos the processing time in nanoseconds
+     */
+    public void addProcessingLatency(long nanos)
+    {
+        processingLatency.record(nanos);
+    }
+
+    /**
+     * Records the time it took a message processor of the flow to process an event.
+     *
+     * @param processorPath the path of the processor in the flow
+     * @param nanos the processing time in nanoseconds
+     */
+    public void addProcessorLatency(String processorPath, long nanos)
+    {
+        getLatencyHistogram(processorLatencies, processorPath).record(nanos);
+    }
+
+    /**
+     * Records the time it took an outbound endpoint of the flow to process an event.
+     *
+     * @param endpointName the name of the endpoint
+     * @param nanos the processing time in nanoseconds
+     */
+    public void addOutboundEndpointLatency(String endpointName, long nanos)
+    {
+        getLatencyHistogram(outboundEndpointLatencies, endpointName).record(nanos);
+    }
+
+    private LatencyHistogram getLatencyHistogram(ConcurrentMap<String, LatencyHistogram> histograms, String key)
+    {
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null)
+        {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = histograms.putIfAbsent(key, histogram);
+            if (existing != null)
+            {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    public LatencyHistogram getProcessingLatency()
+    {
+        return processingLatency;
+    }
+
+    /**
+     * @return the latency histograms of the message processors, by processor path
+     */
+    public Map<String, LatencyHistogram> getProcessorLatencies()
+    {
+        return Collections.unmodifiableMap(processorLatencies);
+    }
+
+    /**
+     * @return the latency histograms of the outbound endpoints, by endpoint name
+     */
+    public Map<String, LatencyHistogram> getOutboundEndpointLatencies()
+    {
+        return Collections.unmodifiableMap(outboundEndpointLatencies);
+    }
+
+    /**
+     * @param percentile a value between 0 and 100
+     * @return the processing time in microseconds that is not exceeded by the given
+     *         percentage of the processed branches
+     */
+    public long getProcessingTimePercentile(double percentile)
+    {
+        return processingLatency.getSnapshot().getValueAtPercentile(percentile) / 1000;
+    }
+
     public long getAverageProcessingTime()
     {
         return flowStatistics.getAverageExecutionTime();
@@ -146,6 +239,27 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
         return threadPoolSize;
     }
 
+    public void setInFlightBudget(InFlightBudget inFlightBudget)
+    {
+        this.inFlightBudget = inFlightBudget;
+    }
+
+    /**
+     * @return the maximum number of events in flight in the flow, 0 if there is no limit
+     */
+    public int getMaxInFlight()
+    {
+        return inFlightBudget != null ? inFlightBudget.getMaxInFlight() : 0;
+    }
+
+    /**
+     * @return the number of events currently in flight in the flow
+     */
+    public int getInFlight()
+    {
+        return inFlightBudget != null ? inFlightBudget.getInFlight() : 0;
+    }
+
     public synchronized void incQueuedEvent()
     {
         queuedEvent++;
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of latencies in nanoseconds that can be recorded from any
+ * number of threads without locking. Each power of two is split in
+ * {@link #SUB_BUCKETS} linear buckets, so the value reported for a percentile is
+ * within about 6% of the recorded one for any value up to {@link Long#MAX_VALUE}.
+ * <p/>
+ * Besides the snapshots of all the values recorded since the histogram was created
+ * or cleared, interval snapshots return the values recorded since the previous
+ * interval snapshot, so that a monitoring tool can sample the latency of the last
+ * period without clearing the histogram.
+ */
+public class LatencyHistogram implements Serializable
+{
+
+    private static final long serialVersionUID = -3517230916612374523L;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * The number of buckets each power of two is split in
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong intervalMax = new AtomicLong();
+
+    // guarded by this, only used to take interval snapshots
+    private final long[] intervalStartCounts = new long[BUCKETS];
+    private long intervalStartTotal;
+
+    /**
+     * Records a latency. Negative values are recorded as zero.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        long value = nanos < 0 ? 0 : nanos;
+        counts.incrementAndGet(bucketIndex(value));
+        total.addAndGet(value);
+        updateMax(max, value);
+        updateMax(intervalMax, value);
+    }
+
+    /**
+     * @return the values recorded since this histogram was created or cleared
+     */
+    public Snapshot getSnapshot()
+    {
+        long[] snapshotCounts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            snapshotCounts[i] = counts.get(i);
+        }
+        return new Snapshot(snapshotCounts, total.get(), max.get());
+    }
+
+    /**
+     * @return the values recorded since the previous call to this method, or since
+     *         this histogram was created or cleared
+     */
+    public synchronized Snapshot getIntervalSnapshot()
+    {
+        long snapshotMax = intervalMax.getAndSet(0);
+        long[] snapshotCounts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            long count = counts.get(i);
+            snapshotCounts[i] = Math.max(0, count - intervalStartCounts[i]);
+            intervalStartCounts[i] = count;
+        }
+        long currentTotal = total.get();
+        long snapshotTotal = Math.max(0, currentTotal - intervalStartTotal);
+        intervalStartTotal = currentTotal;
+        return new Snapshot(snapshotCounts, snapshotTotal, snapshotMax);
+    }
+
+    public synchronized void clear()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts.set(i, 0);
+            intervalStartCounts[i] = 0;
+        }
+        total.set(0);
+        intervalStartTotal = 0;
+        max.set(0);
+        intervalMax.set(0);
+    }
+
+    private static void updateMax(AtomicLong current, long value)
+    {
+        long currentMax = current.get();
+        while (value > currentMax && !current.compareAndSet(currentMax, value))
+        {
+            currentMax = current.get();
+        }
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the highest value that is recorded in the bucket
+     */
+    static long bucketUpperBound(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    /**
+     * The values recorded in a {@link LatencyHistogram} at a point in time.
+     */
+    public static class Snapshot implements Serializable
+    {
+
+        private static final long serialVersionUID = 2291360498434180526L;
+
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long total, long max)
+        {
+            long snapshotCount = 0;
+            for (long bucketCount : counts)
+            {
+                snapshotCount += bucketCount;
+            }
+            this.counts = counts;
+            this.count = snapshotCount;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return the highest recorded latency in nanoseconds
+         */
+        public long getMax()
+        {
+            return max;
+        }
+
+        /**
+         * @return the average latency in nanoseconds
+         */
+        public long getMean()
+        {
+            return count == 0 ? 0 : total / count;
+        }
+
+        /**
+         * @param percentile a value between 0 and 100
+         * @return the latency in nanoseconds that is not exceeded by the given
+         *         percentage of the recorded values, or 0 if no value was recorded
+         */
+        public long getValueAtPercentile(double percentile)
+        {
+            if (count == 0)
+            {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+            long accumulated = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                accumulated += counts[i];
+                if (accumulated >= rank)
+                {
+                    return max > 0 ? Math.min(bucketUpperBound(i), max) : bucketUpperBound(i);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "count=" + count
+                   + ", p50=" + toMicros(getValueAtPercentile(50))
+                   + ", p90=" + toMicros(getValueAtPercentile(90))
+                   + ", p99=" + toMicros(getValueAtPercentile(99))
+                   + ", p99.9=" + toMicros(getValueAtPercentile(99.9))
+                   + ", max=" + toMicros(max) + " (us)";
+        }
+
+        private static long toMicros(long nanos)
+        {
+            return nanos / 1000;
+        }
+    }
+}
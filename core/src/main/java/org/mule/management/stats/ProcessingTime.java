@@ -76,6 +76,19 @@ public class ProcessingTime implements Serializable
         }
     }
 
+    /**
+     * Add the latency of this branch to the flow construct's latency histogram
+     *
+     * @param nanos the time it took to execute this branch, in nanoseconds
+     */
+    public void addFlowExecutionLatency(long nanos)
+    {
+        if (statistics.isEnabled())
+        {
+            statistics.addProcessingLatency(nanos);
+        }
+    }
+
     /**
      * Convert processing time to effective processing time.  If processing took less than a tick, we consider
      * it to have been one millisecond
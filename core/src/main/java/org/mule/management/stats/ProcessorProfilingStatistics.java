@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import org.mule.api.config.MuleProperties;
+import org.mule.api.management.stats.Statistics;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <code>ProcessorProfilingStatistics</code> attributes the wall time, the CPU time
+ * and the bytes allocated by the current thread to each message processor path of
+ * the flows. The time spent in the processors invoked by a processor, like the rest
+ * of the chain of an intercepting processor, is not attributed to it, so the
+ * processors with the highest self time are the hot spots of the flows.
+ * <p/>
+ * Profiling is disabled by default. It can be enabled with the
+ * {@link #ENABLED_PROPERTY} system property or at runtime. CPU time and allocated
+ * bytes are only measured when the JVM supports it.
+ */
+public class ProcessorProfilingStatistics implements Statistics
+{
+
+    private static final long serialVersionUID = 8016427063914416257L;
+
+    public static final String ENABLED_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "processorProfiling";
+
+    private static final Log logger = LogFactory.getLog(ProcessorProfilingStatistics.class);
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final Method getThreadAllocatedBytes = findAllocatedBytesMethod();
+
+    private static final ThreadLocal<Measurement> currentMeasurement = new ThreadLocal<Measurement>();
+
+    private volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    private final ConcurrentMap<String, ProcessorProfile> profiles = new ConcurrentHashMap<String, ProcessorProfile>();
+
+    /**
+     * Is profiling enabled
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Enable profiling (this is a dynamic parameter)
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public void clear()
+    {
+        profiles.clear();
+    }
+
+    /**
+     * Starts measuring the execution of a processor by the current thread. Every
+     * call must be followed by a call to {@link #stop(Measurement)} in the same
+     * thread.
+     *
+     * @param processorPath the path of the processor in its flow
+     */
+    public Measurement start(String processorPath)
+    {
+        Measurement measurement = new Measurement(getProfile(processorPath), currentMeasurement.get());
+        currentMeasurement.set(measurement);
+        measurement.start();
+        return measurement;
+    }
+
+    public void stop(Measurement measurement)
+    {
+        measurement.stop();
+        currentMeasurement.set(measurement.parent);
+    }
+
+    /**
+     * @return the profiles of all the processors, by descending self wall time
+     */
+    public List<ProcessorProfile> getHotSpots()
+    {
+        List<ProcessorProfile> hotSpots = new ArrayList<ProcessorProfile>(profiles.values());
+        Collections.sort(hotSpots, new Comparator<ProcessorProfile>()
+        {
+            public int compare(ProcessorProfile p1, ProcessorProfile p2)
+            {
+                long t1 = p1.getSelfWallTime();
+                long t2 = p2.getSelfWallTime();
+                return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+            }
+        });
+        return hotSpots;
+    }
+
+    private ProcessorProfile getProfile(String processorPath)
+    {
+        ProcessorProfile profile = profiles.get(processorPath);
+        if (profile == null)
+        {
+            profile = new ProcessorProfile(processorPath);
+            ProcessorProfile existing = profiles.putIfAbsent(processorPath, profile);
+            if (existing != null)
+            {
+                profile = existing;
+            }
+        }
+        return profile;
+    }
+
+    private static Method findAllocatedBytesMethod()
+    {
+        try
+        {
+            Class<?> sunThreadMXBean = Class.forName("com.sun.management.ThreadMXBean");
+            if (sunThreadMXBean.isInstance(threadMXBean)
+                && (Boolean) sunThreadMXBean.getMethod("isThreadAllocatedMemorySupported").invoke(threadMXBean)
+                && (Boolean) sunThreadMXBean.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadMXBean))
+            {
+                return sunThreadMXBean.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        }
+        catch (Exception e)
+        {
+            logger.debug("Allocated bytes of threads can not be measured in this JVM");
+        }
+        return null;
+    }
+
+    private static long currentThreadCpuTime()
+    {
+        if (threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled())
+        {
+            return threadMXBean.getCurrentThreadCpuTime();
+        }
+        return 0;
+    }
+
+    private static long currentThreadAllocatedBytes()
+    {
+        if (getThreadAllocatedBytes != null)
+        {
+            try
+            {
+                return (Long) getThreadAllocatedBytes.invoke(threadMXBean, Thread.currentThread().getId());
+            }
+            catch (Exception e)
+            {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The execution of a processor by a thread, as returned by
+     * {@link ProcessorProfilingStatistics#start(String)}.
+     */
+    public static final class Measurement
+    {
+
+        private final ProcessorProfile profile;
+        private final Measurement parent;
+
+        private long startWallTime;
+        private long startCpuTime;
+        private long startAllocatedBytes;
+        private long childWallTime;
+        private long childCpuTime;
+        private long childAllocatedBytes;
+
+        private Measurement(ProcessorProfile profile, Measurement parent)
+        {
+            this.profile = profile;
+            this.parent = parent;
+        }
+
+        private void start()
+        {
+            startAllocatedBytes = currentThreadAllocatedBytes();
+            startCpuTime = currentThreadCpuTime();
+            startWallTime = System.nanoTime();
+        }
+
+        private void stop()
+        {
+            long wallTime = System.nanoTime() - startWallTime;
+            long cpuTime = currentThreadCpuTime() - startCpuTime;
+            long allocatedBytes = currentThreadAllocatedBytes() - startAllocatedBytes;
+
+            profile.add(wallTime, wallTime - childWallTime, cpuTime - childCpuTime, allocatedBytes - childAllocatedBytes);
+            if (parent != null)
+            {
+                parent.childWallTime += wallTime;
+                parent.childCpuTime += cpuTime;
+                parent.childAllocatedBytes += allocatedBytes;
+            }
+        }
+    }
+
+    /**
+     * The totals measured for a processor path.
+     */
+    public static class ProcessorProfile implements Serializable
+    {
+
+        private static final long serialVersionUID = -1404720593626938123L;
+
+        private final String processorPath;
+        private final AtomicLong invocations = new AtomicLong();
+        private final AtomicLong totalWallTime = new AtomicLong();
+        private final AtomicLong selfWallTime = new AtomicLong();
+        private final AtomicLong selfCpuTime = new AtomicLong();
+        private final AtomicLong selfAllocatedBytes = new AtomicLong();
+
+        ProcessorProfile(String processorPath)
+        {
+            this.processorPath = processorPath;
+        }
+
+        void add(long wallTime, long selfWall, long selfCpu, long selfAllocated)
+        {
+            invocations.incrementAndGet();
+            totalWallTime.addAndGet(wallTime);
+            selfWallTime.addAndGet(Math.max(0, selfWall));
+            selfCpuTime.addAndGet(Math.max(0, selfCpu));
+            selfAllocatedBytes.addAndGet(Math.max(0, selfAllocated));
+        }
+
+        public String getProcessorPath()
+        {
+            return processorPath;
+        }
+
+        public long getInvocations()
+        {
+            return invocations.get();
+        }
+
+        /**
+         * @return the wall time in nanoseconds, including the processors it invoked
+         */
+        public long getTotalWallTime()
+        {
+            return totalWallTime.get();
+        }
+
+        /**
+         * @return the wall time in nanoseconds, excluding the processors it invoked
+         */
+        public long getSelfWallTime()
+        {
+            return selfWallTime.get();
+        }
+
+        /**
+         * @return the CPU time in nanoseconds, excluding the processors it invoked
+         */
+        public long getSelfCpuTime()
+        {
+            return selfCpuTime.get();
+        }
+
+        /**
+         * @return the allocated bytes, excluding the processors it invoked
+         */
+        public long getSelfAllocatedBytes()
+        {
+            return selfAllocatedBytes.get();
+        }
+
+        @Override
+        public String toString()
+        {
+            return processorPath + ": invocations=" + getInvocations()
+                   + ", selfWallTime=" + getSelfWallTime() / 1000
+                   + "us, totalWallTime=" + getTotalWallTime() / 1000
+                   + "us, selfCpuTime=" + getSelfCpuTime() / 1000
+                   + "us, selfAllocatedBytes=" + getSelfAllocatedBytes();
+        }
+    }
+}
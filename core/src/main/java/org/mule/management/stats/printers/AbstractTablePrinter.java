@@ -7,6 +7,7 @@
 package org.mule.management.stats.printers;
 
 import org.mule.management.stats.FlowConstructStatistics;
+import org.mule.management.stats.LatencyHistogram;
 import org.mule.management.stats.RouterStatistics;
 import org.mule.management.stats.SedaServiceStatistics;
 import org.mule.management.stats.ServiceStatistics;
@@ -38,7 +39,7 @@ public class AbstractTablePrinter extends PrintWriter
 
     public String[] getHeaders()
     {
-        String[] column = new String[41];
+        String[] column = new String[46];
         column[0] = "Name";
         column[1] = "Service Pool Max Size";
         column[2] = "Service Pool Size";
@@ -80,6 +81,11 @@ public class AbstractTablePrinter extends PrintWriter
         column[38] = "By Provider";
         column[39] = "";
         column[40] = "Sample Period";
+        column[41] = "Processing Time 50th Percentile (us)";
+        column[42] = "Processing Time 90th Percentile (us)";
+        column[43] = "Processing Time 99th Percentile (us)";
+        column[44] = "Processing Time 99.9th Percentile (us)";
+        column[45] = "Max Processing Time (us)";
         return column;
     }
 
@@ -152,6 +158,19 @@ public class AbstractTablePrinter extends PrintWriter
         }
 
         col[40] = String.valueOf(stats.getSamplePeriod());
+
+        // the latency columns are the last ones of every printer
+        getLatencyInfo(stats.getProcessingLatency().getSnapshot(), col, col.length - 5);
+    }
+
+    protected int getLatencyInfo(LatencyHistogram.Snapshot snapshot, String[] col, int index)
+    {
+        col[index++] = String.valueOf(snapshot.getValueAtPercentile(50) / 1000);
+        col[index++] = String.valueOf(snapshot.getValueAtPercentile(90) / 1000);
+        col[index++] = String.valueOf(snapshot.getValueAtPercentile(99) / 1000);
+        col[index++] = String.valueOf(snapshot.getValueAtPercentile(99.9) / 1000);
+        col[index++] = String.valueOf(snapshot.getMax() / 1000);
+        return index;
     }
 
     protected int getRouterInfo(RouterStatistics stats, String[] col, int index)
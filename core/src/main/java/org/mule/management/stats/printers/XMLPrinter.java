@@ -40,7 +40,7 @@ public class XMLPrinter extends AbstractTablePrinter
 
     public String[] getHeaders()
     {
-        String[] column = new String[42];
+        String[] column = new String[47];
         column[0] = "Service Name";
         column[1] = "Service Pool Max Size";
         column[2] = "Service Pool Size";
@@ -83,6 +83,11 @@ public class XMLPrinter extends AbstractTablePrinter
         column[39] = "Providers";
         column[40] = "Router";
         column[41] = "Sample Period";
+        column[42] = "Processing Time 50th Percentile (us)";
+        column[43] = "Processing Time 90th Percentile (us)";
+        column[44] = "Processing Time 99th Percentile (us)";
+        column[45] = "Processing Time 99.9th Percentile (us)";
+        column[46] = "Max Processing Time (us)";
         return column;
     }
     
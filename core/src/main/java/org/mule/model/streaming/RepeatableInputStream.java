@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.model.streaming;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An input stream that can be read many times. The data read from the source stream
+ * is kept in pooled direct buffers up to a threshold, and in a temporary file past
+ * it, so that large payloads are not held in the heap.
+ * <p/>
+ * The source is read as the data is needed, so a payload can be streamed through
+ * while it is still being received. {@link #newStream()} returns another stream over
+ * the same data, starting from the beginning, and {@link #reset()} goes back to the
+ * mark, or to the beginning if there is no mark.
+ * <p/>
+ * Closing the stream closes the source and releases the buffered data, so the
+ * streams returned by {@link #newStream()} must not be read after that. Closing those
+ * streams releases nothing. If the stream is not closed, the data is released once
+ * neither the stream nor the streams returned by {@link #newStream()} are reachable,
+ * when the next repeatable stream is created.
+ */
+public class RepeatableInputStream extends InputStream
+{
+
+    public static final String MEMORY_THRESHOLD_PROPERTY = "mule.streaming.repeatable.memoryThreshold";
+    public static final int DEFAULT_MEMORY_THRESHOLD = Integer.getInteger(MEMORY_THRESHOLD_PROPERTY, 1024 * 1024);
+
+    static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_CHUNKS = 256;
+
+    private static final Log logger = LogFactory.getLog(RepeatableInputStream.class);
+
+    private static final Queue<ByteBuffer> chunkPool = new ConcurrentLinkedQueue<ByteBuffer>();
+    private static final AtomicInteger pooledChunks = new AtomicInteger();
+
+    private static final ReferenceQueue<Object> unreachableLeases = new ReferenceQueue<Object>();
+    private static final Map<LeaseReference, Object> leases = new ConcurrentHashMap<LeaseReference, Object>();
+
+    private final Buffer buffer;
+    // shared by all the streams over the buffer, so the buffer is not in use once it is unreachable
+    private final Object lease;
+    private final boolean owner;
+    private long position;
+    private long mark;
+
+    public RepeatableInputStream(InputStream source)
+    {
+        this(source, DEFAULT_MEMORY_THRESHOLD);
+    }
+
+    /**
+     * @param memoryThreshold the number of bytes kept in memory before the data is
+     *            written to a temporary file
+     */
+    public RepeatableInputStream(InputStream source, int memoryThreshold)
+    {
+        this(new Buffer(source, memoryThreshold), new Object(), true);
+        releaseUnreachableBuffers();
+        buffer.track(lease);
+    }
+
+    private RepeatableInputStream(Buffer buffer, Object lease, boolean owner)
+    {
+        this.buffer = buffer;
+        this.lease = lease;
+        this.owner = owner;
+    }
+
+    /**
+     * @return a stream over the same data that starts from the beginning
+     */
+    public RepeatableInputStream newStream()
+    {
+        return new RepeatableInputStream(buffer, lease, false);
+    }
+
+    /**
+     * Goes back to the beginning of the data.
+     */
+    public void rewind()
+    {
+        position = 0;
+        mark = 0;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        int n = buffer.read(position, b, off, len);
+        if (n > 0)
+        {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long skipped = 0;
+        byte[] discarded = new byte[(int) Math.min(n, CHUNK_SIZE)];
+        while (skipped < n)
+        {
+            int read = read(discarded, 0, (int) Math.min(n - skipped, discarded.length));
+            if (read == -1)
+            {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, buffer.getSize() - position));
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void mark(int readLimit)
+    {
+        mark = position;
+    }
+
+    @Override
+    public void reset() throws IOException
+    {
+        position = mark;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (owner)
+        {
+            buffer.release();
+        }
+    }
+
+    /**
+     * @return the number of bytes read from the source so far
+     */
+    public long getBufferedSize()
+    {
+        return buffer.getSize();
+    }
+
+    /**
+     * @return true if the data read so far did not fit in memory
+     */
+    public boolean isSpilled()
+    {
+        return buffer.spillFile != null;
+    }
+
+    /**
+     * @return the temporary file the data was written to, if it did not fit in memory
+     */
+    File getSpillFile()
+    {
+        return buffer.spillFile;
+    }
+
+    private static void releaseUnreachableBuffers()
+    {
+        LeaseReference reference;
+        while ((reference = (LeaseReference) unreachableLeases.poll()) != null)
+        {
+            try
+            {
+                reference.buffer.release();
+            }
+            catch (IOException e)
+            {
+                logger.warn("Could not release the data of a repeatable stream that was not closed", e);
+            }
+        }
+    }
+
+    private static ByteBuffer acquireChunk()
+    {
+        ByteBuffer chunk = chunkPool.poll();
+        if (chunk == null)
+        {
+            return ByteBuffer.allocateDirect(CHUNK_SIZE);
+        }
+        pooledChunks.decrementAndGet();
+        chunk.clear();
+        return chunk;
+    }
+
+    private static void releaseChunk(ByteBuffer chunk)
+    {
+        if (pooledChunks.incrementAndGet() <= MAX_POOLED_CHUNKS)
+        {
+            chunkPool.offer(chunk);
+        }
+        else
+        {
+            pooledChunks.decrementAndGet();
+        }
+    }
+
+    /**
+     * The data shared by all the streams, read from the source as it is needed.
+     */
+    private static class Buffer
+    {
+
+        private final int memoryThreshold;
+        private InputStream source;
+        private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        private long memorySize;
+        private long spilledSize;
+        private long size;
+        private File spillFile;
+        private FileChannel spillChannel;
+        private byte[] scratch;
+        private boolean released;
+        private LeaseReference leaseReference;
+
+        Buffer(InputStream source, int memoryThreshold)
+        {
+            this.source = source;
+            this.memoryThreshold = memoryThreshold;
+        }
+
+        synchronized void track(Object lease)
+        {
+            leaseReference = new LeaseReference(lease, this);
+            leases.put(leaseReference, leases);
+        }
+
+        synchronized long getSize()
+        {
+            return size;
+        }
+
+        synchronized int read(long position, byte[] b, int off, int len) throws IOException
+        {
+            if (released)
+            {
+                throw new IOException("The stream has been closed");
+            }
+            while (position >= size && source != null)
+            {
+                fill();
+            }
+            if (position >= size)
+            {
+                return -1;
+            }
+            len = (int) Math.min(len, size - position);
+            if (position < memorySize)
+            {
+                ByteBuffer chunk = chunks.get((int) (position / CHUNK_SIZE)).duplicate();
+                int offset = (int) (position % CHUNK_SIZE);
+                len = Math.min(len, chunk.position() - offset);
+                chunk.position(offset);
+                chunk.get(b, off, len);
+                return len;
+            }
+            return spillChannel.read(ByteBuffer.wrap(b, off, len), position - memorySize);
+        }
+
+        private void fill() throws IOException
+        {
+            if (scratch == null)
+            {
+                scratch = new byte[8 * 1024];
+            }
+            int n = source.read(scratch);
+            if (n == -1)
+            {
+                source.close();
+                source = null;
+                scratch = null;
+                return;
+            }
+            int written = 0;
+            while (written < n && memorySize < memoryThreshold)
+            {
+                ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+                if (chunk == null || !chunk.hasRemaining())
+                {
+                    chunk = acquireChunk();
+                    chunks.add(chunk);
+                }
+                int count = (int) Math.min(Math.min(n - written, chunk.remaining()), memoryThreshold - memorySize);
+                chunk.put(scratch, written, count);
+                written += count;
+                memorySize += count;
+            }
+            if (written < n)
+            {
+                spill(scratch, written, n - written);
+            }
+            size += n;
+        }
+
+        private void spill(byte[] b, int off, int len) throws IOException
+        {
+            if (spillChannel == null)
+            {
+                spillFile = File.createTempFile("mule-stream", ".tmp");
+                spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+            }
+            ByteBuffer data = ByteBuffer.wrap(b, off, len);
+            while (data.hasRemaining())
+            {
+                spilledSize += spillChannel.write(data, spilledSize);
+            }
+        }
+
+        synchronized void release() throws IOException
+        {
+            if (released)
+            {
+                return;
+            }
+            released = true;
+            if (leaseReference != null)
+            {
+                leases.remove(leaseReference);
+                leaseReference.clear();
+            }
+            for (ByteBuffer chunk : chunks)
+            {
+                releaseChunk(chunk);
+            }
+            chunks.clear();
+            try
+            {
+                if (source != null)
+                {
+                    source.close();
+                    source = null;
+                }
+            }
+            finally
+            {
+                if (spillChannel != null)
+                {
+                    spillChannel.close();
+                    spillFile.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the buffer of streams that may be dropped without being closed, so that it
+     * is released once the lease shared by the streams is unreachable
+     */
+    private static class LeaseReference extends WeakReference<Object>
+    {
+
+        private final Buffer buffer;
+
+        LeaseReference(Object lease, Buffer buffer)
+        {
+            super(lease, unreachableLeases);
+            this.buffer = buffer;
+        }
+    }
+}
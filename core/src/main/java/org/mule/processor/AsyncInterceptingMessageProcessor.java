@@ -21,6 +21,7 @@ import org.mule.api.lifecycle.Startable;
 import org.mule.api.lifecycle.Stoppable;
 import org.mule.api.processor.MessageProcessor;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.construct.AbstractPipeline;
 import org.mule.context.notification.AsyncMessageNotification;
 import org.mule.execution.TransactionalErrorHandlingExecutionTemplate;
 import org.mule.interceptor.ProcessingTimeInterceptor;
@@ -138,6 +139,7 @@ public class AsyncInterceptingMessageProcessor extends AbstractInterceptingMessa
 
     protected void processNextAsync(MuleEvent event) throws MuleException
     {
+        acquireInFlight(event);
         try
         {
             workManagerSource.getWorkManager().scheduleWork(new AsyncMessageProcessorWorker(event),
@@ -146,11 +148,32 @@ public class AsyncInterceptingMessageProcessor extends AbstractInterceptingMessa
         }
         catch (Exception e)
         {
+            releaseInFlight(event);
             new MessagingException(CoreMessages.errorSchedulingMessageProcessorForAsyncInvocation(next),
                 event, e, this);
         }
     }
 
+    /**
+     * Counts an event handed off to another thread as in flight in its pipeline until
+     * the {@link AsyncMessageProcessorWorker} that processes it is done.
+     */
+    protected void acquireInFlight(MuleEvent event)
+    {
+        if (event.getFlowConstruct() instanceof AbstractPipeline)
+        {
+            ((AbstractPipeline) event.getFlowConstruct()).getInFlightBudget().acquire();
+        }
+    }
+
+    protected void releaseInFlight(MuleEvent event)
+    {
+        if (event.getFlowConstruct() instanceof AbstractPipeline)
+        {
+            ((AbstractPipeline) event.getFlowConstruct()).getInFlightBudget().release();
+        }
+    }
+
     protected void fireAsyncScheduledNotification(MuleEvent event)
     {
         if (event.getFlowConstruct() instanceof MessageProcessorPathResolver)
@@ -214,6 +237,10 @@ public class AsyncInterceptingMessageProcessor extends AbstractInterceptingMessa
             {
                 muleContext.getExceptionListener().handleException(e);
             }
+            finally
+            {
+                releaseInFlight(event);
+            }
         }
     }
 
@@ -79,6 +79,7 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
     @Override
     protected void processNextAsync(MuleEvent event) throws MuleException
     {
+        acquireInFlight(event);
         try
         {
             if (isStatsEnabled())
@@ -89,6 +90,7 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
         }
         catch (Exception e)
         {
+            releaseInFlight(event);
             throw new FailedToQueueEventException(
                 CoreMessages.interruptedQueuingEventFor(getStageDescription()), event, e);
         }
@@ -242,6 +244,7 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
                         }
                         catch (Exception e)
                         {
+                            releaseInFlight(eventToProcess);
                             // because dequeued event may still be owned by a previuos
                             // thread we need to use the copy created in AsyncMessageProcessorWorker
                             // constructor.
@@ -37,6 +37,7 @@ import org.mule.api.transformer.Transformer;
 import org.mule.api.transformer.TransformerException;
 import org.mule.api.transport.Connector;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.transformer.types.DataTypePairCache;
 import org.mule.transformer.types.SimpleDataType;
 import org.mule.util.Predicate;
 import org.mule.util.SpiUtils;
@@ -51,7 +52,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -72,8 +72,8 @@ public class MuleRegistryHelper implements MuleRegistry
     /**
      * We cache transformer searches so that we only search once
      */
-    protected ConcurrentHashMap/*<String, Transformer>*/ exactTransformerCache = new ConcurrentHashMap/*<String, Transformer>*/(8);
-    protected ConcurrentHashMap/*Map<String, List<Transformer>>*/ transformerListCache = new ConcurrentHashMap/*<String, List<Transformer>>*/(8);
+    protected DataTypePairCache<Transformer> exactTransformerCache = new DataTypePairCache<Transformer>();
+    protected DataTypePairCache<List<Transformer>> transformerListCache = new DataTypePairCache<List<Transformer>>();
 
     private MuleContext muleContext;
 
@@ -223,8 +223,7 @@ public class MuleRegistryHelper implements MuleRegistry
      */
     public Transformer lookupTransformer(DataType source, DataType result) throws TransformerException
     {
-        final String dataTypePairHash = getDataTypeSourceResultPairHash(source, result);
-        Transformer cachedTransformer = (Transformer) exactTransformerCache.get(dataTypePairHash);
+        Transformer cachedTransformer = exactTransformerCache.get(source, result);
         if (cachedTransformer != null)
         {
             return cachedTransformer;
@@ -234,16 +233,7 @@ public class MuleRegistryHelper implements MuleRegistry
 
         if (trans != null)
         {
-            Transformer concurrentlyAddedTransformer = (Transformer) exactTransformerCache.putIfAbsent(
-                    dataTypePairHash, trans);
-            if (concurrentlyAddedTransformer != null)
-            {
-                return concurrentlyAddedTransformer;
-            }
-            else
-            {
-                return trans;
-            }
+            return exactTransformerCache.putIfAbsent(source, result, trans);
         }
         else
         {
@@ -279,9 +269,7 @@ public class MuleRegistryHelper implements MuleRegistry
      */
     public List<Transformer> lookupTransformers(DataType source, DataType result)
     {
-        final String dataTypePairHash = getDataTypeSourceResultPairHash(source, result);
-
-        List<Transformer> results = (List<Transformer>) transformerListCache.get(dataTypePairHash);
+        List<Transformer> results = transformerListCache.get(source, result);
         if (results != null)
         {
             return results;
@@ -298,23 +286,18 @@ public class MuleRegistryHelper implements MuleRegistry
             {
                 continue;
             }
-            DataType dt = t.getReturnDataType();
-            if (result.isCompatibleWith(dt) && t.isSourceDataTypeSupported(source))
+            if (isConverterFor(t, source, result))
             {
                 results.add(t);
             }
         }
 
-        List<Transformer> concurrentlyAddedTransformers = (List<Transformer>) transformerListCache.putIfAbsent(
-                dataTypePairHash, results);
-        if (concurrentlyAddedTransformers != null)
-        {
-            return concurrentlyAddedTransformers;
-        }
-        else
-        {
-            return results;
-        }
+        return transformerListCache.putIfAbsent(source, result, results);
+    }
+
+    private boolean isConverterFor(Transformer transformer, DataType<?> source, DataType<?> result)
+    {
+        return result.isCompatibleWith(transformer.getReturnDataType()) && transformer.isSourceDataTypeSupported(source);
     }
 
     /**
@@ -454,11 +437,39 @@ public class MuleRegistryHelper implements MuleRegistry
             {
                 resolver.transformerChange(t, action);
             }
-            transformerListCache.clear();
+            updateTransformerListCache(t, action);
             exactTransformerCache.clear();
         }
     }
 
+    /**
+     * Adds the converter to, or removes it from, the cached lists of converters for the
+     * data types it converts, instead of discarding every list.
+     */
+    private void updateTransformerListCache(final Transformer converter, final TransformerResolver.RegistryAction action)
+    {
+        transformerListCache.update(new DataTypePairCache.Update<List<Transformer>>()
+        {
+            public List<Transformer> apply(DataType<?> source, DataType<?> result, List<Transformer> converters)
+            {
+                boolean listed = converters.contains(converter);
+                if (action == TransformerResolver.RegistryAction.ADDED && !listed && isConverterFor(converter, source, result))
+                {
+                    List<Transformer> updated = new ArrayList<Transformer>(converters);
+                    updated.add(converter);
+                    return updated;
+                }
+                if (action == TransformerResolver.RegistryAction.REMOVED && listed)
+                {
+                    List<Transformer> updated = new ArrayList<Transformer>(converters);
+                    updated.remove(converter);
+                    return updated;
+                }
+                return converters;
+            }
+        });
+    }
+
     /**
      * Looks up the service descriptor from a singleton cache and creates a new one if not found.
      */
@@ -829,12 +840,6 @@ public class MuleRegistryHelper implements MuleRegistry
         return false;
     }
 
-    private String getDataTypeSourceResultPairHash(DataType<?> source, DataType<?> result)
-    {
-        return source.getClass().getName() + source.hashCode() + ":" + result.getClass().getName()
-               + result.hashCode();
-    }
-
     private class TransformerResolverComparator implements Comparator<TransformerResolver>
     {
 
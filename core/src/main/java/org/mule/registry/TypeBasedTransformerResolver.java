@@ -23,12 +23,11 @@ import org.mule.transformer.TransformerWeighting;
 import org.mule.transformer.graph.GraphTransformerResolver;
 import org.mule.transformer.simple.ObjectToByteArray;
 import org.mule.transformer.simple.ObjectToString;
+import org.mule.transformer.types.DataTypePairCache;
 import org.mule.transformer.types.SimpleDataType;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -50,7 +49,7 @@ public class TypeBasedTransformerResolver implements TransformerResolver, MuleCo
 
     private MuleContext muleContext;
 
-    protected Map<String, Transformer> exactTransformerCache = new ConcurrentHashMap/*<String, Transformer>*/(8);
+    protected DataTypePairCache<Transformer> exactTransformerCache = new DataTypePairCache<Transformer>();
 
     protected TransformerResolver graphTransformerResolver = new GraphTransformerResolver();
 
@@ -76,7 +75,7 @@ public class TypeBasedTransformerResolver implements TransformerResolver, MuleCo
 
     public Transformer resolve(DataType source, DataType result) throws ResolverException
     {
-        Transformer transformer = exactTransformerCache.get(source.toString() + result.toString());
+        Transformer transformer = exactTransformerCache.get(source, result);
         if (transformer != null)
         {
             return transformer;
@@ -136,7 +135,7 @@ public class TypeBasedTransformerResolver implements TransformerResolver, MuleCo
 
         if (transformer != null)
         {
-            exactTransformerCache.put(source.toString() + result.toString(), transformer);
+            transformer = exactTransformerCache.putIfAbsent(source, result, transformer);
         }
         return transformer;
     }
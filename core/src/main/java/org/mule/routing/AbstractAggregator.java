@@ -47,6 +47,7 @@ public abstract class AbstractAggregator extends AbstractInterceptingMessageProc
     private boolean failOnTimeout = true;
     protected boolean persistentStores;
     protected String storePrefix = null;
+    protected boolean sharded = false;
 
     public void initialise() throws InitialisationException
     {
@@ -75,6 +76,7 @@ public abstract class AbstractAggregator extends AbstractInterceptingMessageProc
 
         eventCorrelator.setTimeout(timeout);
         eventCorrelator.setFailOnTimeout(isFailOnTimeout());
+        eventCorrelator.setSharded(sharded);
     }
 
     public void start() throws MuleException
@@ -162,6 +164,16 @@ public abstract class AbstractAggregator extends AbstractInterceptingMessageProc
         this.storePrefix = storePrefix;
     }
 
+    public boolean isSharded()
+    {
+        return sharded;
+    }
+
+    public void setSharded(boolean sharded)
+    {
+        this.sharded = sharded;
+    }
+
     public void dispose()
     {
         eventCorrelator.dispose();
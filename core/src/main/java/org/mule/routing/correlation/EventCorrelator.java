@@ -37,6 +37,7 @@ import org.mule.util.StringMessageUtils;
 import org.mule.util.concurrent.ThreadNameHelper;
 import org.mule.util.monitor.Expirable;
 import org.mule.util.monitor.ExpiryMonitor;
+import org.mule.util.monitor.HashedTimerWheel;
 import org.mule.util.store.DeserializationPostInitialisable;
 
 import java.io.Serializable;
@@ -72,6 +73,22 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
 
     protected final Object groupsLock = new Object();
 
+    /**
+     * Number of ticks of the expiry timer wheel used in sharded mode.
+     */
+    private static final int EXPIRY_WHEEL_SIZE = 512;
+
+    /**
+     * When true, groups are guarded by a lock striped on the group id instead of
+     * {@link #groupsLock} and their expiry is tracked with a timer wheel instead of
+     * scanning all the groups.
+     */
+    private boolean sharded = false;
+
+    private Object[] groupLocks;
+
+    private volatile HashedTimerWheel<Serializable> expiryWheel;
+
     // @GuardedBy groupsLock
     protected ObjectStore<Long> processedGroups = null;
 
@@ -234,8 +251,24 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
             }
 
             // ensure that only one thread at a time evaluates this EventGroup
-            synchronized (groupsLock)
+            synchronized (getGroupLock(groupId))
             {
+                // in sharded mode another thread may have aggregated or expired the group
+                // since we looked it up, look it up again instead of adding to a stale group
+                boolean staleGroup;
+                try
+                {
+                    staleGroup = sharded && !containsEventGroup(groupId);
+                }
+                catch (ObjectStoreException e)
+                {
+                    throw new RoutingException(event, timeoutMessageProcessor, e);
+                }
+                if (staleGroup)
+                {
+                    continue;
+                }
+
                 if (logger.isDebugEnabled())
                 {
                     logger.debug("Adding event to aggregator group: " + groupId);
@@ -314,6 +347,7 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         try
         {
             eventGroups.store((Serializable) group.getGroupId(), group);
+            scheduleExpiry(group);
             return group;
         }
         catch (ObjectAlreadyExistsException e)
@@ -329,9 +363,14 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         addProcessedGroup(groupId);
     }
 
+    protected boolean containsEventGroup(Serializable groupId) throws ObjectStoreException
+    {
+        return eventGroups.contains(groupId);
+    }
+
     protected void addProcessedGroup(Object id) throws ObjectStoreException
     {
-        synchronized (groupsLock)
+        synchronized (getGroupLock(id))
         {
             processedGroups.store((Serializable) id, System.currentTimeMillis());
         }
@@ -339,12 +378,65 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
 
     protected boolean isGroupAlreadyProcessed(Object id) throws ObjectStoreException
     {
-        synchronized (groupsLock)
+        synchronized (getGroupLock(id))
         {
             return processedGroups.contains((Serializable) id);
         }
     }
 
+    /**
+     * Returns the lock that guards the given group: {@link #groupsLock} unless the
+     * correlator is sharded.
+     */
+    protected Object getGroupLock(Object groupId)
+    {
+        if (!sharded)
+        {
+            return groupsLock;
+        }
+
+        int hash = groupId.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return groupLocks[hash & (groupLocks.length - 1)];
+    }
+
+    private void scheduleExpiry(EventGroup group)
+    {
+        HashedTimerWheel<Serializable> wheel = expiryWheel;
+        if (wheel != null)
+        {
+            wheel.schedule((Serializable) group.getGroupId(), group.getCreated() + getTimeout());
+        }
+    }
+
+    public boolean isSharded()
+    {
+        return sharded;
+    }
+
+    /**
+     * Enables the sharded mode, which lets events for different groups be processed
+     * concurrently. Must be set before the correlator is started.
+     */
+    public void setSharded(boolean sharded)
+    {
+        this.sharded = sharded;
+        if (sharded && groupLocks == null)
+        {
+            int stripes = 1;
+            while (stripes < Runtime.getRuntime().availableProcessors() * 16)
+            {
+                stripes <<= 1;
+            }
+            groupLocks = new Object[Math.max(stripes, 64)];
+            for (int i = 0; i < groupLocks.length; i++)
+            {
+                groupLocks[i] = new Object();
+            }
+        }
+    }
+
     public boolean isFailOnTimeout()
     {
         return failOnTimeout;
@@ -465,6 +557,11 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         logger.info("Starting event correlator: " + name);
         if (timeout != 0)
         {
+            if (sharded && timeout > 0)
+            {
+                expiryWheel = new HashedTimerWheel<Serializable>(ExpiringGroupMonitoringThread.DELAY_TIME,
+                    EXPIRY_WHEEL_SIZE, System.currentTimeMillis());
+            }
             expiringGroupMonitoringThread = new ExpiringGroupMonitoringThread();
             expiringGroupMonitoringThread.start();
         }
@@ -478,6 +575,7 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         {
             expiringGroupMonitoringThread.stopProcessing();
         }
+        expiryWheel = null;
     }
 
     private final class ExpiringGroupMonitoringThread extends EventProcessingThread implements Expirable
@@ -485,6 +583,10 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         private ExpiryMonitor expiryMonitor;
         public static final long DELAY_TIME =  10;
 
+        // groups created on other nodes or before a restart are not in the timer
+        // wheel, so it is filled from the store when this node becomes the primary one
+        private boolean expiryWheelLoaded = false;
+
         public ExpiringGroupMonitoringThread()
         {
             super(name, DELAY_TIME);
@@ -529,18 +631,27 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
             ////in a different node when the primary goes down.
             if (!muleContext.isPrimaryPollingInstance())
             {
+                expiryWheelLoaded = false;
                 return;
             }
 
             List<EventGroup> expired = new ArrayList<EventGroup>(1);
             try
             {
-                for (Serializable o : eventGroups.allKeys())
+                HashedTimerWheel<Serializable> wheel = expiryWheel;
+                if (wheel != null)
                 {
-                    EventGroup group = getEventGroup(o) ;
-                    if (group.getCreated() + getTimeout() < System.currentTimeMillis())
+                    findExpiredGroups(wheel, expired);
+                }
+                else
+                {
+                    for (Serializable o : eventGroups.allKeys())
                     {
-                        expired.add(group);
+                        EventGroup group = getEventGroup(o) ;
+                        if (group.getCreated() + getTimeout() < System.currentTimeMillis())
+                        {
+                            expired.add(group);
+                        }
                     }
                 }
             }
@@ -577,6 +688,40 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
                 }
             }
         }
+
+        private void findExpiredGroups(HashedTimerWheel<Serializable> wheel, List<EventGroup> expired)
+            throws ObjectStoreException
+        {
+            if (!expiryWheelLoaded)
+            {
+                for (Serializable o : eventGroups.allKeys())
+                {
+                    EventGroup group = getEventGroup(o);
+                    if (group != null)
+                    {
+                        scheduleExpiry(group);
+                    }
+                }
+                expiryWheelLoaded = true;
+            }
+
+            List<Serializable> candidates = new ArrayList<Serializable>();
+            long now = System.currentTimeMillis();
+            wheel.expire(now, candidates);
+            for (Serializable groupId : candidates)
+            {
+                // the group may have been aggregated already or be scheduled more than once
+                EventGroup group = getEventGroup(groupId);
+                if (group != null && group.getCreated() + getTimeout() < now && !expired.contains(group))
+                {
+                    expired.add(group);
+                }
+                else if (group != null && group.getCreated() + getTimeout() >= now)
+                {
+                    scheduleExpiry(group);
+                }
+            }
+        }
     }
 
     public void dispose()
@@ -0,0 +1,1024 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleContext;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.security.SecurityContext;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.api.serialization.SerializationException;
+import org.mule.api.transformer.DataType;
+import org.mule.api.transport.PropertyScope;
+import org.mule.session.DefaultMuleSession;
+import org.mule.transformer.types.SimpleDataType;
+import org.mule.util.store.DeserializationPostInitialisable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.input.ClassLoaderObjectInputStream;
+
+/**
+ * An {@link ObjectSerializer} that writes a compact binary format instead of using
+ * Java serialization for the types Mule serializes the most.
+ * <p/>
+ * Every value is preceded by a type id instead of a class descriptor. Numbers are
+ * written as variable length integers, strings of up to {@value #MAX_INTERNED_LENGTH}
+ * characters are written once per stream and referenced by index afterwards, so
+ * property names repeated in a message or a session take one or two bytes, and byte
+ * arrays are copied to the stream as they are. {@link DefaultMuleMessage} and
+ * {@link DefaultMuleSession} are written field by field, as are the JDK types that
+ * usually end up in their payloads and properties. Other types can be added with
+ * {@link #registerCodec(int, Class, Codec)}; any other {@link Serializable} value is
+ * written with Java serialization. This includes events, so the events kept by the
+ * queue object stores are still written with Java serialization, preceded by the
+ * header of this format.
+ * <p/>
+ * Like Java serialization, an object reached more than once is written the first
+ * time only and referenced afterwards, so shared and self-referencing collections
+ * are read back as they were. The references between the values written with Java
+ * serialization are only kept within each of them. An object that a codec is writing
+ * cannot be referenced from its own fields, as the codec only creates it once all of
+ * them are read, so such a graph is written with Java serialization as a whole.
+ * <p/>
+ * When reading, data written with Java serialization is detected and delegated to a
+ * {@link JavaObjectSerializer}, so objects stored or sent before this serializer was
+ * used can still be read.
+ */
+public class CompactObjectSerializer implements ObjectSerializer, MuleContextAware
+{
+
+    /**
+     * Type ids from this value on can be used for the codecs registered with
+     * {@link #registerCodec(int, Class, Codec)}.
+     */
+    public static final int FIRST_USER_TYPE_ID = 64;
+
+    static final int MAX_INTERNED_LENGTH = 128;
+
+    private static final int MAGIC = 0x4D43;
+    private static final int VERSION = 2;
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int STRING = 3;
+    private static final int STRING_REF = 4;
+    private static final int INTEGER = 5;
+    private static final int LONG = 6;
+    private static final int SHORT = 7;
+    private static final int BYTE = 8;
+    private static final int CHARACTER = 9;
+    private static final int FLOAT = 10;
+    private static final int DOUBLE = 11;
+    private static final int BYTES = 12;
+    private static final int DATE = 13;
+    private static final int ARRAY_LIST = 14;
+    private static final int HASH_MAP = 15;
+    private static final int LINKED_HASH_MAP = 16;
+    private static final int HASH_SET = 17;
+    private static final int JAVA = 18;
+    private static final int REFERENCE = 19;
+    private static final int MULE_SESSION = 32;
+    private static final int MULE_MESSAGE = 33;
+    private static final int DATA_TYPE = 34;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Map<Class<?>, RegisteredCodec<?>> codecsByType = new ConcurrentHashMap<Class<?>, RegisteredCodec<?>>();
+    private final Map<Integer, RegisteredCodec<?>> codecsById = new ConcurrentHashMap<Integer, RegisteredCodec<?>>();
+    private final JavaObjectSerializer javaSerializer = new JavaObjectSerializer();
+    private MuleContext muleContext;
+
+    public CompactObjectSerializer()
+    {
+        doRegisterCodec(MULE_SESSION, DefaultMuleSession.class, new MuleSessionCodec());
+        doRegisterCodec(MULE_MESSAGE, DefaultMuleMessage.class, new MuleMessageCodec());
+        doRegisterCodec(DATA_TYPE, SimpleDataType.class, new DataTypeCodec());
+    }
+
+    public CompactObjectSerializer(MuleContext muleContext)
+    {
+        this();
+        setMuleContext(muleContext);
+    }
+
+    /**
+     * Registers a codec for the instances of a given class. Subclasses of the class
+     * are not handled by the codec.
+     *
+     * @param typeId the id written in place of the class, must not be lower than
+     *            {@link #FIRST_USER_TYPE_ID} and must never change once objects
+     *            have been persisted with it
+     */
+    public <T> void registerCodec(int typeId, Class<T> type, Codec<T> codec)
+    {
+        if (typeId < FIRST_USER_TYPE_ID)
+        {
+            throw new IllegalArgumentException("Type ids lower than " + FIRST_USER_TYPE_ID + " are reserved");
+        }
+        doRegisterCodec(typeId, type, codec);
+    }
+
+    private synchronized <T> void doRegisterCodec(int typeId, Class<T> type, Codec<T> codec)
+    {
+        if (codecsById.containsKey(typeId))
+        {
+            throw new IllegalArgumentException("Type id " + typeId + " is already registered");
+        }
+        RegisteredCodec<T> registeredCodec = new RegisteredCodec<T>(typeId, codec);
+        codecsById.put(typeId, registeredCodec);
+        codecsByType.put(type, registeredCodec);
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws SerializationException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try
+        {
+            write(object, bytes);
+        }
+        catch (CodecCycleException e)
+        {
+            return javaSerializer.serialize(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream out) throws SerializationException
+    {
+        // written to memory first, as the whole object has to be written again when
+        // its graph turns out not to fit the compact format
+        byte[] bytes = serialize(object);
+        try
+        {
+            OutputStream buffered = new BufferedOutputStream(out);
+            buffered.write(bytes);
+            buffered.flush();
+        }
+        catch (IOException e)
+        {
+            throw new SerializationException("Unable to serialize "
+                                             + (object == null ? null : object.getClass().getName()), e);
+        }
+        finally
+        {
+            try
+            {
+                out.close();
+            }
+            catch (IOException e)
+            {
+                // ignore close exception
+            }
+        }
+    }
+
+    private void write(Object object, OutputStream stream)
+    {
+        try
+        {
+            DataOutputStream data = new DataOutputStream(stream);
+            data.writeShort(MAGIC);
+            data.writeByte(VERSION);
+            new Output(data).writeObject(object);
+            data.flush();
+        }
+        catch (IOException e)
+        {
+            throw new SerializationException("Unable to serialize "
+                                             + (object == null ? null : object.getClass().getName()), e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes) throws SerializationException
+    {
+        if (bytes == null)
+        {
+            throw new IllegalArgumentException("The byte[] must not be null");
+        }
+        if (bytes.length >= 2 && ((bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF)) == JAVA_SERIALIZATION_MAGIC)
+        {
+            return javaSerializer.<T> deserialize(bytes);
+        }
+        return this.<T> read(new ByteArrayInputStream(bytes));
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in) throws SerializationException
+    {
+        if (in == null)
+        {
+            throw new IllegalArgumentException("The InputStream must not be null");
+        }
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+        try
+        {
+            buffered.mark(2);
+            int magic = buffered.read() << 8 | buffered.read();
+            buffered.reset();
+            if (magic == JAVA_SERIALIZATION_MAGIC)
+            {
+                return javaSerializer.<T> deserialize(buffered);
+            }
+            return this.<T> read(buffered);
+        }
+        catch (IOException e)
+        {
+            throw new SerializationException("Unable to deserialize object", e);
+        }
+        finally
+        {
+            try
+            {
+                buffered.close();
+            }
+            catch (IOException e)
+            {
+                // ignore close exception
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T read(InputStream stream)
+    {
+        try
+        {
+            DataInputStream data = new DataInputStream(stream);
+            if (data.readUnsignedShort() != MAGIC)
+            {
+                throw new StreamCorruptedException("Not a serialized object");
+            }
+            int version = data.readUnsignedByte();
+            if (version < 1 || version > VERSION)
+            {
+                throw new StreamCorruptedException("Unsupported version " + version);
+            }
+            return (T) new Input(data, version).readObject();
+        }
+        catch (IOException e)
+        {
+            throw new SerializationException("Unable to deserialize object", e);
+        }
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        this.muleContext = context;
+        javaSerializer.setMuleContext(context);
+    }
+
+    private ClassLoader getClassLoader()
+    {
+        return muleContext != null ? muleContext.getExecutionClassLoader() : getClass().getClassLoader();
+    }
+
+    /**
+     * Writes and reads the instances of a class registered with
+     * {@link CompactObjectSerializer#registerCodec(int, Class, Codec)}.
+     */
+    public interface Codec<T>
+    {
+
+        /**
+         * @return whether the value can be written by this codec. Values that aren't
+         *         supported are written with Java serialization.
+         */
+        boolean supports(T value);
+
+        void write(T value, Output out) throws IOException;
+
+        T read(Input in) throws IOException;
+    }
+
+    private static final class RegisteredCodec<T>
+    {
+
+        private final int typeId;
+        private final Codec<T> codec;
+
+        RegisteredCodec(int typeId, Codec<T> codec)
+        {
+            this.typeId = typeId;
+            this.codec = codec;
+        }
+    }
+
+    /**
+     * The stream a {@link Codec} writes to. Not thread safe.
+     */
+    public final class Output
+    {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+        private final Map<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+        private final Map<Object, Object> writingWithCodec = new IdentityHashMap<Object, Object>();
+
+        private Output(DataOutputStream out)
+        {
+            this.out = out;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void writeObject(Object value) throws IOException
+        {
+            if (value == null)
+            {
+                writeVarInt(NULL);
+                return;
+            }
+
+            Class<?> type = value.getClass();
+            if (type == String.class)
+            {
+                writeString((String) value);
+            }
+            else if (type == Boolean.class)
+            {
+                writeVarInt((Boolean) value ? TRUE : FALSE);
+            }
+            else if (type == Integer.class)
+            {
+                writeVarInt(INTEGER);
+                writeVarLong(zigZag((Integer) value));
+            }
+            else if (type == Long.class)
+            {
+                writeVarInt(LONG);
+                writeVarLong(zigZag((Long) value));
+            }
+            else if (type == Short.class)
+            {
+                writeVarInt(SHORT);
+                writeVarLong(zigZag((Short) value));
+            }
+            else if (type == Byte.class)
+            {
+                writeVarInt(BYTE);
+                out.writeByte((Byte) value);
+            }
+            else if (type == Character.class)
+            {
+                writeVarInt(CHARACTER);
+                writeVarInt((Character) value);
+            }
+            else if (type == Float.class)
+            {
+                writeVarInt(FLOAT);
+                out.writeFloat((Float) value);
+            }
+            else if (type == Double.class)
+            {
+                writeVarInt(DOUBLE);
+                out.writeDouble((Double) value);
+            }
+            else
+            {
+                writeReferenceable(value, type);
+            }
+        }
+
+        /**
+         * Writes a value whose identity is kept, or a reference to it when it was
+         * already written.
+         */
+        @SuppressWarnings("unchecked")
+        private void writeReferenceable(Object value, Class<?> type) throws IOException
+        {
+            Integer reference = references.get(value);
+            if (reference != null)
+            {
+                if (writingWithCodec.containsKey(value))
+                {
+                    throw new CodecCycleException();
+                }
+                writeVarInt(REFERENCE);
+                writeVarInt(reference);
+                return;
+            }
+            references.put(value, references.size());
+
+            if (type == byte[].class)
+            {
+                writeVarInt(BYTES);
+                writeBytes((byte[]) value);
+            }
+            else if (type == Date.class)
+            {
+                writeVarInt(DATE);
+                writeVarLong(zigZag(((Date) value).getTime()));
+            }
+            else if (type == ArrayList.class)
+            {
+                writeVarInt(ARRAY_LIST);
+                writeElements((Collection<?>) value);
+            }
+            else if (type == HashSet.class)
+            {
+                writeVarInt(HASH_SET);
+                writeElements((Collection<?>) value);
+            }
+            else if (type == HashMap.class)
+            {
+                writeVarInt(HASH_MAP);
+                writeEntries((Map<?, ?>) value);
+            }
+            else if (type == LinkedHashMap.class)
+            {
+                writeVarInt(LINKED_HASH_MAP);
+                writeEntries((Map<?, ?>) value);
+            }
+            else
+            {
+                RegisteredCodec<Object> registered = (RegisteredCodec<Object>) codecsByType.get(type);
+                if (registered != null && registered.codec.supports(value))
+                {
+                    writeVarInt(registered.typeId);
+                    writingWithCodec.put(value, value);
+                    try
+                    {
+                        registered.codec.write(value, this);
+                    }
+                    finally
+                    {
+                        writingWithCodec.remove(value);
+                    }
+                }
+                else if (value instanceof Serializable)
+                {
+                    writeVarInt(JAVA);
+                    writeBytes(javaSerialize(value));
+                }
+                else
+                {
+                    throw new NotSerializableException(type.getName());
+                }
+            }
+        }
+
+        /**
+         * Writes a string, that may be null. Strings of up to
+         * {@value CompactObjectSerializer#MAX_INTERNED_LENGTH} characters are only
+         * written the first time they are seen.
+         */
+        public void writeString(String value) throws IOException
+        {
+            if (value == null)
+            {
+                writeVarInt(NULL);
+                return;
+            }
+            if (value.length() <= MAX_INTERNED_LENGTH)
+            {
+                Integer index = strings.get(value);
+                if (index != null)
+                {
+                    writeVarInt(STRING_REF);
+                    writeVarInt(index);
+                    return;
+                }
+                strings.put(value, strings.size());
+            }
+            writeVarInt(STRING);
+            writeBytes(value.getBytes(UTF8));
+        }
+
+        public void writeBoolean(boolean value) throws IOException
+        {
+            out.writeBoolean(value);
+        }
+
+        public void writeBytes(byte[] value) throws IOException
+        {
+            writeVarInt(value.length);
+            out.write(value);
+        }
+
+        /**
+         * Writes a non negative int using one byte for every 7 bits.
+         */
+        public void writeVarInt(int value) throws IOException
+        {
+            while ((value & ~0x7F) != 0)
+            {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        /**
+         * Writes a non negative long using one byte for every 7 bits.
+         */
+        public void writeVarLong(long value) throws IOException
+        {
+            while ((value & ~0x7FL) != 0)
+            {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        private void writeElements(Collection<?> elements) throws IOException
+        {
+            writeVarInt(elements.size());
+            for (Object element : elements)
+            {
+                writeObject(element);
+            }
+        }
+
+        private void writeEntries(Map<?, ?> entries) throws IOException
+        {
+            writeVarInt(entries.size());
+            for (Map.Entry<?, ?> entry : entries.entrySet())
+            {
+                writeObject(entry.getKey());
+                writeObject(entry.getValue());
+            }
+        }
+
+        private long zigZag(long value)
+        {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private byte[] javaSerialize(Object value) throws IOException
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+            objectOut.writeObject(value);
+            objectOut.close();
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * The stream a {@link Codec} reads from. Not thread safe.
+     */
+    public final class Input
+    {
+
+        private final DataInputStream in;
+        private final int version;
+        private final List<String> strings = new ArrayList<String>();
+        private final List<Object> references = new ArrayList<Object>();
+
+        private Input(DataInputStream in, int version)
+        {
+            this.in = in;
+            this.version = version;
+        }
+
+        public MuleContext getMuleContext()
+        {
+            return muleContext;
+        }
+
+        public Object readObject() throws IOException
+        {
+            int typeId = readVarInt();
+            switch (typeId)
+            {
+                case NULL :
+                    return null;
+                case TRUE :
+                    return Boolean.TRUE;
+                case FALSE :
+                    return Boolean.FALSE;
+                case STRING :
+                case STRING_REF :
+                    return readString(typeId);
+                case INTEGER :
+                    return (int) unZigZag(readVarLong());
+                case LONG :
+                    return unZigZag(readVarLong());
+                case SHORT :
+                    return (short) unZigZag(readVarLong());
+                case BYTE :
+                    return in.readByte();
+                case CHARACTER :
+                    return (char) readVarInt();
+                case FLOAT :
+                    return in.readFloat();
+                case DOUBLE :
+                    return in.readDouble();
+                case BYTES :
+                    return addReference(readBytes());
+                case DATE :
+                    return addReference(new Date(unZigZag(readVarLong())));
+                case ARRAY_LIST :
+                {
+                    int size = readVarInt();
+                    return readElements(addReference(new ArrayList<Object>(size)), size);
+                }
+                case HASH_SET :
+                {
+                    int size = readVarInt();
+                    return readElements(addReference(new HashSet<Object>(size * 4 / 3 + 1)), size);
+                }
+                case HASH_MAP :
+                {
+                    int size = readVarInt();
+                    return readEntries(addReference(new HashMap<Object, Object>(size * 4 / 3 + 1)), size);
+                }
+                case LINKED_HASH_MAP :
+                {
+                    int size = readVarInt();
+                    return readEntries(addReference(new LinkedHashMap<Object, Object>(size * 4 / 3 + 1)),
+                        size);
+                }
+                case JAVA :
+                    return addReference(javaDeserialize(readBytes()));
+                case REFERENCE :
+                {
+                    int reference = readVarInt();
+                    if (reference >= references.size())
+                    {
+                        throw new StreamCorruptedException("Unknown reference " + reference);
+                    }
+                    return references.get(reference);
+                }
+                default :
+                    RegisteredCodec<?> registered = codecsById.get(typeId);
+                    if (registered == null)
+                    {
+                        throw new StreamCorruptedException("Unknown type id " + typeId);
+                    }
+                    // the slot is taken before the fields are read, as they are
+                    // numbered after the object when it is written
+                    int reference = references.size();
+                    references.add(null);
+                    Object value = registered.codec.read(this);
+                    references.set(reference, value);
+                    return value;
+            }
+        }
+
+        private <T> T addReference(T value)
+        {
+            references.add(value);
+            return value;
+        }
+
+        public String readString() throws IOException
+        {
+            return readString(readVarInt());
+        }
+
+        private String readString(int typeId) throws IOException
+        {
+            switch (typeId)
+            {
+                case NULL :
+                    return null;
+                case STRING_REF :
+                    return strings.get(readVarInt());
+                case STRING :
+                    String value = new String(readBytes(), UTF8);
+                    if (value.length() <= MAX_INTERNED_LENGTH)
+                    {
+                        strings.add(value);
+                    }
+                    return value;
+                default :
+                    throw new StreamCorruptedException("Expected a string but found type id " + typeId);
+            }
+        }
+
+        public boolean readBoolean() throws IOException
+        {
+            return in.readBoolean();
+        }
+
+        public byte[] readBytes() throws IOException
+        {
+            byte[] value = new byte[readVarInt()];
+            in.readFully(value);
+            return value;
+        }
+
+        public int readVarInt() throws IOException
+        {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7)
+            {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("Malformed variable length int");
+        }
+
+        public long readVarLong() throws IOException
+        {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7)
+            {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("Malformed variable length long");
+        }
+
+        private Collection<Object> readElements(Collection<Object> elements, int size) throws IOException
+        {
+            for (int i = 0; i < size; i++)
+            {
+                elements.add(readObject());
+            }
+            return elements;
+        }
+
+        private Map<Object, Object> readEntries(Map<Object, Object> entries, int size) throws IOException
+        {
+            for (int i = 0; i < size; i++)
+            {
+                Object key = readObject();
+                entries.put(key, readObject());
+            }
+            return entries;
+        }
+
+        private long unZigZag(long value)
+        {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private Object javaDeserialize(byte[] bytes) throws IOException
+        {
+            ObjectInputStream objectIn = new ClassLoaderObjectInputStream(getClassLoader(),
+                new ByteArrayInputStream(bytes));
+            try
+            {
+                Object value = objectIn.readObject();
+                if (value instanceof DeserializationPostInitialisable && muleContext != null)
+                {
+                    DeserializationPostInitialisable.Implementation.init(value, muleContext);
+                }
+                return value;
+            }
+            catch (ClassNotFoundException e)
+            {
+                throw (IOException) new IOException(e.getMessage()).initCause(e);
+            }
+            catch (IOException e)
+            {
+                throw e;
+            }
+            catch (Exception e)
+            {
+                throw (IOException) new IOException("Unable to initialise deserialized object").initCause(e);
+            }
+            finally
+            {
+                objectIn.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the id, validity, security context and serializable properties of a
+     * session, which is what Java serialization keeps of it.
+     */
+    private static class MuleSessionCodec implements Codec<DefaultMuleSession>
+    {
+
+        @Override
+        public boolean supports(DefaultMuleSession session)
+        {
+            return session.getSecurityContext() == null
+                   || session.getSecurityContext() instanceof Serializable;
+        }
+
+        @Override
+        public void write(DefaultMuleSession session, Output out) throws IOException
+        {
+            out.writeString(session.getId());
+            out.writeBoolean(session.isValid());
+            out.writeObject(session.getSecurityContext());
+
+            Map<String, Object> properties = new HashMap<String, Object>();
+            for (String name : session.getPropertyNamesAsSet())
+            {
+                Object value = session.getProperty(name);
+                if (value == null || value instanceof Serializable)
+                {
+                    properties.put(name, value);
+                }
+            }
+            out.writeVarInt(properties.size());
+            for (Map.Entry<String, Object> property : properties.entrySet())
+            {
+                out.writeString(property.getKey());
+                out.writeObject(property.getValue());
+            }
+        }
+
+        @Override
+        public DefaultMuleSession read(Input in) throws IOException
+        {
+            DefaultMuleSession session = new DefaultMuleSession(in.readString());
+            session.setValid(in.readBoolean());
+            session.setSecurityContext((SecurityContext) in.readObject());
+            int size = in.readVarInt();
+            for (int i = 0; i < size; i++)
+            {
+                String name = in.readString();
+                session.setProperty(name, in.readObject());
+            }
+            return session;
+        }
+    }
+
+    /**
+     * Writes the ids, payload, data type and inbound, outbound and invocation
+     * properties of a message. Messages with attachments or an exception payload are
+     * left to Java serialization.
+     */
+    private static class MuleMessageCodec implements Codec<DefaultMuleMessage>
+    {
+
+        @Override
+        public boolean supports(DefaultMuleMessage message)
+        {
+            return message.getExceptionPayload() == null && message.getInboundAttachmentNames().isEmpty()
+                   && message.getOutboundAttachmentNames().isEmpty();
+        }
+
+        @Override
+        public void write(DefaultMuleMessage message, Output out) throws IOException
+        {
+            out.writeString(message.getUniqueId());
+            out.writeString(message.getMessageRootId());
+
+            Object payload = message.getPayload();
+            if (payload != null && !(payload instanceof Serializable))
+            {
+                try
+                {
+                    payload = message.getPayloadAsBytes();
+                }
+                catch (Exception e)
+                {
+                    throw (IOException) new IOException("Unable to read the payload as bytes").initCause(e);
+                }
+            }
+            out.writeObject(payload);
+            out.writeObject(message.getDataType());
+
+            writeProperties(message, PropertyScope.INBOUND, out);
+            writeProperties(message, PropertyScope.OUTBOUND, out);
+            writeProperties(message, PropertyScope.INVOCATION, out);
+        }
+
+        private void writeProperties(DefaultMuleMessage message, PropertyScope scope, Output out)
+            throws IOException
+        {
+            Set<String> names = message.getPropertyNames(scope);
+            out.writeVarInt(names.size());
+            for (String name : names)
+            {
+                out.writeString(name);
+                out.writeObject(message.getProperty(name, scope));
+            }
+        }
+
+        @Override
+        public DefaultMuleMessage read(Input in) throws IOException
+        {
+            String id = in.readString();
+            String rootId = in.readString();
+            Object payload = in.readObject();
+            // the first version of the format did not keep the data type
+            DataType<?> dataType = in.version > 1 ? (DataType<?>) in.readObject() : null;
+            Map<String, Object> inboundProperties = readProperties(in);
+            Map<String, Object> outboundProperties = readProperties(in);
+            Map<String, Object> invocationProperties = readProperties(in);
+
+            DefaultMuleMessage message = new DefaultMuleMessage(payload, inboundProperties,
+                outboundProperties, null, in.getMuleContext());
+            message.setUniqueId(id);
+            message.setMessageRootId(rootId);
+            if (dataType != null)
+            {
+                message.restoreDataType(dataType);
+            }
+            for (Map.Entry<String, Object> property : invocationProperties.entrySet())
+            {
+                message.setInvocationProperty(property.getKey(), property.getValue());
+            }
+            return message;
+        }
+
+        private Map<String, Object> readProperties(Input in) throws IOException
+        {
+            int size = in.readVarInt();
+            Map<String, Object> properties = new HashMap<String, Object>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++)
+            {
+                String name = in.readString();
+                properties.put(name, in.readObject());
+            }
+            return properties;
+        }
+    }
+
+    /**
+     * Writes the class, mime type and encoding of a data type. Data types of
+     * primitive classes are left to Java serialization.
+     */
+    private class DataTypeCodec implements Codec<SimpleDataType>
+    {
+
+        @Override
+        public boolean supports(SimpleDataType dataType)
+        {
+            return dataType.getType() != null && !dataType.getType().isPrimitive();
+        }
+
+        @Override
+        public void write(SimpleDataType dataType, Output out) throws IOException
+        {
+            out.writeString(dataType.getType().getName());
+            out.writeString(dataType.getMimeType());
+            out.writeString(dataType.getEncoding());
+        }
+
+        @Override
+        public SimpleDataType read(Input in) throws IOException
+        {
+            String className = in.readString();
+            SimpleDataType<Object> dataType;
+            try
+            {
+                dataType = new SimpleDataType<Object>(Class.forName(className, false, getClassLoader()));
+            }
+            catch (ClassNotFoundException e)
+            {
+                throw (IOException) new IOException(e.getMessage()).initCause(e);
+            }
+            dataType.setMimeType(in.readString());
+            dataType.setEncoding(in.readString());
+            return dataType;
+        }
+    }
+
+    /**
+     * Thrown when an object is referenced from within the fields a codec is writing.
+     */
+    private static class CodecCycleException extends SerializationException
+    {
+
+        private static final long serialVersionUID = -3171464416960924212L;
+
+        CodecCycleException()
+        {
+            super("An object written by a codec is referenced from its own fields", null);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import org.mule.api.MuleContext;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.api.serialization.SerializationException;
+import org.mule.util.SerializationUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * An {@link ObjectSerializer} that uses Java serialization. This is the format Mule
+ * has always used, so it can be configured when the serialized objects must be read
+ * by Mule instances that don't support any other format.
+ */
+public class JavaObjectSerializer implements ObjectSerializer, MuleContextAware
+{
+
+    private MuleContext muleContext;
+
+    public JavaObjectSerializer()
+    {
+        super();
+    }
+
+    public JavaObjectSerializer(MuleContext muleContext)
+    {
+        this.muleContext = muleContext;
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws SerializationException
+    {
+        try
+        {
+            return SerializationUtils.serialize(checkSerializable(object));
+        }
+        catch (org.apache.commons.lang.SerializationException e)
+        {
+            throw new SerializationException("Unable to serialize " + object.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream out) throws SerializationException
+    {
+        try
+        {
+            SerializationUtils.serialize(checkSerializable(object), out);
+        }
+        catch (org.apache.commons.lang.SerializationException e)
+        {
+            throw new SerializationException("Unable to serialize " + object.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(byte[] bytes) throws SerializationException
+    {
+        try
+        {
+            return (T) SerializationUtils.deserialize(bytes, muleContext);
+        }
+        catch (org.apache.commons.lang.SerializationException e)
+        {
+            throw new SerializationException("Unable to deserialize object", e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(InputStream in) throws SerializationException
+    {
+        try
+        {
+            return (T) SerializationUtils.deserialize(in, muleContext);
+        }
+        catch (org.apache.commons.lang.SerializationException e)
+        {
+            throw new SerializationException("Unable to deserialize object", e);
+        }
+    }
+
+    private Serializable checkSerializable(Object object)
+    {
+        if (object != null && !(object instanceof Serializable))
+        {
+            throw new SerializationException("Object of type " + object.getClass().getName()
+                                             + " is not serializable");
+        }
+        return (Serializable) object;
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        this.muleContext = context;
+    }
+}
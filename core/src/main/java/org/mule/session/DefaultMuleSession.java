@@ -67,6 +67,16 @@ public final class DefaultMuleSession implements MuleSession
         properties = Collections.synchronizedMap(new CaseInsensitiveHashMap/* <String, Object> */());
     }
 
+    /**
+     * Creates an empty session with a given id, used when a session is rebuilt from
+     * its serialized form.
+     */
+    public DefaultMuleSession(String id)
+    {
+        this.id = id;
+        properties = Collections.synchronizedMap(new CaseInsensitiveHashMap/* <String, Object> */());
+    }
+
     public DefaultMuleSession(MuleSession session)
     {
         this.id = session.getId();
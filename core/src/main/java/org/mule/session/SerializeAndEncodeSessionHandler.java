@@ -37,7 +37,7 @@ public class SerializeAndEncodeSessionHandler extends SerializeOnlySessionHandle
             byte[] serializedSession = Base64.decode(serializedEncodedSession);            
             if (serializedSession != null)
             {
-                session = (MuleSession) SerializationUtils.deserialize(serializedSession, message.getMuleContext());
+                session = SerializationUtils.getObjectSerializer(message.getMuleContext()).deserialize(serializedSession);
             }
         }
         return session;
@@ -46,7 +46,8 @@ public class SerializeAndEncodeSessionHandler extends SerializeOnlySessionHandle
     @Override
     public void storeSessionInfoToMessage(MuleSession session, MuleMessage message) throws MuleException
     {        
-        byte[] serializedSession = SerializationUtils.serialize(removeNonSerializableProperties(session,message.getMuleContext()));
+        byte[] serializedSession = SerializationUtils.getObjectSerializer(message.getMuleContext()).serialize(
+            removeNonSerializableProperties(session, message.getMuleContext()));
         String serializedEncodedSession;
         try
         {
@@ -34,7 +34,7 @@ public class SerializeOnlySessionHandler implements SessionHandler
 
         if (serializedSession != null)
         {
-            session = (MuleSession) SerializationUtils.deserialize(serializedSession, message.getMuleContext());
+            session = SerializationUtils.getObjectSerializer(message.getMuleContext()).deserialize(serializedSession);
         }
         return session;
     }
@@ -49,7 +49,8 @@ public class SerializeOnlySessionHandler implements SessionHandler
 
     public void storeSessionInfoToMessage(MuleSession session, MuleMessage message) throws MuleException
     {
-        byte[] serializedSession = SerializationUtils.serialize(removeNonSerializableProperties(session,message.getMuleContext()));
+        byte[] serializedSession = SerializationUtils.getObjectSerializer(message.getMuleContext()).serialize(
+            removeNonSerializableProperties(session, message.getMuleContext()));
         
         if (logger.isDebugEnabled())
         {
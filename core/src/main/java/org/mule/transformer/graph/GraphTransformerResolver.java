@@ -12,19 +12,24 @@ import org.mule.api.transformer.Converter;
 import org.mule.api.transformer.DataType;
 import org.mule.api.transformer.Transformer;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.transformer.types.DataTypePairCache;
 
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.apache.commons.collections.map.LRUMap;
-
 public class GraphTransformerResolver implements TransformerResolver
 {
 
+    // cached for the pairs of data types that can not be converted
+    private static final Object NO_CONVERTER = new Object();
+
+    // the pairs of data types looked up are not known in advance, so the cache is bounded
+    private static final int CACHE_SIZE = 100;
+
     private ReentrantReadWriteLock readWriteLock;
     private TransformationGraph graph;
     private CompositeConverterFilter converterFilter;
-    private LRUMap cache;
+    private DataTypePairCache<Object> cache;
     private TransformationGraphLookupStrategy lookupStrategyTransformation;
 
     public GraphTransformerResolver()
@@ -33,25 +38,16 @@ public class GraphTransformerResolver implements TransformerResolver
         this.graph = new TransformationGraph();
         lookupStrategyTransformation = new TransformationGraphLookupStrategy(graph);
         converterFilter = new CompositeConverterFilter(new TransformationLengthConverterFilter(), new PriorityWeightingConverterFilter(), new NameConverterFilter());
-        cache = new LRUMap();
+        cache = new DataTypePairCache<Object>(CACHE_SIZE);
     }
 
     @Override
     public Transformer resolve(DataType<?> source, DataType<?> result) throws ResolverException
     {
-        String cacheKey = getDataTypeSourceResultPairHash(source, result);
-
-        readWriteLock.readLock().lock();
-        try
+        Object cached = cache.get(source, result);
+        if (cached != null)
         {
-            if (cache.containsKey(cacheKey))
-            {
-                return (Converter) cache.get(cacheKey);
-            }
-        }
-        finally
-        {
-            readWriteLock.readLock().unlock();
+            return cached == NO_CONVERTER ? null : (Converter) cached;
         }
 
         List<Converter> converters = converterFilter.filter(lookupStrategyTransformation.lookupConverters(source, result), source, result);
@@ -64,31 +60,20 @@ public class GraphTransformerResolver implements TransformerResolver
         Transformer converter = (converters.size() == 0) ? null : converters.get(0);
 
 
-        readWriteLock.writeLock().lock();
+        // the cache can be filled concurrently, but not while the graph changes
+        readWriteLock.readLock().lock();
         try
         {
-            cache.put(cacheKey, converter);
+            cache.putIfAbsent(source, result, converter == null ? NO_CONVERTER : converter);
         }
         finally
         {
-            readWriteLock.writeLock().unlock();
+            readWriteLock.readLock().unlock();
         }
 
         return converter;
     }
 
-    private String getDataTypeSourceResultPairHash(DataType<?> source, DataType<?> result)
-    {
-        StringBuilder builder = new StringBuilder();
-        builder.append(source.getClass().getName());
-        builder.append(source.hashCode());
-        builder.append(":");
-        builder.append(result.getClass().getName());
-        builder.append(result.hashCode());
-
-        return builder.toString();
-    }
-
     @Override
     public void transformerChange(Transformer transformer, RegistryAction registryAction)
     {
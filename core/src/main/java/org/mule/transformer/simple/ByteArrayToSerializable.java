@@ -17,7 +17,8 @@ import java.io.InputStream;
 
 /**
  * <code>ByteArrayToSerializable</code> converts a serialized object to its object
- * representation
+ * representation. The object is read with the {@link org.mule.api.serialization.ObjectSerializer}
+ * of the Mule context, which also reads objects written with Java serialization.
  */
 public class ByteArrayToSerializable extends AbstractTransformer implements DiscoverableTransformer
 {
@@ -41,11 +42,11 @@ public class ByteArrayToSerializable extends AbstractTransformer implements Disc
             final Object result;
             if (src instanceof byte[])
             {
-                result = SerializationUtils.deserialize((byte[]) src, muleContext);
+                result = SerializationUtils.getObjectSerializer(muleContext).deserialize((byte[]) src);
             }
             else
             {
-                result = SerializationUtils.deserialize((InputStream) src, muleContext);
+                result = SerializationUtils.getObjectSerializer(muleContext).deserialize((InputStream) src);
             }
             return result;
         }
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transformer.simple;
+
+import org.mule.api.transformer.TransformerException;
+import org.mule.model.streaming.RepeatableInputStream;
+import org.mule.transformer.AbstractTransformer;
+import org.mule.transformer.types.DataTypeFactory;
+
+import java.io.InputStream;
+
+/**
+ * <code>InputStreamToRepeatableInputStream</code> wraps a stream payload in a
+ * {@link RepeatableInputStream}, so that it can be read many times without being
+ * loaded in memory.
+ */
+public class InputStreamToRepeatableInputStream extends AbstractTransformer
+{
+
+    private int memoryThreshold = RepeatableInputStream.DEFAULT_MEMORY_THRESHOLD;
+
+    public InputStreamToRepeatableInputStream()
+    {
+        registerSourceType(DataTypeFactory.INPUT_STREAM);
+        setReturnDataType(DataTypeFactory.create(RepeatableInputStream.class));
+    }
+
+    @Override
+    protected Object doTransform(Object src, String enc) throws TransformerException
+    {
+        if (src instanceof RepeatableInputStream)
+        {
+            return src;
+        }
+        return new RepeatableInputStream((InputStream) src, memoryThreshold);
+    }
+
+    public int getMemoryThreshold()
+    {
+        return memoryThreshold;
+    }
+
+    /**
+     * @param memoryThreshold the number of bytes kept in memory before the stream is
+     *            written to a temporary file
+     */
+    public void setMemoryThreshold(int memoryThreshold)
+    {
+        this.memoryThreshold = memoryThreshold;
+    }
+}
@@ -11,7 +11,11 @@ import org.mule.transformer.AbstractMessageTransformer;
 import org.mule.transformer.types.DataTypeFactory;
 import org.mule.util.SerializationUtils;
 
-/** TODO */
+/**
+ * <code>MuleMessageToByteArray</code> serializes a whole message, payload and
+ * properties, using the {@link org.mule.api.serialization.ObjectSerializer} of the
+ * Mule context.
+ */
 public class MuleMessageToByteArray extends AbstractMessageTransformer
 {
     public MuleMessageToByteArray()
@@ -23,6 +27,6 @@ public class MuleMessageToByteArray extends AbstractMessageTransformer
     @Override
     public Object transformMessage(MuleMessage message, String outputEncoding)
     {
-        return SerializationUtils.serialize(message);
+        return SerializationUtils.getObjectSerializer(muleContext).serialize(message);
     }
 }
@@ -69,7 +69,7 @@ public class ObjectToOutputHandler extends AbstractTransformer implements Discov
                     InputStream is = (InputStream) src;
                     try
                     {
-                        IOUtils.copyLarge(is, out);
+                        IOUtils.transfer(is, out);
                     }
                     finally
                     {
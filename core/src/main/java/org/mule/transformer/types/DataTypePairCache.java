@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transformer.types;
+
+import org.mule.api.transformer.DataType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrent cache of values for pairs of source and result {@link DataType}s,
+ * like the transformers resolved for them.
+ * <p/>
+ * The cache is keyed by the source type and then by the result type, so lookups do
+ * not create any key object. The data types are copied when a value is cached, as
+ * they are mutable.
+ * <p/>
+ * A cache with a maximum size is cleared when it is full, so that data types created
+ * at runtime, like the ones with unique mime types, do not make it grow without limit.
+ */
+public class DataTypePairCache<V>
+{
+
+    private final ConcurrentMap<DataType<?>, ConcurrentMap<DataType<?>, V>> cache = new ConcurrentHashMap<DataType<?>, ConcurrentMap<DataType<?>, V>>(8);
+    private final int maxSize;
+    // approximate, values cached concurrently with a clear may be counted after it
+    private final AtomicInteger size = new AtomicInteger();
+
+    public DataTypePairCache()
+    {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSize the number of values the cache holds before it is cleared
+     */
+    public DataTypePairCache(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cached value, or null if there is none
+     */
+    public V get(DataType<?> source, DataType<?> result)
+    {
+        ConcurrentMap<DataType<?>, V> values = cache.get(source);
+        return values == null ? null : values.get(result);
+    }
+
+    /**
+     * Caches a value unless another one was cached first for the same types.
+     *
+     * @return the value that is cached for the types
+     */
+    public V putIfAbsent(DataType<?> source, DataType<?> result, V value)
+    {
+        if (size.get() >= maxSize)
+        {
+            clear();
+        }
+        ConcurrentMap<DataType<?>, V> values = cache.get(source);
+        if (values == null)
+        {
+            values = new ConcurrentHashMap<DataType<?>, V>(4);
+            ConcurrentMap<DataType<?>, V> existing = cache.putIfAbsent(copyOf(source), values);
+            if (existing != null)
+            {
+                values = existing;
+            }
+        }
+        V existing = values.putIfAbsent(copyOf(result), value);
+        if (existing != null)
+        {
+            return existing;
+        }
+        size.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Replaces every cached value with the one returned by the update. Values cached
+     * concurrently may not be updated.
+     */
+    public void update(Update<V> update)
+    {
+        for (Map.Entry<DataType<?>, ConcurrentMap<DataType<?>, V>> sourceEntry : cache.entrySet())
+        {
+            for (Map.Entry<DataType<?>, V> resultEntry : sourceEntry.getValue().entrySet())
+            {
+                V value = update.apply(sourceEntry.getKey(), resultEntry.getKey(), resultEntry.getValue());
+                if (value == null)
+                {
+                    if (sourceEntry.getValue().remove(resultEntry.getKey()) != null)
+                    {
+                        size.decrementAndGet();
+                    }
+                }
+                else if (value != resultEntry.getValue())
+                {
+                    sourceEntry.getValue().put(resultEntry.getKey(), value);
+                }
+            }
+        }
+    }
+
+    public void clear()
+    {
+        cache.clear();
+        size.set(0);
+    }
+
+    /**
+     * @return the number of cached values
+     */
+    public int size()
+    {
+        return size.get();
+    }
+
+    private static DataType<?> copyOf(DataType<?> dataType)
+    {
+        DataType<?> copy = dataType.cloneDataType();
+        return copy != null ? copy : dataType;
+    }
+
+    /**
+     * Computes the new value of a cached entry.
+     */
+    public interface Update<V>
+    {
+
+        /**
+         * @return the new value, which may be the current one, or null to remove the entry
+         */
+        V apply(DataType<?> source, DataType<?> result, V value);
+    }
+}
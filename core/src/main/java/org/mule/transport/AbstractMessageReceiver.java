@@ -32,6 +32,8 @@ import org.mule.api.transport.Connector;
 import org.mule.api.transport.MessageReceiver;
 import org.mule.api.transport.PropertyScope;
 import org.mule.api.transport.ReplyToHandler;
+import org.mule.construct.AbstractPipeline;
+import org.mule.construct.InFlightBudget;
 import org.mule.context.notification.EndpointMessageNotification;
 import org.mule.execution.MessageProcessContext;
 import org.mule.execution.MessageProcessTemplate;
@@ -56,6 +58,12 @@ import org.apache.commons.lang.SerializationException;
  */
 public abstract class AbstractMessageReceiver extends AbstractTransportMessageHandler implements MessageReceiver
 {
+    /**
+     * Milliseconds {@link #waitWhileFlowConstructBusy()} waits for a busy flow construct
+     * before checking that this receiver is still started
+     */
+    protected static final long FLOW_CONSTRUCT_BUSY_WAIT = 1000;
+
     /**
      * The Service with which this receiver is associated with
      */
@@ -385,6 +393,40 @@ public abstract class AbstractMessageReceiver extends AbstractTransportMessageHa
         }
     }
 
+    /**
+     * @return true if the flow construct has reached its maximum number of events in
+     *         flight, in which case the receiver should not accept more messages
+     */
+    protected boolean isFlowConstructBusy()
+    {
+        return AbstractPipeline.isInFlightBudgetExhausted(flowConstruct);
+    }
+
+    /**
+     * Blocks the receiving thread while the flow construct is busy, so that a receiver
+     * that is handed messages stops consuming them until the flow catches up.
+     */
+    protected void waitWhileFlowConstructBusy()
+    {
+        if (!(flowConstruct instanceof AbstractPipeline))
+        {
+            return;
+        }
+
+        InFlightBudget budget = ((AbstractPipeline) flowConstruct).getInFlightBudget();
+        try
+        {
+            while (!budget.awaitAvailable(FLOW_CONSTRUCT_BUSY_WAIT) && isStarted())
+            {
+                // still busy, wait again
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     public String toString()
     {
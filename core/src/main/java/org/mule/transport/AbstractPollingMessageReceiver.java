@@ -207,10 +207,20 @@ public abstract class AbstractPollingMessageReceiver extends AbstractMessageRece
     }
 
     /**
-     * Check whether polling should take place on this instance.
+     * Check whether polling should take place on this instance. Polls are skipped
+     * while the flow construct has reached its maximum number of events in flight.
      */
     public final void performPoll() throws Exception
     {
+        if (isFlowConstructBusy())
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(ObjectUtils.identityToShortString(this) + " skipped poll as "
+                             + flowConstruct.getName() + " is busy");
+            }
+            return;
+        }
         if (!pollOnPrimaryInstanceOnly() || flowConstruct.getMuleContext().isPrimaryPollingInstance())
         {
             poll();   
@@ -25,10 +25,12 @@ public class ContinuousPollingReceiverWorker extends PollingReceiverWorker
         /*
          * We simply run our own polling loop all the time as long as the receiver is started. The
          * blocking wait defined by Connector.getQueueTimeout() will prevent this worker's receiver
-         * thread from busy-waiting.
+         * thread from busy-waiting, and so does waiting while the flow construct is busy, as polls
+         * are skipped then.
          */
         while (getReceiver().isStarted() && !getReceiver().isStopping())
         {
+            getReceiver().waitWhileFlowConstructBusy();
             super.poll();
         }
     }
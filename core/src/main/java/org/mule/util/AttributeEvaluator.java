@@ -37,6 +37,11 @@ public class AttributeEvaluator
     {
         this.expressionManager = expressionManager;
         resolveAttributeType();
+        if (isExpression() && expressionManager != null)
+        {
+            // validating compiles the expression, so it is cached before the first message arrives
+            expressionManager.isValidExpression(attributeValue);
+        }
     }
 
     private void resolveAttributeType()
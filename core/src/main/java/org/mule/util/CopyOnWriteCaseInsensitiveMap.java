@@ -0,0 +1,513 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A case-insensitive <code>Map</code> of <code>String</code> keys that stores its
+ * entries in open-addressing arrays and shares them with its copies.
+ * <p/>
+ * Keys are compared with {@link String#equalsIgnoreCase(String)} and hashed by
+ * folding the case of each character, so lookups do not create lower case copies of
+ * the keys like {@link CaseInsensitiveHashMap} does. The real key case is preserved
+ * and returned by <code>keySet()</code>.
+ * <p/>
+ * {@link #copy()} returns a map that shares the entries of this one until either of
+ * them is modified, which is when the modified map copies the arrays. An empty map
+ * does not allocate any array until an entry is added.
+ * <p/>
+ * <strong>Note that this map is not synchronized and is not thread-safe.</strong>
+ * Maps that share their entries can be used from different threads, as the shared
+ * arrays are never modified.
+ */
+public class CopyOnWriteCaseInsensitiveMap<V> extends AbstractMap<String, V> implements Serializable
+{
+
+    private static final long serialVersionUID = 2941863473718240871L;
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private static final Table EMPTY = new Table(0);
+
+    static
+    {
+        EMPTY.shared = true;
+    }
+
+    private transient Table table = EMPTY;
+    // incremented whenever the entries are moved to other slots
+    private transient int compactions;
+    private transient Set<Map.Entry<String, V>> entrySet;
+
+    public CopyOnWriteCaseInsensitiveMap()
+    {
+        super();
+    }
+
+    public CopyOnWriteCaseInsensitiveMap(Map<String, ? extends V> map)
+    {
+        putAll(map);
+    }
+
+    private CopyOnWriteCaseInsensitiveMap(Table table)
+    {
+        this.table = table;
+    }
+
+    /**
+     * @return a map with the same entries as this one, which shares them until
+     *         either map is modified
+     */
+    public CopyOnWriteCaseInsensitiveMap<V> copy()
+    {
+        table.shared = true;
+        return new CopyOnWriteCaseInsensitiveMap<V>(table);
+    }
+
+    @Override
+    public int size()
+    {
+        return table.size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return table.size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return key instanceof String && table.indexOf((String) key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key)
+    {
+        if (!(key instanceof String))
+        {
+            return null;
+        }
+        Table current = table;
+        int index = current.indexOf((String) key);
+        return index >= 0 ? (V) current.values[index] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(String key, V value)
+    {
+        if (key == null)
+        {
+            throw new NullPointerException("Keys can not be null");
+        }
+        Table current = writableTable(1);
+        int hash = hash(key);
+        int index = current.indexOf(key, hash);
+        if (index >= 0)
+        {
+            V previous = (V) current.values[index];
+            current.values[index] = value;
+            return previous;
+        }
+        current.insert(key, hash, value);
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key)
+    {
+        if (!(key instanceof String) || table.indexOf((String) key) < 0)
+        {
+            return null;
+        }
+        Table current = writableTable(0);
+        int index = current.indexOf((String) key);
+        V previous = (V) current.values[index];
+        current.delete(index);
+        return previous;
+    }
+
+    @Override
+    public void clear()
+    {
+        if (table.shared)
+        {
+            table = EMPTY;
+            compactions++;
+        }
+        else
+        {
+            table.clear();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet()
+    {
+        if (entrySet == null)
+        {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * @param additions the number of entries that are going to be added
+     * @return a table that is not shared and has room for the additions
+     */
+    private Table writableTable(int additions)
+    {
+        Table current = table;
+        if ((current.used + additions) * 2 > current.keys.length)
+        {
+            int capacity = Math.max(DEFAULT_CAPACITY, current.keys.length);
+            while ((current.size + additions) * 2 > capacity)
+            {
+                capacity <<= 1;
+            }
+            current = current.compactCopy(capacity);
+            table = current;
+            compactions++;
+        }
+        else if (current.shared)
+        {
+            current = current.copy();
+            table = current;
+        }
+        return current;
+    }
+
+    /**
+     * Hashes the case folded characters of the key, in the same way that
+     * {@link String#equalsIgnoreCase(String)} compares them.
+     */
+    static int hash(String key)
+    {
+        int hash = 0;
+        for (int i = 0, length = key.length(); i < length; i++)
+        {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        Table current = table;
+        out.writeInt(current.size);
+        for (int i = 0; i < current.keys.length; i++)
+        {
+            if (current.isEntry(i))
+            {
+                out.writeObject(current.keys[i]);
+                out.writeObject(current.values[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        table = EMPTY;
+        int size = in.readInt();
+        for (int i = 0; i < size; i++)
+        {
+            put((String) in.readObject(), (V) in.readObject());
+        }
+    }
+
+    /**
+     * The arrays of a map. Removed entries are replaced by {@link #DELETED}, so that
+     * the lookups of the keys that collided with them keep working and the iterators
+     * can remove entries, until the table is copied.
+     */
+    private static final class Table
+    {
+
+        private static final String DELETED = new String("<deleted>");
+
+        final String[] keys;
+        final int[] hashes;
+        final Object[] values;
+        int size;
+        // the slots with entries or deleted entries
+        int used;
+        volatile boolean shared;
+
+        Table(int capacity)
+        {
+            keys = new String[capacity];
+            hashes = new int[capacity];
+            values = new Object[capacity];
+        }
+
+        boolean isEntry(int index)
+        {
+            String key = keys[index];
+            return key != null && key != DELETED;
+        }
+
+        int indexOf(String key)
+        {
+            return keys.length == 0 ? -1 : indexOf(key, hash(key));
+        }
+
+        int indexOf(String key, int hash)
+        {
+            if (keys.length == 0)
+            {
+                return -1;
+            }
+            int mask = keys.length - 1;
+            for (int index = hash & mask; ; index = (index + 1) & mask)
+            {
+                String candidate = keys[index];
+                if (candidate == null)
+                {
+                    return -1;
+                }
+                if (candidate != DELETED && hashes[index] == hash && candidate.equalsIgnoreCase(key))
+                {
+                    return index;
+                }
+            }
+        }
+
+        void insert(String key, int hash, Object value)
+        {
+            int mask = keys.length - 1;
+            int index = hash & mask;
+            while (keys[index] != null && keys[index] != DELETED)
+            {
+                index = (index + 1) & mask;
+            }
+            if (keys[index] == null)
+            {
+                used++;
+            }
+            keys[index] = key;
+            hashes[index] = hash;
+            values[index] = value;
+            size++;
+        }
+
+        void delete(int index)
+        {
+            keys[index] = DELETED;
+            values[index] = null;
+            size--;
+        }
+
+        void clear()
+        {
+            for (int i = 0; i < keys.length; i++)
+            {
+                keys[i] = null;
+                values[i] = null;
+            }
+            size = 0;
+            used = 0;
+        }
+
+        /**
+         * @return an unshared table with the same layout as this one
+         */
+        Table copy()
+        {
+            Table copy = new Table(keys.length);
+            System.arraycopy(keys, 0, copy.keys, 0, keys.length);
+            System.arraycopy(hashes, 0, copy.hashes, 0, keys.length);
+            System.arraycopy(values, 0, copy.values, 0, keys.length);
+            copy.size = size;
+            copy.used = used;
+            return copy;
+        }
+
+        /**
+         * @return an unshared table with the entries of this one, without the deleted ones
+         */
+        Table compactCopy(int capacity)
+        {
+            Table copy = new Table(capacity);
+            for (int i = 0; i < keys.length; i++)
+            {
+                if (isEntry(i))
+                {
+                    copy.insert(keys[i], hashes[i], values[i]);
+                }
+            }
+            return copy;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, V>>
+    {
+
+        @Override
+        public Iterator<Map.Entry<String, V>> iterator()
+        {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return table.size;
+        }
+
+        @Override
+        public void clear()
+        {
+            CopyOnWriteCaseInsensitiveMap.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, V>>
+    {
+
+        private final int expectedCompactions = compactions;
+        private int next = -1;
+        private int current = -1;
+
+        EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            do
+            {
+                next++;
+            }
+            while (next < table.keys.length && !table.isEntry(next));
+        }
+
+        public boolean hasNext()
+        {
+            return next < table.keys.length;
+        }
+
+        public Map.Entry<String, V> next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            checkForModification();
+            current = next;
+            advance();
+            return new Entry(current);
+        }
+
+        public void remove()
+        {
+            if (current < 0)
+            {
+                throw new IllegalStateException();
+            }
+            checkForModification();
+            // a removal never compacts the table, so the iterated slots are kept
+            writableTable(0).delete(current);
+            current = -1;
+        }
+
+        private void checkForModification()
+        {
+            if (expectedCompactions != compactions)
+            {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private class Entry implements Map.Entry<String, V>
+    {
+
+        private final String key;
+        private final int index;
+
+        Entry(int index)
+        {
+            this.index = index;
+            this.key = table.keys[index];
+        }
+
+        public String getKey()
+        {
+            return key;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue()
+        {
+            Table current = table;
+            if (index < current.keys.length && current.keys[index] == key)
+            {
+                return (V) current.values[index];
+            }
+            return get(key);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value)
+        {
+            // replacing a value never compacts the table, so the iterators can go on
+            Table current = writableTable(0);
+            int currentIndex = current.indexOf(key);
+            if (currentIndex < 0)
+            {
+                return put(key, value);
+            }
+            V previous = (V) current.values[currentIndex];
+            current.values[currentIndex] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Map.Entry))
+            {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            Object value = getValue();
+            return key.equals(other.getKey()) && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            Object value = getValue();
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + getValue();
+        }
+    }
+}
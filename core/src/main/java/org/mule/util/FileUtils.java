@@ -773,6 +773,86 @@ public class FileUtils extends org.apache.commons.io.FileUtils
         return success;
     }
 
+
+    /**
+     * Moves a file by renaming it. When the file cannot be renamed, e.g. because the
+     * destination is on another file system, its contents are transferred with
+     * {@link FileChannel#transferTo} to a temporary file in the destination directory
+     * which is then renamed, so the destination never holds a partial copy. The
+     * source file is deleted once it has been copied.
+     *
+     * @throws IOException if the destination already exists or the file could not
+     *             be moved
+     */
+    public static void moveFileAtomically(File sourceFile, File destinationFile) throws IOException
+    {
+        if (destinationFile.exists())
+        {
+            throw new IOException("Destination '" + destinationFile + "' already exists");
+        }
+        if (sourceFile.renameTo(destinationFile))
+        {
+            return;
+        }
+
+        File directory = destinationFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Could not create directory '" + directory + "'");
+        }
+        File tempFile = File.createTempFile("mule-" + destinationFile.getName(), ".tmp", directory);
+        try
+        {
+            transferFile(sourceFile, tempFile);
+            tempFile.setLastModified(sourceFile.lastModified());
+            if (!tempFile.renameTo(destinationFile))
+            {
+                throw new IOException("Could not rename '" + tempFile + "' to '" + destinationFile + "'");
+            }
+        }
+        finally
+        {
+            if (tempFile.exists())
+            {
+                tempFile.delete();
+            }
+        }
+
+        if (!sourceFile.delete())
+        {
+            destinationFile.delete();
+            throw new IOException("Could not delete '" + sourceFile + "' once moved to '" + destinationFile + "'");
+        }
+    }
+
+    private static void transferFile(File sourceFile, File destinationFile) throws IOException
+    {
+        FileInputStream fis = null;
+        FileOutputStream fos = null;
+        try
+        {
+            fis = new FileInputStream(sourceFile);
+            fos = new FileOutputStream(destinationFile);
+            FileChannel srcChannel = fis.getChannel();
+            FileChannel dstChannel = fos.getChannel();
+            long size = srcChannel.size();
+            long position = 0;
+            while (position < size)
+            {
+                long transferred = srcChannel.transferTo(position, size - position, dstChannel);
+                if (transferred <= 0)
+                {
+                    throw new IOException("Could not copy '" + sourceFile + "' past " + position + " bytes");
+                }
+                position += transferred;
+            }
+        }
+        finally
+        {
+            IOUtils.closeQuietly(fis);
+            IOUtils.closeQuietly(fos);
+        }
+    }
     
     /**
      * Copy in file to out file
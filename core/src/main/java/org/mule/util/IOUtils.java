@@ -9,10 +9,16 @@ package org.mule.util;
 import org.mule.config.i18n.CoreMessages;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 
@@ -275,4 +281,38 @@ public class IOUtils extends org.apache.commons.io.IOUtils
             throw new RuntimeException(iox);
         }
     }
+
+    /**
+     * Copies the input to the output like <code>copyLarge(InputStream, OutputStream)</code>,
+     * but lets the operating system move the data when the input is a file, with
+     * {@link FileChannel#transferTo}. The data does not go through the heap when the
+     * output is a file too, and it is copied in small chunks otherwise.
+     *
+     * @return the number of bytes copied
+     */
+    public static long transfer(InputStream input, OutputStream output) throws IOException
+    {
+        if (!(input instanceof FileInputStream))
+        {
+            return copyLarge(input, output);
+        }
+        FileChannel inputChannel = ((FileInputStream) input).getChannel();
+        WritableByteChannel outputChannel = output instanceof FileOutputStream
+                                            ? ((FileOutputStream) output).getChannel()
+                                            : Channels.newChannel(output);
+        long position = inputChannel.position();
+        long size = inputChannel.size();
+        long start = position;
+        while (position < size)
+        {
+            long transferred = inputChannel.transferTo(position, size - position, outputChannel);
+            if (transferred <= 0)
+            {
+                break;
+            }
+            position += transferred;
+        }
+        inputChannel.position(position);
+        return position - start;
+    }
 }
@@ -7,6 +7,9 @@
 package org.mule.util;
 
 import org.mule.api.MuleContext;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.serialization.JavaObjectSerializer;
 import org.mule.util.store.DeserializationPostInitialisable;
 
 import java.io.ByteArrayInputStream;
@@ -137,5 +140,20 @@ public class SerializationUtils extends org.apache.commons.lang.SerializationUti
     public static Object deserialize(byte[] objectData, ClassLoader cl)
     {
         return deserialize(objectData, cl, null);
-    }    
+    }
+
+    /**
+     * Returns the {@link ObjectSerializer} registered under
+     * {@link MuleProperties#OBJECT_SERIALIZER}, or one using Java serialization when
+     * there is none.
+     */
+    public static ObjectSerializer getObjectSerializer(MuleContext muleContext)
+    {
+        ObjectSerializer serializer = null;
+        if (muleContext != null && muleContext.getRegistry() != null)
+        {
+            serializer = muleContext.getRegistry().lookupObject(MuleProperties.OBJECT_SERIALIZER);
+        }
+        return serializer != null ? serializer : new JavaObjectSerializer(muleContext);
+    }
 }
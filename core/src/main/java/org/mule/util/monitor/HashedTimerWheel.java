@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.monitor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <code>HashedTimerWheel</code> keeps track of items that expire at a given time
+ * without having to scan all of them. Deadlines are hashed into a fixed number of
+ * buckets, one per tick, so scheduling an item is O(1) and {@link #expire(long, Collection)}
+ * only looks at the buckets for the ticks elapsed since the previous call.
+ * <p/>
+ * Any number of threads may schedule or cancel items concurrently, but only one
+ * thread at a time is expected to call {@link #expire(long, Collection)}. Items are
+ * never reported before their deadline; they may be reported up to one tick late.
+ */
+public class HashedTimerWheel<T>
+{
+    private final long tickDuration;
+    private final int mask;
+    private final List<Timeout<T>>[] buckets;
+
+    // @GuardedBy the lock of the bucket for the tick being processed
+    private volatile long lastProcessedTick;
+
+    /**
+     * @param tickDuration the resolution of the wheel, in the same unit used for the deadlines
+     * @param ticksPerWheel the number of buckets, rounded up to the next power of two
+     * @param now the current time
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(long tickDuration, int ticksPerWheel, long now)
+    {
+        if (tickDuration <= 0)
+        {
+            throw new IllegalArgumentException("tickDuration must be greater than 0");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30))
+        {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+        }
+
+        int size = 1;
+        while (size < ticksPerWheel)
+        {
+            size <<= 1;
+        }
+
+        this.tickDuration = tickDuration;
+        this.mask = size - 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++)
+        {
+            buckets[i] = new ArrayList<Timeout<T>>();
+        }
+        this.lastProcessedTick = now / tickDuration - 1;
+    }
+
+    /**
+     * Schedules an item to be reported as expired once <code>deadline</code> is reached.
+     *
+     * @return a handle that can be used to cancel the timeout
+     */
+    public Timeout<T> schedule(T item, long deadline)
+    {
+        Timeout<T> timeout = new Timeout<T>(item, deadline);
+        // round up so that every item in a bucket is due once its tick is reached
+        long deadlineTick = (deadline + tickDuration - 1) / tickDuration;
+
+        while (true)
+        {
+            long tick = Math.max(deadlineTick, lastProcessedTick + 1);
+            List<Timeout<T>> bucket = buckets[(int) (tick & mask)];
+            synchronized (bucket)
+            {
+                // the bucket may have been processed for this tick while we were getting
+                // here, in which case the next one is used instead
+                if (lastProcessedTick < tick)
+                {
+                    bucket.add(timeout);
+                    return timeout;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the wheel up to <code>now</code>, adding the items that expired to
+     * <code>expired</code>. Cancelled items are discarded.
+     *
+     * @return the number of items added to <code>expired</code>
+     */
+    public int expire(long now, Collection<? super T> expired)
+    {
+        long currentTick = now / tickDuration;
+        long from = lastProcessedTick + 1;
+        if (currentTick - from > mask)
+        {
+            // more than a full rotation elapsed, each bucket only needs to be seen once
+            from = currentTick - mask;
+        }
+
+        int count = 0;
+        for (long tick = from; tick <= currentTick; tick++)
+        {
+            List<Timeout<T>> bucket = buckets[(int) (tick & mask)];
+            synchronized (bucket)
+            {
+                Iterator<Timeout<T>> iterator = bucket.iterator();
+                while (iterator.hasNext())
+                {
+                    Timeout<T> timeout = iterator.next();
+                    if (timeout.cancelled)
+                    {
+                        iterator.remove();
+                    }
+                    else if (timeout.deadline <= now)
+                    {
+                        iterator.remove();
+                        expired.add(timeout.item);
+                        count++;
+                    }
+                }
+                lastProcessedTick = tick;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of scheduled items, including cancelled ones that were not
+     *         purged yet
+     */
+    public int size()
+    {
+        int size = 0;
+        for (List<Timeout<T>> bucket : buckets)
+        {
+            synchronized (bucket)
+            {
+                size += bucket.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear()
+    {
+        for (List<Timeout<T>> bucket : buckets)
+        {
+            synchronized (bucket)
+            {
+                bucket.clear();
+            }
+        }
+    }
+
+    /**
+     * A handle for a scheduled item.
+     */
+    public static final class Timeout<T>
+    {
+        private final T item;
+        private final long deadline;
+        private volatile boolean cancelled;
+
+        private Timeout(T item, long deadline)
+        {
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        public T getItem()
+        {
+            return item;
+        }
+
+        public long getDeadline()
+        {
+            return deadline;
+        }
+
+        /**
+         * Prevents the item from being reported. The timeout is purged from the wheel
+         * the next time its bucket is processed.
+         */
+        public void cancel()
+        {
+            cancelled = true;
+        }
+
+        public boolean isCancelled()
+        {
+            return cancelled;
+        }
+    }
+}
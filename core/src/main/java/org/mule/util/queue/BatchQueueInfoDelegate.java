@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import org.mule.api.store.ObjectStoreException;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A QueueInfoDelegate that can add and remove many members of its queue at once
+ */
+public interface BatchQueueInfoDelegate extends QueueInfoDelegate
+{
+    /**
+     * Offer to append all the given members to the end of the queue. Either all of them
+     * are appended or none is.
+     */
+    boolean offerAll(Collection<? extends Serializable> items, int room, long timeout)
+        throws InterruptedException, ObjectStoreException;
+
+    /**
+     * Wait for the queue to have a member, then remove up to <code>maxItems</code> members
+     * from it without waiting any further
+     *
+     * @return the number of members added to <code>items</code>
+     */
+    int drainTo(List<Serializable> items, int maxItems, long timeout) throws InterruptedException;
+}
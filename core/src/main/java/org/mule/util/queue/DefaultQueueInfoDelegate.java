@@ -9,11 +9,12 @@ package org.mule.util.queue;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * The default QueueInfoDelegate. This uses a LinkedList to store the members of the queue.
  */
-public class DefaultQueueInfoDelegate implements TransientQueueInfoDelegate
+public class DefaultQueueInfoDelegate implements TransientQueueInfoDelegate, BatchQueueInfoDelegate
 {
     protected final int capacity;
     protected final LinkedList<Serializable> list;
@@ -40,23 +41,9 @@ public class DefaultQueueInfoDelegate implements TransientQueueInfoDelegate
         checkInterrupted();
         synchronized (list)
         {
-            if (capacity > 0)
+            if (!waitForRoom(room, timeout))
             {
-                if (capacity <= room)
-                {
-                    throw new IllegalStateException("Can not add more objects than the capacity in one time");
-                }
-                long l1 = timeout > 0L ? System.currentTimeMillis() : 0L;
-                long l2 = timeout;
-                while (list.size() >= capacity - room)
-                {
-                    if (l2 <= 0L)
-                    {
-                        return false;
-                    }
-                    list.wait(l2);
-                    l2 = timeout - (System.currentTimeMillis() - l1);
-                }
+                return false;
             }
             if (o != null)
             {
@@ -68,22 +55,63 @@ public class DefaultQueueInfoDelegate implements TransientQueueInfoDelegate
     }
 
     @Override
-    public Serializable poll(long timeout) throws InterruptedException
+    public boolean offerAll(Collection<? extends Serializable> items, int room, long timeout)
+        throws InterruptedException
     {
         checkInterrupted();
+        if (items.isEmpty())
+        {
+            return true;
+        }
         synchronized (list)
         {
+            // room for all the items but the one offer() itself accounts for
+            if (!waitForRoom(room + items.size() - 1, timeout))
+            {
+                return false;
+            }
+            list.addAll(items);
+            list.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Must be called holding the lock on the list
+     */
+    private boolean waitForRoom(int room, long timeout) throws InterruptedException
+    {
+        if (capacity > 0)
+        {
+            if (capacity <= room)
+            {
+                throw new IllegalStateException("Can not add more objects than the capacity in one time");
+            }
             long l1 = timeout > 0L ? System.currentTimeMillis() : 0L;
             long l2 = timeout;
-            while (list.isEmpty())
+            while (list.size() >= capacity - room)
             {
                 if (l2 <= 0L)
                 {
-                    return null;
+                    return false;
                 }
                 list.wait(l2);
                 l2 = timeout - (System.currentTimeMillis() - l1);
             }
+        }
+        return true;
+    }
+
+    @Override
+    public Serializable poll(long timeout) throws InterruptedException
+    {
+        checkInterrupted();
+        synchronized (list)
+        {
+            if (!waitForMembers(timeout))
+            {
+                return null;
+            }
 
             Serializable o = list.removeFirst();
             list.notifyAll();
@@ -91,6 +119,47 @@ public class DefaultQueueInfoDelegate implements TransientQueueInfoDelegate
         }
     }
 
+    @Override
+    public int drainTo(List<Serializable> items, int maxItems, long timeout) throws InterruptedException
+    {
+        checkInterrupted();
+        synchronized (list)
+        {
+            if (maxItems <= 0 || !waitForMembers(timeout))
+            {
+                return 0;
+            }
+
+            int drained = 0;
+            while (drained < maxItems && !list.isEmpty())
+            {
+                items.add(list.removeFirst());
+                drained++;
+            }
+            list.notifyAll();
+            return drained;
+        }
+    }
+
+    /**
+     * Must be called holding the lock on the list
+     */
+    private boolean waitForMembers(long timeout) throws InterruptedException
+    {
+        long l1 = timeout > 0L ? System.currentTimeMillis() : 0L;
+        long l2 = timeout;
+        while (list.isEmpty())
+        {
+            if (l2 <= 0L)
+            {
+                return false;
+            }
+            list.wait(l2);
+            l2 = timeout - (System.currentTimeMillis() - l1);
+        }
+        return true;
+    }
+
     @Override
     public Serializable peek() throws InterruptedException
     {
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link TransientQueueInfoDelegate} that does not hold any lock, for queues put to
+ * and taken from by many threads at once.
+ * <p/>
+ * Members are kept in a bounded array shared by all producers and consumers, where
+ * each slot carries a sequence number telling whether it may be written or read next.
+ * Members that do not fit in the array, either because more than the capacity was
+ * put with {@link #putNow(Serializable)} or because the queue is unbounded, are
+ * appended to an overflow queue, and members given back with
+ * {@link #untake(Serializable)} are kept apart to be taken first.
+ * <p/>
+ * Threads that have to wait for a member or for room first retry
+ * <code>spinTries</code> times, then park until another thread unparks them.
+ */
+public class LockFreeQueueInfoDelegate implements TransientQueueInfoDelegate, BatchQueueInfoDelegate
+{
+    /**
+     * The number of times a thread retries before parking, zero unless set through
+     * the <code>mule.queue.lockFree.spinTries</code> system property
+     */
+    public static final int DEFAULT_SPIN_TRIES = Integer.getInteger("mule.queue.lockFree.spinTries", 0);
+
+    // the size of the array for unbounded queues, members past it go to the overflow
+    static final int UNBOUNDED_RING_SIZE = 1024;
+
+    protected final int capacity;
+    private final int spinTries;
+
+    private final int mask;
+    private final AtomicReferenceArray<Serializable> ring;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final Queue<Serializable> overflow = new ConcurrentLinkedQueue<Serializable>();
+    private final Queue<Serializable> untaken = new ConcurrentLinkedQueue<Serializable>();
+
+    // the members in the queue and the ones being added to it
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final Queue<Thread> waitingConsumers = new ConcurrentLinkedQueue<Thread>();
+    private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<Thread>();
+
+    public LockFreeQueueInfoDelegate(int capacity)
+    {
+        this(capacity, DEFAULT_SPIN_TRIES);
+    }
+
+    public LockFreeQueueInfoDelegate(int capacity, int spinTries)
+    {
+        this.capacity = capacity;
+        this.spinTries = spinTries;
+
+        int ringSize = 2;
+        while (ringSize < (capacity > 0 ? capacity : UNBOUNDED_RING_SIZE))
+        {
+            ringSize <<= 1;
+        }
+        mask = ringSize - 1;
+        ring = new AtomicReferenceArray<Serializable>(ringSize);
+        sequences = new AtomicLongArray(ringSize);
+        for (int i = 0; i < ringSize; i++)
+        {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public void putNow(Serializable o)
+    {
+        size.incrementAndGet();
+        append(o);
+        signal(waitingConsumers);
+    }
+
+    @Override
+    public boolean offer(Serializable o, int room, long timeout) throws InterruptedException
+    {
+        checkInterrupted();
+        if (!awaitRoom(1, room, timeout, o != null))
+        {
+            return false;
+        }
+        if (o != null)
+        {
+            append(o);
+            signal(waitingConsumers);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean offerAll(Collection<? extends Serializable> items, int room, long timeout)
+        throws InterruptedException
+    {
+        checkInterrupted();
+        if (items.isEmpty())
+        {
+            return true;
+        }
+        if (!awaitRoom(items.size(), room, timeout, true))
+        {
+            return false;
+        }
+        appendAll(items);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Serializable> items)
+    {
+        size.addAndGet(items.size());
+        appendAll(items);
+        return !items.isEmpty();
+    }
+
+    @Override
+    public Serializable poll(long timeout) throws InterruptedException
+    {
+        checkInterrupted();
+        Serializable o = take();
+        if (o != null || timeout <= 0L)
+        {
+            return o;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Thread waiter = Thread.currentThread();
+        int spins = spinTries;
+        while (true)
+        {
+            o = take();
+            if (o != null)
+            {
+                return o;
+            }
+            if (spins > 0)
+            {
+                spins--;
+                continue;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L)
+            {
+                // a member put meanwhile may have unparked this thread instead of another
+                passSignal();
+                return null;
+            }
+            // registered before checking again, so that a producer adding a member
+            // afterwards is bound to see this thread waiting
+            waitingConsumers.add(waiter);
+            if (size.get() == 0)
+            {
+                LockSupport.parkNanos(this, remaining);
+            }
+            waitingConsumers.remove(waiter);
+            if (Thread.interrupted())
+            {
+                passSignal();
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public int drainTo(List<Serializable> items, int maxItems, long timeout) throws InterruptedException
+    {
+        if (maxItems <= 0)
+        {
+            checkInterrupted();
+            return 0;
+        }
+
+        Serializable o = poll(timeout);
+        if (o == null)
+        {
+            return 0;
+        }
+
+        int drained = 0;
+        do
+        {
+            items.add(o);
+            drained++;
+        }
+        while (drained < maxItems && (o = take()) != null);
+        return drained;
+    }
+
+    @Override
+    public Serializable peek() throws InterruptedException
+    {
+        checkInterrupted();
+        Serializable o = untaken.peek();
+        if (o == null)
+        {
+            o = peekRing();
+        }
+        if (o == null)
+        {
+            o = overflow.peek();
+        }
+        return o;
+    }
+
+    @Override
+    public void untake(Serializable item) throws InterruptedException
+    {
+        checkInterrupted();
+        size.incrementAndGet();
+        untaken.add(item);
+        signal(waitingConsumers);
+    }
+
+    @Override
+    public void clear() throws InterruptedException
+    {
+        checkInterrupted();
+        while (take() != null)
+        {
+            // discard
+        }
+    }
+
+    @Override
+    public int getSize()
+    {
+        return size.get();
+    }
+
+    /**
+     * Waits until there is room for <code>count</code> more members, keeping
+     * <code>room</code> free. The room is claimed for the members to be added when
+     * <code>claim</code> is true.
+     */
+    private boolean awaitRoom(int count, int room, long timeout, boolean claim) throws InterruptedException
+    {
+        if (capacity <= 0)
+        {
+            if (claim)
+            {
+                size.addAndGet(count);
+            }
+            return true;
+        }
+
+        int limit = capacity - room - count;
+        if (limit < 0)
+        {
+            throw new IllegalStateException("Can not add more objects than the capacity in one time");
+        }
+
+        long deadline = timeout > 0L ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0L;
+        Thread waiter = Thread.currentThread();
+        int spins = spinTries;
+        while (true)
+        {
+            int currentSize = size.get();
+            if (currentSize <= limit)
+            {
+                if (!claim || size.compareAndSet(currentSize, currentSize + count))
+                {
+                    return true;
+                }
+                continue;
+            }
+            if (spins > 0)
+            {
+                spins--;
+                continue;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (timeout <= 0L || remaining <= 0L)
+            {
+                passRoomSignal();
+                return false;
+            }
+            waitingProducers.add(waiter);
+            if (size.get() > limit)
+            {
+                LockSupport.parkNanos(this, remaining);
+            }
+            waitingProducers.remove(waiter);
+            if (Thread.interrupted())
+            {
+                passRoomSignal();
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Removes the first member of the queue without waiting
+     */
+    private Serializable take()
+    {
+        Serializable o = untaken.poll();
+        if (o == null)
+        {
+            o = pollRing();
+        }
+        if (o == null)
+        {
+            o = overflow.poll();
+        }
+        if (o != null)
+        {
+            size.decrementAndGet();
+            if (capacity > 0)
+            {
+                signal(waitingProducers);
+            }
+        }
+        return o;
+    }
+
+    private void appendAll(Collection<? extends Serializable> items)
+    {
+        for (Serializable item : items)
+        {
+            append(item);
+        }
+        for (int i = 0; i < items.size() && !waitingConsumers.isEmpty(); i++)
+        {
+            signal(waitingConsumers);
+        }
+    }
+
+    /**
+     * Adds a member whose room was already accounted for in <code>size</code>
+     */
+    private void append(Serializable o)
+    {
+        // members go to the overflow for as long as it is not empty, so that they are
+        // not taken before the ones already in there
+        if (!overflow.isEmpty() || !offerRing(o))
+        {
+            overflow.add(o);
+        }
+    }
+
+    private boolean offerRing(Serializable o)
+    {
+        while (true)
+        {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0)
+            {
+                if (tail.compareAndSet(position, position + 1))
+                {
+                    ring.lazySet(index, o);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            }
+            else if (available < 0)
+            {
+                // the slot still holds the member put one lap before
+                return false;
+            }
+        }
+    }
+
+    private Serializable pollRing()
+    {
+        while (true)
+        {
+            long position = head.get();
+            int index = (int) position & mask;
+            long available = sequences.get(index) - (position + 1);
+            if (available == 0)
+            {
+                if (head.compareAndSet(position, position + 1))
+                {
+                    Serializable o = ring.get(index);
+                    ring.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return o;
+                }
+            }
+            else if (available < 0)
+            {
+                // the slot has not been written yet
+                return null;
+            }
+        }
+    }
+
+    private Serializable peekRing()
+    {
+        while (true)
+        {
+            long position = head.get();
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1)
+            {
+                return null;
+            }
+            Serializable o = ring.get(index);
+            if (head.get() == position)
+            {
+                return o;
+            }
+        }
+    }
+
+    private void passSignal()
+    {
+        if (size.get() > 0)
+        {
+            signal(waitingConsumers);
+        }
+    }
+
+    private void passRoomSignal()
+    {
+        if (size.get() < capacity)
+        {
+            signal(waitingProducers);
+        }
+    }
+
+    private static void signal(Queue<Thread> waiters)
+    {
+        Thread waiter = waiters.poll();
+        if (waiter != null)
+        {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    private void checkInterrupted() throws InterruptedException
+    {
+        if (Thread.interrupted())
+        {
+            throw new InterruptedException();
+        }
+    }
+}
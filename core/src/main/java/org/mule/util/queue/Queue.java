@@ -12,6 +12,7 @@ import org.mule.api.NamedObject;
 import org.mule.api.store.ObjectStoreException;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * <code>Queue</code> TODO
@@ -43,6 +44,23 @@ public interface Queue extends NamedObject
 
     boolean offer(Serializable object, long timeout) throws InterruptedException, ObjectStoreException;
 
+    /**
+     * Puts all the given objects in this queue, waiting if necessary for there to be room
+     * for all of them. Either all the objects are added or none is.
+     *
+     * @return false if there was no room for the objects before the timeout elapsed
+     */
+    boolean offerAll(List<? extends Serializable> objects, long timeout)
+        throws InterruptedException, ObjectStoreException;
+
+    /**
+     * Waits for an object to be available in this queue, then retrieves as many as are
+     * available up to <code>maxObjects</code> without waiting any further.
+     *
+     * @return the number of objects added to <code>objects</code>
+     */
+    int drainTo(List<Serializable> objects, int maxObjects, long timeout) throws InterruptedException;
+
     /**
      * Discards all the elements in the queue
      * 
@@ -16,17 +16,34 @@ public class QueueConfiguration
     public final static int INFINITY_CAPACTY = 0;
     protected final int capacity;
     protected final QueueStore<Serializable> objectStore;
+    protected final boolean lockFree;
 
     public QueueConfiguration(MuleContext context, int capacity, QueueStore<Serializable> objectStore)
     {
-        this.capacity = capacity;
-        this.objectStore = objectStore;
+        this(capacity, objectStore);
+    }
+
+    public QueueConfiguration(MuleContext context, int capacity, QueueStore<Serializable> objectStore, boolean lockFree)
+    {
+        this(capacity, objectStore, lockFree);
     }
 
     public QueueConfiguration(int capacity, QueueStore<Serializable> objectStore)
+    {
+        this(capacity, objectStore, false);
+    }
+
+    /**
+     * @param lockFree whether the members of the queue are kept in a
+     *            {@link LockFreeQueueInfoDelegate} rather than in a
+     *            {@link DefaultQueueInfoDelegate}, for queues under contention from
+     *            many producers and consumers
+     */
+    public QueueConfiguration(int capacity, QueueStore<Serializable> objectStore, boolean lockFree)
     {
         this.capacity = capacity;
         this.objectStore = objectStore;
+        this.lockFree = lockFree;
     }
 
     @Override
@@ -36,6 +53,7 @@ public class QueueConfiguration
         int result = 1;
         result = prime * result + capacity;
         result = prime * result + objectStore.hashCode();
+        result = prime * result + (lockFree ? 1231 : 1237);
         return result;
     }
 
@@ -63,6 +81,10 @@ public class QueueConfiguration
         {
             return false;
         }
+        if (lockFree != other.lockFree)
+        {
+            return false;
+        }
         return true;
     }
 
@@ -75,4 +97,9 @@ public class QueueConfiguration
     {
         return capacity;
     }
+
+    public boolean isLockFree()
+    {
+        return lockFree;
+    }
 }
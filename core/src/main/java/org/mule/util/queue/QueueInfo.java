@@ -12,7 +12,9 @@ import org.mule.api.store.ObjectStore;
 import org.mule.api.store.ObjectStoreException;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -58,9 +60,19 @@ public class QueueInfo
         }
         if (delegate == null || (config != null && !hadConfig))
         {
-            QueueInfoDelegate newDelegate = factory != null
-                                                           ? factory.createDelegate(this, muleContext)
-                                                           : new DefaultQueueInfoDelegate(capacity);
+            QueueInfoDelegate newDelegate;
+            if (factory != null)
+            {
+                newDelegate = factory.createDelegate(this, muleContext);
+            }
+            else if (config != null && config.isLockFree())
+            {
+                newDelegate = new LockFreeQueueInfoDelegate(capacity);
+            }
+            else
+            {
+                newDelegate = new DefaultQueueInfoDelegate(capacity);
+            }
             delegateCanTake = newDelegate instanceof TakingQueueInfoDelegate;
             if (delegate != null && delegate instanceof DefaultQueueInfoDelegate)
             {
@@ -98,11 +110,59 @@ public class QueueInfo
         return delegate.offer(o, room, timeout);
     }
 
+    public void putAllNow(Collection<? extends Serializable> items)
+    {
+        delegate.addAll(items);
+    }
+
+    /**
+     * Offers all the items at once if the delegate supports it, one at a time otherwise
+     */
+    public boolean offerAll(Collection<? extends Serializable> items, int room, long timeout)
+        throws InterruptedException, ObjectStoreException
+    {
+        if (delegate instanceof BatchQueueInfoDelegate)
+        {
+            return ((BatchQueueInfoDelegate) delegate).offerAll(items, room, timeout);
+        }
+
+        for (Serializable item : items)
+        {
+            if (!delegate.offer(item, room, timeout))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Serializable poll(long timeout) throws InterruptedException
     {
         return delegate.poll(timeout);
     }
 
+    /**
+     * Drains the members at once if the delegate supports it, polls them one at a time
+     * otherwise
+     */
+    public int drainTo(List<Serializable> items, int maxItems, long timeout) throws InterruptedException
+    {
+        if (delegate instanceof BatchQueueInfoDelegate)
+        {
+            return ((BatchQueueInfoDelegate) delegate).drainTo(items, maxItems, timeout);
+        }
+
+        int drained = 0;
+        Serializable item = maxItems > 0 ? delegate.poll(timeout) : null;
+        while (item != null)
+        {
+            items.add(item);
+            drained++;
+            item = drained < maxItems ? delegate.poll(0) : null;
+        }
+        return drained;
+    }
+
     public Serializable peek() throws InterruptedException
     {
         return delegate.peek();
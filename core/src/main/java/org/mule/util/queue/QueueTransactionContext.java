@@ -55,6 +55,34 @@ public class QueueTransactionContext extends AbstractTransactionContext
         }
     }
 
+    public boolean offerAll(QueueInfo queue, List<? extends Serializable> items, long offerTimeout)
+        throws InterruptedException, ObjectStoreException
+    {
+        readOnly = false;
+        if (queue.canTakeFromStore())
+        {
+            for (Serializable item : items)
+            {
+                queue.writeToObjectStore(item);
+            }
+            return true;
+        }
+
+        initializeAdded();
+
+        List<Serializable> queueAdded = lookupAddedQueue(queue);
+        // wait for enough room for all the items
+        if (items.isEmpty() || queue.offer(null, queueAdded.size() + items.size() - 1, offerTimeout))
+        {
+            queueAdded.addAll(items);
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
     public void untake(QueueInfo queue, Serializable item) throws InterruptedException, ObjectStoreException
     {
         readOnly = false;
@@ -152,6 +180,63 @@ public class QueueTransactionContext extends AbstractTransactionContext
         return value;
     }
 
+    /**
+     * Takes the items added in this transaction first, like {@link #poll(QueueInfo, long)}
+     * does, then drains the queue itself.
+     */
+    public int drainTo(QueueInfo queue, List<Serializable> items, int maxItems, long pollTimeout)
+        throws InterruptedException, ObjectStoreException
+    {
+        readOnly = false;
+        int drained = 0;
+        if (added != null)
+        {
+            List<Serializable> queueAdded = added.get(queue);
+            while (drained < maxItems && queueAdded != null && queueAdded.size() > 0)
+            {
+                items.add(queueAdded.remove(queueAdded.size() - 1));
+                drained++;
+            }
+        }
+        if (drained > 0 || maxItems <= 0)
+        {
+            return drained;
+        }
+
+        if (queue.canTakeFromStore())
+        {
+            Serializable item = queue.takeNextItemFromStore(pollTimeout);
+            while (item != null)
+            {
+                items.add(item);
+                drained++;
+                item = drained < maxItems ? queue.takeNextItemFromStore(0) : null;
+            }
+            return drained;
+        }
+
+        List<Serializable> keys = new ArrayList<Serializable>(Math.min(maxItems, 64));
+        queue.drainTo(keys, maxItems, pollTimeout);
+        if (keys.isEmpty())
+        {
+            return 0;
+        }
+
+        initializeRemoved();
+        List<Serializable> queueRemoved = lookupRemovedQueue(queue);
+        for (Serializable key : keys)
+        {
+            Serializable value = transactionalQueueManager.doLoad(queue, key);
+            if (value != null)
+            {
+                queueRemoved.add(key);
+                items.add(value);
+                drained++;
+            }
+        }
+        return drained;
+    }
+
     public Serializable peek(QueueInfo queue) throws InterruptedException, ObjectStoreException
     {
         readOnly = false;
@@ -199,11 +284,13 @@ public class QueueTransactionContext extends AbstractTransactionContext
                     List<Serializable> queueAdded = entry.getValue();
                     if (queueAdded != null && queueAdded.size() > 0)
                     {
+                        List<Serializable> ids = new ArrayList<Serializable>(queueAdded.size());
                         for (Serializable object : queueAdded)
                         {
-                            Serializable id = transactionalQueueManager.doStore(queue, object);
-                            queue.putNow(id);
+                            ids.add(transactionalQueueManager.doStore(queue, object));
                         }
+                        // make all the items available to consumers at once
+                        queue.putAllNow(ids);
                     }
                 }
             }
@@ -13,6 +13,8 @@ import org.mule.util.xa.AbstractXAResourceManager;
 import org.mule.util.xa.DefaultXASession;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -113,6 +115,53 @@ class TransactionalQueueSession extends DefaultXASession implements QueueSession
             }
         }
 
+        @Override
+        public boolean offerAll(List<? extends Serializable> items, long timeout)
+            throws InterruptedException, ObjectStoreException
+        {
+            if (localContext != null && !queue.isQueueTransactional())
+            {
+                return ((QueueTransactionContext) localContext).offerAll(queue, items, timeout);
+            }
+            else
+            {
+                List<Serializable> ids = new ArrayList<Serializable>(items.size());
+                try
+                {
+                    for (Serializable item : items)
+                    {
+                        ids.add(queueManager.doStore(queue, item));
+                    }
+                    try
+                    {
+                        if (queue.offerAll(ids, 0, timeout))
+                        {
+                            return true;
+                        }
+                        removeAll(ids);
+                        return false;
+                    }
+                    catch (InterruptedException e)
+                    {
+                        removeAll(ids);
+                        throw e;
+                    }
+                }
+                catch (ObjectStoreException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        private void removeAll(List<Serializable> ids) throws ObjectStoreException
+        {
+            for (Serializable id : ids)
+            {
+                queueManager.doRemove(queue, id);
+            }
+        }
+
         @Override
         public Serializable take() throws InterruptedException
         {
@@ -178,6 +227,67 @@ class TransactionalQueueSession extends DefaultXASession implements QueueSession
             }
         }
 
+        @Override
+        public int drainTo(List<Serializable> items, int maxItems, long timeout) throws InterruptedException
+        {
+            List<Serializable> drained = new ArrayList<Serializable>(Math.min(maxItems, 64));
+            try
+            {
+                if (localContext != null && !queue.isQueueTransactional())
+                {
+                    ((QueueTransactionContext) localContext).drainTo(queue, drained, maxItems, timeout);
+                }
+                else if (queue.canTakeFromStore())
+                {
+                    Serializable item = maxItems > 0 ? queue.takeNextItemFromStore(timeout) : null;
+                    while (item != null)
+                    {
+                        drained.add(item);
+                        item = drained.size() < maxItems ? queue.takeNextItemFromStore(0) : null;
+                    }
+                }
+                else
+                {
+                    List<Serializable> ids = new ArrayList<Serializable>(Math.min(maxItems, 64));
+                    queue.drainTo(ids, maxItems, timeout);
+                    for (Serializable id : ids)
+                    {
+                        Serializable item = queueManager.doLoad(queue, id);
+                        if (item != null)
+                        {
+                            queueManager.doRemove(queue, id);
+                            drained.add(item);
+                        }
+                    }
+                }
+            }
+            catch (InterruptedException iex)
+            {
+                if (!queueManager.getMuleContext().isStopping())
+                {
+                    throw iex;
+                }
+                // if stopping, ignore
+                return 0;
+            }
+            catch (ObjectStoreException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            int count = 0;
+            for (Serializable item : drained)
+            {
+                item = postProcessIfNeeded(item);
+                if (item != null)
+                {
+                    items.add(item);
+                    count++;
+                }
+            }
+            return count;
+        }
+
         @Override
         public Serializable peek() throws InterruptedException
         {
@@ -0,0 +1,793 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import org.mule.api.lifecycle.Disposable;
+import org.mule.api.lifecycle.Initialisable;
+import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.ObjectStoreNotAvaliableException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.util.UUID;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <code>IdempotencyObjectStore</code> is an object store for the ids seen by an
+ * idempotent filter over a long time window. Only a 64-bit hash of each key is kept,
+ * so the values are not stored: {@link #retrieve(Serializable)} and
+ * {@link #remove(Serializable)} return <code>null</code> for the keys that are in the
+ * store.
+ * <p/>
+ * The time-to-live is split into buckets. Each bucket has a Bloom filter, which
+ * answers most lookups for new keys without going further, and an index of the
+ * hashes of its keys held in arrays of primitives. Keys expire a whole bucket at a
+ * time, once all of the bucket is older than the time-to-live, so they are kept for
+ * up to one bucket longer than it.
+ * <p/>
+ * When a log directory is set, each bucket appends its keys to a file that is read
+ * back when the store is initialised, and deleted when the bucket expires. Without
+ * the exact index only the Bloom filters are kept, which takes a fraction of the
+ * memory but makes a few new keys look like duplicates, at the configured false
+ * positive probability.
+ * <p/>
+ * A lookup goes through the filters of all of the live buckets, so each filter is
+ * sized for the false positive probability divided by the number of buckets that can
+ * be live at once. With the defaults that takes about 2 bytes per key for a 1%
+ * probability, next to the 8 to 11 bytes per key of the exact index.
+ */
+public class IdempotencyObjectStore<T extends Serializable> implements ObjectStore<T>, Initialisable, Disposable
+{
+    private static final int STRIPES = 64;
+    private static final String LOG_FILE_EXTENSION = ".log";
+    private static final byte STORE_RECORD = 1;
+    private static final byte REMOVE_RECORD = 0;
+    private static final int RECORD_SIZE = 9;
+
+    protected final Log logger = LogFactory.getLog(this.getClass());
+
+    private String name;
+    private int entryTTL = 24 * 60 * 60 * 1000;
+    private int bucketCount = 24;
+    private int expectedEntries = 1000000;
+    private double falsePositiveProbability = 0.01;
+    private boolean exactIndex = true;
+    private String logDirectory;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    // newest bucket first, replaced as a whole when the buckets rotate
+    private volatile List<Bucket> buckets = Collections.emptyList();
+
+    public IdempotencyObjectStore()
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    public void initialise() throws InitialisationException
+    {
+        if (name == null)
+        {
+            name = UUID.getUUID();
+        }
+        if (entryTTL <= 0 || bucketCount <= 0)
+        {
+            throw new InitialisationException(CoreMessages.propertyHasInvalidValue(
+                entryTTL <= 0 ? "entryTTL" : "bucketCount",
+                Integer.valueOf(entryTTL <= 0 ? entryTTL : bucketCount)), this);
+        }
+        if (logDirectory != null)
+        {
+            try
+            {
+                loadLogs();
+            }
+            catch (IOException e)
+            {
+                throw new InitialisationException(e, this);
+            }
+        }
+    }
+
+    public void dispose()
+    {
+        synchronized (this)
+        {
+            for (Bucket bucket : buckets)
+            {
+                bucket.closeLog();
+            }
+        }
+    }
+
+    public boolean isPersistent()
+    {
+        return logDirectory != null;
+    }
+
+    public boolean contains(Serializable key) throws ObjectStoreException
+    {
+        return contains(key, System.currentTimeMillis());
+    }
+
+    boolean contains(Serializable key, long now) throws ObjectStoreException
+    {
+        long hash = hash(key);
+        currentBucket(now);
+        return find(buckets, hash);
+    }
+
+    public void store(Serializable key, T value) throws ObjectStoreException
+    {
+        store(key, value, System.currentTimeMillis());
+    }
+
+    void store(Serializable key, T value, long now) throws ObjectStoreException
+    {
+        long hash = hash(key);
+        Bucket current = currentBucket(now);
+        synchronized (locks[stripe(hash)])
+        {
+            if (find(buckets, hash))
+            {
+                throw new ObjectAlreadyExistsException();
+            }
+            current.add(hash);
+        }
+        current.log(STORE_RECORD, hash);
+    }
+
+    public T retrieve(Serializable key) throws ObjectStoreException
+    {
+        if (!contains(key))
+        {
+            throw new ObjectDoesNotExistException(CoreMessages.objectNotFound(key));
+        }
+        return null;
+    }
+
+    public T remove(Serializable key) throws ObjectStoreException
+    {
+        if (!exactIndex)
+        {
+            throw new ObjectStoreException(CoreMessages.createStaticMessage(
+                "Keys cannot be removed from store " + name + " as it has no exact index"));
+        }
+        long hash = hash(key);
+        Bucket current = currentBucket(System.currentTimeMillis());
+        boolean removed = false;
+        synchronized (locks[stripe(hash)])
+        {
+            for (Bucket bucket : buckets)
+            {
+                removed |= bucket.remove(hash);
+            }
+        }
+        if (!removed)
+        {
+            throw new ObjectDoesNotExistException(CoreMessages.objectNotFound(key));
+        }
+        current.log(REMOVE_RECORD, hash);
+        return null;
+    }
+
+    public synchronized void clear() throws ObjectStoreException
+    {
+        List<Bucket> cleared = buckets;
+        buckets = Collections.emptyList();
+        for (Bucket bucket : cleared)
+        {
+            bucket.delete();
+        }
+    }
+
+    private boolean find(List<Bucket> buckets, long hash)
+    {
+        for (Bucket bucket : buckets)
+        {
+            if (bucket.contains(hash))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the bucket that new keys go to, after moving to a new bucket and dropping
+     *         the expired ones if the current one is over
+     */
+    private Bucket currentBucket(long now) throws ObjectStoreException
+    {
+        List<Bucket> current = buckets;
+        if (!current.isEmpty() && now < current.get(0).start + getBucketDuration())
+        {
+            return current.get(0);
+        }
+
+        synchronized (this)
+        {
+            current = buckets;
+            long bucketDuration = getBucketDuration();
+            if (!current.isEmpty() && now < current.get(0).start + bucketDuration)
+            {
+                return current.get(0);
+            }
+
+            List<Bucket> rotated = new ArrayList<Bucket>(bucketCount + 1);
+            Bucket bucket = new Bucket(now - now % bucketDuration);
+            try
+            {
+                bucket.openLog();
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreNotAvaliableException(e);
+            }
+            rotated.add(bucket);
+            for (Bucket previous : current)
+            {
+                if (isExpired(previous, now))
+                {
+                    previous.delete();
+                }
+                else
+                {
+                    rotated.add(previous);
+                }
+            }
+            buckets = rotated;
+            return bucket;
+        }
+    }
+
+    private boolean isExpired(Bucket bucket, long now)
+    {
+        return bucket.start + getBucketDuration() <= now - entryTTL;
+    }
+
+    private long getBucketDuration()
+    {
+        return Math.max(1, entryTTL / bucketCount);
+    }
+
+    private void loadLogs() throws IOException
+    {
+        File directory = new File(logDirectory);
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            throw new IOException(CoreMessages.failedToCreate("object store directory "
+                                                              + directory.getAbsolutePath()).getMessage());
+        }
+
+        final String prefix = name + "-";
+        File[] files = directory.listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String fileName)
+            {
+                return fileName.startsWith(prefix) && fileName.endsWith(LOG_FILE_EXTENSION);
+            }
+        });
+        if (files == null)
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<Bucket> loaded = new ArrayList<Bucket>();
+        for (File file : files)
+        {
+            String start = file.getName().substring(prefix.length(),
+                file.getName().length() - LOG_FILE_EXTENSION.length());
+            try
+            {
+                loaded.add(new Bucket(Long.parseLong(start)));
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warn("Ignoring unexpected file " + file.getAbsolutePath());
+            }
+        }
+        Collections.sort(loaded);
+
+        List<Bucket> live = new ArrayList<Bucket>();
+        for (Bucket bucket : loaded)
+        {
+            if (isExpired(bucket, now))
+            {
+                bucket.delete();
+                continue;
+            }
+            bucket.replayLog(live);
+            bucket.openLog();
+            live.add(0, bucket);
+        }
+
+        synchronized (this)
+        {
+            buckets = live;
+        }
+    }
+
+    /**
+     * Hashes the string form of the key to 64 bits, with FNV-1a followed by the
+     * MurmurHash3 finalizer. Zero is used by the index for empty slots, so it is never
+     * returned.
+     */
+    static long hash(Serializable key) throws ObjectStoreException
+    {
+        if (key == null)
+        {
+            throw new ObjectStoreException(CoreMessages.objectIsNull("id"));
+        }
+
+        String id = key.toString();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++)
+        {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int stripe(long hash)
+    {
+        return (int) (hash >>> 58);
+    }
+
+    private File getLogFile(long start)
+    {
+        return new File(logDirectory, name + "-" + start + LOG_FILE_EXTENSION);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    public int getEntryTTL()
+    {
+        return entryTTL;
+    }
+
+    /**
+     * @param entryTTL the time, in milliseconds, keys are kept for
+     */
+    public void setEntryTTL(int entryTTL)
+    {
+        this.entryTTL = entryTTL;
+    }
+
+    public int getBucketCount()
+    {
+        return bucketCount;
+    }
+
+    /**
+     * @param bucketCount the number of buckets the time-to-live is split into
+     */
+    public void setBucketCount(int bucketCount)
+    {
+        this.bucketCount = bucketCount;
+    }
+
+    public int getExpectedEntries()
+    {
+        return expectedEntries;
+    }
+
+    /**
+     * @param expectedEntries the number of keys expected over the time-to-live, used to
+     *            size the Bloom filters
+     */
+    public void setExpectedEntries(int expectedEntries)
+    {
+        this.expectedEntries = expectedEntries;
+    }
+
+    public double getFalsePositiveProbability()
+    {
+        return falsePositiveProbability;
+    }
+
+    public void setFalsePositiveProbability(double falsePositiveProbability)
+    {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public boolean isExactIndex()
+    {
+        return exactIndex;
+    }
+
+    public void setExactIndex(boolean exactIndex)
+    {
+        this.exactIndex = exactIndex;
+    }
+
+    public String getLogDirectory()
+    {
+        return logDirectory;
+    }
+
+    public void setLogDirectory(String logDirectory)
+    {
+        this.logDirectory = logDirectory;
+    }
+
+    /**
+     * The keys stored during a slice of the time-to-live.
+     */
+    private class Bucket implements Comparable<Bucket>
+    {
+        private final long start;
+        private final BloomFilter filter;
+        private final LongHashSet[] index;
+        private DataOutputStream log;
+
+        Bucket(long start)
+        {
+            this.start = start;
+            int bucketEntries = Math.max(1, expectedEntries / bucketCount);
+            // a key is looked up in every live bucket, of which there is one more than
+            // bucketCount while the oldest one waits to expire
+            this.filter = new BloomFilter(bucketEntries, falsePositiveProbability / (bucketCount + 1));
+            if (exactIndex)
+            {
+                index = new LongHashSet[STRIPES];
+                for (int i = 0; i < STRIPES; i++)
+                {
+                    index[i] = new LongHashSet(bucketEntries / STRIPES);
+                }
+            }
+            else
+            {
+                index = null;
+            }
+        }
+
+        boolean contains(long hash)
+        {
+            if (!filter.mightContain(hash))
+            {
+                return false;
+            }
+            if (index == null)
+            {
+                return true;
+            }
+            // guarded by the lock of the stripe, like every access to its index
+            synchronized (locks[stripe(hash)])
+            {
+                return index[stripe(hash)].contains(hash);
+            }
+        }
+
+        void add(long hash)
+        {
+            filter.add(hash);
+            if (index != null)
+            {
+                index[stripe(hash)].add(hash);
+            }
+        }
+
+        boolean remove(long hash)
+        {
+            // the Bloom filter keeps the hash, which only makes lookups for it go to the index
+            return filter.mightContain(hash) && index[stripe(hash)].remove(hash);
+        }
+
+        void openLog() throws IOException
+        {
+            if (logDirectory != null)
+            {
+                log = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(getLogFile(start), true), RECORD_SIZE));
+            }
+        }
+
+        synchronized void log(byte type, long hash) throws ObjectStoreException
+        {
+            if (log != null)
+            {
+                try
+                {
+                    log.writeByte(type);
+                    log.writeLong(hash);
+                    log.flush();
+                }
+                catch (IOException e)
+                {
+                    throw new ObjectStoreNotAvaliableException(e);
+                }
+            }
+        }
+
+        /**
+         * Reads the keys back from the log, applying removals to the older buckets too,
+         * and drops a partial record left at its end.
+         */
+        void replayLog(List<Bucket> older) throws IOException
+        {
+            File file = getLogFile(start);
+            long validLength = 0;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try
+            {
+                while (true)
+                {
+                    byte type = in.readByte();
+                    long hash = in.readLong();
+                    if (type == STORE_RECORD)
+                    {
+                        add(hash);
+                    }
+                    else if (index != null)
+                    {
+                        remove(hash);
+                        for (Bucket bucket : older)
+                        {
+                            bucket.remove(hash);
+                        }
+                    }
+                    validLength += RECORD_SIZE;
+                }
+            }
+            catch (EOFException e)
+            {
+                // end of the log
+            }
+            finally
+            {
+                in.close();
+            }
+
+            if (validLength < file.length())
+            {
+                RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+                try
+                {
+                    truncated.setLength(validLength);
+                }
+                finally
+                {
+                    truncated.close();
+                }
+            }
+        }
+
+        synchronized void closeLog()
+        {
+            if (log != null)
+            {
+                try
+                {
+                    log.close();
+                }
+                catch (IOException e)
+                {
+                    logger.warn("Error closing log of store " + name + ": " + e.getMessage());
+                }
+                log = null;
+            }
+        }
+
+        void delete()
+        {
+            closeLog();
+            if (logDirectory != null)
+            {
+                File file = getLogFile(start);
+                if (file.exists() && !file.delete())
+                {
+                    logger.warn("Could not delete " + file.getAbsolutePath());
+                }
+            }
+        }
+
+        public int compareTo(Bucket other)
+        {
+            return start < other.start ? -1 : (start == other.start ? 0 : 1);
+        }
+    }
+
+    /**
+     * A Bloom filter over 64-bit hashes, using the two halves of the hash to derive the
+     * bit positions. Bits are set atomically so it can be read without locking.
+     */
+    static class BloomFilter
+    {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedEntries, double falsePositiveProbability)
+        {
+            double ln2 = Math.log(2);
+            long optimalBits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveProbability) / (ln2 * ln2));
+            int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (optimalBits + 63) / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = words * 64L;
+            this.hashCount = Math.max(1, Math.min(16, (int) Math.round(bitCount / (double) expectedEntries * ln2)));
+        }
+
+        void add(long hash)
+        {
+            long h1 = hash & 0xffffffffL;
+            long h2 = hash >>> 32;
+            for (int i = 0; i < hashCount; i++)
+            {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do
+                {
+                    current = bits.get(word);
+                }
+                while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(long hash)
+        {
+            long h1 = hash & 0xffffffffL;
+            long h2 = hash >>> 32;
+            for (int i = 0; i < hashCount; i++)
+            {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * An open addressing set of non-zero longs, not thread safe.
+     */
+    static class LongHashSet
+    {
+        private long[] table;
+        private int size;
+
+        LongHashSet(int expectedSize)
+        {
+            int capacity = 16;
+            while (capacity * 3 / 4 < expectedSize)
+            {
+                capacity <<= 1;
+            }
+            table = new long[capacity];
+        }
+
+        boolean contains(long value)
+        {
+            int mask = table.length - 1;
+            for (int i = slot(value, mask); table[i] != 0; i = (i + 1) & mask)
+            {
+                if (table[i] == value)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean add(long value)
+        {
+            if ((size + 1) * 4 > table.length * 3)
+            {
+                resize();
+            }
+            int mask = table.length - 1;
+            int i = slot(value, mask);
+            while (table[i] != 0)
+            {
+                if (table[i] == value)
+                {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = value;
+            size++;
+            return true;
+        }
+
+        boolean remove(long value)
+        {
+            int mask = table.length - 1;
+            int i = slot(value, mask);
+            while (table[i] != value)
+            {
+                if (table[i] == 0)
+                {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+
+            // shift back the entries that follow so that probing still finds them
+            int gap = i;
+            for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask)
+            {
+                int home = slot(table[j], mask);
+                if (((j - home) & mask) >= ((j - gap) & mask))
+                {
+                    table[gap] = table[j];
+                    gap = j;
+                }
+            }
+            table[gap] = 0;
+            size--;
+            return true;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        private void resize()
+        {
+            long[] previous = table;
+            table = new long[previous.length * 2];
+            size = 0;
+            for (long value : previous)
+            {
+                if (value != 0)
+                {
+                    add(value);
+                }
+            }
+        }
+
+        private static int slot(long value, int mask)
+        {
+            return (int) (value ^ (value >>> 32)) & mask;
+        }
+    }
+}
@@ -6,16 +6,23 @@
  */
 package org.mule.util.store;
 
+import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.store.ObjectAlreadyExistsException;
 import org.mule.api.store.ObjectDoesNotExistException;
 import org.mule.api.store.ObjectStoreException;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.util.monitor.HashedTimerWheel;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <code>InMemoryObjectStore</code> implements an optionally bounded
@@ -23,14 +30,36 @@ import java.util.concurrent.TimeUnit;
  * is a <i>soft</i> limit and only enforced periodically by the expiry process; this
  * means that the store may temporarily exceed its maximum size between expiry runs, but
  * will eventually shrink to its configured size.
+ * <p/>
+ * Entries are kept in a concurrent map, so that no lock is held while accessing the
+ * store. The oldest entries are found through a queue kept in insertion order and
+ * the entries whose time-to-live elapsed through a timer wheel, so an expiry run does
+ * not depend on the number of entries that stay in the store.
  */
 public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitoredObjectStore<T>
 {
-    protected ConcurrentSkipListMap<Long, StoredObject<T>> store;
+    private static final int MAX_TICKS_PER_WHEEL = 4096;
+
+    protected ConcurrentMap<Serializable, StoredObject<T>> store;
+
+    private final Queue<StoredObject<T>> insertionOrder = new ConcurrentLinkedQueue<StoredObject<T>>();
+
+    // the entries of the insertion queue that were already removed from the store
+    private final AtomicInteger removedInQueue = new AtomicInteger();
+
+    private volatile HashedTimerWheel<StoredObject<T>> expiryWheel;
+    private volatile long expiryTickDuration;
 
     public InMemoryObjectStore()
     {
-        this.store = new ConcurrentSkipListMap<Long, StoredObject<T>>();
+        this.store = new ConcurrentHashMap<Serializable, StoredObject<T>>();
+    }
+
+    @Override
+    public void initialise() throws InitialisationException
+    {
+        super.initialise();
+        getExpiryWheel();
     }
 
     @Override
@@ -47,10 +76,7 @@ public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitor
             throw new ObjectStoreException(CoreMessages.objectIsNull("id"));
         }
 
-        synchronized (store)
-        {
-            return store.values().contains(new StoredObject<T>(key, null));
-        }
+        return store.containsKey(key);
     }
 
     @Override
@@ -61,81 +87,65 @@ public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitor
             throw new ObjectStoreException(CoreMessages.objectIsNull("id"));
         }
 
-        // this block is unfortunately necessary to counter a possible race condition
-        // between multiple nonatomic calls to containsObject/storeObject
         StoredObject<T> obj = new StoredObject<T>(id, value);
-        synchronized (store)
+        if (store.putIfAbsent(id, obj) != null)
         {
-            if (store.values().contains(obj))
-            {
-                throw new ObjectAlreadyExistsException();
-            }
+            throw new ObjectAlreadyExistsException();
+        }
 
-            boolean written = false;
-            while (!written)
+        insertionOrder.offer(obj);
+        HashedTimerWheel<StoredObject<T>> wheel = getExpiryWheel();
+        if (wheel != null)
+        {
+            obj.timeout = wheel.schedule(obj, now() + entryTTL);
+            if (obj.removed)
             {
-                Long key = Long.valueOf(System.nanoTime());
-                written = (store.put(key, obj) == null);
+                // removed while the timeout was being scheduled
+                obj.timeout.cancel();
             }
         }
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public T retrieve(Serializable key) throws ObjectStoreException
     {
-        synchronized (store)
+        StoredObject<T> object = key != null ? store.get(key) : null;
+        if (object != null)
         {
-            Map.Entry<?, ?> entry = findEntry(key);
-            if (entry != null)
-            {
-                StoredObject<T> object = (StoredObject<T>) entry.getValue();
-                return object.getItem();
-            }
+            return object.getItem();
         }
 
         throw new ObjectDoesNotExistException(CoreMessages.objectNotFound(key));
     }
 
-    @SuppressWarnings("unchecked")
-    private Map.Entry<?, ?> findEntry(Serializable key)
-    {
-        Iterator<?> entryIterator = store.entrySet().iterator();
-        while (entryIterator.hasNext())
-        {
-            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) entryIterator.next();
-
-            StoredObject<T> object = (StoredObject<T>) entry.getValue();
-            if (object.getId().equals(key))
-            {
-                return entry;
-            }
-        }
-        return null;
-    }
-
     @Override
     public T remove(Serializable key) throws ObjectStoreException
     {
-        synchronized (store)
+        // the map does not take null keys, which are never stored
+        StoredObject<T> object = key != null ? store.get(key) : null;
+        while (object != null)
         {
-            Map.Entry<?, ?> entry = findEntry(key);
-            if (entry != null)
+            if (evict(object))
             {
-                StoredObject<T> removedObject = store.remove(entry.getKey());
-                return removedObject.getItem();
+                removedInQueue.incrementAndGet();
+                return object.getItem();
             }
+            object = store.get(key);
         }
 
         throw new ObjectDoesNotExistException(CoreMessages.objectNotFound(key));
     }
-    
+
     @Override
     public void clear() throws ObjectStoreException
     {
-        synchronized (store)
+        store.clear();
+        insertionOrder.clear();
+        removedInQueue.set(0);
+        HashedTimerWheel<StoredObject<T>> wheel = expiryWheel;
+        if (wheel != null)
         {
-            store.clear();
+            wheel.clear();
         }
     }
 
@@ -149,26 +159,31 @@ public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitor
         currentSize = trimToMaxSize(currentSize);
 
         // expire further if entry TTLs are enabled
-        if ((entryTTL > 0) && (currentSize != 0))
+        HashedTimerWheel<StoredObject<T>> wheel = getExpiryWheel();
+        if ((wheel != null) && (currentSize != 0))
         {
-            final long now = System.nanoTime();
-            int expiredEntries = 0;
-            Map.Entry<?, ?> oldestEntry;
+            // the wheel reports entries up to one tick late, so the current tick is
+            // processed as well and the entries that are not due yet are put back
+            final long now = now();
+            List<StoredObject<T>> timedOut = new ArrayList<StoredObject<T>>();
+            wheel.expire(now + expiryTickDuration - 1, timedOut);
 
-            purge:
-            while ((oldestEntry = store.firstEntry()) != null)
+            int expiredEntries = 0;
+            for (StoredObject<T> object : timedOut)
             {
-                Long oldestKey = (Long) oldestEntry.getKey();
-                long oldestKeyValue = oldestKey.longValue();
-
-                if (TimeUnit.NANOSECONDS.toMillis(now - oldestKeyValue) >= entryTTL)
+                HashedTimerWheel.Timeout<StoredObject<T>> timeout = object.timeout;
+                if (timeout != null && timeout.getDeadline() > now)
                 {
-                    store.remove(oldestKey);
-                    expiredEntries++;
+                    object.timeout = wheel.schedule(object, timeout.getDeadline());
+                    if (object.removed)
+                    {
+                        object.timeout.cancel();
+                    }
                 }
-                else
+                else if (evict(object))
                 {
-                    break purge;
+                    removedInQueue.incrementAndGet();
+                    expiredEntries++;
                 }
             }
 
@@ -177,6 +192,8 @@ public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitor
                 logger.debug("Expired " + expiredEntries + " old entries");
             }
         }
+
+        purgeInsertionOrder();
     }
 
     private int trimToMaxSize(int currentSize)
@@ -189,10 +206,17 @@ public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitor
         int excess = (currentSize - maxEntries);
         if (excess > 0)
         {
-            while (currentSize > maxEntries)
+            StoredObject<T> oldest;
+            while (currentSize > maxEntries && (oldest = insertionOrder.poll()) != null)
             {
-                store.pollFirstEntry();
-                currentSize--;
+                if (oldest.removed)
+                {
+                    decrementRemovedInQueue();
+                }
+                else if (evict(oldest))
+                {
+                    currentSize--;
+                }
             }
 
             if (logger.isDebugEnabled())
@@ -203,6 +227,87 @@ public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitor
         return currentSize;
     }
 
+    /**
+     * Drops the entries that were removed from the store from the insertion queue once
+     * they outnumber the live ones, so that removing entries does not make it grow.
+     */
+    private void purgeInsertionOrder()
+    {
+        if (removedInQueue.get() <= store.size())
+        {
+            return;
+        }
+
+        Iterator<StoredObject<T>> iterator = insertionOrder.iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next().removed)
+            {
+                iterator.remove();
+                decrementRemovedInQueue();
+            }
+        }
+    }
+
+    private void decrementRemovedInQueue()
+    {
+        int removed;
+        do
+        {
+            removed = removedInQueue.get();
+        }
+        while (removed > 0 && !removedInQueue.compareAndSet(removed, removed - 1));
+    }
+
+    /**
+     * Removes the given entry from the store, if it is still there.
+     *
+     * @return true if this call removed the entry
+     */
+    private boolean evict(StoredObject<T> object)
+    {
+        if (!store.remove(object.getId(), object))
+        {
+            return false;
+        }
+        object.removed = true;
+        HashedTimerWheel.Timeout<StoredObject<T>> timeout = object.timeout;
+        if (timeout != null)
+        {
+            timeout.cancel();
+        }
+        return true;
+    }
+
+    private HashedTimerWheel<StoredObject<T>> getExpiryWheel()
+    {
+        HashedTimerWheel<StoredObject<T>> wheel = expiryWheel;
+        if (wheel == null && entryTTL > 0)
+        {
+            synchronized (this)
+            {
+                wheel = expiryWheel;
+                if (wheel == null)
+                {
+                    // the wheel spans the TTL, with ticks small enough compared to the
+                    // expiration interval for entries not to be kept much longer than it
+                    long tickDuration = Math.max(1, Math.max(expirationInterval / 100,
+                        entryTTL / MAX_TICKS_PER_WHEEL));
+                    int ticksPerWheel = (int) Math.min(MAX_TICKS_PER_WHEEL, entryTTL / tickDuration + 1);
+                    wheel = new HashedTimerWheel<StoredObject<T>>(tickDuration, ticksPerWheel, now());
+                    expiryTickDuration = tickDuration;
+                    expiryWheel = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    private static long now()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
     @Override
     public String toString()
     {
@@ -211,11 +316,15 @@ public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitor
 
     /**
      * Represents the object stored in the store. This class holds the Object itslef and its ID.
+     * Two instances are only equal if they are the same, so that an entry is never
+     * evicted in place of a later one stored with the same ID.
      */
     protected static class StoredObject<T>
     {
         private Serializable id;
         private T item;
+        private volatile HashedTimerWheel.Timeout<StoredObject<T>> timeout;
+        private volatile boolean removed;
 
         public StoredObject(Serializable id, T item)
         {
@@ -233,35 +342,6 @@ public class InMemoryObjectStore<T extends Serializable> extends AbstractMonitor
             return item;
         }
 
-        @Override
-        @SuppressWarnings("unchecked")
-        public boolean equals(Object o)
-        {
-            if (this == o)
-            {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass())
-            {
-                return false;
-            }
-
-            StoredObject<T> that = (StoredObject<T>) o;
-
-            if (!id.equals(that.id))
-            {
-                return false;
-            }
-
-            return true;
-        }
-
-        @Override
-        public int hashCode()
-        {
-            return id.hashCode();
-        }
-
         @Override
         public String toString()
         {
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import org.mule.api.MuleContext;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.ObjectStoreNotAvaliableException;
+import org.mule.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * A partition of {@link PartitionedPersistentObjectStore} kept in a
+ * {@link JournalQueueObjectStore} journal instead of one file per entry like
+ * {@link PersistentObjectStorePartition} does. The index is written out when the
+ * partition is closed, so opening it does not need to read the stored entries.
+ */
+public class JournalObjectStorePartition<T extends Serializable> extends JournalQueueObjectStore<T>
+    implements PersistentPartition<T>
+{
+
+    static final String PARTITION_DESCRIPTOR_FILE = "journal-partition-descriptor";
+
+    private final MuleContext muleContext;
+    private final File partitionDirectory;
+    private String partitionName;
+
+    JournalObjectStorePartition(MuleContext muleContext, String partitionName, File partitionDirectory)
+    {
+        super(muleContext);
+        this.muleContext = muleContext;
+        this.partitionName = partitionName;
+        this.partitionDirectory = partitionDirectory;
+        setJournalDirectory(partitionDirectory);
+        setIndexSnapshots(true);
+    }
+
+    JournalObjectStorePartition(MuleContext muleContext, File partitionDirectory)
+        throws ObjectStoreNotAvaliableException
+    {
+        this(muleContext, readPartitionName(partitionDirectory), partitionDirectory);
+    }
+
+    /**
+     * @return true if the directory holds a partition created by this class
+     */
+    static boolean isJournalPartition(File partitionDirectory)
+    {
+        return new File(partitionDirectory, PARTITION_DESCRIPTOR_FILE).exists();
+    }
+
+    private static String readPartitionName(File partitionDirectory) throws ObjectStoreNotAvaliableException
+    {
+        try
+        {
+            return FileUtils.readFileToString(new File(partitionDirectory, PARTITION_DESCRIPTOR_FILE));
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreNotAvaliableException(e);
+        }
+    }
+
+    @Override
+    public void open() throws ObjectStoreException
+    {
+        super.open();
+
+        File descriptor = new File(partitionDirectory, PARTITION_DESCRIPTOR_FILE);
+        if (!descriptor.exists())
+        {
+            try
+            {
+                FileUtils.writeStringToFile(descriptor, partitionName);
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+        }
+    }
+
+    @Override
+    public void expire(int entryTTL, int maxEntries) throws ObjectStoreException
+    {
+        int expired = expireEntries(entryTTL, maxEntries);
+        if (expired > 0 && logger.isDebugEnabled())
+        {
+            logger.debug("Expired " + expired + " entries from partition " + partitionName);
+        }
+    }
+
+    @Override
+    protected T deserializeValue(byte[] value) throws ObjectStoreException
+    {
+        T object = super.deserializeValue(value);
+        if (object instanceof DeserializationPostInitialisable)
+        {
+            try
+            {
+                DeserializationPostInitialisable.Implementation.init(object, muleContext);
+            }
+            catch (Exception e)
+            {
+                throw new ObjectStoreException(e);
+            }
+        }
+        return object;
+    }
+
+    @Override
+    public String getPartitionName()
+    {
+        return partitionName;
+    }
+}
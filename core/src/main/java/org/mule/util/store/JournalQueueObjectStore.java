@@ -0,0 +1,1286 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import org.mule.api.MuleContext;
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.api.serialization.SerializationException;
+import org.mule.api.store.ListableObjectStore;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.config.i18n.MessageFactory;
+import org.mule.util.FileUtils;
+import org.mule.util.SerializationUtils;
+import org.mule.util.concurrent.DaemonThreadFactory;
+import org.mule.util.queue.QueueKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+
+/**
+ * <p>
+ * An {@link org.mule.api.store.ObjectStore} for Mule's internal queues that appends every
+ * stored event to a segmented journal under <code>$MULE_HOME/.mule/queuejournal</code>
+ * instead of writing one file per event like {@link QueuePersistenceObjectStore} does.
+ * </p>
+ * <p>
+ * Removes are recorded as tombstones. Writers that hit the disk concurrently share a
+ * single <code>force()</code> call (group commit), so the cost of an fsync is amortized
+ * over all the events appended while the previous one was in progress. Once a segment
+ * is full a new one is started and the oldest segments are compacted in the background:
+ * segments with no live events are deleted and sparse ones have their live events copied
+ * forward. Compaction always proceeds from the oldest segment, which guarantees that a
+ * tombstone is never discarded while the record it cancels is still on disk.
+ * </p>
+ * <p>
+ * On {@link #open()} every segment is memory mapped and scanned to rebuild the in-memory
+ * index, keeping the original insertion order of the events. A torn record at the end of
+ * a segment (e.g. after a crash) is detected by its checksum and truncated. When index
+ * snapshots are enabled the index is written out on {@link #close()} and read back on the
+ * next open, so only the records appended after it need to be scanned.
+ * </p>
+ * <p>
+ * Each record keeps the time it was stored at. Expired entries are dropped from the index
+ * and recorded with a single watermark record, as they are always the oldest ones, and
+ * their records are discarded by the compaction.
+ * </p>
+ */
+public class JournalQueueObjectStore<T extends Serializable> extends AbstractObjectStore<T>
+    implements ListableObjectStore<T>, MuleContextAware
+{
+    /**
+     * The default directory for the journal, relative to the working directory
+     */
+    public static final String DEFAULT_JOURNAL_DIRECTORY = "queuejournal";
+
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Segments with a lower percentage of live events than this are compacted
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 50;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_EXTENSION = ".log";
+
+    private static final String INDEX_SNAPSHOT_FILE = "index.snapshot";
+    private static final int INDEX_SNAPSHOT_VERSION = 1;
+
+    private static final byte STORE_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+    // a store record whose value is preceded by the time it was stored at
+    private static final byte TIMED_STORE_RECORD = 3;
+    // a record with no key whose sequence is the last one expired
+    private static final byte EXPIRE_RECORD = 4;
+
+    private static final byte QUEUE_KEY = 1;
+    private static final byte SERIALIZED_KEY = 2;
+
+    // length + checksum
+    private static final int RECORD_HEADER_LENGTH = 8;
+    // type + sequence + key length
+    private static final int RECORD_BODY_HEADER_LENGTH = 13;
+
+    private MuleContext muleContext;
+    private ObjectSerializer serializer;
+
+    private long maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private boolean synchronousWrites = true;
+    private boolean indexSnapshots = false;
+    private File journalDirectory;
+
+    /**
+     * Guards the index, the segments and the active segment
+     */
+    private final Object journalLock = new Object();
+
+    /**
+     * Serializes the calls to force() so concurrent committers can piggyback on each other
+     */
+    private final Object syncLock = new Object();
+
+    private final Map<Serializable, RecordLocation> index = new LinkedHashMap<Serializable, RecordLocation>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private Segment activeSegment;
+    private long nextSegmentId;
+    private long nextSequence;
+    private long expiredSequence = -1;
+
+    private long appendedRecords;
+    private final AtomicLong syncedRecords = new AtomicLong();
+
+    private File storeDirectory;
+    private ExecutorService compactor;
+
+    /**
+     * Default constructor for Spring.
+     */
+    public JournalQueueObjectStore()
+    {
+        super();
+    }
+
+    public JournalQueueObjectStore(MuleContext context)
+    {
+        super();
+        muleContext = context;
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return true;
+    }
+
+    @Override
+    public void open() throws ObjectStoreException
+    {
+        synchronized (journalLock)
+        {
+            if (storeDirectory != null)
+            {
+                return;
+            }
+
+            initStoreDirectory();
+            try
+            {
+                recover();
+            }
+            catch (IOException e)
+            {
+                String message = "Could not recover queue journal from " + storeDirectory.getAbsolutePath();
+                closeSegments();
+                index.clear();
+                storeDirectory = null;
+                throw new ObjectStoreException(MessageFactory.createStaticMessage(message), e);
+            }
+        }
+    }
+
+    private void initStoreDirectory() throws ObjectStoreException
+    {
+        if (journalDirectory != null)
+        {
+            storeDirectory = journalDirectory;
+        }
+        else
+        {
+            try
+            {
+                String workingDirectory = muleContext.getConfiguration().getWorkingDirectory();
+                storeDirectory = FileUtils.newFile(workingDirectory + File.separator + DEFAULT_JOURNAL_DIRECTORY);
+            }
+            catch (MuleRuntimeException mre)
+            {
+                // conform to the ObjectStore contract, see QueuePersistenceObjectStore
+                throw new ObjectStoreException(mre);
+            }
+        }
+
+        if (!storeDirectory.exists() && !storeDirectory.mkdirs())
+        {
+            File directory = storeDirectory;
+            storeDirectory = null;
+            throw new ObjectStoreException(CoreMessages.failedToCreate("queue journal directory "
+                                                                       + directory.getAbsolutePath()));
+        }
+    }
+
+    @Override
+    public void close() throws ObjectStoreException
+    {
+        if (compactor != null)
+        {
+            compactor.shutdownNow();
+            compactor = null;
+        }
+
+        synchronized (journalLock)
+        {
+            if (activeSegment != null)
+            {
+                try
+                {
+                    activeSegment.channel.force(false);
+                }
+                catch (IOException e)
+                {
+                    logger.warn("Could not flush queue journal segment " + activeSegment.file, e);
+                }
+            }
+            if (indexSnapshots && storeDirectory != null)
+            {
+                writeIndexSnapshot();
+            }
+            closeSegments();
+            index.clear();
+            storeDirectory = null;
+        }
+    }
+
+    @Override
+    public void clear() throws ObjectStoreException
+    {
+        synchronized (journalLock)
+        {
+            if (storeDirectory == null)
+            {
+                throw new IllegalStateException("ObjectStore cannot be cleared because it's not opened");
+            }
+
+            for (Segment segment : segments.values())
+            {
+                segment.close();
+                FileUtils.deleteQuietly(segment.file);
+            }
+            segments.clear();
+            index.clear();
+            activeSegment = null;
+        }
+    }
+
+    @Override
+    public List<Serializable> allKeys() throws ObjectStoreException
+    {
+        synchronized (journalLock)
+        {
+            return new ArrayList<Serializable>(index.keySet());
+        }
+    }
+
+    @Override
+    protected boolean doContains(Serializable key) throws ObjectStoreException
+    {
+        synchronized (journalLock)
+        {
+            return index.containsKey(key);
+        }
+    }
+
+    @Override
+    protected void doStore(Serializable key, T value) throws ObjectStoreException
+    {
+        byte[] keyBytes = encodeKey(key);
+        byte[] valueBytes = serializeValue(value);
+
+        long written;
+        synchronized (journalLock)
+        {
+            ensureOpen();
+            long timestamp = System.currentTimeMillis();
+            ByteBuffer record = createRecord(TIMED_STORE_RECORD, nextSequence++, keyBytes,
+                timestampValue(timestamp, valueBytes));
+            RecordLocation location = append(record, timestamp);
+            index.put(key, location);
+            location.segment.live++;
+            written = appendedRecords;
+        }
+        sync(written);
+    }
+
+    @Override
+    protected T doRetrieve(Serializable key) throws ObjectStoreException
+    {
+        return deserializeValue(readValue(key));
+    }
+
+    @Override
+    protected T doRemove(Serializable key) throws ObjectStoreException
+    {
+        byte[] keyBytes = encodeKey(key);
+        byte[] valueBytes;
+
+        long written;
+        synchronized (journalLock)
+        {
+            ensureOpen();
+            RecordLocation location = index.get(key);
+            if (location == null)
+            {
+                throw new ObjectDoesNotExistException();
+            }
+
+            valueBytes = readValue(location);
+            append(createRecord(REMOVE_RECORD, nextSequence++, keyBytes, new byte[0]), 0);
+            index.remove(key);
+            location.segment.live--;
+            written = appendedRecords;
+        }
+        sync(written);
+
+        return deserializeValue(valueBytes);
+    }
+
+    private byte[] readValue(Serializable key) throws ObjectStoreException
+    {
+        synchronized (journalLock)
+        {
+            ensureOpen();
+            RecordLocation location = index.get(key);
+            if (location == null)
+            {
+                throw new ObjectDoesNotExistException();
+            }
+            return readValue(location);
+        }
+    }
+
+    private byte[] readValue(RecordLocation location) throws ObjectStoreException
+    {
+        try
+        {
+            ByteBuffer record = location.segment.read(location.position, location.length);
+            int keyLength = record.getInt(RECORD_HEADER_LENGTH + 9);
+            int valueOffset = RECORD_HEADER_LENGTH + RECORD_BODY_HEADER_LENGTH + keyLength;
+            if (record.get(RECORD_HEADER_LENGTH) == TIMED_STORE_RECORD)
+            {
+                valueOffset += 8;
+            }
+            byte[] value = new byte[location.length - valueOffset];
+            record.position(valueOffset);
+            record.get(value);
+            return value;
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private void ensureOpen()
+    {
+        if (storeDirectory == null)
+        {
+            throw new IllegalStateException("Queue journal has not been opened");
+        }
+    }
+
+    /**
+     * Appends a record to the active segment, rolling over to a new segment when the
+     * active one is full. Must be called holding the journal lock.
+     */
+    private RecordLocation append(ByteBuffer record, long timestamp) throws ObjectStoreException
+    {
+        try
+        {
+            int length = record.remaining();
+            if (activeSegment == null
+                || (activeSegment.size > 0 && activeSegment.size + length > maxSegmentSize))
+            {
+                rollSegment();
+            }
+
+            long position = activeSegment.size;
+            long sequence = record.getLong(RECORD_HEADER_LENGTH + 1);
+            activeSegment.write(record, position);
+            activeSegment.records++;
+            appendedRecords++;
+
+            return new RecordLocation(activeSegment, position, length, sequence, timestamp);
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private void rollSegment() throws IOException
+    {
+        if (activeSegment != null)
+        {
+            // everything appended so far is durable once the sealed segment is forced
+            activeSegment.channel.force(false);
+            markSynced(appendedRecords);
+        }
+
+        Segment segment = Segment.create(nextSegmentId++, storeDirectory);
+        segments.put(segment.id, segment);
+        activeSegment = segment;
+
+        if (segments.size() > 1)
+        {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Blocks until the given number of records are on disk. Threads arriving while a
+     * force is in progress wait for it and then, most of the time, find their records
+     * already covered by it.
+     */
+    private void sync(long records) throws ObjectStoreException
+    {
+        if (!synchronousWrites || syncedRecords.get() >= records)
+        {
+            return;
+        }
+
+        synchronized (syncLock)
+        {
+            if (syncedRecords.get() >= records)
+            {
+                return;
+            }
+
+            Segment segment;
+            long target;
+            synchronized (journalLock)
+            {
+                segment = activeSegment;
+                target = appendedRecords;
+            }
+
+            try
+            {
+                segment.channel.force(false);
+            }
+            catch (ClosedChannelException e)
+            {
+                // the segment was forced before being closed, or deleted by clear()
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+            markSynced(target);
+        }
+    }
+
+    private void markSynced(long records)
+    {
+        long current = syncedRecords.get();
+        while (current < records && !syncedRecords.compareAndSet(current, records))
+        {
+            current = syncedRecords.get();
+        }
+    }
+
+    private void scheduleCompaction()
+    {
+        if (compactor == null)
+        {
+            compactor = Executors.newSingleThreadExecutor(new DaemonThreadFactory(
+                "queue.journal.compactor"));
+        }
+
+        compactor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    compact();
+                }
+                catch (Exception e)
+                {
+                    logger.warn("Could not compact queue journal", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Compacts sealed segments starting from the oldest one and stopping at the first
+     * segment that is dense enough to be kept as is.
+     */
+    public void compact() throws ObjectStoreException
+    {
+        while (true)
+        {
+            synchronized (journalLock)
+            {
+                if (storeDirectory == null || segments.isEmpty())
+                {
+                    return;
+                }
+
+                Segment oldest = segments.firstEntry().getValue();
+                if (oldest == activeSegment || !shouldCompact(oldest))
+                {
+                    return;
+                }
+
+                if (oldest.live > 0)
+                {
+                    copyLiveRecords(oldest);
+                    try
+                    {
+                        activeSegment.channel.force(false);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new ObjectStoreException(e);
+                    }
+                }
+
+                segments.remove(oldest.id);
+                oldest.close();
+                FileUtils.deleteQuietly(oldest.file);
+
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Compacted queue journal segment " + oldest.file.getName());
+                }
+            }
+        }
+    }
+
+    private boolean shouldCompact(Segment segment)
+    {
+        return segment.live == 0 || (segment.live * 100L) < (segment.records * (long) compactionThreshold);
+    }
+
+    private void copyLiveRecords(Segment segment) throws ObjectStoreException
+    {
+        for (Map.Entry<Serializable, RecordLocation> entry : index.entrySet())
+        {
+            RecordLocation location = entry.getValue();
+            if (location.segment != segment)
+            {
+                continue;
+            }
+
+            try
+            {
+                ByteBuffer record = segment.read(location.position, location.length);
+                RecordLocation copy = append(record, location.timestamp);
+                copy.segment.live++;
+                segment.live--;
+                // replacing the value of an existing key keeps the insertion order
+                entry.setValue(copy);
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+        }
+    }
+
+    private void recover() throws IOException, ObjectStoreException
+    {
+        File[] files = storeDirectory.listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXTENSION);
+            }
+        });
+
+        List<Segment> found = new ArrayList<Segment>();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                found.add(new Segment(file));
+            }
+        }
+        Collections.sort(found, new Comparator<Segment>()
+        {
+            @Override
+            public int compare(Segment s1, Segment s2)
+            {
+                return s1.id < s2.id ? -1 : (s1.id == s2.id ? 0 : 1);
+            }
+        });
+
+        for (Segment segment : found)
+        {
+            segments.put(segment.id, segment);
+            nextSegmentId = segment.id + 1;
+        }
+
+        Map<Serializable, RecordLocation> recovered = new HashMap<Serializable, RecordLocation>();
+        Map<Long, Long> snapshotted = readIndexSnapshot(recovered);
+        for (Segment segment : found)
+        {
+            Long scanned = snapshotted.get(segment.id);
+            scan(segment, recovered, scanned == null ? 0 : scanned.longValue());
+        }
+
+        List<Map.Entry<Serializable, RecordLocation>> entries = new ArrayList<Map.Entry<Serializable, RecordLocation>>(
+            recovered.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Serializable, RecordLocation>>()
+        {
+            @Override
+            public int compare(Map.Entry<Serializable, RecordLocation> e1,
+                               Map.Entry<Serializable, RecordLocation> e2)
+            {
+                long s1 = e1.getValue().sequence;
+                long s2 = e2.getValue().sequence;
+                return s1 < s2 ? -1 : (s1 == s2 ? 0 : 1);
+            }
+        });
+        for (Map.Entry<Serializable, RecordLocation> entry : entries)
+        {
+            RecordLocation location = entry.getValue();
+            if (location.sequence <= expiredSequence)
+            {
+                // expired, but its segment was not compacted yet
+                location.segment.live--;
+            }
+            else
+            {
+                index.put(entry.getKey(), location);
+            }
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Recovered " + index.size() + " objects from " + segments.size()
+                         + " queue journal segments");
+        }
+    }
+
+    /**
+     * Scans the records of a segment from the given position on, which must be the
+     * start of a record.
+     */
+    private void scan(Segment segment, Map<Serializable, RecordLocation> recovered, long from)
+        throws IOException, ObjectStoreException
+    {
+        long size = segment.channel.size();
+        MappedByteBuffer buffer = segment.channel.map(FileChannel.MapMode.READ_ONLY, from, size - from);
+        CRC32 checksum = new CRC32();
+
+        long validEnd = from;
+        while (buffer.remaining() >= RECORD_HEADER_LENGTH)
+        {
+            long start = from + buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length < RECORD_BODY_HEADER_LENGTH || length > buffer.remaining())
+            {
+                break;
+            }
+
+            byte[] body = new byte[length];
+            buffer.get(body);
+            checksum.reset();
+            checksum.update(body, 0, length);
+            if ((int) checksum.getValue() != crc)
+            {
+                break;
+            }
+
+            ByteBuffer fields = ByteBuffer.wrap(body);
+            byte type = fields.get();
+            long sequence = fields.getLong();
+            int keyLength = fields.getInt();
+
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            segment.records++;
+            validEnd = from + buffer.position();
+
+            if (type == EXPIRE_RECORD)
+            {
+                expiredSequence = Math.max(expiredSequence, sequence);
+                continue;
+            }
+
+            Serializable key = decodeKey(body, RECORD_BODY_HEADER_LENGTH, keyLength);
+            RecordLocation previous = recovered.get(key);
+            if (type == STORE_RECORD || type == TIMED_STORE_RECORD)
+            {
+                long timestamp = type == TIMED_STORE_RECORD
+                                 ? fields.getLong(RECORD_BODY_HEADER_LENGTH + keyLength) : 0;
+                // the same event may have been copied forward by an interrupted compaction
+                if (previous != null)
+                {
+                    previous.segment.live--;
+                }
+                recovered.put(key, new RecordLocation(segment, start, RECORD_HEADER_LENGTH + length,
+                    sequence, timestamp));
+                segment.live++;
+            }
+            else if (previous != null)
+            {
+                recovered.remove(key);
+                previous.segment.live--;
+            }
+        }
+
+        segment.size = validEnd;
+        if (validEnd < size)
+        {
+            logger.warn(String.format("Truncating %d bytes of incomplete records from queue journal segment %s",
+                size - validEnd, segment.file.getAbsolutePath()));
+            segment.channel.truncate(validEnd);
+        }
+    }
+
+    /**
+     * Drops the oldest entries from the index: those stored <code>entryTTL</code>
+     * milliseconds ago or more, and those over <code>maxEntries</code>. Negative values
+     * disable either limit. A single record keeps the sequence of the last expired entry
+     * so that they are not recovered, their records are discarded by the compaction.
+     *
+     * @return the number of entries expired
+     */
+    protected int expireEntries(int entryTTL, int maxEntries) throws ObjectStoreException
+    {
+        int expired = 0;
+        long written;
+        synchronized (journalLock)
+        {
+            ensureOpen();
+            long now = System.currentTimeMillis();
+            int excess = maxEntries < 0 ? 0 : index.size() - maxEntries;
+            long lastExpired = expiredSequence;
+
+            // the index is in insertion order, so the oldest entries come first
+            Iterator<RecordLocation> locations = index.values().iterator();
+            while (locations.hasNext())
+            {
+                RecordLocation location = locations.next();
+                if (expired >= excess && (entryTTL < 0 || now - location.timestamp < entryTTL))
+                {
+                    break;
+                }
+                locations.remove();
+                location.segment.live--;
+                lastExpired = location.sequence;
+                expired++;
+            }
+
+            if (expired == 0)
+            {
+                return 0;
+            }
+            expiredSequence = lastExpired;
+            append(createRecord(EXPIRE_RECORD, lastExpired, new byte[0], new byte[0]), 0);
+            written = appendedRecords;
+
+            if (segments.size() > 1)
+            {
+                scheduleCompaction();
+            }
+        }
+        sync(written);
+        return expired;
+    }
+
+    /**
+     * Writes the index and the segment counters next to the segments, so that the next
+     * {@link #open()} does not need to scan them. Must be called holding the journal lock.
+     */
+    private void writeIndexSnapshot()
+    {
+        File snapshot = new File(storeDirectory, INDEX_SNAPSHOT_FILE);
+        File temporary = new File(storeDirectory, INDEX_SNAPSHOT_FILE + ".tmp");
+        try
+        {
+            FileOutputStream file = new FileOutputStream(temporary);
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(file), checksum));
+            try
+            {
+                out.writeInt(INDEX_SNAPSHOT_VERSION);
+                out.writeLong(nextSequence);
+                out.writeLong(expiredSequence);
+                out.writeInt(segments.size());
+                for (Segment segment : segments.values())
+                {
+                    out.writeLong(segment.id);
+                    out.writeLong(segment.size);
+                    out.writeInt(segment.records);
+                    out.writeInt(segment.live);
+                }
+                out.writeInt(index.size());
+                for (Map.Entry<Serializable, RecordLocation> entry : index.entrySet())
+                {
+                    byte[] key = encodeKey(entry.getKey());
+                    RecordLocation location = entry.getValue();
+                    out.writeInt(key.length);
+                    out.write(key);
+                    out.writeLong(location.segment.id);
+                    out.writeLong(location.position);
+                    out.writeInt(location.length);
+                    out.writeLong(location.sequence);
+                    out.writeLong(location.timestamp);
+                }
+                out.writeLong(checksum.getValue());
+                out.flush();
+                file.getFD().sync();
+            }
+            finally
+            {
+                out.close();
+            }
+
+            FileUtils.deleteQuietly(snapshot);
+            if (!temporary.renameTo(snapshot))
+            {
+                throw new IOException("Could not rename " + temporary.getAbsolutePath());
+            }
+        }
+        catch (Exception e)
+        {
+            logger.warn("Could not write queue journal index snapshot, the journal will be scanned on open", e);
+            FileUtils.deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Reads the index written by the last {@link #close()}, if any. The snapshot is
+     * deleted as it only describes the journal as it was when closed.
+     *
+     * @return the position each segment was recovered up to, empty if there was no
+     *         usable snapshot
+     */
+    private Map<Long, Long> readIndexSnapshot(Map<Serializable, RecordLocation> recovered)
+    {
+        File snapshot = new File(storeDirectory, INDEX_SNAPSHOT_FILE);
+        if (!snapshot.exists())
+        {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, Long> snapshotted = new HashMap<Long, Long>();
+        try
+        {
+            if (indexSnapshots && loadIndexSnapshot(snapshot, recovered, snapshotted))
+            {
+                return snapshotted;
+            }
+        }
+        catch (Exception e)
+        {
+            logger.warn("Ignoring unreadable queue journal index snapshot " + snapshot.getAbsolutePath(), e);
+        }
+        finally
+        {
+            FileUtils.deleteQuietly(snapshot);
+        }
+
+        // start over from the segments alone
+        recovered.clear();
+        for (Segment segment : segments.values())
+        {
+            segment.records = 0;
+            segment.live = 0;
+        }
+        return Collections.emptyMap();
+    }
+
+    private boolean loadIndexSnapshot(File snapshot,
+                                      Map<Serializable, RecordLocation> recovered,
+                                      Map<Long, Long> snapshotted) throws IOException, ObjectStoreException
+    {
+        CRC32 checksum = new CRC32();
+        DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(
+            new FileInputStream(snapshot)), checksum));
+        try
+        {
+            if (in.readInt() != INDEX_SNAPSHOT_VERSION)
+            {
+                return false;
+            }
+            long snapshotNextSequence = in.readLong();
+            long snapshotExpiredSequence = in.readLong();
+
+            int segmentCount = in.readInt();
+            long lastSegmentId = -1;
+            for (int i = 0; i < segmentCount; i++)
+            {
+                long id = in.readLong();
+                long size = in.readLong();
+                Segment segment = segments.get(id);
+                // segments are never shrunk after recovery, unless they were damaged
+                if (segment == null || segment.channel.size() < size)
+                {
+                    return false;
+                }
+                segment.records = in.readInt();
+                segment.live = in.readInt();
+                snapshotted.put(id, size);
+                lastSegmentId = Math.max(lastSegmentId, id);
+            }
+            for (Segment segment : segments.values())
+            {
+                // only segments started after the snapshot can be missing from it
+                if (!snapshotted.containsKey(segment.id) && segment.id < lastSegmentId)
+                {
+                    return false;
+                }
+            }
+
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++)
+            {
+                byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                Segment segment = segments.get(in.readLong());
+                if (segment == null || !snapshotted.containsKey(segment.id))
+                {
+                    return false;
+                }
+                recovered.put(decodeKey(key, 0, key.length), new RecordLocation(segment, in.readLong(),
+                    in.readInt(), in.readLong(), in.readLong()));
+            }
+
+            long expectedChecksum = checksum.getValue();
+            if (in.readLong() != expectedChecksum)
+            {
+                return false;
+            }
+
+            nextSequence = snapshotNextSequence;
+            expiredSequence = snapshotExpiredSequence;
+            return true;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private ByteBuffer createRecord(byte type, long sequence, byte[] key, byte[] value)
+    {
+        int bodyLength = RECORD_BODY_HEADER_LENGTH + key.length + value.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + bodyLength);
+        record.putInt(bodyLength);
+        record.putInt(0);
+        record.put(type);
+        record.putLong(sequence);
+        record.putInt(key.length);
+        record.put(key);
+        record.put(value);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(record.array(), RECORD_HEADER_LENGTH, bodyLength);
+        record.putInt(4, (int) checksum.getValue());
+
+        record.flip();
+        return record;
+    }
+
+    private static byte[] timestampValue(long timestamp, byte[] value)
+    {
+        return ByteBuffer.allocate(8 + value.length).putLong(timestamp).put(value).array();
+    }
+
+    protected byte[] encodeKey(Serializable key) throws ObjectStoreException
+    {
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (key instanceof QueueKey && ((QueueKey) key).id instanceof String)
+            {
+                QueueKey queueKey = (QueueKey) key;
+                out.writeByte(QUEUE_KEY);
+                out.writeUTF(queueKey.queueName);
+                out.writeUTF((String) queueKey.id);
+            }
+            else
+            {
+                out.writeByte(SERIALIZED_KEY);
+                out.write(getSerializer().serialize(key));
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+        catch (SerializationException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    protected Serializable decodeKey(byte[] data, int offset, int length) throws ObjectStoreException
+    {
+        try
+        {
+            if (data[offset] == QUEUE_KEY)
+            {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset + 1,
+                    length - 1));
+                String queueName = in.readUTF();
+                String id = in.readUTF();
+                return new QueueKey(queueName, id);
+            }
+
+            byte[] serialized = new byte[length - 1];
+            System.arraycopy(data, offset + 1, serialized, 0, serialized.length);
+            return getSerializer().<Serializable> deserialize(serialized);
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+        catch (SerializationException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    protected byte[] serializeValue(T value) throws ObjectStoreException
+    {
+        try
+        {
+            return getSerializer().serialize(value);
+        }
+        catch (SerializationException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    protected T deserializeValue(byte[] value) throws ObjectStoreException
+    {
+        try
+        {
+            return getSerializer().<T> deserialize(value);
+        }
+        catch (SerializationException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private ObjectSerializer getSerializer()
+    {
+        if (serializer == null)
+        {
+            serializer = SerializationUtils.getObjectSerializer(muleContext);
+        }
+        return serializer;
+    }
+
+    private void closeSegments()
+    {
+        for (Segment segment : segments.values())
+        {
+            segment.close();
+        }
+        segments.clear();
+        activeSegment = null;
+    }
+
+    /**
+     * @return the number of segment files currently backing the journal
+     */
+    public int getSegmentCount()
+    {
+        synchronized (journalLock)
+        {
+            return segments.size();
+        }
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        muleContext = context;
+    }
+
+    public long getMaxSegmentSize()
+    {
+        return maxSegmentSize;
+    }
+
+    public void setMaxSegmentSize(long maxSegmentSize)
+    {
+        if (maxSegmentSize <= 0 || maxSegmentSize > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Segment size must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    public int getCompactionThreshold()
+    {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(int compactionThreshold)
+    {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public boolean isSynchronousWrites()
+    {
+        return synchronousWrites;
+    }
+
+    /**
+     * When <code>false</code> writes are not forced to disk before returning, trading
+     * durability on OS crashes for throughput.
+     */
+    public void setSynchronousWrites(boolean synchronousWrites)
+    {
+        this.synchronousWrites = synchronousWrites;
+    }
+
+    public boolean isIndexSnapshots()
+    {
+        return indexSnapshots;
+    }
+
+    /**
+     * When <code>true</code> the index is written out when the store is closed, so that
+     * the segments do not have to be scanned when it is opened again.
+     */
+    public void setIndexSnapshots(boolean indexSnapshots)
+    {
+        this.indexSnapshots = indexSnapshots;
+    }
+
+    public File getJournalDirectory()
+    {
+        return journalDirectory;
+    }
+
+    /**
+     * Sets the directory the segments are kept in, instead of the
+     * {@link #DEFAULT_JOURNAL_DIRECTORY} under the working directory.
+     */
+    public void setJournalDirectory(File journalDirectory)
+    {
+        this.journalDirectory = journalDirectory;
+    }
+
+    private static class RecordLocation
+    {
+        final Segment segment;
+        final long position;
+        final int length;
+        final long sequence;
+        final long timestamp;
+
+        RecordLocation(Segment segment, long position, int length, long sequence, long timestamp)
+        {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class Segment
+    {
+        final long id;
+        final File file;
+        final RandomAccessFile randomAccessFile;
+        final FileChannel channel;
+        long size;
+        int records;
+        int live;
+
+        Segment(File file) throws IOException
+        {
+            this(parseId(file), file);
+        }
+
+        private Segment(long id, File file) throws IOException
+        {
+            this.id = id;
+            this.file = file;
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.channel = randomAccessFile.getChannel();
+        }
+
+        static Segment create(long id, File directory) throws IOException
+        {
+            return new Segment(id, new File(directory, String.format("%s%019d%s", SEGMENT_PREFIX, id,
+                SEGMENT_EXTENSION)));
+        }
+
+        private static long parseId(File file) throws IOException
+        {
+            String name = file.getName();
+            try
+            {
+                return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_EXTENSION.length()));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Invalid queue journal segment name: " + name);
+            }
+        }
+
+        void write(ByteBuffer record, long position) throws IOException
+        {
+            int length = record.remaining();
+            while (record.hasRemaining())
+            {
+                channel.write(record, position + (length - record.remaining()));
+            }
+            size = position + length;
+        }
+
+        ByteBuffer read(long position, int length) throws IOException
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                {
+                    throw new IOException("Unexpected end of queue journal segment " + file);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        void close()
+        {
+            try
+            {
+                randomAccessFile.close();
+            }
+            catch (IOException e)
+            {
+                // ignore
+            }
+        }
+    }
+}
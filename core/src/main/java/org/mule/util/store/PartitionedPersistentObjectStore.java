@@ -9,6 +9,7 @@ package org.mule.util.store;
 import org.mule.api.MuleContext;
 import org.mule.api.MuleRuntimeException;
 import org.mule.api.context.MuleContextAware;
+import org.mule.api.lifecycle.Disposable;
 import org.mule.api.store.ObjectStoreException;
 import org.mule.api.store.PartitionableExpirableObjectStore;
 import org.mule.config.i18n.CoreMessages;
@@ -25,16 +26,28 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * A {@link PartitionableExpirableObjectStore} that keeps each partition in its own
+ * directory under <code>$MULE_HOME/.mule/objectstore</code>. By default a partition stores
+ * each entry in its own file, setting the <code>mule.objectstore.journal</code> system
+ * property (or {@link #setJournalPartitions(boolean)}) keeps new partitions in an append
+ * only journal instead, see {@link JournalObjectStorePartition}. Partitions written either
+ * way are read back on open.
+ */
 public class PartitionedPersistentObjectStore<T extends Serializable> extends
-        AbstractPartitionedObjectStore<T> implements MuleContextAware, PartitionableExpirableObjectStore<T>
+        AbstractPartitionedObjectStore<T> implements MuleContextAware, PartitionableExpirableObjectStore<T>,
+        Disposable
 {
 
     public static final String OBJECT_STORE_DIR = "objectstore";
 
+    public static final String JOURNAL_PARTITIONS_PROPERTY = "mule.objectstore.journal";
+
     private MuleContext muleContext;
     private File storeDirectory;
-    private Map<String, PersistentObjectStorePartition> partitionsByName = new HashMap<String, PersistentObjectStorePartition>();
+    private Map<String, PersistentPartition<T>> partitionsByName = new HashMap<String, PersistentPartition<T>>();
     private boolean initialized = false;
+    private boolean journalPartitions = Boolean.getBoolean(JOURNAL_PARTITIONS_PROPERTY);
 
     public PartitionedPersistentObjectStore()
     {
@@ -83,9 +96,17 @@ public class PartitionedPersistentObjectStore<T extends Serializable> extends
 
     private void createPartition(String partitionName) throws ObjectStoreException
     {
-        PersistentObjectStorePartition persistentObjectStorePartition = new PersistentObjectStorePartition(muleContext, partitionName, getNewPartitionDirectory());
-        persistentObjectStorePartition.open();
-        partitionsByName.put(partitionName, persistentObjectStorePartition);
+        PersistentPartition<T> partition;
+        if (journalPartitions)
+        {
+            partition = new JournalObjectStorePartition<T>(muleContext, partitionName, getNewPartitionDirectory());
+        }
+        else
+        {
+            partition = new PersistentObjectStorePartition<T>(muleContext, partitionName, getNewPartitionDirectory());
+        }
+        partition.open();
+        partitionsByName.put(partitionName, partition);
     }
 
     private File getNewPartitionDirectory()
@@ -135,7 +156,7 @@ public class PartitionedPersistentObjectStore<T extends Serializable> extends
         this.getPartitionObjectStore(partitionName).clear();
     }
 
-    private PersistentObjectStorePartition<T> getPartitionObjectStore(String partitionName) throws ObjectStoreException
+    private PersistentPartition<T> getPartitionObjectStore(String partitionName) throws ObjectStoreException
     {
         if (!partitionsByName.containsKey(partitionName))
         {
@@ -213,9 +234,17 @@ public class PartitionedPersistentObjectStore<T extends Serializable> extends
         {
             try
             {
-                PersistentObjectStorePartition persistentObjectStorePartition = new PersistentObjectStorePartition(muleContext, partitionDirectory);
-                persistentObjectStorePartition.open();
-                partitionsByName.put(persistentObjectStorePartition.getPartitionName(), persistentObjectStorePartition);
+                PersistentPartition<T> partition;
+                if (JournalObjectStorePartition.isJournalPartition(partitionDirectory))
+                {
+                    partition = new JournalObjectStorePartition<T>(muleContext, partitionDirectory);
+                }
+                else
+                {
+                    partition = new PersistentObjectStorePartition<T>(muleContext, partitionDirectory);
+                }
+                partition.open();
+                partitionsByName.put(partition.getPartitionName(), partition);
             }
             catch (Exception e)
             {
@@ -230,6 +259,41 @@ public class PartitionedPersistentObjectStore<T extends Serializable> extends
         muleContext = context;
     }
 
+    /**
+     * Closes every partition, so that the journal partitions write out their index.
+     */
+    @Override
+    public synchronized void dispose()
+    {
+        for (PersistentPartition<T> partition : partitionsByName.values())
+        {
+            try
+            {
+                partition.close();
+            }
+            catch (ObjectStoreException e)
+            {
+                logger.warn("Could not close partition " + partition.getPartitionName(), e);
+            }
+        }
+        partitionsByName.clear();
+        initialized = false;
+    }
+
+    public boolean isJournalPartitions()
+    {
+        return journalPartitions;
+    }
+
+    /**
+     * When <code>true</code> new partitions are kept in a journal instead of one file per
+     * entry. Defaults to the value of the {@link #JOURNAL_PARTITIONS_PROPERTY} system property.
+     */
+    public void setJournalPartitions(boolean journalPartitions)
+    {
+        this.journalPartitions = journalPartitions;
+    }
+
     @Override
     public void expire(int entryTTL, int maxEntries) throws ObjectStoreException
     {
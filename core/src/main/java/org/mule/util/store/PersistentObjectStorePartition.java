@@ -9,8 +9,6 @@ package org.mule.util.store;
 
 import org.mule.api.MuleContext;
 import org.mule.api.MuleRuntimeException;
-import org.mule.api.store.ExpirableObjectStore;
-import org.mule.api.store.ListableObjectStore;
 import org.mule.api.store.ObjectAlreadyExistsException;
 import org.mule.api.store.ObjectDoesNotExistException;
 import org.mule.api.store.ObjectStoreException;
@@ -43,7 +41,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 public class PersistentObjectStorePartition<T extends Serializable>
-    implements ListableObjectStore<T>, ExpirableObjectStore<T>
+    implements PersistentPartition<T>
 {
 
     private static final String OBJECT_FILE_EXTENSION = ".obj";
@@ -404,6 +402,7 @@ public class PersistentObjectStorePartition<T extends Serializable>
         return expired;
     }
 
+    @Override
     public String getPartitionName()
     {
         return partitionName;
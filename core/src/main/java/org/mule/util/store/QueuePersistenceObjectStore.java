@@ -9,6 +9,8 @@ package org.mule.util.store;
 import org.mule.api.MuleContext;
 import org.mule.api.MuleRuntimeException;
 import org.mule.api.context.MuleContextAware;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.api.serialization.SerializationException;
 import org.mule.api.store.ListableObjectStore;
 import org.mule.api.store.ObjectDoesNotExistException;
 import org.mule.api.store.ObjectStore;
@@ -31,7 +33,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-import org.apache.commons.lang.SerializationException;
 
 /**
  * <p>
@@ -57,6 +58,7 @@ public class QueuePersistenceObjectStore<T extends Serializable> extends Abstrac
     private static final String FILE_EXTENSION = ".msg";
 
     private MuleContext muleContext;
+    private ObjectSerializer serializer;
 
     /**
      * This is the base directory into which all queues will be persisted
@@ -257,7 +259,7 @@ public class QueuePersistenceObjectStore<T extends Serializable> extends Abstrac
         try
         {
             FileOutputStream out = new FileOutputStream(outputFile);
-            SerializationUtils.serialize(value, out);
+            getSerializer().serialize(value, out);
         }
         catch (SerializationException se)
         {
@@ -304,7 +306,7 @@ public class QueuePersistenceObjectStore<T extends Serializable> extends Abstrac
         try
         {
             FileInputStream in = new FileInputStream(file);
-            return (T) SerializationUtils.deserialize(in, muleContext);
+            return (T) getSerializer().deserialize(in);
         }
         catch (SerializationException se)
         {
@@ -316,6 +318,15 @@ public class QueuePersistenceObjectStore<T extends Serializable> extends Abstrac
         }
     }
 
+    private ObjectSerializer getSerializer()
+    {
+        if (serializer == null)
+        {
+            serializer = SerializationUtils.getObjectSerializer(muleContext);
+        }
+        return serializer;
+    }
+
     @Override
     protected T doRemove(Serializable key) throws ObjectStoreException
     {
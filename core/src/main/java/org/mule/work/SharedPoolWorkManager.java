@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.work;
+
+import org.mule.api.MuleContext;
+import org.mule.api.MuleException;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.context.WorkManager;
+import org.mule.api.work.WorkExecutor;
+import org.mule.util.concurrent.DaemonThreadFactory;
+
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.resource.spi.XATerminator;
+import javax.resource.spi.work.ExecutionContext;
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkCompletedException;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkListener;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <code>SharedPoolWorkManager</code> is a {@link WorkManager} that runs its work on a
+ * pool shared by all the work managers of the JVM, instead of creating a pool of its
+ * own like {@link MuleWorkManager} does, so that a node does not keep many mostly idle
+ * threads around.
+ * <p/>
+ * The shared pool runs work on virtual threads if the
+ * {@link #VIRTUAL_THREADS_PROPERTY} system property is set and the JVM supports them.
+ * Otherwise it is a work-stealing pool if the JVM provides one, or a fixed pool of
+ * daemon threads. Its size is set by the {@link #PARALLELISM_PROPERTY} system
+ * property. The limits of the threading profile do not apply.
+ * <p/>
+ * The shared pool runs at most that many work items at once. Work such as the accept
+ * and poll loops of the receivers holds its thread for as long as it runs, so once all
+ * the threads of the shared pool are taken further work is not queued behind it, where
+ * it could wait forever, but runs on a daemon thread of its own that is kept for reuse
+ * while there is such work.
+ * <p/>
+ * Each work manager has a lifecycle of its own: it only accepts work while it is
+ * started and waits for its own work to complete when it is disposed.
+ */
+public class SharedPoolWorkManager implements WorkManager, MuleContextAware
+{
+
+    /**
+     * System property that makes the default work manager factory of the threading
+     * profiles create shared pool work managers
+     */
+    public static final String SHARED_POOL_PROPERTY = "mule.workManager.sharedPool";
+    public static final String VIRTUAL_THREADS_PROPERTY = "mule.workManager.sharedPool.virtualThreads";
+    public static final String PARALLELISM_PROPERTY = "mule.workManager.sharedPool.parallelism";
+
+    protected static final Log logger = LogFactory.getLog(SharedPoolWorkManager.class);
+
+    private final String name;
+    private int gracefulShutdownTimeout;
+    private MuleContext muleContext;
+    private volatile boolean started;
+    private volatile ClassLoader executionClassLoader;
+
+    // guarded by this
+    private int activeWork;
+
+    private final Executor trackingExecutor = new TrackingExecutor();
+    private final WorkExecutor scheduleWorkExecutor = new ScheduleWorkExecutor();
+    private final WorkExecutor startWorkExecutor = new StartWorkExecutor();
+    private final WorkExecutor syncWorkExecutor = new SyncWorkExecutor();
+
+    public SharedPoolWorkManager(String name, int shutdownTimeout)
+    {
+        this.name = name != null ? name : "WorkManager#" + hashCode();
+        this.gracefulShutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * @return the pool that runs the work of all the shared pool work managers
+     */
+    public static ExecutorService getSharedPool()
+    {
+        return SharedPoolHolder.POOL;
+    }
+
+    /**
+     * @return the number of work items the shared pool runs at once before further work
+     *         runs on threads of its own
+     */
+    public static int getSharedPoolParallelism()
+    {
+        return SharedPoolHolder.PARALLELISM;
+    }
+
+    public synchronized void start() throws MuleException
+    {
+        if (muleContext != null)
+        {
+            gracefulShutdownTimeout = muleContext.getConfiguration().getShutdownTimeout();
+            executionClassLoader = muleContext.getExecutionClassLoader();
+        }
+        else
+        {
+            executionClassLoader = Thread.currentThread().getContextClassLoader();
+        }
+        started = true;
+    }
+
+    public synchronized void dispose()
+    {
+        if (!started)
+        {
+            return;
+        }
+        started = false;
+        long deadline = System.currentTimeMillis() + gracefulShutdownTimeout;
+        try
+        {
+            // the shared pool cannot be shut down, so wait for the work of this manager only
+            long remaining = gracefulShutdownTimeout;
+            while (activeWork > 0 && remaining > 0)
+            {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            if (activeWork > 0)
+            {
+                logger.warn(MessageFormat.format("Work manager {0} did not complete {1} work items in time.",
+                    name, Integer.toString(activeWork)));
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public XATerminator getXATerminator()
+    {
+        return null;
+    }
+
+    public void doWork(Work work) throws WorkException
+    {
+        executeWork(new WorkerContext(work), syncWorkExecutor);
+    }
+
+    public void doWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
+        throws WorkException
+    {
+        WorkerContext workWrapper = new WorkerContext(work, startTimeout, execContext, workListener);
+        workWrapper.setThreadPriority(Thread.currentThread().getPriority());
+        executeWork(workWrapper, syncWorkExecutor);
+    }
+
+    public long startWork(Work work) throws WorkException
+    {
+        WorkerContext workWrapper = new WorkerContext(work);
+        workWrapper.setThreadPriority(Thread.currentThread().getPriority());
+        executeWork(workWrapper, startWorkExecutor);
+        return System.currentTimeMillis() - workWrapper.getAcceptedTime();
+    }
+
+    public long startWork(Work work,
+                          long startTimeout,
+                          ExecutionContext execContext,
+                          WorkListener workListener) throws WorkException
+    {
+        WorkerContext workWrapper = new WorkerContext(work, startTimeout, execContext, workListener);
+        workWrapper.setThreadPriority(Thread.currentThread().getPriority());
+        executeWork(workWrapper, startWorkExecutor);
+        return System.currentTimeMillis() - workWrapper.getAcceptedTime();
+    }
+
+    public void scheduleWork(Work work) throws WorkException
+    {
+        WorkerContext workWrapper = new WorkerContext(work);
+        workWrapper.setThreadPriority(Thread.currentThread().getPriority());
+        executeWork(workWrapper, scheduleWorkExecutor);
+    }
+
+    public void scheduleWork(Work work,
+                             long startTimeout,
+                             ExecutionContext execContext,
+                             WorkListener workListener) throws WorkException
+    {
+        WorkerContext workWrapper = new WorkerContext(work, startTimeout, execContext, workListener);
+        workWrapper.setThreadPriority(Thread.currentThread().getPriority());
+        executeWork(workWrapper, scheduleWorkExecutor);
+    }
+
+    public void execute(Runnable work)
+    {
+        if (!isStarted())
+        {
+            throw new IllegalStateException("This SharedPoolWorkManager '" + name + "' is stopped");
+        }
+        trackingExecutor.execute(work);
+    }
+
+    private void executeWork(WorkerContext work, WorkExecutor workExecutor) throws WorkException
+    {
+        if (!isStarted())
+        {
+            throw new IllegalStateException("This SharedPoolWorkManager '" + name + "' is stopped");
+        }
+
+        try
+        {
+            work.workAccepted(this);
+            workExecutor.doExecute(work, trackingExecutor);
+            WorkException exception = work.getWorkException();
+            if (null != exception)
+            {
+                throw exception;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            WorkCompletedException wcj = new WorkCompletedException("The execution has been interrupted for WorkManager: " + name, e);
+            wcj.setErrorCode(WorkException.INTERNAL);
+            throw wcj;
+        }
+    }
+
+    public boolean isStarted()
+    {
+        return started;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the number of work items of this manager that are queued or running
+     */
+    public synchronized int getActiveWork()
+    {
+        return activeWork;
+    }
+
+    private synchronized void workStarted()
+    {
+        activeWork++;
+    }
+
+    private synchronized void workEnded()
+    {
+        if (--activeWork == 0)
+        {
+            notifyAll();
+        }
+    }
+
+    public MuleContext getMuleContext()
+    {
+        return muleContext;
+    }
+
+    public void setMuleContext(MuleContext muleContext)
+    {
+        this.muleContext = muleContext;
+    }
+
+    /**
+     * Runs work on the shared pool with the thread name and context class loader of this
+     * work manager, counting it until it is done.
+     */
+    private class TrackingExecutor implements Executor
+    {
+
+        public void execute(final Runnable command)
+        {
+            workStarted();
+            try
+            {
+                SharedPoolHolder.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        Thread thread = Thread.currentThread();
+                        String threadName = thread.getName();
+                        ClassLoader contextClassLoader = thread.getContextClassLoader();
+                        thread.setName(name);
+                        thread.setContextClassLoader(executionClassLoader);
+                        try
+                        {
+                            command.run();
+                        }
+                        finally
+                        {
+                            thread.setName(threadName);
+                            thread.setContextClassLoader(contextClassLoader);
+                            workEnded();
+                        }
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                workEnded();
+                throw e;
+            }
+        }
+    }
+
+    private static class SharedPoolHolder
+    {
+
+        static final int PARALLELISM = Integer.getInteger(PARALLELISM_PROPERTY,
+            Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+        // virtual threads are not bounded, so blocking work does not take them from other work
+        static final ExecutorService VIRTUAL_THREAD_POOL = createVirtualThreadPool();
+        static final ExecutorService POOL = VIRTUAL_THREAD_POOL != null ? VIRTUAL_THREAD_POOL : createSharedPool();
+
+        // work that does not fit in the shared pool once all its threads are taken
+        static final ExecutorService OVERFLOW = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60,
+            TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new DaemonThreadFactory("shared.work.overflow"));
+
+        // work items submitted to the shared pool that have not completed yet
+        static final AtomicInteger running = new AtomicInteger();
+
+        static void execute(final Runnable command)
+        {
+            if (VIRTUAL_THREAD_POOL != null)
+            {
+                POOL.execute(command);
+                return;
+            }
+            if (running.incrementAndGet() > PARALLELISM)
+            {
+                running.decrementAndGet();
+                OVERFLOW.execute(command);
+                return;
+            }
+            try
+            {
+                POOL.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            command.run();
+                        }
+                        finally
+                        {
+                            running.decrementAndGet();
+                        }
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                running.decrementAndGet();
+                throw e;
+            }
+        }
+
+        private static ExecutorService createVirtualThreadPool()
+        {
+            if (!Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY))
+            {
+                return null;
+            }
+            ExecutorService pool = invokeFactory("newVirtualThreadPerTaskExecutor", new Class<?>[0]);
+            if (pool == null)
+            {
+                logger.warn("Virtual threads are not supported by this JVM, using a shared pool of threads");
+            }
+            return pool;
+        }
+
+        private static ExecutorService createSharedPool()
+        {
+            ExecutorService pool = invokeFactory("newWorkStealingPool", new Class<?>[] {int.class}, PARALLELISM);
+            if (pool != null)
+            {
+                return pool;
+            }
+            ThreadPoolExecutor threadPool = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("shared.work"));
+            threadPool.allowCoreThreadTimeOut(true);
+            return threadPool;
+        }
+
+        // the factories are looked up as they are not available in every supported JVM
+        private static ExecutorService invokeFactory(String method, Class<?>[] parameterTypes, Object... args)
+        {
+            try
+            {
+                Method factory = Executors.class.getMethod(method, parameterTypes);
+                return (ExecutorService) factory.invoke(null, args);
+            }
+            catch (Exception e)
+            {
+                return null;
+            }
+        }
+    }
+}
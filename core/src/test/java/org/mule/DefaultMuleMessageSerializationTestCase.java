@@ -8,6 +8,7 @@ package org.mule;
 
 import org.mule.api.MuleMessage;
 import org.mule.api.transformer.TransformerException;
+import org.mule.api.transport.PropertyScope;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 import org.mule.transformer.simple.ObjectToByteArray;
 import org.mule.transformer.types.DataTypeFactory;
@@ -17,6 +18,7 @@ import org.mule.util.store.DeserializationPostInitialisable;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.ObjectStreamClass;
 import java.util.Arrays;
 
 import javax.activation.DataHandler;
@@ -26,6 +28,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 public class DefaultMuleMessageSerializationTestCase extends AbstractMuleContextTestCase
@@ -74,6 +77,34 @@ public class DefaultMuleMessageSerializationTestCase extends AbstractMuleContext
         assertTrue(Arrays.equals(TEST_MESSAGE.getBytes(), payload));
     }
 
+    @Test
+    public void testPropertiesInAllScopes() throws Exception
+    {
+        MuleMessage message = new DefaultMuleMessage(TEST_MESSAGE, muleContext);
+        message.setProperty("Inbound-Foo", "inbound", PropertyScope.INBOUND);
+        message.setOutboundProperty("Outbound-Foo", "outbound");
+        message.setInvocationProperty("Invocation-Foo", "invocation");
+
+        MuleMessage deserializedMessage = serializationRoundtrip(message);
+
+        assertEquals("inbound", deserializedMessage.getInboundProperty("inbound-foo"));
+        assertEquals("outbound", deserializedMessage.getOutboundProperty("OUTBOUND-FOO"));
+        assertEquals("invocation", deserializedMessage.getInvocationProperty("invocation-foo"));
+    }
+
+    @Test
+    public void testPropertiesKeepTheirSerializedForm()
+    {
+        // messages serialized by previous versions must still be readable, and the other way round
+        ObjectStreamClass descriptor = ObjectStreamClass.lookup(MessagePropertiesContext.class);
+
+        assertEquals(-5230693402768953742L, descriptor.getSerialVersionUID());
+        assertEquals(3, descriptor.getFields().length);
+        assertNotNull(descriptor.getField("scopedMap"));
+        assertNotNull(descriptor.getField("keySet"));
+        assertNotNull(descriptor.getField("invocationMap"));
+    }
+
     @Test
     @Ignore("see MULE-2964")
     public void testAttachments() throws Exception
@@ -8,6 +8,7 @@ package org.mule;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -29,6 +30,7 @@ import org.mule.tck.junit4.AbstractMuleContextTestCase;
 import org.mule.transformer.AbstractTransformer;
 import org.mule.transformer.simple.ByteArrayToObject;
 import org.mule.transformer.simple.SerializableToByteArray;
+import org.mule.util.CopyOnWriteCaseInsensitiveMap;
 import org.mule.util.SerializationUtils;
 
 import java.io.ByteArrayInputStream;
@@ -308,6 +310,48 @@ public class MuleEventTestCase extends AbstractMuleContextTestCase
         assertArrayEquals((byte[])testEvent.getMessage().getPayload(), payload.toString().getBytes());
     }
 
+    @Test
+    public void testFlowVariablesKeepTheirSerializedForm() throws Exception
+    {
+        MuleEvent event = getTestEvent("payload");
+        event.setFlowVariable("Var", "value");
+
+        // events serialized by previous versions must still be readable, and the other way round
+        byte[] serializedEvent = SerializationUtils.serialize(event);
+        assertFalse(new String(serializedEvent, "ISO-8859-1").contains(
+            CopyOnWriteCaseInsensitiveMap.class.getName()));
+
+        MuleEvent deserialized = (MuleEvent) SerializationUtils.deserialize(serializedEvent);
+        assertEquals("value", deserialized.getFlowVariable("VAR"));
+        assertEquals("value", deserialized.getMessage().getInvocationProperty("var"));
+
+        deserialized.setFlowVariable("added", "value");
+        assertEquals("value", deserialized.getMessage().getInvocationProperty("added"));
+    }
+
+    @Test
+    public void testCopiesDoNotShareChanges() throws Exception
+    {
+        MuleEvent event = getTestEvent("testing");
+        event.setFlowVariable("var", "original");
+        event.getMessage().setOutboundProperty("prop", "original");
+
+        MuleEvent copy = DefaultMuleEvent.copy(event);
+        assertEquals("original", copy.getFlowVariable("VAR"));
+        assertEquals("original", copy.getMessage().getOutboundProperty("PROP"));
+
+        copy.setFlowVariable("var", "changed");
+        copy.getMessage().setOutboundProperty("prop", "changed");
+        copy.getMessage().setInvocationProperty("added", "changed");
+
+        assertEquals("original", event.getFlowVariable("var"));
+        assertEquals("original", event.getMessage().getOutboundProperty("prop"));
+        assertNull(event.getFlowVariable("added"));
+        assertEquals("changed", copy.getFlowVariable("var"));
+        assertEquals("changed", copy.getMessage().getInvocationProperty("var"));
+        assertEquals("changed", copy.getMessage().getOutboundProperty("prop"));
+    }
+
     private void createAndRegisterTransformersEndpointBuilderService() throws Exception
     {
         Transformer trans1 = new TestEventTransformer();
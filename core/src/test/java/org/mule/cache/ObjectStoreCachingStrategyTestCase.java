@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.api.routing.filter.Filter;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.util.store.SimpleMemoryObjectStore;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ObjectStoreCachingStrategyTestCase extends AbstractMuleContextTestCase
+{
+
+    private final CountingMessageProcessor messageProcessor = new CountingMessageProcessor();
+
+    @Override
+    protected void doSetUp() throws Exception
+    {
+        muleContext.getStatistics().setEnabled(true);
+    }
+
+    @Test
+    public void cachesResponsesByPayload() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = createCachingStrategy();
+
+        MuleEvent first = cachingStrategy.process(getTestEvent("request"), messageProcessor);
+        MuleEvent second = cachingStrategy.process(getTestEvent("request"), messageProcessor);
+        cachingStrategy.process(getTestEvent("other request"), messageProcessor);
+
+        assertEquals(2, messageProcessor.invocations.get());
+        assertEquals("response 1", first.getMessage().getPayload());
+        assertEquals("response 1", second.getMessage().getPayload());
+        assertEquals("value 1", second.getMessage().getOutboundProperty("header"));
+        assertEquals(1, cachingStrategy.getStatistics().getHits());
+        assertEquals(2, cachingStrategy.getStatistics().getMisses());
+    }
+
+    @Test
+    public void keepsTheFlowVariablesOfTheRequest() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = createCachingStrategy();
+
+        MuleEvent firstRequest = getTestEvent("request");
+        firstRequest.setFlowVariable("var", "first");
+        cachingStrategy.process(firstRequest, messageProcessor);
+
+        MuleEvent secondRequest = getTestEvent("request");
+        secondRequest.setFlowVariable("var", "second");
+        MuleEvent response = cachingStrategy.process(secondRequest, messageProcessor);
+
+        assertEquals(1, messageProcessor.invocations.get());
+        assertEquals("second", response.getFlowVariable("var"));
+        assertEquals(secondRequest.getId(), response.getId());
+    }
+
+    @Test
+    public void cachesStreamedResponses() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = createCachingStrategy();
+        MessageProcessor streamingProcessor = new MessageProcessor()
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                messageProcessor.invocations.incrementAndGet();
+                MuleMessage message = new DefaultMuleMessage(new ByteArrayInputStream("streamed".getBytes()),
+                    muleContext);
+                return new DefaultMuleEvent(message, event);
+            }
+        };
+
+        cachingStrategy.process(getTestEvent("request"), streamingProcessor);
+        MuleEvent first = cachingStrategy.process(getTestEvent("request"), streamingProcessor);
+        MuleEvent second = cachingStrategy.process(getTestEvent("request"), streamingProcessor);
+
+        assertEquals(1, messageProcessor.invocations.get());
+        assertEquals("streamed", first.getMessageAsString());
+        assertEquals("streamed", second.getMessageAsString());
+    }
+
+    @Test
+    public void usesKeyGenerationExpression() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = new ObjectStoreCachingStrategy();
+        cachingStrategy.setKeyGenerationExpression("#[flowVars.key]");
+        cachingStrategy.setMuleContext(muleContext);
+        cachingStrategy.initialise();
+
+        MuleEvent request = getTestEvent("request");
+        request.setFlowVariable("key", "A");
+        cachingStrategy.process(request, messageProcessor);
+
+        request = getTestEvent("different payload");
+        request.setFlowVariable("key", "A");
+        MuleEvent response = cachingStrategy.process(request, messageProcessor);
+
+        assertEquals(1, messageProcessor.invocations.get());
+        assertEquals("response 1", response.getMessage().getPayload());
+    }
+
+    @Test
+    public void skipsRequestsRejectedByFilter() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = createCachingStrategy();
+        cachingStrategy.setFilter(new Filter()
+        {
+            @Override
+            public boolean accept(MuleMessage message)
+            {
+                return false;
+            }
+        });
+
+        cachingStrategy.process(getTestEvent("request"), messageProcessor);
+        cachingStrategy.process(getTestEvent("request"), messageProcessor);
+
+        assertEquals(2, messageProcessor.invocations.get());
+        assertEquals(0, cachingStrategy.getStatistics().getMisses());
+    }
+
+    @Test
+    public void invalidatesEntries() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = createCachingStrategy();
+        cachingStrategy.setKeyGenerationExpression("#[payload]");
+
+        cachingStrategy.process(getTestEvent("a"), messageProcessor);
+        cachingStrategy.process(getTestEvent("b"), messageProcessor);
+        cachingStrategy.invalidate("a");
+        cachingStrategy.invalidate("unknown");
+        cachingStrategy.process(getTestEvent("a"), messageProcessor);
+        cachingStrategy.process(getTestEvent("b"), messageProcessor);
+
+        assertEquals(3, messageProcessor.invocations.get());
+        assertEquals(1, cachingStrategy.getStatistics().getEvictions());
+
+        cachingStrategy.invalidate();
+        assertFalse(cachingStrategy.getStore().contains("a"));
+        assertFalse(cachingStrategy.getStore().contains("b"));
+        assertEquals(3, cachingStrategy.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void expiresEntries() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = createCachingStrategy();
+        cachingStrategy.setEntryTTL(1);
+
+        cachingStrategy.process(getTestEvent("request"), messageProcessor);
+        Thread.sleep(10);
+        cachingStrategy.process(getTestEvent("request"), messageProcessor);
+
+        assertEquals(2, messageProcessor.invocations.get());
+        assertEquals(1, cachingStrategy.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void registersStatistics() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = createCachingStrategy();
+        assertEquals(1, muleContext.getStatistics().getCachingStrategyStatistics().size());
+
+        cachingStrategy.dispose();
+        assertEquals(0, muleContext.getStatistics().getCachingStrategyStatistics().size());
+    }
+
+    @Test
+    public void countsEntriesExpiredByTheDefaultStore() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = new ObjectStoreCachingStrategy();
+        cachingStrategy.setKeyGenerationExpression("#[payload]");
+        cachingStrategy.setMaxEntries(2);
+        cachingStrategy.setExpirationInterval(10);
+        cachingStrategy.setMuleContext(muleContext);
+        cachingStrategy.initialise();
+
+        try
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                cachingStrategy.process(getTestEvent("request " + i), messageProcessor);
+            }
+
+            long deadline = System.currentTimeMillis() + RECEIVE_TIMEOUT;
+            while (cachingStrategy.getStatistics().getEvictions() < 3 && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            assertEquals(3, cachingStrategy.getStatistics().getEvictions());
+        }
+        finally
+        {
+            cachingStrategy.dispose();
+        }
+    }
+
+    @Test
+    public void namesStrategyAfterBean() throws Exception
+    {
+        ObjectStoreCachingStrategy named = new ObjectStoreCachingStrategy();
+        named.setGlobalName("responses");
+        ObjectStoreCachingStrategy sameName = new ObjectStoreCachingStrategy();
+        sameName.setGlobalName("responses");
+        ObjectStoreCachingStrategy unnamed = new ObjectStoreCachingStrategy();
+
+        for (ObjectStoreCachingStrategy cachingStrategy : new ObjectStoreCachingStrategy[] {named, sameName, unnamed})
+        {
+            cachingStrategy.setStore(new SimpleMemoryObjectStore<ObjectStoreCachingStrategy.CachedResponse>());
+            cachingStrategy.setMuleContext(muleContext);
+            cachingStrategy.initialise();
+        }
+
+        assertEquals("responses", named.getName());
+        assertEquals("responses-2", sameName.getName());
+        assertEquals(ObjectStoreCachingStrategy.DEFAULT_NAME, unnamed.getName());
+    }
+
+    private ObjectStoreCachingStrategy createCachingStrategy() throws Exception
+    {
+        ObjectStoreCachingStrategy cachingStrategy = new ObjectStoreCachingStrategy();
+        cachingStrategy.setStore(new SimpleMemoryObjectStore<ObjectStoreCachingStrategy.CachedResponse>());
+        cachingStrategy.setMuleContext(muleContext);
+        cachingStrategy.initialise();
+        return cachingStrategy;
+    }
+
+    private class CountingMessageProcessor implements MessageProcessor
+    {
+
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        @Override
+        public MuleEvent process(MuleEvent event) throws MuleException
+        {
+            int invocation = invocations.incrementAndGet();
+            MuleMessage message = new DefaultMuleMessage("response " + invocation, muleContext);
+            message.setOutboundProperty("header", "value " + invocation);
+            return new DefaultMuleEvent(message, event);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.construct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SmallTest
+public class InFlightBudgetTestCase extends AbstractMuleTestCase
+{
+
+    @Test
+    public void isExhaustedWhenLimitIsReached()
+    {
+        InFlightBudget budget = new InFlightBudget(2);
+        budget.acquire();
+        assertFalse(budget.isExhausted());
+        budget.acquire();
+        assertTrue(budget.isExhausted());
+        budget.release();
+        assertFalse(budget.isExhausted());
+        assertEquals(1, budget.getInFlight());
+    }
+
+    @Test
+    public void doesNotCountWithoutLimit()
+    {
+        InFlightBudget budget = new InFlightBudget(0);
+        for (int i = 0; i < 100; i++)
+        {
+            assertFalse(budget.acquire());
+        }
+        assertFalse(budget.isExhausted());
+        assertEquals(0, budget.getInFlight());
+    }
+
+    @Test
+    public void unmatchedReleaseDoesNotGoBelowZero()
+    {
+        InFlightBudget budget = new InFlightBudget(1);
+        budget.release();
+        assertEquals(0, budget.getInFlight());
+        budget.acquire();
+        assertTrue(budget.isExhausted());
+    }
+
+    @Test
+    public void releaseWakesUpWaiter() throws Exception
+    {
+        final InFlightBudget budget = new InFlightBudget(1);
+        budget.acquire();
+
+        Thread releaser = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                budget.release();
+            }
+        };
+        releaser.start();
+
+        long start = System.nanoTime();
+        assertTrue(budget.awaitAvailable(10000));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        releaser.join();
+    }
+
+    @Test
+    public void awaitTimesOutWhileExhausted() throws Exception
+    {
+        InFlightBudget budget = new InFlightBudget(1);
+        budget.acquire();
+        assertFalse(budget.awaitAvailable(50));
+        assertTrue(budget.isExhausted());
+    }
+
+    @Test
+    public void limitCanBeChanged()
+    {
+        InFlightBudget budget = new InFlightBudget(1);
+        budget.acquire();
+        assertTrue(budget.isExhausted());
+        budget.setMaxInFlight(2);
+        assertFalse(budget.isExhausted());
+        assertEquals(2, budget.getMaxInFlight());
+    }
+}
@@ -6,16 +6,20 @@
  */
 package org.mule.context.notification;
 
+import org.mule.api.MuleContext;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 import org.mule.tck.size.SmallTest;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
 
 @SmallTest
 public class NotificationManagerTestCase extends AbstractMuleTestCase
@@ -179,6 +183,38 @@ public class NotificationManagerTestCase extends AbstractMuleTestCase
         assertTrue(listener2.isNotified());
     }
 
+    @Test
+    public void countsDroppedNotifications() throws Exception
+    {
+        manager.setMuleContext(mock(MuleContext.class, RETURNS_DEEP_STUBS));
+        manager.setQueueCapacity(2);
+        manager.setOverflowPolicy(ServerNotificationManager.OverflowPolicy.DROP);
+
+        for (int i = 0; i < 3; i++)
+        {
+            manager.fireNotification(new Event1());
+        }
+
+        assertEquals(2, manager.getQueuedNotifications());
+        assertEquals(1, manager.getDroppedNotifications());
+    }
+
+    @Test
+    public void keepsNotificationsFiredBeforeStartWhenWaiting() throws Exception
+    {
+        manager.setMuleContext(mock(MuleContext.class, RETURNS_DEEP_STUBS));
+        manager.setQueueCapacity(2);
+        manager.setOverflowPolicy(ServerNotificationManager.OverflowPolicy.WAIT);
+
+        for (int i = 0; i < 3; i++)
+        {
+            manager.fireNotification(new Event1());
+        }
+
+        assertEquals(3, manager.getQueuedNotifications());
+        assertEquals(0, manager.getDroppedNotifications());
+    }
+
     protected void assertNoListenersNotified()
     {
         assertFalse(listener1.isNotified());
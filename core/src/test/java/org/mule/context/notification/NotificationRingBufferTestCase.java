@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.context.notification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.context.notification.ServerNotification;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SmallTest
+public class NotificationRingBufferTestCase extends AbstractMuleTestCase
+{
+
+    @Test
+    public void rejectsNotificationsWhenFull() throws Exception
+    {
+        NotificationRingBuffer buffer = new NotificationRingBuffer(3);
+        assertEquals(4, buffer.capacity());
+
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(buffer.offer(new Event1()));
+        }
+        assertFalse(buffer.offer(new Event1()));
+        assertEquals(4, buffer.size());
+
+        List<ServerNotification> batch = new ArrayList<ServerNotification>();
+        assertEquals(1, buffer.drainTo(batch, 1));
+        assertTrue(buffer.offer(new Event1()));
+    }
+
+    @Test
+    public void drainsInOrderAcrossTheEndOfTheBuffer() throws Exception
+    {
+        NotificationRingBuffer buffer = new NotificationRingBuffer(4);
+        List<ServerNotification> offered = new ArrayList<ServerNotification>();
+        List<ServerNotification> drained = new ArrayList<ServerNotification>();
+        for (int i = 0; i < 10; i++)
+        {
+            Event1 notification = new Event1();
+            offered.add(notification);
+            assertTrue(buffer.offer(notification));
+            buffer.drainTo(drained, 2);
+        }
+        buffer.drainTo(drained, 10);
+
+        assertEquals(offered.size(), drained.size());
+        for (int i = 0; i < offered.size(); i++)
+        {
+            assertSame(offered.get(i), drained.get(i));
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void keepsOrderWithOverflow() throws Exception
+    {
+        NotificationRingBuffer buffer = new NotificationRingBuffer(2);
+        List<ServerNotification> offered = new ArrayList<ServerNotification>();
+        for (int i = 0; i < 5; i++)
+        {
+            Event1 notification = new Event1();
+            offered.add(notification);
+            if (!buffer.offer(notification))
+            {
+                buffer.addToOverflow(notification);
+            }
+        }
+        assertEquals(5, buffer.size());
+
+        // there is room in the ring again, but the overflow has to be drained first
+        List<ServerNotification> drained = new ArrayList<ServerNotification>();
+        buffer.drainTo(drained, 1);
+        Event1 last = new Event1();
+        offered.add(last);
+        assertTrue(buffer.offer(last));
+
+        while (buffer.drainTo(drained, 10) > 0)
+        {
+            // drain everything
+        }
+        assertEquals(offered, drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void drainingWakesUpWaitingProducer() throws Exception
+    {
+        final NotificationRingBuffer buffer = new NotificationRingBuffer(1);
+        assertTrue(buffer.offer(new Event1()));
+
+        final CountDownLatch queued = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                while (!buffer.offer(new Event1()))
+                {
+                    buffer.awaitRoom(1, TimeUnit.MINUTES);
+                }
+                queued.countDown();
+            }
+        });
+        producer.start();
+
+        Thread.sleep(100);
+        buffer.drainTo(new ArrayList<ServerNotification>(), 1);
+        assertTrue(queued.await(10, TimeUnit.SECONDS));
+        producer.join();
+    }
+
+    @Test
+    public void deliversAllNotificationsOfConcurrentProducers() throws Exception
+    {
+        final NotificationRingBuffer buffer = new NotificationRingBuffer(64);
+        final int producers = 4;
+        final int notificationsPerProducer = 5000;
+        final CountDownLatch done = new CountDownLatch(producers);
+        for (int i = 0; i < producers; i++)
+        {
+            new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    for (int j = 0; j < notificationsPerProducer; j++)
+                    {
+                        while (!buffer.offer(new Event1()))
+                        {
+                            Thread.yield();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        List<ServerNotification> drained = new ArrayList<ServerNotification>();
+        while (drained.size() < producers * notificationsPerProducer)
+        {
+            if (buffer.drainTo(drained, NotificationDispatcher.BATCH_SIZE) == 0)
+            {
+                buffer.awaitNotification(10, TimeUnit.MILLISECONDS);
+            }
+        }
+        done.await();
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.el.mvel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import org.junit.Test;
+
+@SmallTest
+public class CompiledExpressionCacheTestCase extends AbstractMuleTestCase
+{
+
+    @Test
+    public void countsHitsAndMisses()
+    {
+        CompiledExpressionCache cache = new CompiledExpressionCache(10, 1000);
+        assertNull(cache.get("a"));
+        cache.putIfAbsent("a", "compiled");
+        assertEquals("compiled", cache.get("a"));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getWeight());
+    }
+
+    @Test
+    public void keepsFirstCachedExpression()
+    {
+        CompiledExpressionCache cache = new CompiledExpressionCache(10, 1000);
+        String first = "first";
+        assertSame(first, cache.putIfAbsent("a", first));
+        assertSame(first, cache.putIfAbsent("a", "second"));
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void evictsWhenSizeIsExceeded()
+    {
+        CompiledExpressionCache cache = new CompiledExpressionCache(10, 1000);
+        for (int i = 0; i < 100; i++)
+        {
+            cache.putIfAbsent("expression" + i, "compiled" + i);
+        }
+
+        assertTrue(cache.getSize() <= 10);
+        assertEquals(100 - cache.getSize(), cache.getEvictions());
+    }
+
+    @Test
+    public void evictsWhenWeightIsExceeded()
+    {
+        CompiledExpressionCache cache = new CompiledExpressionCache(100, 10);
+        cache.putIfAbsent("12345", "a");
+        cache.putIfAbsent("67890", "b");
+        cache.putIfAbsent("abc", "c");
+
+        assertTrue(cache.getWeight() <= 10);
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void keepsRecentlyUsedExpressions()
+    {
+        CompiledExpressionCache cache = new CompiledExpressionCache(1, 1000);
+        cache.putIfAbsent("hot", "compiled");
+        cache.get("hot");
+        cache.putIfAbsent("cold", "compiled");
+
+        assertNotNull(cache.get("hot"));
+        assertNull(cache.get("cold"));
+    }
+
+    @Test
+    public void clear()
+    {
+        CompiledExpressionCache cache = new CompiledExpressionCache(10, 1000);
+        cache.putIfAbsent("a", "compiled");
+        cache.clear();
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getWeight());
+    }
+}
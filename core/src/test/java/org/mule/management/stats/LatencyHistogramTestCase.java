@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import org.junit.Test;
+
+@SmallTest
+public class LatencyHistogramTestCase extends AbstractMuleTestCase
+{
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void reportsPercentilesWithinBucketPrecision() throws Exception
+    {
+        for (long i = 1; i <= 10000; i++)
+        {
+            histogram.record(i * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(10000000, snapshot.getMax());
+        assertWithinPrecision(5000000, snapshot.getValueAtPercentile(50));
+        assertWithinPrecision(9900000, snapshot.getValueAtPercentile(99));
+        assertWithinPrecision(9990000, snapshot.getValueAtPercentile(99.9));
+        assertEquals(10000000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverAllValues() throws Exception
+    {
+        long[] values = {0, 1, 15, 16, 17, 100, 1023, 1024, Integer.MAX_VALUE, Long.MAX_VALUE};
+        for (long value : values)
+        {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            if (index > 0)
+            {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void intervalSnapshotOnlyContainsValuesSincePreviousOne() throws Exception
+    {
+        histogram.record(1000000);
+        assertEquals(1, histogram.getIntervalSnapshot().getCount());
+
+        histogram.record(10);
+        histogram.record(20);
+        LatencyHistogram.Snapshot interval = histogram.getIntervalSnapshot();
+        assertEquals(2, interval.getCount());
+        assertEquals(20, interval.getMax());
+        assertEquals(15, interval.getMean());
+
+        assertEquals(3, histogram.getSnapshot().getCount());
+        assertEquals(1000000, histogram.getSnapshot().getMax());
+    }
+
+    @Test
+    public void clearRemovesAllValues() throws Exception
+    {
+        histogram.record(1000);
+        histogram.clear();
+
+        assertEquals(0, histogram.getSnapshot().getCount());
+        assertEquals(0, histogram.getSnapshot().getValueAtPercentile(99));
+        assertEquals(0, histogram.getIntervalSnapshot().getCount());
+    }
+
+    private void assertWithinPrecision(long expected, long actual)
+    {
+        assertTrue("Expected " + expected + " but was " + actual,
+                   Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.management.stats.ProcessorProfilingStatistics.ProcessorProfile;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.List;
+
+import org.junit.Test;
+
+@SmallTest
+public class ProcessorProfilingStatisticsTestCase extends AbstractMuleTestCase
+{
+
+    private final ProcessorProfilingStatistics statistics = new ProcessorProfilingStatistics();
+
+    @Test
+    public void attributesNestedProcessorTimeToTheNestedProcessor() throws Exception
+    {
+        ProcessorProfilingStatistics.Measurement outer = statistics.start("/flow/processors/0");
+        ProcessorProfilingStatistics.Measurement inner = statistics.start("/flow/processors/1");
+        Thread.sleep(50);
+        statistics.stop(inner);
+        statistics.stop(outer);
+
+        List<ProcessorProfile> hotSpots = statistics.getHotSpots();
+        assertEquals(2, hotSpots.size());
+
+        ProcessorProfile innerProfile = hotSpots.get(0);
+        ProcessorProfile outerProfile = hotSpots.get(1);
+        assertEquals("/flow/processors/1", innerProfile.getProcessorPath());
+        assertEquals("/flow/processors/0", outerProfile.getProcessorPath());
+        assertEquals(1, outerProfile.getInvocations());
+        assertTrue(outerProfile.getTotalWallTime() >= innerProfile.getTotalWallTime());
+        assertTrue(outerProfile.getSelfWallTime() < innerProfile.getSelfWallTime());
+    }
+
+    @Test
+    public void accumulatesInvocationsOfTheSamePath() throws Exception
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            statistics.stop(statistics.start("/flow/processors/0"));
+        }
+
+        assertEquals(3, statistics.getHotSpots().get(0).getInvocations());
+
+        statistics.clear();
+        assertTrue(statistics.getHotSpots().isEmpty());
+    }
+}
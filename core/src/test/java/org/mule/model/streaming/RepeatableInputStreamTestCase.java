@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.model.streaming;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+@SmallTest
+public class RepeatableInputStreamTestCase extends AbstractMuleTestCase
+{
+
+    private static byte[] createData(int size)
+    {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+
+    @Test
+    public void readsDataManyTimes() throws Exception
+    {
+        byte[] data = createData(1000);
+        RepeatableInputStream stream = new RepeatableInputStream(new ByteArrayInputStream(data), 4096);
+
+        assertArrayEquals(data, IOUtils.toByteArray(stream));
+        assertArrayEquals(data, IOUtils.toByteArray(stream.newStream()));
+        stream.rewind();
+        assertArrayEquals(data, IOUtils.toByteArray(stream));
+        assertFalse(stream.isSpilled());
+    }
+
+    @Test
+    public void spillsToFilePastThreshold() throws Exception
+    {
+        byte[] data = createData(3 * RepeatableInputStream.CHUNK_SIZE + 123);
+        RepeatableInputStream stream = new RepeatableInputStream(new ByteArrayInputStream(data),
+            RepeatableInputStream.CHUNK_SIZE + 10);
+
+        assertArrayEquals(data, IOUtils.toByteArray(stream));
+        assertTrue(stream.isSpilled());
+        assertArrayEquals(data, IOUtils.toByteArray(stream.newStream()));
+        stream.close();
+    }
+
+    @Test
+    public void readsSourceOnlyAsNeeded() throws Exception
+    {
+        byte[] data = createData(100000);
+        RepeatableInputStream stream = new RepeatableInputStream(new ByteArrayInputStream(data), 1024);
+
+        byte[] start = new byte[10];
+        assertEquals(10, stream.read(start));
+        assertTrue(stream.getBufferedSize() < data.length);
+    }
+
+    @Test
+    public void resetsToMark() throws Exception
+    {
+        byte[] data = createData(100);
+        RepeatableInputStream stream = new RepeatableInputStream(new ByteArrayInputStream(data), 50);
+
+        assertEquals(10, stream.skip(10));
+        stream.mark(0);
+        int first = stream.read();
+        assertEquals(40, stream.skip(40));
+        stream.reset();
+        assertEquals(first, stream.read());
+        assertEquals(data[10] & 0xff, first);
+    }
+
+    @Test
+    public void closeReleasesDataAndClosesSource() throws Exception
+    {
+        final boolean[] closed = new boolean[1];
+        InputStream source = new ByteArrayInputStream(createData(10))
+        {
+            @Override
+            public void close() throws IOException
+            {
+                closed[0] = true;
+            }
+        };
+        RepeatableInputStream stream = new RepeatableInputStream(source, 5);
+        RepeatableInputStream other = stream.newStream();
+        assertEquals(2, stream.read(new byte[2]));
+        stream.close();
+
+        assertTrue(closed[0]);
+        try
+        {
+            other.read();
+            fail("the data should have been released");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void releasesDataOfStreamsThatAreNotClosed() throws Exception
+    {
+        File spillFile = spillWithoutClosing();
+        assertTrue(spillFile.exists());
+
+        for (int i = 0; i < 50 && spillFile.exists(); i++)
+        {
+            System.gc();
+            Thread.sleep(20);
+            new RepeatableInputStream(new ByteArrayInputStream(createData(10))).close();
+        }
+        assertFalse(spillFile.exists());
+    }
+
+    private static File spillWithoutClosing() throws IOException
+    {
+        byte[] data = createData(100);
+        RepeatableInputStream stream = new RepeatableInputStream(new ByteArrayInputStream(data), 10);
+        assertArrayEquals(data, IOUtils.toByteArray(stream.newStream()));
+        assertTrue(stream.isSpilled());
+        return stream.getSpillFile();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.routing.correlation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.MessageExchangePattern;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.MuleSession;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.service.Service;
+import org.mule.routing.MuleMessageInfoMapping;
+import org.mule.tck.MuleTestUtils;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.tck.size.LargeTest;
+import org.mule.tck.testmodels.fruit.Apple;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Feeds a collection correlator from many threads, checking that every group is
+ * aggregated exactly once and logging the throughput of the sharded mode for an
+ * increasing number of threads next to the single lock mode.
+ */
+@LargeTest
+public class ShardedEventCorrelatorStressTestCase extends AbstractMuleContextTestCase
+{
+    private static final int GROUPS_PER_THREAD = 500;
+    private static final int GROUP_SIZE = 4;
+
+    private Service service;
+    private MuleSession session;
+    private InboundEndpoint endpoint;
+
+    public ShardedEventCorrelatorStressTestCase()
+    {
+        setStartContext(true);
+    }
+
+    @Override
+    protected void doSetUp() throws Exception
+    {
+        service = getTestService("test", Apple.class);
+        session = getTestSession(service, muleContext);
+        endpoint = MuleTestUtils.getTestInboundEndpoint(MessageExchangePattern.ONE_WAY, muleContext);
+    }
+
+    @Test
+    public void aggregatesEveryGroupOnceWhenSharded() throws Exception
+    {
+        int threads = Runtime.getRuntime().availableProcessors() * 4;
+        assertEquals(threads * GROUPS_PER_THREAD, run(true, threads, "sharded"));
+    }
+
+    @Test
+    public void logsThroughputForIncreasingThreads() throws Exception
+    {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores * 2; threads *= 2)
+        {
+            long singleLock = measure(false, threads);
+            long sharded = measure(true, threads);
+            logger.info(String.format("%d threads: single lock %d groups/s, sharded %d groups/s", threads,
+                singleLock, sharded));
+        }
+    }
+
+    private long measure(boolean sharded, int threads) throws Exception
+    {
+        long start = System.nanoTime();
+        int aggregated = run(sharded, threads, (sharded ? "sharded" : "locked") + threads);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        assertEquals(threads * GROUPS_PER_THREAD, aggregated);
+        return aggregated * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * Every thread interleaves the events of its own groups with the events of the
+     * groups of the next thread, so that each group is completed concurrently by two
+     * threads.
+     */
+    private int run(boolean sharded, final int threads, String prefix) throws Exception
+    {
+        final EventCorrelator correlator = new EventCorrelator(new CollectionCorrelatorCallback(muleContext,
+            false, prefix), null, new MuleMessageInfoMapping(), muleContext, "test", false, prefix);
+        correlator.setSharded(sharded);
+
+        final AtomicInteger aggregated = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++)
+        {
+            final int thread = t;
+            new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        startLatch.await();
+                        for (int group = 0; group < GROUPS_PER_THREAD; group++)
+                        {
+                            for (int i = 0; i < GROUP_SIZE; i++)
+                            {
+                                int owner = i % 2 == 0 ? thread : (thread + 1) % threads;
+                                MuleEvent result = correlator.process(createEvent(owner + "-" + group));
+                                if (result != null)
+                                {
+                                    aggregated.incrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally
+                    {
+                        doneLatch.countDown();
+                    }
+                }
+            }, "correlator-stress-" + t).start();
+        }
+
+        startLatch.countDown();
+        assertTrue(doneLatch.await(RECEIVE_TIMEOUT * 12, TimeUnit.MILLISECONDS));
+        correlator.dispose();
+
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+        return aggregated.get();
+    }
+
+    private MuleEvent createEvent(String groupId) throws Exception
+    {
+        MuleMessage message = new DefaultMuleMessage(TEST_MESSAGE, muleContext);
+        message.setCorrelationId(groupId);
+        message.setCorrelationGroupSize(GROUP_SIZE);
+        return new DefaultMuleEvent(message, endpoint, service, session);
+    }
+}
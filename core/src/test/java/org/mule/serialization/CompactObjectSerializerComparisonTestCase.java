@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import static org.junit.Assert.assertTrue;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.session.DefaultMuleSession;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.tck.size.LargeTest;
+
+import org.junit.Test;
+
+/**
+ * Compares the size and the time it takes to write and read sessions and messages
+ * with the compact and the Java serializers.
+ */
+@LargeTest
+public class CompactObjectSerializerComparisonTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final int ITERATIONS = 20000;
+
+    @Test
+    public void sessionsAreSmallerThanWithJavaSerialization() throws Exception
+    {
+        DefaultMuleSession session = new DefaultMuleSession();
+        for (int i = 0; i < 10; i++)
+        {
+            session.setProperty("property" + i, "value" + i);
+        }
+
+        compare("session", session);
+    }
+
+    @Test
+    public void messagesAreSmallerThanWithJavaSerialization() throws Exception
+    {
+        DefaultMuleMessage message = new DefaultMuleMessage("payload", muleContext);
+        for (int i = 0; i < 10; i++)
+        {
+            message.setOutboundProperty("outbound" + i, "value" + i);
+            message.setInvocationProperty("invocation" + i, i);
+        }
+
+        compare("message", message);
+    }
+
+    private void compare(String name, Object value)
+    {
+        ObjectSerializer compact = new CompactObjectSerializer(muleContext);
+        ObjectSerializer java = new JavaObjectSerializer(muleContext);
+
+        int compactSize = compact.serialize(value).length;
+        int javaSize = java.serialize(value).length;
+        long compactTime = time(compact, value);
+        long javaTime = time(java, value);
+
+        logger.info(String.format("%s: compact %d bytes in %d ms, java %d bytes in %d ms", name,
+            compactSize, compactTime, javaSize, javaTime));
+        assertTrue(compactSize < javaSize);
+    }
+
+    private long time(ObjectSerializer serializer, Object value)
+    {
+        // warm up before measuring
+        for (int i = 0; i < ITERATIONS / 10; i++)
+        {
+            serializer.deserialize(serializer.serialize(value));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            serializer.deserialize(serializer.serialize(value));
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+}
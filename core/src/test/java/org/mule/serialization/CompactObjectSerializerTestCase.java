@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleMessage;
+import org.mule.api.serialization.SerializationException;
+import org.mule.api.transformer.DataType;
+import org.mule.session.DefaultMuleSession;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.transformer.types.SimpleDataType;
+import org.mule.util.SerializationUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompactObjectSerializerTestCase extends AbstractMuleContextTestCase
+{
+
+    private CompactObjectSerializer serializer;
+
+    @Override
+    protected void doSetUp() throws Exception
+    {
+        serializer = new CompactObjectSerializer(muleContext);
+    }
+
+    @Test
+    public void roundTripsSimpleValues() throws Exception
+    {
+        assertNull(roundTrip(null));
+        assertEquals(Boolean.TRUE, roundTrip(Boolean.TRUE));
+        assertEquals(Boolean.FALSE, roundTrip(Boolean.FALSE));
+        assertEquals("value", roundTrip("value"));
+        assertEquals(-1, roundTrip(-1));
+        assertEquals(Integer.MIN_VALUE, roundTrip(Integer.MIN_VALUE));
+        assertEquals(Long.MAX_VALUE, roundTrip(Long.MAX_VALUE));
+        assertEquals((short) 3, roundTrip((short) 3));
+        assertEquals((byte) -7, roundTrip((byte) -7));
+        assertEquals('c', roundTrip('c'));
+        assertEquals(1.5f, roundTrip(1.5f));
+        assertEquals(-2.25d, roundTrip(-2.25d));
+        assertEquals(new Date(1000), roundTrip(new Date(1000)));
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) roundTrip(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void roundTripsCollections() throws Exception
+    {
+        List<Object> list = new ArrayList<Object>();
+        list.add("a");
+        list.add(1L);
+        list.add(null);
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("list", list);
+        map.put("set", new HashSet<String>(Arrays.asList("a", "b")));
+
+        LinkedHashMap<String, Object> ordered = new LinkedHashMap<String, Object>();
+        ordered.put("z", 1);
+        ordered.put("a", 2);
+
+        assertEquals(list, roundTrip(list));
+        assertEquals(map, roundTrip(map));
+        LinkedHashMap<?, ?> result = (LinkedHashMap<?, ?>) roundTrip(ordered);
+        assertEquals("z", result.keySet().iterator().next());
+    }
+
+    @Test
+    public void keepsSharedReferences() throws Exception
+    {
+        List<Object> shared = new ArrayList<Object>(Arrays.asList("a", "b"));
+        Date date = new Date();
+        List<Object> list = new ArrayList<Object>();
+        list.add(shared);
+        list.add(shared);
+        list.add(date);
+        list.add(date);
+
+        List<?> result = (List<?>) roundTrip(list);
+
+        assertEquals(list, result);
+        assertSame(result.get(0), result.get(1));
+        assertSame(result.get(2), result.get(3));
+    }
+
+    @Test
+    public void roundTripsSelfReferencingCollections() throws Exception
+    {
+        List<Object> list = new ArrayList<Object>();
+        list.add("a");
+        list.add(list);
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("self", map);
+        map.put("list", list);
+
+        Map<?, ?> result = (Map<?, ?>) roundTrip(map);
+
+        assertSame(result, result.get("self"));
+        List<?> resultList = (List<?>) result.get("list");
+        assertEquals("a", resultList.get(0));
+        assertSame(resultList, resultList.get(1));
+    }
+
+    @Test
+    public void fallsBackToJavaSerializationForCyclesThroughCodecs() throws Exception
+    {
+        List<Object> payload = new ArrayList<Object>();
+        DefaultMuleMessage message = new DefaultMuleMessage(payload, muleContext);
+        payload.add(message);
+
+        byte[] bytes = serializer.serialize(message);
+
+        assertEquals(0xAC, bytes[0] & 0xFF);
+        MuleMessage result = (MuleMessage) serializer.deserialize(bytes);
+        assertSame(result, ((List<?>) result.getPayload()).get(0));
+    }
+
+    @Test
+    public void fallsBackToJavaSerialization() throws Exception
+    {
+        assertEquals(new BigDecimal("12.5"), roundTrip(new BigDecimal("12.5")));
+    }
+
+    @Test
+    public void internsRepeatedStrings() throws Exception
+    {
+        List<String> list = new ArrayList<String>();
+        for (int i = 0; i < 100; i++)
+        {
+            list.add("repeated value");
+        }
+
+        byte[] bytes = serializer.serialize(list);
+
+        assertTrue(bytes.length < 100 * "repeated value".length());
+        assertEquals(list, serializer.deserialize(bytes));
+    }
+
+    @Test
+    public void roundTripsSessions() throws Exception
+    {
+        DefaultMuleSession session = new DefaultMuleSession();
+        session.setProperty("key", "value");
+        session.setProperty("number", 5);
+        session.setValid(false);
+
+        DefaultMuleSession result = (DefaultMuleSession) roundTrip(session);
+
+        assertEquals(session.getId(), result.getId());
+        assertFalse(result.isValid());
+        assertEquals("value", result.getProperty("key"));
+        assertEquals(5, result.getProperty("number"));
+    }
+
+    @Test
+    public void roundTripsMessages() throws Exception
+    {
+        Map<String, Object> inboundProperties = new HashMap<String, Object>();
+        inboundProperties.put("inbound", "in");
+        DefaultMuleMessage message = new DefaultMuleMessage("payload", inboundProperties, null, null,
+            muleContext);
+        message.setOutboundProperty("outbound", "out");
+        message.setInvocationProperty("invocation", 3);
+
+        MuleMessage result = (MuleMessage) roundTrip(message);
+
+        assertEquals("payload", result.getPayload());
+        assertEquals(message.getUniqueId(), result.getUniqueId());
+        assertEquals(message.getMessageRootId(), result.getMessageRootId());
+        assertEquals("in", result.getInboundProperty("inbound"));
+        assertEquals("out", result.getOutboundProperty("outbound"));
+        assertEquals(3, result.getInvocationProperty("invocation"));
+        assertEquals(muleContext, result.getMuleContext());
+    }
+
+    @Test
+    public void roundTripsMessageDataTypes() throws Exception
+    {
+        DefaultMuleMessage message = new DefaultMuleMessage("{}", muleContext);
+        message.restoreDataType(new SimpleDataType<String>(String.class, "application/json; charset=UTF-16"));
+
+        MuleMessage result = (MuleMessage) roundTrip(message);
+
+        DataType<?> dataType = result.getDataType();
+        assertEquals(String.class, dataType.getType());
+        assertEquals("application/json", dataType.getMimeType());
+        assertEquals("UTF-16", dataType.getEncoding());
+        assertEquals("UTF-16", result.getEncoding());
+    }
+
+    @Test
+    public void readsJavaSerializedValues() throws Exception
+    {
+        DefaultMuleSession session = new DefaultMuleSession();
+        session.setProperty("key", "value");
+
+        DefaultMuleSession result = serializer.deserialize(SerializationUtils.serialize(session));
+
+        assertEquals(session.getId(), result.getId());
+        assertEquals("value", result.getProperty("key"));
+
+        Object fromStream = serializer.deserialize(new ByteArrayInputStream(
+            SerializationUtils.serialize("value")));
+        assertEquals("value", fromStream);
+    }
+
+    @Test
+    public void roundTripsStreams() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize("value", out);
+
+        assertEquals("value", serializer.deserialize(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public void usesRegisteredCodecs() throws Exception
+    {
+        serializer.registerCodec(CompactObjectSerializer.FIRST_USER_TYPE_ID, Point.class,
+            new CompactObjectSerializer.Codec<Point>()
+            {
+                @Override
+                public boolean supports(Point value)
+                {
+                    return true;
+                }
+
+                @Override
+                public void write(Point value, CompactObjectSerializer.Output out) throws IOException
+                {
+                    out.writeVarInt(value.x);
+                    out.writeVarInt(value.y);
+                }
+
+                @Override
+                public Point read(CompactObjectSerializer.Input in) throws IOException
+                {
+                    return new Point(in.readVarInt(), in.readVarInt());
+                }
+            });
+
+        byte[] bytes = serializer.serialize(new Point(-3, 4));
+        Point result = serializer.deserialize(bytes);
+
+        assertEquals(-3, result.x);
+        assertEquals(4, result.y);
+        assertTrue(bytes.length < SerializationUtils.serialize(new Point(-3, 4)).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsReservedTypeIds() throws Exception
+    {
+        serializer.registerCodec(CompactObjectSerializer.FIRST_USER_TYPE_ID - 1, Point.class, null);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void failsOnCorruptedData() throws Exception
+    {
+        serializer.deserialize(new byte[] {1, 2, 3, 4});
+    }
+
+    private Object roundTrip(Object value)
+    {
+        return serializer.deserialize(serializer.serialize(value));
+    }
+
+    private static class Point implements Serializable
+    {
+
+        private static final long serialVersionUID = 2409725372139618426L;
+
+        private final int x;
+        private final int y;
+
+        Point(int x, int y)
+        {
+            this.x = x;
+            this.y = y;
+        }
+    }
+}
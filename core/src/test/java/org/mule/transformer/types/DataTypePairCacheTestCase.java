@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transformer.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.transformer.DataType;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.InputStream;
+
+import org.junit.Test;
+
+@SmallTest
+public class DataTypePairCacheTestCase extends AbstractMuleTestCase
+{
+
+    private final DataTypePairCache<String> cache = new DataTypePairCache<String>();
+
+    @Test
+    public void cachesByEqualDataTypes()
+    {
+        cache.putIfAbsent(DataTypeFactory.STRING, DataTypeFactory.BYTE_ARRAY, "value");
+
+        assertEquals("value", cache.get(new SimpleDataType<String>(String.class),
+            new SimpleDataType<byte[]>(byte[].class)));
+        assertNull(cache.get(DataTypeFactory.BYTE_ARRAY, DataTypeFactory.STRING));
+        assertNull(cache.get(DataTypeFactory.STRING, DataTypeFactory.INPUT_STREAM));
+    }
+
+    @Test
+    public void keepsFirstCachedValue()
+    {
+        assertEquals("first", cache.putIfAbsent(DataTypeFactory.STRING, DataTypeFactory.BYTE_ARRAY, "first"));
+        assertEquals("first", cache.putIfAbsent(DataTypeFactory.STRING, DataTypeFactory.BYTE_ARRAY, "second"));
+    }
+
+    @Test
+    public void isNotAffectedByChangesToTheDataTypes()
+    {
+        DataType<InputStream> source = new SimpleDataType<InputStream>(InputStream.class);
+        cache.putIfAbsent(source, DataTypeFactory.STRING, "value");
+        source.setMimeType("application/json");
+
+        assertEquals("value", cache.get(DataTypeFactory.INPUT_STREAM, DataTypeFactory.STRING));
+        assertNull(cache.get(source, DataTypeFactory.STRING));
+    }
+
+    @Test
+    public void updatesAndRemovesValues()
+    {
+        cache.putIfAbsent(DataTypeFactory.STRING, DataTypeFactory.BYTE_ARRAY, "a");
+        cache.putIfAbsent(DataTypeFactory.STRING, DataTypeFactory.INPUT_STREAM, "b");
+
+        cache.update(new DataTypePairCache.Update<String>()
+        {
+            public String apply(DataType<?> source, DataType<?> result, String value)
+            {
+                return value.equals("a") ? "updated" : null;
+            }
+        });
+
+        assertEquals("updated", cache.get(DataTypeFactory.STRING, DataTypeFactory.BYTE_ARRAY));
+        assertNull(cache.get(DataTypeFactory.STRING, DataTypeFactory.INPUT_STREAM));
+    }
+
+    @Test
+    public void isClearedWhenFull()
+    {
+        DataTypePairCache<String> boundedCache = new DataTypePairCache<String>(10);
+        for (int i = 0; i < 25; i++)
+        {
+            DataType<String> source = new SimpleDataType<String>(String.class, "text/x-" + i);
+            boundedCache.putIfAbsent(source, DataTypeFactory.BYTE_ARRAY, "value");
+            assertTrue(boundedCache.size() <= 10);
+        }
+
+        assertEquals("value", boundedCache.get(new SimpleDataType<String>(String.class, "text/x-24"),
+            DataTypeFactory.BYTE_ARRAY));
+        assertNull(boundedCache.get(new SimpleDataType<String>(String.class, "text/x-0"),
+            DataTypeFactory.BYTE_ARRAY));
+    }
+
+    @Test
+    public void countsRemovedValues()
+    {
+        cache.putIfAbsent(DataTypeFactory.STRING, DataTypeFactory.BYTE_ARRAY, "a");
+        cache.putIfAbsent(DataTypeFactory.STRING, DataTypeFactory.INPUT_STREAM, "b");
+
+        cache.update(new DataTypePairCache.Update<String>()
+        {
+            public String apply(DataType<?> source, DataType<?> result, String value)
+            {
+                return null;
+            }
+        });
+
+        assertEquals(0, cache.size());
+    }
+}
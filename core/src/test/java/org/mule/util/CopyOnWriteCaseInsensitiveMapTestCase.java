@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Test;
+
+@SmallTest
+public class CopyOnWriteCaseInsensitiveMapTestCase extends AbstractMuleTestCase
+{
+
+    protected CopyOnWriteCaseInsensitiveMap<Object> createTestMap()
+    {
+        CopyOnWriteCaseInsensitiveMap<Object> map = new CopyOnWriteCaseInsensitiveMap<Object>();
+        map.put("FOO", "BAR");
+        map.put("DOO", Integer.valueOf(3));
+        return map;
+    }
+
+    @Test
+    public void testMap() throws Exception
+    {
+        doTestMap(createTestMap());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMapSerialization() throws Exception
+    {
+        byte[] bytes = SerializationUtils.serialize(createTestMap());
+        doTestMap((CopyOnWriteCaseInsensitiveMap<Object>) SerializationUtils.deserialize(bytes));
+    }
+
+    @Test
+    public void testReplaceKeepsOriginalCase() throws Exception
+    {
+        CopyOnWriteCaseInsensitiveMap<Object> map = createTestMap();
+        assertEquals("BAR", map.put("foo", "BAZ"));
+
+        assertEquals(2, map.size());
+        assertEquals("BAZ", map.get("FOO"));
+        assertTrue(map.keySet().contains("FOO"));
+    }
+
+    @Test
+    public void testRemove() throws Exception
+    {
+        CopyOnWriteCaseInsensitiveMap<Object> map = createTestMap();
+        assertEquals("BAR", map.remove("foo"));
+        assertNull(map.remove("foo"));
+        assertNull(map.remove(Integer.valueOf(1)));
+
+        assertEquals(1, map.size());
+        assertFalse(map.containsKey("FOO"));
+        assertEquals(Integer.valueOf(3), map.get("doo"));
+    }
+
+    @Test
+    public void testGrowsAfterManyEntries() throws Exception
+    {
+        CopyOnWriteCaseInsensitiveMap<Object> map = new CopyOnWriteCaseInsensitiveMap<Object>();
+        for (int i = 0; i < 1000; i++)
+        {
+            map.put("Key" + i, Integer.valueOf(i));
+        }
+        for (int i = 0; i < 1000; i += 2)
+        {
+            map.remove("KEY" + i);
+        }
+
+        assertEquals(500, map.size());
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get("key" + i));
+        }
+    }
+
+    @Test
+    public void testCopyIsNotAffectedByChanges() throws Exception
+    {
+        CopyOnWriteCaseInsensitiveMap<Object> map = createTestMap();
+        CopyOnWriteCaseInsensitiveMap<Object> copy = map.copy();
+
+        map.put("foo", "BAZ");
+        map.put("NEW", "VALUE");
+        copy.remove("DOO");
+
+        assertEquals("BAZ", map.get("FOO"));
+        assertEquals(Integer.valueOf(3), map.get("DOO"));
+        assertEquals(3, map.size());
+
+        assertEquals("BAR", copy.get("FOO"));
+        assertNull(copy.get("NEW"));
+        assertNull(copy.get("DOO"));
+        assertEquals(1, copy.size());
+    }
+
+    @Test
+    public void testClearCopy() throws Exception
+    {
+        CopyOnWriteCaseInsensitiveMap<Object> map = createTestMap();
+        CopyOnWriteCaseInsensitiveMap<Object> copy = map.copy();
+        copy.clear();
+
+        assertTrue(copy.isEmpty());
+        doTestMap(map);
+    }
+
+    @Test
+    public void testIteratorRemoveAndSetValue() throws Exception
+    {
+        CopyOnWriteCaseInsensitiveMap<Object> map = createTestMap();
+        CopyOnWriteCaseInsensitiveMap<Object> copy = map.copy();
+
+        Iterator<Map.Entry<String, Object>> iterator = copy.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<String, Object> entry = iterator.next();
+            if (entry.getKey().equals("FOO"))
+            {
+                iterator.remove();
+            }
+            else
+            {
+                entry.setValue(Integer.valueOf(4));
+            }
+        }
+
+        assertEquals(1, copy.size());
+        assertEquals(Integer.valueOf(4), copy.get("doo"));
+        doTestMap(map);
+    }
+
+    protected void doTestMap(CopyOnWriteCaseInsensitiveMap<Object> map) throws Exception
+    {
+        assertEquals("BAR", map.get("FOO"));
+        assertEquals("BAR", map.get("foo"));
+        assertEquals("BAR", map.get("Foo"));
+
+        assertEquals(Integer.valueOf(3), map.get("DOO"));
+        assertEquals(Integer.valueOf(3), map.get("doo"));
+        assertEquals(Integer.valueOf(3), map.get("Doo"));
+
+        assertEquals(2, map.size());
+
+        // Test that the key set contains the same case as we put in
+        for (String key : map.keySet())
+        {
+            assertTrue(key.equals("FOO") || key.equals("DOO"));
+            assertFalse(key.equals("foo") || key.equals("doo"));
+        }
+    }
+}
@@ -377,6 +377,42 @@ public class FileUtilsTestCase extends AbstractMuleTestCase
         }
     }
 
+    @Test
+    public void testMoveFileAtomically() throws Exception
+    {
+        File sourceFile = FileUtils.stringToFile(TEST_DIRECTORY + File.separator + TEST_FILE, "content");
+        File destFile = FileUtils.newFile(TEST_DIRECTORY + File.separator + "moved" + File.separator + TEST_FILE);
+
+        FileUtils.moveFileAtomically(sourceFile, destFile);
+
+        assertTrue(!sourceFile.exists());
+        assertEquals("content", FileUtils.readFileToString(destFile));
+        assertTrue(destFile.delete());
+        assertTrue(destFile.getParentFile().delete());
+    }
+
+    @Test
+    public void testMoveFileAtomicallyDoesNotOverwrite() throws Exception
+    {
+        File sourceFile = FileUtils.stringToFile(TEST_DIRECTORY + File.separator + TEST_FILE, "content");
+        File destFile = FileUtils.stringToFile(TEST_DIRECTORY + File.separator + TEST_FILE + "2", "existing");
+        try
+        {
+            FileUtils.moveFileAtomically(sourceFile, destFile);
+            fail("Existing file was overwritten");
+        }
+        catch (IOException e)
+        {
+            assertTrue(sourceFile.exists());
+            assertEquals("existing", FileUtils.readFileToString(destFile));
+        }
+        finally
+        {
+            sourceFile.delete();
+            destFile.delete();
+        }
+    }
+
     private File createTestFile(String filePath) throws IOException
     {
         return File.createTempFile(filePath, ".junit");
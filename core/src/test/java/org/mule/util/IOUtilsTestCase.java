@@ -9,10 +9,16 @@ package org.mule.util;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 import org.mule.tck.size.SmallTest;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
@@ -30,4 +36,39 @@ public class IOUtilsTestCase extends AbstractMuleTestCase
         assertNull(is);
     }
 
+    @Test
+    public void testTransferFromFile() throws Exception
+    {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) i;
+        }
+        File source = File.createTempFile("transfer", ".source");
+        File target = File.createTempFile("transfer", ".target");
+        try
+        {
+            FileUtils.writeByteArrayToFile(source, data);
+
+            FileInputStream input = new FileInputStream(source);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(data.length, IOUtils.transfer(input, output));
+            assertEquals(-1, input.read());
+            input.close();
+            assertArrayEquals(data, output.toByteArray());
+
+            input = new FileInputStream(source);
+            FileOutputStream fileOutput = new FileOutputStream(target);
+            assertEquals(data.length, IOUtils.transfer(input, fileOutput));
+            input.close();
+            fileOutput.close();
+            assertArrayEquals(data, FileUtils.readFileToByteArray(target));
+        }
+        finally
+        {
+            source.delete();
+            target.delete();
+        }
+    }
+
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+@SmallTest
+public class HashedTimerWheelTestCase extends AbstractMuleTestCase
+{
+    private final HashedTimerWheel<String> wheel = new HashedTimerWheel<String>(10, 8, 1000);
+
+    @Test
+    public void reportsItemsOnlyAfterTheirDeadline()
+    {
+        wheel.schedule("a", 1025);
+        wheel.schedule("b", 1050);
+
+        List<String> expired = new ArrayList<String>();
+        wheel.expire(1024, expired);
+        assertTrue(expired.isEmpty());
+
+        wheel.expire(1030, expired);
+        assertEquals(Collections.singletonList("a"), expired);
+
+        expired.clear();
+        wheel.expire(1050, expired);
+        assertEquals(Collections.singletonList("b"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void keepsItemsScheduledBeyondOneRotation()
+    {
+        // the wheel spans 80 units, this deadline hashes to an earlier bucket
+        wheel.schedule("far", 1200);
+
+        List<String> expired = new ArrayList<String>();
+        wheel.expire(1100, expired);
+        assertTrue(expired.isEmpty());
+
+        wheel.expire(1200, expired);
+        assertEquals(Collections.singletonList("far"), expired);
+    }
+
+    @Test
+    public void reportsOverdueItemsAfterLongPauses()
+    {
+        wheel.schedule("a", 1010);
+        wheel.schedule("b", 1070);
+
+        List<String> expired = new ArrayList<String>();
+        assertEquals(2, wheel.expire(5000, expired));
+    }
+
+    @Test
+    public void reportsItemsScheduledInThePast()
+    {
+        List<String> expired = new ArrayList<String>();
+        wheel.expire(1100, expired);
+
+        wheel.schedule("late", 1000);
+        wheel.expire(1110, expired);
+        assertEquals(Collections.singletonList("late"), expired);
+    }
+
+    @Test
+    public void doesNotReportCancelledItems()
+    {
+        wheel.schedule("a", 1010).cancel();
+
+        List<String> expired = new ArrayList<String>();
+        wheel.expire(1020, expired);
+        assertTrue(expired.isEmpty());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -20,6 +20,9 @@ import org.mule.util.store.SimpleMemoryObjectStore;
 import org.mule.util.xa.AbstractResourceManager;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.commons.logging.Log;
@@ -771,6 +774,77 @@ public abstract class AbstractTransactionQueueManagerTestCase extends AbstractMu
         }
     }
 
+    @Test
+    public void testOfferAllDrainTo() throws Exception
+    {
+        TransactionalQueueManager mgr = createQueueManager();
+        mgr.setDefaultQueueConfiguration(new QueueConfiguration(3, new QueueStoreAdapter<Serializable>(
+            new SimpleMemoryObjectStore())));
+        try
+        {
+            mgr.start();
+
+            QueueSession s = mgr.getQueueSession();
+            Queue q = s.getQueue("queue1");
+
+            assertTrue(q.offerAll(Arrays.asList("String1", "String2"), 0L));
+            assertEquals("Queue size", 2, q.size());
+            // no room for both, so none is added
+            assertFalse(q.offerAll(Arrays.asList("String3", "String4"), 100));
+            assertEquals("Queue size", 2, q.size());
+
+            List<Serializable> items = new ArrayList<Serializable>();
+            assertEquals(1, q.drainTo(items, 1, 0L));
+            assertEquals(1, q.drainTo(items, 10, 0L));
+            assertEquals(Arrays.<Serializable> asList("String1", "String2"), items);
+            assertEquals(0, q.drainTo(items, 10, 100));
+
+            purgeQueue(q);
+        }
+        finally
+        {
+            mgr.stop(AbstractResourceManager.SHUTDOWN_MODE_NORMAL);
+        }
+    }
+
+    @Test
+    public void testOfferAllDrainToInTransaction() throws Exception
+    {
+        TransactionalQueueManager mgr = createQueueManager();
+        try
+        {
+            mgr.start();
+
+            QueueSession s = mgr.getQueueSession();
+            Queue q = s.getQueue("queue1");
+
+            s.begin();
+            assertTrue(q.offerAll(Arrays.asList("String1", "String2", "String3"), 0L));
+            s.commit();
+            assertEquals("Queue size", 3, q.size());
+
+            // drained items are put back on rollback
+            s.begin();
+            List<Serializable> items = new ArrayList<Serializable>();
+            assertEquals(3, q.drainTo(items, 10, 0L));
+            s.rollback();
+            assertEquals("Queue size", 3, q.size());
+
+            s.begin();
+            items.clear();
+            assertEquals(2, q.drainTo(items, 2, 0L));
+            s.commit();
+            assertEquals(Arrays.<Serializable> asList("String1", "String2"), items);
+            assertEquals("Queue size", 1, q.size());
+
+            purgeQueue(q);
+        }
+        finally
+        {
+            mgr.stop(AbstractResourceManager.SHUTDOWN_MODE_NORMAL);
+        }
+    }
+
     @Test
     public void testBench() throws Exception
     {
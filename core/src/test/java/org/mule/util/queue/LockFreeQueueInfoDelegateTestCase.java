@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+@SmallTest
+public class LockFreeQueueInfoDelegateTestCase extends AbstractMuleTestCase
+{
+
+    private static final int ITEMS = 200000;
+    private static final int BENCH_CAPACITY = 1024;
+
+    @Test
+    public void keepsOrderPastTheArray() throws Exception
+    {
+        LockFreeQueueInfoDelegate queue = new LockFreeQueueInfoDelegate(2);
+        for (int i = 0; i < 10; i++)
+        {
+            queue.putNow(i);
+        }
+        assertEquals(10, queue.getSize());
+        assertEquals(0, queue.peek());
+
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals(i, queue.poll(0));
+        }
+        queue.putNow(10);
+        queue.untake(4);
+        assertEquals(4, queue.peek());
+
+        List<Serializable> items = new ArrayList<Serializable>();
+        assertEquals(7, queue.drainTo(items, Integer.MAX_VALUE, 0));
+        assertEquals(Arrays.<Serializable> asList(4, 5, 6, 7, 8, 9, 10), items);
+        assertNull(queue.poll(0));
+        assertEquals(0, queue.getSize());
+    }
+
+    @Test
+    public void offerWaitsForRoom() throws Exception
+    {
+        final LockFreeQueueInfoDelegate queue = new LockFreeQueueInfoDelegate(2);
+        assertTrue(queue.offer("1", 0, 0));
+        assertTrue(queue.offer("2", 0, 0));
+        assertFalse(queue.offer("3", 0, 100));
+        assertFalse(queue.offerAll(Arrays.asList("3", "4"), 0, 0));
+
+        Thread consumer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(200);
+                    queue.poll(0);
+                }
+                catch (InterruptedException e)
+                {
+                    // let the test fail
+                }
+            }
+        };
+        consumer.start();
+
+        long t0 = System.currentTimeMillis();
+        assertTrue(queue.offer("3", 0, 5000));
+        assertTrue(System.currentTimeMillis() - t0 >= 100);
+        consumer.join();
+        assertEquals(2, queue.getSize());
+        assertEquals("2", queue.poll(0));
+    }
+
+    @Test
+    public void pollWaitsForMember() throws Exception
+    {
+        final LockFreeQueueInfoDelegate queue = new LockFreeQueueInfoDelegate(0, 100);
+        assertNull(queue.poll(50));
+
+        Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(200);
+                }
+                catch (InterruptedException e)
+                {
+                    // let the test fail
+                }
+                queue.putNow("1");
+            }
+        };
+        producer.start();
+
+        assertEquals("1", queue.poll(5000));
+        producer.join();
+    }
+
+    @Test
+    public void oneProducerOneConsumer() throws Exception
+    {
+        bench(1, 1);
+    }
+
+    @Test
+    public void manyProducersOneConsumer() throws Exception
+    {
+        bench(4, 1);
+    }
+
+    @Test
+    public void manyProducersManyConsumers() throws Exception
+    {
+        bench(4, 4);
+    }
+
+    /**
+     * Moves the same items through both delegates, checking each one is taken exactly
+     * once, and logs how long it took.
+     */
+    private void bench(int producers, int consumers) throws Exception
+    {
+        long locking = run(new DefaultQueueInfoDelegate(BENCH_CAPACITY), producers, consumers);
+        long lockFree = run(new LockFreeQueueInfoDelegate(BENCH_CAPACITY), producers, consumers);
+        logger.info(producers + " -> " + consumers + ": " + DefaultQueueInfoDelegate.class.getSimpleName()
+                    + " " + locking + " ms, " + LockFreeQueueInfoDelegate.class.getSimpleName() + " "
+                    + lockFree + " ms");
+    }
+
+    private long run(final QueueInfoDelegate queue, int producers, int consumers) throws Exception
+    {
+        final AtomicIntegerArray taken = new AtomicIntegerArray(ITEMS);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final int perProducer = ITEMS / producers;
+        final int perConsumer = ITEMS / consumers;
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++)
+        {
+            final int first = p * perProducer;
+            threads.add(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for (int i = first; i < first + perProducer; i++)
+                        {
+                            queue.offer(i, 0, Long.MAX_VALUE);
+                        }
+                    }
+                    catch (Throwable e)
+                    {
+                        failure.set(e);
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++)
+        {
+            threads.add(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for (int i = 0; i < perConsumer; i++)
+                        {
+                            Integer item = (Integer) queue.poll(Long.MAX_VALUE);
+                            taken.incrementAndGet(item);
+                        }
+                    }
+                    catch (Throwable e)
+                    {
+                        failure.set(e);
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        long t0 = System.currentTimeMillis();
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        long t1 = System.currentTimeMillis();
+
+        assertNull(failure.get());
+        for (int i = 0; i < ITEMS; i++)
+        {
+            assertEquals("item " + i, 1, taken.get(i));
+        }
+        assertEquals(0, queue.getSize());
+        return t1 - t0;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+@SmallTest
+public class IdempotencyObjectStoreTestCase extends AbstractMuleTestCase
+{
+
+    @Rule
+    public TemporaryFolder logFolder = new TemporaryFolder();
+
+    private IdempotencyObjectStore<String> store;
+
+    @After
+    public void disposeStore()
+    {
+        if (store != null)
+        {
+            store.dispose();
+        }
+    }
+
+    @Test
+    public void storesKeysOnce() throws Exception
+    {
+        store = createStore(false);
+
+        store.store("1", "1");
+        assertTrue(store.contains("1"));
+        assertFalse(store.contains("2"));
+
+        try
+        {
+            store.store("1", "1");
+            fail("the key should have been rejected");
+        }
+        catch (ObjectAlreadyExistsException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void removesKeys() throws Exception
+    {
+        store = createStore(false);
+
+        store.store("1", "1");
+        store.remove("1");
+        assertFalse(store.contains("1"));
+        store.store("1", "1");
+
+        try
+        {
+            store.remove("2");
+            fail("the key should not have been found");
+        }
+        catch (ObjectDoesNotExistException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void expiresKeysPastTimeToLive() throws Exception
+    {
+        store = new IdempotencyObjectStore<String>();
+        store.setEntryTTL(200);
+        store.setBucketCount(2);
+        store.initialise();
+
+        store.store("1", "1");
+        Thread.sleep(400);
+
+        assertFalse(store.contains("1"));
+        store.store("1", "1");
+    }
+
+    @Test
+    public void reloadsKeysFromLog() throws Exception
+    {
+        store = createStore(true);
+        store.store("1", "1");
+        store.store("2", "2");
+        store.remove("2");
+        store.dispose();
+
+        // a record partially written when the store went down
+        File log = logFolder.getRoot().listFiles()[0];
+        FileOutputStream out = new FileOutputStream(log, true);
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+
+        store = createStore(true);
+        assertTrue(store.contains("1"));
+        assertFalse(store.contains("2"));
+        store.store("3", "3");
+        store.dispose();
+
+        store = createStore(true);
+        assertTrue(store.contains("1"));
+        assertTrue(store.contains("3"));
+        assertTrue(store.isPersistent());
+    }
+
+    @Test
+    public void keepsOnlyFiltersWithoutExactIndex() throws Exception
+    {
+        store = new IdempotencyObjectStore<String>();
+        store.setExactIndex(false);
+        // far more than stored, so that no false positive is expected
+        store.setBucketCount(1);
+        store.setExpectedEntries(100000);
+        store.initialise();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            store.store("id-" + i, "");
+        }
+        for (int i = 0; i < 1000; i++)
+        {
+            assertTrue(store.contains("id-" + i));
+        }
+
+        try
+        {
+            store.remove("id-1");
+            fail("keys should not be removable");
+        }
+        catch (ObjectStoreException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void keepsFalsePositiveProbabilityAcrossAllBuckets() throws Exception
+    {
+        store = new IdempotencyObjectStore<String>();
+        store.setExactIndex(false);
+        store.setExpectedEntries(store.getBucketCount() * 1000);
+        store.initialise();
+
+        // fill every bucket of the time-to-live up to the expected number of keys
+        long bucketDuration = store.getEntryTTL() / store.getBucketCount();
+        long now = System.currentTimeMillis();
+        for (int bucket = 0; bucket < store.getBucketCount(); bucket++)
+        {
+            now += bucketDuration;
+            for (int i = 0; i < 1000; i++)
+            {
+                try
+                {
+                    store.store("id-" + bucket + "-" + i, "", now);
+                }
+                catch (ObjectAlreadyExistsException e)
+                {
+                    // a false positive while filling, which the lookups below account for
+                }
+            }
+        }
+
+        int lookups = 100000;
+        int falsePositives = 0;
+        for (int i = 0; i < lookups; i++)
+        {
+            if (store.contains("new-" + i, now))
+            {
+                falsePositives++;
+            }
+        }
+
+        double rate = falsePositives / (double) lookups;
+        assertTrue("false positive rate was " + rate, rate <= store.getFalsePositiveProbability() * 1.5);
+    }
+
+    @Test
+    public void longHashSetMatchesHashSet() throws Exception
+    {
+        IdempotencyObjectStore.LongHashSet set = new IdempotencyObjectStore.LongHashSet(0);
+        Set<Long> expected = new HashSet<Long>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++)
+        {
+            // a small range makes collisions and removals of present values frequent
+            long value = random.nextInt(5000) + 1;
+            if (random.nextBoolean())
+            {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            else
+            {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long value = 1; value <= 5000; value++)
+        {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+
+    private IdempotencyObjectStore<String> createStore(boolean logged) throws Exception
+    {
+        IdempotencyObjectStore<String> store = new IdempotencyObjectStore<String>();
+        store.setName("test");
+        store.setExpectedEntries(1000);
+        if (logged)
+        {
+            store.setLogDirectory(logFolder.getRoot().getAbsolutePath());
+        }
+        store.initialise();
+        return store;
+    }
+}
@@ -7,9 +7,16 @@
 package org.mule.util.store;
 
 import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.store.ObjectDoesNotExistException;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Test;
@@ -87,6 +94,20 @@ public class InMemoryStoreTestCase extends AbstractMuleTestCase
         assertObjectsExpired(key);
     }
 
+    @Test(expected = ObjectDoesNotExistException.class)
+    public void testRetrieveNullKey() throws Exception
+    {
+        createUnboundedObjectStore();
+        store.retrieve(null);
+    }
+
+    @Test(expected = ObjectDoesNotExistException.class)
+    public void testRemoveNullKey() throws Exception
+    {
+        createUnboundedObjectStore();
+        store.remove(null);
+    }
+
     @Test
     public void testExpiringUnboundedStore() throws Exception
     {
@@ -134,6 +155,80 @@ public class InMemoryStoreTestCase extends AbstractMuleTestCase
         assertObjectsExpired("3", "4", "5", "6");
     }
 
+    @Test
+    public void testRemovedEntriesAreNotTrimmed() throws Exception
+    {
+        createBoundedObjectStore(2);
+
+        storeObjects("1", "2");
+        store.remove("1");
+        storeObjects("3");
+        store.expire();
+        assertObjectsInStore("2", "3");
+
+        // storing the same id again makes it the newest entry
+        store.remove("2");
+        storeObjects("2", "4");
+        store.expire();
+        assertObjectsExpired("1", "3");
+        assertObjectsInStore("2", "4");
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        final int threads = 64;
+        final int entriesPerThread = 500;
+        createUnboundedObjectStore();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++)
+            {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        start.await();
+                        for (int i = 0; i < entriesPerThread; i++)
+                        {
+                            String id = thread + "-" + i;
+                            store.store(id, id);
+                            assertEquals(id, store.retrieve(id));
+                            if (i % 2 == 0)
+                            {
+                                assertEquals(id, store.remove(id));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> result : results)
+            {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        store.expire();
+        for (int t = 0; t < threads; t++)
+        {
+            for (int i = 0; i < entriesPerThread; i++)
+            {
+                assertEquals(i % 2 != 0, store.contains(t + "-" + i));
+            }
+        }
+    }
+
     private void storeObjects(String... objects) throws Exception
     {
         for (String entry : objects)
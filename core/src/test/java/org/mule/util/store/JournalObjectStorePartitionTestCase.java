@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.mule.api.MuleContext;
+import org.mule.api.config.MuleConfiguration;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+@SmallTest
+public class JournalObjectStorePartitionTestCase extends AbstractMuleTestCase
+{
+
+    @Rule
+    public TemporaryFolder objectStoreFolder = new TemporaryFolder();
+
+    private MuleContext muleContext;
+
+    @Before
+    public void setUpMuleContext()
+    {
+        MuleConfiguration configuration = mock(MuleConfiguration.class);
+        when(configuration.getWorkingDirectory()).thenReturn(objectStoreFolder.getRoot().getAbsolutePath());
+
+        muleContext = mock(MuleContext.class);
+        when(muleContext.getConfiguration()).thenReturn(configuration);
+        when(muleContext.getExecutionClassLoader()).thenReturn(getClass().getClassLoader());
+    }
+
+    @Test
+    public void reloadsIndexSnapshot() throws Exception
+    {
+        JournalObjectStorePartition<Serializable> partition = openPartition();
+        for (int i = 0; i < 10; i++)
+        {
+            partition.store("key" + i, "value" + i);
+        }
+        partition.remove("key3");
+        partition.close();
+        assertTrue(snapshotFile().exists());
+
+        partition = openPartition();
+        assertFalse(snapshotFile().exists());
+        List<Serializable> keys = partition.allKeys();
+        assertEquals(9, keys.size());
+        assertEquals("key0", keys.get(0));
+        assertEquals("key9", keys.get(8));
+        assertEquals("value5", partition.retrieve("key5"));
+        assertEquals("test", partition.getPartitionName());
+    }
+
+    @Test
+    public void scansRecordsAppendedAfterSnapshot() throws Exception
+    {
+        JournalObjectStorePartition<Serializable> partition = openPartition();
+        partition.store("key1", "value1");
+        partition.store("key2", "value2");
+        partition.close();
+        File savedSnapshot = new File(objectStoreFolder.getRoot(), "saved.snapshot");
+        FileUtils.copyFile(snapshotFile(), savedSnapshot);
+
+        partition = openPartition();
+        partition.store("key3", "value3");
+        partition.remove("key1");
+        partition.setIndexSnapshots(false);
+        partition.close();
+        FileUtils.copyFile(savedSnapshot, snapshotFile());
+
+        partition = openPartition();
+        List<Serializable> keys = partition.allKeys();
+        assertEquals(2, keys.size());
+        assertEquals("key2", keys.get(0));
+        assertEquals("value3", partition.retrieve("key3"));
+    }
+
+    @Test
+    public void ignoresCorruptedSnapshot() throws Exception
+    {
+        JournalObjectStorePartition<Serializable> partition = openPartition();
+        partition.store("key1", "value1");
+        partition.close();
+
+        byte[] snapshot = FileUtils.readFileToByteArray(snapshotFile());
+        snapshot[snapshot.length - 1]++;
+        FileUtils.writeByteArrayToFile(snapshotFile(), snapshot);
+
+        partition = openPartition();
+        assertEquals(1, partition.allKeys().size());
+        assertEquals("value1", partition.retrieve("key1"));
+    }
+
+    @Test
+    public void expiredEntriesAreNotRecovered() throws Exception
+    {
+        JournalObjectStorePartition<Serializable> partition = openPartition();
+        for (int i = 0; i < 10; i++)
+        {
+            partition.store("key" + i, "value" + i);
+        }
+        partition.expire(60000, 4);
+        assertEquals(4, partition.allKeys().size());
+        partition.setIndexSnapshots(false);
+        partition.close();
+
+        partition = openPartition();
+        List<Serializable> keys = partition.allKeys();
+        assertEquals(4, keys.size());
+        assertEquals("key6", keys.get(0));
+        assertFalse(partition.contains("key5"));
+    }
+
+    @Test
+    public void expiresEntriesPastTimeToLive() throws Exception
+    {
+        JournalObjectStorePartition<Serializable> partition = openPartition();
+        partition.store("old1", "value");
+        partition.store("old2", "value");
+        Thread.sleep(300);
+        partition.store("new", "value");
+
+        partition.expire(200, -1);
+        assertEquals(1, partition.allKeys().size());
+        assertTrue(partition.contains("new"));
+        partition.close();
+
+        partition = openPartition();
+        assertEquals(1, partition.allKeys().size());
+        partition.store("old1", "value");
+        assertEquals(2, partition.allKeys().size());
+    }
+
+    @Test
+    public void partitionedStoreRestoresJournalPartitions() throws Exception
+    {
+        PartitionedPersistentObjectStore<Serializable> store = new PartitionedPersistentObjectStore<Serializable>(
+            muleContext);
+        store.setJournalPartitions(true);
+        store.open("partition");
+        store.store("key", "value", "partition");
+        store.store("key", "default");
+        store.dispose();
+
+        store = new PartitionedPersistentObjectStore<Serializable>(muleContext);
+        store.open();
+        assertEquals("value", store.retrieve("key", "partition"));
+        assertEquals("default", store.retrieve("key"));
+    }
+
+    private JournalObjectStorePartition<Serializable> openPartition() throws Exception
+    {
+        JournalObjectStorePartition<Serializable> partition = new JournalObjectStorePartition<Serializable>(
+            muleContext, "test", partitionDirectory());
+        partition.open();
+        return partition;
+    }
+
+    private File partitionDirectory()
+    {
+        return new File(objectStoreFolder.getRoot(), "partition");
+    }
+
+    private File snapshotFile()
+    {
+        return new File(partitionDirectory(), "index.snapshot");
+    }
+}
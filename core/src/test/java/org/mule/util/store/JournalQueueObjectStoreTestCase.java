@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.mule.api.MuleContext;
+import org.mule.api.config.MuleConfiguration;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.util.UUID;
+import org.mule.util.queue.QueueKey;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalQueueObjectStoreTestCase extends AbstractObjectStoreContractTestCase
+{
+    private static final String QUEUE_NAME = "the-queue";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File persistenceFolder;
+    private MuleContext mockMuleContext;
+
+    @Override
+    protected void doSetUp() throws Exception
+    {
+        super.doSetUp();
+
+        persistenceFolder = tempFolder.newFolder("persistence");
+
+        MuleConfiguration mockConfig = mock(MuleConfiguration.class);
+        when(mockConfig.getWorkingDirectory()).thenReturn(persistenceFolder.getAbsolutePath());
+
+        mockMuleContext = mock(MuleContext.class);
+        when(mockMuleContext.getConfiguration()).thenReturn(mockConfig);
+        when(mockMuleContext.getExecutionClassLoader()).thenReturn(getClass().getClassLoader());
+    }
+
+    @Override
+    public JournalQueueObjectStore<Serializable> getObjectStore() throws ObjectStoreException
+    {
+        JournalQueueObjectStore<Serializable> store = new JournalQueueObjectStore<Serializable>(mockMuleContext);
+        store.open();
+        return store;
+    }
+
+    @Override
+    public Serializable getStorableValue()
+    {
+        return TEST_MESSAGE;
+    }
+
+    @Override
+    protected Serializable createKey()
+    {
+        return new QueueKey(QUEUE_NAME, UUID.getUUID());
+    }
+
+    @Test
+    public void testAllKeysOnNotYetOpenedStore() throws ObjectStoreException
+    {
+        JournalQueueObjectStore<Serializable> store = new JournalQueueObjectStore<Serializable>(mockMuleContext);
+        assertEquals(0, store.allKeys().size());
+    }
+
+    @Test
+    public void testRecoverKeepsInsertionOrderAndRemoves() throws Exception
+    {
+        JournalQueueObjectStore<Serializable> store = getObjectStore();
+        for (int i = 0; i < 10; i++)
+        {
+            store.store(new QueueKey(QUEUE_NAME, "id" + i), "value" + i);
+        }
+        store.remove(new QueueKey(QUEUE_NAME, "id3"));
+        store.close();
+
+        store = getObjectStore();
+        List<Serializable> keys = store.allKeys();
+        assertEquals(9, keys.size());
+        assertEquals(new QueueKey(QUEUE_NAME, "id0"), keys.get(0));
+        assertFalse(keys.contains(new QueueKey(QUEUE_NAME, "id3")));
+        assertEquals(new QueueKey(QUEUE_NAME, "id9"), keys.get(8));
+        assertEquals("value5", store.retrieve(new QueueKey(QUEUE_NAME, "id5")));
+    }
+
+    @Test
+    public void testCompactionRemovesDrainedSegments() throws Exception
+    {
+        JournalQueueObjectStore<Serializable> store = newStoreWithSmallSegments();
+        for (int i = 0; i < 100; i++)
+        {
+            store.store(new QueueKey(QUEUE_NAME, "id" + i), "value" + i);
+        }
+        assertTrue(store.getSegmentCount() > 1);
+
+        for (int i = 0; i < 99; i++)
+        {
+            store.remove(new QueueKey(QUEUE_NAME, "id" + i));
+        }
+        store.compact();
+
+        assertEquals(1, store.allKeys().size());
+        store.close();
+
+        store = newStoreWithSmallSegments();
+        List<Serializable> keys = store.allKeys();
+        assertEquals(1, keys.size());
+        assertEquals("value99", store.retrieve(keys.get(0)));
+    }
+
+    @Test
+    public void testCompactionCopiesLiveRecordsForward() throws Exception
+    {
+        JournalQueueObjectStore<Serializable> store = newStoreWithSmallSegments();
+        for (int i = 0; i < 100; i++)
+        {
+            store.store(new QueueKey(QUEUE_NAME, "id" + i), "value" + i);
+        }
+        for (int i = 1; i < 100; i += 2)
+        {
+            store.remove(new QueueKey(QUEUE_NAME, "id" + i));
+        }
+        store.setCompactionThreshold(100);
+        store.compact();
+        store.close();
+
+        store = newStoreWithSmallSegments();
+        List<Serializable> keys = store.allKeys();
+        assertEquals(50, keys.size());
+        for (int i = 0; i < 50; i++)
+        {
+            assertEquals(new QueueKey(QUEUE_NAME, "id" + (i * 2)), keys.get(i));
+        }
+    }
+
+    @Test
+    public void testTornRecordIsTruncatedOnRecovery() throws Exception
+    {
+        JournalQueueObjectStore<Serializable> store = getObjectStore();
+        store.store(new QueueKey(QUEUE_NAME, "first"), "value");
+        store.store(new QueueKey(QUEUE_NAME, "second"), "value");
+        store.close();
+
+        File segment = new File(persistenceFolder, JournalQueueObjectStore.DEFAULT_JOURNAL_DIRECTORY).listFiles()[0];
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try
+        {
+            file.setLength(file.length() - 3);
+        }
+        finally
+        {
+            file.close();
+        }
+
+        store = getObjectStore();
+        List<Serializable> keys = store.allKeys();
+        assertEquals(1, keys.size());
+        assertEquals(new QueueKey(QUEUE_NAME, "first"), keys.get(0));
+
+        store.store(new QueueKey(QUEUE_NAME, "third"), "value");
+        store.close();
+
+        assertEquals(2, getObjectStore().allKeys().size());
+    }
+
+    private JournalQueueObjectStore<Serializable> newStoreWithSmallSegments() throws ObjectStoreException
+    {
+        JournalQueueObjectStore<Serializable> store = new JournalQueueObjectStore<Serializable>(mockMuleContext);
+        store.setMaxSegmentSize(1024);
+        store.open();
+        return store;
+    }
+}
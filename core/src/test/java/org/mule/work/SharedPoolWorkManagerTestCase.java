@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.util.concurrent.Latch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkAdapter;
+import javax.resource.spi.work.WorkEvent;
+import javax.resource.spi.work.WorkManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedPoolWorkManagerTestCase extends AbstractMuleContextTestCase
+{
+
+    private SharedPoolWorkManager workManager;
+
+    @Before
+    public void startWorkManager() throws Exception
+    {
+        workManager = new SharedPoolWorkManager("test.work", 5000);
+        workManager.setMuleContext(muleContext);
+        workManager.start();
+    }
+
+    @After
+    public void disposeWorkManager()
+    {
+        workManager.dispose();
+    }
+
+    @Test
+    public void doWorkExecutesSynchronously() throws Exception
+    {
+        final AtomicReference<Thread> calleeThread = new AtomicReference<Thread>();
+        workManager.doWork(new TestWork()
+        {
+            public void run()
+            {
+                calleeThread.set(Thread.currentThread());
+            }
+        });
+
+        assertSame(Thread.currentThread(), calleeThread.get());
+    }
+
+    @Test
+    public void scheduleWorkNotifiesListener() throws Exception
+    {
+        final AtomicReference<Thread> calleeThread = new AtomicReference<Thread>();
+        final AtomicReference<String> calleeThreadName = new AtomicReference<String>();
+        final Latch completed = new Latch();
+        workManager.scheduleWork(new TestWork()
+        {
+            public void run()
+            {
+                calleeThread.set(Thread.currentThread());
+                calleeThreadName.set(Thread.currentThread().getName());
+            }
+        }, WorkManager.INDEFINITE, null, new WorkAdapter()
+        {
+            @Override
+            public void workCompleted(WorkEvent event)
+            {
+                completed.countDown();
+            }
+        });
+
+        assertTrue(completed.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertNotSame(Thread.currentThread(), calleeThread.get());
+        assertEquals("test.work", calleeThreadName.get());
+    }
+
+    @Test
+    public void startWorkWaitsUntilWorkStarts() throws Exception
+    {
+        final Latch release = new Latch();
+        final Latch started = new Latch();
+        workManager.startWork(new TestWork()
+        {
+            public void run()
+            {
+                started.countDown();
+                awaitQuietly(release);
+            }
+        });
+
+        assertTrue(started.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(1, workManager.getActiveWork());
+        release.countDown();
+    }
+
+    @Test
+    public void disposeWaitsForRunningWork() throws Exception
+    {
+        final Latch release = new Latch();
+        workManager.scheduleWork(new TestWork()
+        {
+            public void run()
+            {
+                awaitQuietly(release);
+            }
+        });
+
+        new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e)
+                {
+                    // ignore
+                }
+                release.countDown();
+            }
+        }.start();
+        workManager.dispose();
+
+        assertFalse(workManager.isStarted());
+        assertEquals(0, workManager.getActiveWork());
+    }
+
+    @Test
+    public void longRunningWorkDoesNotStarveOtherWork() throws Exception
+    {
+        final Latch release = new Latch();
+        try
+        {
+            for (int i = 0; i < SharedPoolWorkManager.getSharedPoolParallelism(); i++)
+            {
+                workManager.scheduleWork(new TestWork()
+                {
+                    public void run()
+                    {
+                        awaitQuietly(release);
+                    }
+                });
+            }
+
+            final Latch completed = new Latch();
+            workManager.scheduleWork(new TestWork()
+            {
+                public void run()
+                {
+                    completed.countDown();
+                }
+            });
+
+            // well before the work holding the shared threads gives up waiting
+            assertTrue(completed.await(RECEIVE_TIMEOUT / 5, TimeUnit.MILLISECONDS));
+        }
+        finally
+        {
+            release.countDown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsWorkWhenDisposed() throws Exception
+    {
+        workManager.dispose();
+        workManager.scheduleWork(new TestWork()
+        {
+            public void run()
+            {
+                // no-op
+            }
+        });
+    }
+
+    private static void awaitQuietly(Latch latch)
+    {
+        try
+        {
+            latch.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private abstract static class TestWork implements Work
+    {
+
+        public void release()
+        {
+            // no-op
+        }
+    }
+}
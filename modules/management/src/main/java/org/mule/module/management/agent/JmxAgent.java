@@ -19,13 +19,20 @@ import org.mule.config.i18n.CoreMessages;
 import org.mule.construct.AbstractFlowConstruct;
 import org.mule.context.notification.MuleContextNotification;
 import org.mule.context.notification.NotificationException;
+import org.mule.el.mvel.CompiledExpressionCache;
+import org.mule.el.mvel.MVELExpressionLanguage;
+import org.mule.management.stats.CachingStrategyStatistics;
 import org.mule.management.stats.FlowConstructStatistics;
 import org.mule.module.management.i18n.ManagementMessages;
 import org.mule.module.management.mbean.ApplicationService;
+import org.mule.module.management.mbean.CachingStrategyStats;
+import org.mule.module.management.mbean.CachingStrategyStatsMBean;
 import org.mule.module.management.mbean.ConnectorService;
 import org.mule.module.management.mbean.ConnectorServiceMBean;
 import org.mule.module.management.mbean.EndpointService;
 import org.mule.module.management.mbean.EndpointServiceMBean;
+import org.mule.module.management.mbean.ExpressionCacheService;
+import org.mule.module.management.mbean.ExpressionCacheServiceMBean;
 import org.mule.module.management.mbean.FlowConstructService;
 import org.mule.module.management.mbean.FlowConstructServiceMBean;
 import org.mule.module.management.mbean.ModelService;
@@ -34,6 +41,8 @@ import org.mule.module.management.mbean.MuleConfigurationService;
 import org.mule.module.management.mbean.MuleConfigurationServiceMBean;
 import org.mule.module.management.mbean.MuleService;
 import org.mule.module.management.mbean.MuleServiceMBean;
+import org.mule.module.management.mbean.ProcessorProfilingService;
+import org.mule.module.management.mbean.ProcessorProfilingServiceMBean;
 import org.mule.module.management.mbean.ServiceService;
 import org.mule.module.management.mbean.ServiceServiceMBean;
 import org.mule.module.management.mbean.StatisticsService;
@@ -361,6 +370,35 @@ public class JmxAgent extends AbstractAgent
         mBeanServer.registerMBean(mBean, on);
     }
 
+    protected void registerProcessorProfilingService() throws NotCompliantMBeanException, MBeanRegistrationException,
+        InstanceAlreadyExistsException, MalformedObjectNameException
+    {
+        ObjectName on = jmxSupport.getObjectName(String.format("%s:%s", jmxSupport.getDomainName(muleContext, !containerMode), ProcessorProfilingServiceMBean.DEFAULT_JMX_NAME));
+        ProcessorProfilingService service = new ProcessorProfilingService(muleContext.getStatistics().getProcessorProfilingStatistics());
+        ClassloaderSwitchingMBeanWrapper mBean = new ClassloaderSwitchingMBeanWrapper(service, ProcessorProfilingServiceMBean.class, muleContext.getExecutionClassLoader());
+        logger.debug("Registering processor profiling with name: " + on);
+        mBeanServer.registerMBean(mBean, on);
+    }
+
+    protected void registerExpressionCacheService() throws NotCompliantMBeanException, MBeanRegistrationException,
+        InstanceAlreadyExistsException, MalformedObjectNameException
+    {
+        if (!(muleContext.getExpressionLanguage() instanceof MVELExpressionLanguage))
+        {
+            return;
+        }
+        CompiledExpressionCache cache = ((MVELExpressionLanguage) muleContext.getExpressionLanguage()).getCompiledExpressionCache();
+        if (cache == null)
+        {
+            return;
+        }
+        ObjectName on = jmxSupport.getObjectName(String.format("%s:%s", jmxSupport.getDomainName(muleContext, !containerMode), ExpressionCacheServiceMBean.DEFAULT_JMX_NAME));
+        ExpressionCacheService service = new ExpressionCacheService(cache);
+        ClassloaderSwitchingMBeanWrapper mBean = new ClassloaderSwitchingMBeanWrapper(service, ExpressionCacheServiceMBean.class, muleContext.getExecutionClassLoader());
+        logger.debug("Registering expression cache with name: " + on);
+        mBeanServer.registerMBean(mBean, on);
+    }
+
     protected void registerModelServices() throws NotCompliantMBeanException, MBeanRegistrationException,
             InstanceAlreadyExistsException, MalformedObjectNameException
     {
@@ -455,6 +493,21 @@ public class JmxAgent extends AbstractAgent
         }
     }
 
+    protected void registerCachingStrategyServices() throws NotCompliantMBeanException, MBeanRegistrationException,
+        InstanceAlreadyExistsException, MalformedObjectNameException
+    {
+        for (CachingStrategyStatistics cacheStats : muleContext.getStatistics().getCachingStrategyStatistics())
+        {
+            final String name = jmxSupport.escape(cacheStats.getName());
+            final String jmxName = String.format("%s:%s%s", jmxSupport.getDomainName(muleContext, !containerMode), CachingStrategyStatsMBean.DEFAULT_JMX_NAME_PREFIX, name);
+            ObjectName on = jmxSupport.getObjectName(jmxName);
+            CachingStrategyStatsMBean statsMBean = new CachingStrategyStats(cacheStats);
+            ClassloaderSwitchingMBeanWrapper wrapper = new ClassloaderSwitchingMBeanWrapper(statsMBean, CachingStrategyStatsMBean.class, muleContext.getExecutionClassLoader());
+            logger.debug("Registering caching strategy statistics with name: " + on);
+            mBeanServer.registerMBean(wrapper, on);
+        }
+    }
+
     protected void registerEndpointServices() throws NotCompliantMBeanException, MBeanRegistrationException,
         InstanceAlreadyExistsException, MalformedObjectNameException
     {
@@ -702,6 +755,8 @@ public class JmxAgent extends AbstractAgent
                 {
                     registerWrapperService();
                     registerStatisticsService();
+                    registerProcessorProfilingService();
+                    registerExpressionCacheService();
                     registerMuleService();
                     registerConfigurationService();
                     registerModelServices();
@@ -710,6 +765,7 @@ public class JmxAgent extends AbstractAgent
                     registerEndpointServices();
                     registerConnectorServices();
                     registerApplicationServices();
+                    registerCachingStrategyServices();
                 }
                 catch (Exception e)
                 {
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+import org.mule.management.stats.CachingStrategyStatistics;
+
+/**
+ * <code>CachingStrategyStats</code> exposes the statistics of a caching strategy.
+ */
+public class CachingStrategyStats implements CachingStrategyStatsMBean
+{
+
+    private CachingStrategyStatistics statistics;
+
+    public CachingStrategyStats(CachingStrategyStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    public void clearStatistics()
+    {
+        statistics.clear();
+    }
+
+    public long getHits()
+    {
+        return statistics.getHits();
+    }
+
+    public long getMisses()
+    {
+        return statistics.getMisses();
+    }
+
+    public long getEvictions()
+    {
+        return statistics.getEvictions();
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+/**
+ * <code>CachingStrategyStatsMBean</code> exposes the hits, misses and evictions of a
+ * caching strategy.
+ */
+public interface CachingStrategyStatsMBean
+{
+    String DEFAULT_JMX_NAME_PREFIX = "type=CachingStrategy,name=";
+
+    void clearStatistics();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+}
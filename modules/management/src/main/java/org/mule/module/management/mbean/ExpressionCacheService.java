@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+import org.mule.el.mvel.CompiledExpressionCache;
+
+/**
+ * <code>ExpressionCacheService</code> exposes the size and the hit, miss and eviction
+ * counts of a {@link CompiledExpressionCache}.
+ */
+public class ExpressionCacheService implements ExpressionCacheServiceMBean
+{
+
+    private final CompiledExpressionCache cache;
+
+    public ExpressionCacheService(CompiledExpressionCache cache)
+    {
+        this.cache = cache;
+    }
+
+    public int getSize()
+    {
+        return cache.getSize();
+    }
+
+    public long getWeight()
+    {
+        return cache.getWeight();
+    }
+
+    public long getHits()
+    {
+        return cache.getHits();
+    }
+
+    public long getMisses()
+    {
+        return cache.getMisses();
+    }
+
+    public long getEvictions()
+    {
+        return cache.getEvictions();
+    }
+
+    public double getHitRatio()
+    {
+        long hits = cache.getHits();
+        long lookups = hits + cache.getMisses();
+        return lookups == 0 ? 0 : 100.0 * hits / lookups;
+    }
+
+    public void clear()
+    {
+        cache.clear();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+/**
+ * <code>ExpressionCacheServiceMBean</code> is a JMX interface for the cache of
+ * compiled expressions of the expression language.
+ */
+public interface ExpressionCacheServiceMBean
+{
+    String DEFAULT_JMX_NAME = "type=Statistics,name=ExpressionCache";
+
+    /**
+     * @return the number of cached expressions
+     */
+    int getSize();
+
+    /**
+     * @return the number of characters of all the cached expressions
+     */
+    long getWeight();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    /**
+     * @return the percentage of lookups that found the expression compiled
+     */
+    double getHitRatio();
+
+    /**
+     * Removes all the cached expressions, they are compiled again when evaluated.
+     */
+    void clear();
+}
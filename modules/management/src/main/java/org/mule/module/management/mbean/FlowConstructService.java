@@ -131,6 +131,41 @@ public class FlowConstructService implements FlowConstructServiceMBean, MBeanReg
         return statistics.getFatalErrors();
     }
 
+    public long getProcessingTime50thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(50);
+    }
+
+    public long getProcessingTime90thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(90);
+    }
+
+    public long getProcessingTime99thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(99);
+    }
+
+    public long getProcessingTime999thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(99.9);
+    }
+
+    public String[] getProcessorLatencies()
+    {
+        return FlowConstructStats.toLatencySummaries(statistics.getProcessorLatencies());
+    }
+
+    public String[] getOutboundEndpointLatencies()
+    {
+        return FlowConstructStats.toLatencySummaries(statistics.getOutboundEndpointLatencies());
+    }
+
+    public String sampleProcessingLatency()
+    {
+        return statistics.getProcessingLatency().getIntervalSnapshot().toString();
+    }
+
     public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception
     {
         this.server = server;
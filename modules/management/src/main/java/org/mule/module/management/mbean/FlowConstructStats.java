@@ -9,6 +9,12 @@ package org.mule.module.management.mbean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.mule.management.stats.FlowConstructStatistics;
+import org.mule.management.stats.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.management.MBeanRegistration;
 import javax.management.MBeanServer;
@@ -91,6 +97,61 @@ public class FlowConstructStats implements FlowConstructStatsMBean, MBeanRegistr
         return statistics.getFatalErrors();
     }
 
+    public long getProcessingTime50thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(50);
+    }
+
+    public long getProcessingTime90thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(90);
+    }
+
+    public long getProcessingTime99thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(99);
+    }
+
+    public long getProcessingTime999thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(99.9);
+    }
+
+    public String[] getProcessorLatencies()
+    {
+        return toLatencySummaries(statistics.getProcessorLatencies());
+    }
+
+    public String[] getOutboundEndpointLatencies()
+    {
+        return toLatencySummaries(statistics.getOutboundEndpointLatencies());
+    }
+
+    public String sampleProcessingLatency()
+    {
+        return statistics.getProcessingLatency().getIntervalSnapshot().toString();
+    }
+
+    public int getMaxInFlight()
+    {
+        return statistics.getMaxInFlight();
+    }
+
+    public int getInFlight()
+    {
+        return statistics.getInFlight();
+    }
+
+    static String[] toLatencySummaries(Map<String, LatencyHistogram> histograms)
+    {
+        List<String> summaries = new ArrayList<String>(histograms.size());
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(histograms).entrySet())
+        {
+            summaries.add(entry.getKey() + ": " + entry.getValue().getSnapshot());
+        }
+        return summaries.toArray(new String[summaries.size()]);
+    }
+
     public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception
     {
         this.server = server;
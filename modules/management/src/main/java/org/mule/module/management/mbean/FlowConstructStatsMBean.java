@@ -34,4 +34,50 @@ public interface FlowConstructStatsMBean
     long getFatalErrors();
 
     long getExecutionErrors();
+
+    /**
+     * @return the median processing time in microseconds
+     */
+    long getProcessingTime50thPercentile();
+
+    /**
+     * @return the 90th percentile of the processing time in microseconds
+     */
+    long getProcessingTime90thPercentile();
+
+    /**
+     * @return the 99th percentile of the processing time in microseconds
+     */
+    long getProcessingTime99thPercentile();
+
+    /**
+     * @return the 99.9th percentile of the processing time in microseconds
+     */
+    long getProcessingTime999thPercentile();
+
+    /**
+     * @return the processing time percentiles of each message processor, by processor path
+     */
+    String[] getProcessorLatencies();
+
+    /**
+     * @return the processing time percentiles of each outbound endpoint, by endpoint name
+     */
+    String[] getOutboundEndpointLatencies();
+
+    /**
+     * Returns the processing time percentiles of the flow since the previous call to
+     * this operation, so that they can be sampled periodically.
+     */
+    String sampleProcessingLatency();
+
+    /**
+     * @return the maximum number of events in flight in the flow, 0 if there is no limit
+     */
+    int getMaxInFlight();
+
+    /**
+     * @return the number of events currently in flight in the flow
+     */
+    int getInFlight();
 }
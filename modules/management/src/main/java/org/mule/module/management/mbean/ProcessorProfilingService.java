@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+import org.mule.management.stats.ProcessorProfilingStatistics;
+import org.mule.management.stats.ProcessorProfilingStatistics.ProcessorProfile;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * <code>ProcessorProfilingService</code> exposes the flow hot spots found by
+ * {@link ProcessorProfilingStatistics}.
+ */
+public class ProcessorProfilingService implements ProcessorProfilingServiceMBean
+{
+    /**
+     * The number of processors returned by {@link #getHotSpots()}
+     */
+    public static final int HOT_SPOTS = 20;
+
+    /**
+     * logger used by this class
+     */
+    protected static final Log logger = LogFactory.getLog(ProcessorProfilingService.class);
+
+    private final ProcessorProfilingStatistics statistics;
+
+    public ProcessorProfilingService(ProcessorProfilingStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    public boolean isEnabled()
+    {
+        return statistics.isEnabled();
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        statistics.setEnabled(enabled);
+    }
+
+    public void clear()
+    {
+        statistics.clear();
+    }
+
+    public String[] getHotSpots()
+    {
+        List<ProcessorProfile> hotSpots = statistics.getHotSpots();
+        int size = Math.min(HOT_SPOTS, hotSpots.size());
+        String[] result = new String[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = hotSpots.get(i).toString();
+        }
+        return result;
+    }
+
+    public String dumpHotSpots()
+    {
+        StringBuilder dump = new StringBuilder("Flow hot spots:");
+        for (ProcessorProfile profile : statistics.getHotSpots())
+        {
+            dump.append(System.getProperty("line.separator")).append(profile);
+        }
+        String result = dump.toString();
+        logger.info(result);
+        return result;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+/**
+ * <code>ProcessorProfilingServiceMBean</code> is a JMX interface for the time and
+ * the memory spent by each message processor of the flows.
+ */
+public interface ProcessorProfilingServiceMBean
+{
+    String DEFAULT_JMX_NAME = "type=Statistics,name=ProcessorProfiling";
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void clear();
+
+    /**
+     * @return the processors with the highest self wall time, slowest first
+     */
+    String[] getHotSpots();
+
+    /**
+     * Logs and returns the profiles of all the processors, slowest first.
+     */
+    String dumpHotSpots();
+}
@@ -55,7 +55,9 @@ public class ConnectorServiceTestCase extends AbstractMuleJmxTestCase
         // 5) org.mule.management.mbeans.ConnectorService@Mule.ConnectorServiceTest:type=org.mule.Connector,name="TEST.CONNECTOR"
         // 6) org.mule.module.management.mbean.ApplicationService:type=Application,name="totals for all flows and services"]
         // 7) org.mule.module.management.mbean.FlowConstructStats:type=org.mule.Statistics,Application=totals for all flows and services]
-        assertEquals("Unexpected number of components registered in the domain.", 7, mbeans.size());
+        // 8) org.mule.module.management.mbean.ProcessorProfilingService:type=Statistics,name=ProcessorProfiling
+        // 9) org.mule.module.management.mbean.ExpressionCacheService:type=Statistics,name=ExpressionCache
+        assertEquals("Unexpected number of components registered in the domain.", 9, mbeans.size());
         muleContext.dispose();
 
         mbeans = mBeanServer.queryMBeans(objectName, null);
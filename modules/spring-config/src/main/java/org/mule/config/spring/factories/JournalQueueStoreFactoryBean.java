@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.config.spring.factories;
+
+import org.mule.api.config.MuleProperties;
+
+public class JournalQueueStoreFactoryBean extends ObjectStoreFromRegistryFactoryBean
+{
+    public JournalQueueStoreFactoryBean()
+    {
+        super(MuleProperties.OBJECT_STORE_JOURNAL_NAME);
+    }
+}
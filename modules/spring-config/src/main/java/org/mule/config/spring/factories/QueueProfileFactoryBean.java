@@ -19,6 +19,7 @@ import org.springframework.beans.factory.config.AbstractFactoryBean;
 public class QueueProfileFactoryBean extends AbstractFactoryBean<QueueProfile> implements MuleContextAware
 {
     private int maxOutstandingMessages;
+    private boolean lockFree;
     private MuleContext muleContext;
     private QueueStore<Serializable> queueStore;
 
@@ -37,7 +38,9 @@ public class QueueProfileFactoryBean extends AbstractFactoryBean<QueueProfile> i
             objectStore = muleContext.getRegistry().lookupObject(MuleProperties.QUEUE_STORE_DEFAULT_IN_MEMORY_NAME);
         }
 
-        return new QueueProfile(getMaxOutstandingMessages(), objectStore);
+        QueueProfile queueProfile = new QueueProfile(getMaxOutstandingMessages(), objectStore);
+        queueProfile.setLockFree(lockFree);
+        return queueProfile;
     }
 
     @Override
@@ -56,6 +59,16 @@ public class QueueProfileFactoryBean extends AbstractFactoryBean<QueueProfile> i
         this.maxOutstandingMessages = maxOutstandingMessages;
     }
 
+    public boolean isLockFree()
+    {
+        return lockFree;
+    }
+
+    public void setLockFree(boolean lockFree)
+    {
+        this.lockFree = lockFree;
+    }
+
     public void setQueueStore(QueueStore<Serializable> queueStore)
     {
         this.queueStore = queueStore;
@@ -77,7 +77,7 @@ public class FileMessageDispatcher extends AbstractMessageDispatcher
             else
             {
                 InputStream is = event.transformMessage(DataTypeFactory.create(InputStream.class));
-                IOUtils.copyLarge(is, fos);
+                IOUtils.transfer(is, fos);
                 is.close();
             }
         }
@@ -31,6 +31,7 @@ import org.mule.transport.AbstractPollingMessageReceiver;
 import org.mule.transport.ConnectException;
 import org.mule.transport.file.i18n.FileMessages;
 import org.mule.util.FileUtils;
+import org.mule.util.MapUtils;
 import org.mule.util.lock.LockFactory;
 
 import java.io.File;
@@ -45,20 +46,29 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 
+import javax.resource.spi.work.Work;
+
 import org.apache.commons.collections.comparators.ReverseComparator;
 
 /**
  * <code>FileMessageReceiver</code> is a polling listener that reads files from a
  * directory.
+ * <p/>
+ * When the endpoint sets the <code>pollingWorkers</code> property and no comparator,
+ * the files are not listed and sorted before being processed one after the other.
+ * Instead, the names in the directory are handed to up to that many receiver
+ * workers as they are read, and a poll ends once the last file has been processed.
  */
 
 public class FileMessageReceiver extends AbstractPollingMessageReceiver
 {
     public static final String COMPARATOR_CLASS_NAME_PROPERTY = "comparator";
     public static final String COMPARATOR_REVERSE_ORDER_PROPERTY = "reverseOrder";
+    public static final String POLLING_WORKERS_PROPERTY = "pollingWorkers";
     public static final String MULE_TRANSPORT_FILE_SINGLEPOLLINSTANCE = "mule.transport.file.singlepollinstance";
 
     private static final List<File> NO_FILES = new ArrayList<File>();
@@ -77,6 +87,7 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
     private LockFactory lockFactory;
     private boolean poolOnPrimaryInstanceOnly;
     private ObjectStore<String> filesBeingProcessingObjectStore;
+    private int pollingWorkers;
 
     public FileMessageReceiver(Connector connector,
                                FlowConstruct flowConstruct,
@@ -110,6 +121,8 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
             throw new CreateException(FileMessages.invalidFileFilter(endpoint.getEndpointURI()), this);
         }
 
+        pollingWorkers = MapUtils.getIntValue(endpoint.getProperties(), POLLING_WORKERS_PROPERTY, 0);
+
         checkMustForceSync();
     }
 
@@ -188,12 +201,18 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
     {
         try
         {
+            Comparator<File> comparator = getComparator();
+            if (pollingWorkers > 1 && comparator == null)
+            {
+                pollInParallel();
+                return;
+            }
+
             List<File> files = this.listFiles();
             if (logger.isDebugEnabled())
             {
                 logger.debug("Files: " + files.toString());
             }
-            Comparator<File> comparator = getComparator();
             if (comparator != null)
             {
                 Collections.sort(files, comparator);
@@ -204,48 +223,160 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
                 {
                     break;
                 }
-                // don't process directories
-                if (file.isFile())
+                pollFile(file);
+            }
+        }
+        catch (Exception e)
+        {
+            getConnector().getMuleContext().getExceptionListener().handleException(e);
+        }
+    }
+
+    /**
+     * Processes a listed file unless it is a directory or it is already being
+     * processed.
+     */
+    protected void pollFile(File file) throws MuleException
+    {
+        // don't process directories
+        if (file.isFile())
+        {
+            Lock fileLock = lockFactory.createLock(file.getName());
+            if (fileLock.tryLock())
+            {
+                try
                 {
-                    Lock fileLock = lockFactory.createLock(file.getName());
-                    if (fileLock.tryLock())
+                    String fileAbsolutePath = file.getAbsolutePath();
+                    try
                     {
-                        try
+                        filesBeingProcessingObjectStore.store(fileAbsolutePath, fileAbsolutePath);
+
+                        if (logger.isDebugEnabled())
                         {
-                            String fileAbsolutePath = file.getAbsolutePath();
-                            try
-                            {
-                                filesBeingProcessingObjectStore.store(fileAbsolutePath, fileAbsolutePath);
-
-                                if (logger.isDebugEnabled())
-                                {
-                                    logger.debug(String.format("Flag for '%s' stored successfully.", fileAbsolutePath));
-                                }
-                            }
-                            catch (ObjectAlreadyExistsException e)
-                            {
-                                if (logger.isDebugEnabled())
-                                {
-                                    logger.debug(String.format("Flag for '%s' being processed is on. Skipping file.", fileAbsolutePath));
-                                }
-                                continue;
-                            }
-                            if (file.exists())
-                            {
-                                processFile(file);
-                            }
+                            logger.debug(String.format("Flag for '%s' stored successfully.", fileAbsolutePath));
                         }
-                        finally
+                    }
+                    catch (ObjectAlreadyExistsException e)
+                    {
+                        if (logger.isDebugEnabled())
                         {
-                            fileLock.unlock();
+                            logger.debug(String.format("Flag for '%s' being processed is on. Skipping file.", fileAbsolutePath));
                         }
+                        return;
+                    }
+                    if (file.exists())
+                    {
+                        processFile(file);
                     }
                 }
+                finally
+                {
+                    fileLock.unlock();
+                }
             }
         }
-        catch (Exception e)
+    }
+
+    private void pollInParallel() throws Exception
+    {
+        Semaphore inFlight = new Semaphore(pollingWorkers);
+        try
         {
-            getConnector().getMuleContext().getExceptionListener().handleException(e);
+            pollDirectoryInParallel(readDirectory, inFlight);
+        }
+        finally
+        {
+            // the files being processed are not listed again by the next poll
+            inFlight.acquireUninterruptibly(pollingWorkers);
+        }
+    }
+
+    /**
+     * Hands each file of a directory to a worker as soon as one is available,
+     * without listing the whole directory first.
+     *
+     * @return <code>false</code> if the receiver is stopping
+     */
+    private boolean pollDirectoryInParallel(File directory, Semaphore inFlight) throws Exception
+    {
+        String[] names = directory.list();
+        // list() may actually return null (check the JDK code).
+        if (names == null)
+        {
+            return true;
+        }
+
+        for (String name : names)
+        {
+            if (getLifecycleState().isStopping())
+            {
+                return false;
+            }
+            if (fileFilter == null && filenameFilter != null && !filenameFilter.accept(directory, name))
+            {
+                continue;
+            }
+            File file = new File(directory, name);
+            if (fileFilter != null && !fileFilter.accept(file))
+            {
+                continue;
+            }
+            if (fileConnector.isRecursive() && file.isDirectory())
+            {
+                if (!pollDirectoryInParallel(file, inFlight))
+                {
+                    return false;
+                }
+                continue;
+            }
+
+            inFlight.acquire();
+            try
+            {
+                getWorkManager().scheduleWork(new PollFileWork(file, inFlight));
+            }
+            catch (Exception e)
+            {
+                inFlight.release();
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    private class PollFileWork implements Work
+    {
+
+        private final File file;
+        private final Semaphore inFlight;
+
+        PollFileWork(File file, Semaphore inFlight)
+        {
+            this.file = file;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                pollFile(file);
+            }
+            catch (Exception e)
+            {
+                getConnector().getMuleContext().getExceptionListener().handleException(e);
+            }
+            finally
+            {
+                inFlight.release();
+            }
+        }
+
+        @Override
+        public void release()
+        {
+            // nothing to do
         }
     }
 
@@ -553,7 +684,7 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
             // move sourceFile to new destination
             try
             {
-                FileUtils.moveFile(sourceFile, destinationFile);
+                FileUtils.moveFileAtomically(sourceFile, destinationFile);
             }
             catch (IOException e)
             {
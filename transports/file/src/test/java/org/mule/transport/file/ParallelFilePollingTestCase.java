@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.probe.PollingProber;
+import org.mule.tck.probe.Probe;
+import org.mule.util.FileUtils;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ParallelFilePollingTestCase extends FunctionalTestCase
+{
+
+    private static final int FILES = 20;
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "parallel-file-polling-config.xml";
+    }
+
+    @Override
+    protected void doTearDown() throws Exception
+    {
+        assertTrue(FileUtils.deleteTree(new File(".mule")));
+
+        super.doTearDown();
+    }
+
+    @Test
+    public void processesAndMovesAllFiles() throws Exception
+    {
+        File inputDirectory = new File(".mule/parallel/in");
+        inputDirectory.mkdirs();
+        for (int i = 0; i < FILES; i++)
+        {
+            FileUtils.writeStringToFile(new File(inputDirectory, "file" + i + ".txt"), "content " + i);
+        }
+
+        MuleClient client = muleContext.getClient();
+        Set<String> received = new HashSet<String>();
+        for (int i = 0; i < FILES; i++)
+        {
+            MuleMessage message = client.request("vm://parallel.out", RECEIVE_TIMEOUT);
+            assertNotNull(message);
+            received.add(message.getPayloadAsString());
+        }
+        assertEquals(FILES, received.size());
+
+        final File processedDirectory = new File(".mule/parallel/processed");
+        new PollingProber(RECEIVE_TIMEOUT, 100).check(new Probe()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                String[] processed = processedDirectory.list();
+                return processed != null && processed.length == FILES;
+            }
+
+            @Override
+            public String describeFailure()
+            {
+                return "All files should be moved to the processed directory";
+            }
+        });
+    }
+}
@@ -28,13 +28,20 @@ import org.mule.transport.http.transformers.ObjectToHttpClientMethodRequest;
 import org.mule.util.StringUtils;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.auth.BasicScheme;
 import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
 import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
 import org.apache.commons.httpclient.params.HttpMethodParams;
@@ -104,29 +111,84 @@ public class HttpClientMessageDispatcher extends AbstractMessageDispatcher
         HttpMethod httpMethod = getMethod(event);
         httpConnector.setupClientAuthorization(event, httpMethod, client, endpoint);
 
+        if (httpConnector.isNonBlockingClient())
+        {
+            dispatchNonBlocking(event, httpMethod);
+            return;
+        }
+
         try
         {
             execute(event, httpMethod);
+            checkDispatchResponse(event, httpMethod);
+        }
+        finally
+        {
+            httpMethod.releaseConnection();
+        }
+    }
 
-            if (returnException(event, httpMethod))
+    protected void checkDispatchResponse(MuleEvent event, HttpMethod httpMethod) throws IOException, DispatchException
+    {
+        if (returnException(event, httpMethod))
+        {
+            logger.error(httpMethod.getResponseBodyAsString());
+
+            Exception cause = new Exception(String.format("Http call returned a status of: %1d %1s",
+                httpMethod.getStatusCode(), httpMethod.getStatusText()));
+            throw new DispatchException(event, getEndpoint(), cause);
+        }
+        else if (httpMethod.getStatusCode() >= REDIRECT_STATUS_CODE_RANGE_START)
+        {
+            if (logger.isInfoEnabled())
             {
-                logger.error(httpMethod.getResponseBodyAsString());
+                logger.info("Received a redirect response code: " + httpMethod.getStatusCode() + " " + httpMethod.getStatusText());
+            }
+        }
+    }
 
-                Exception cause = new Exception(String.format("Http call returned a status of: %1d %1s",
-                    httpMethod.getStatusCode(), httpMethod.getStatusText()));
-                throw new DispatchException(event, getEndpoint(), cause);
+    /**
+     * Queues the request on the non-blocking client of the connector and returns
+     * without waiting for the response, which is checked when it arrives. Failures
+     * are handled by the exception listener of the context.
+     */
+    protected void dispatchNonBlocking(final MuleEvent event, final HttpMethod httpMethod) throws Exception
+    {
+        NioHttpClient.Callback callback = new NioHttpClient.Callback()
+        {
+            public void completed(HttpMethod method)
+            {
+                try
+                {
+                    checkDispatchResponse(event, method);
+                }
+                catch (Exception e)
+                {
+                    failed(e);
+                }
+                finally
+                {
+                    method.releaseConnection();
+                }
             }
-            else if (httpMethod.getStatusCode() >= REDIRECT_STATUS_CODE_RANGE_START)
+
+            public void failed(Exception e)
             {
-                if (logger.isInfoEnabled())
+                if (!(e instanceof DispatchException))
                 {
-                    logger.info("Received a redirect response code: " + httpMethod.getStatusCode() + " " + httpMethod.getStatusText());
+                    e = new DispatchException(event, getEndpoint(), e);
                 }
+                httpConnector.getMuleContext().getExceptionListener().handleException(e);
             }
+        };
+
+        try
+        {
+            executeNonBlocking(event, httpMethod, callback);
         }
-        finally
+        catch (IOException e)
         {
-            httpMethod.releaseConnection();
+            throw new DispatchException(event, getEndpoint(), e);
         }
     }
 
@@ -135,6 +197,13 @@ public class HttpClientMessageDispatcher extends AbstractMessageDispatcher
         // TODO set connection timeout buffer etc
         try
         {
+            if (httpConnector.isNonBlockingClient())
+            {
+                ResponseLatch latch = new ResponseLatch();
+                latch.await(executeNonBlocking(event, httpMethod, latch), endpoint.getResponseTimeout());
+                return httpMethod;
+            }
+
             URI uri = endpoint.getEndpointURI().getUri();
 
             this.processCookies(event);
@@ -157,6 +226,32 @@ public class HttpClientMessageDispatcher extends AbstractMessageDispatcher
 
     }
 
+    private NioHttpClient.Exchange executeNonBlocking(MuleEvent event, HttpMethod httpMethod,
+                                                      NioHttpClient.Callback callback) throws IOException
+    {
+        URI uri = endpoint.getEndpointURI().getUri();
+        int port = uri.getPort() != -1 ? uri.getPort() : HttpConstants.DEFAULT_HTTP_PORT;
+
+        this.processCookies(event);
+        this.processMuleSession(event, httpMethod);
+
+        // done by HttpClient when it executes the method
+        httpMethod.getParams().setDefaults(client.getParams());
+        if (client.getParams().isAuthenticationPreemptive()
+            && httpMethod.getRequestHeader(HttpConstants.HEADER_AUTHORIZATION) == null)
+        {
+            Credentials credentials = client.getState().getCredentials(new AuthScope(uri.getHost(), port));
+            if (credentials instanceof UsernamePasswordCredentials)
+            {
+                httpMethod.setRequestHeader(HttpConstants.HEADER_AUTHORIZATION, BasicScheme.authenticate(
+                    (UsernamePasswordCredentials) credentials, httpMethod.getParams().getCredentialCharset()));
+            }
+        }
+
+        return httpConnector.getNioClient().execute(uri.getHost(), port, httpMethod, client.getState(),
+            endpoint.getResponseTimeout(), callback);
+    }
+
     private void processMuleSession(MuleEvent event, HttpMethod httpMethod)
     {
         String muleSession = event.getMessage().getOutboundProperty(MuleProperties.MULE_SESSION_PROPERTY);
@@ -394,4 +489,51 @@ public class HttpClientMessageDispatcher extends AbstractMessageDispatcher
         // template method
     }
 
+    /**
+     * Waits for the response of a request sent by the non-blocking client.
+     */
+    private static class ResponseLatch implements NioHttpClient.Callback
+    {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile Exception exception;
+
+        public void completed(HttpMethod method)
+        {
+            latch.countDown();
+        }
+
+        public void failed(Exception e)
+        {
+            exception = e;
+            latch.countDown();
+        }
+
+        /**
+         * @param timeout how long to wait, including the time the request waits for a
+         *            connection, or zero to wait forever
+         */
+        void await(NioHttpClient.Exchange exchange, int timeout) throws Exception
+        {
+            if (timeout <= 0)
+            {
+                latch.await();
+            }
+            else if (!latch.await(timeout, TimeUnit.MILLISECONDS))
+            {
+                if (exchange.cancel())
+                {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                // the exchange ended meanwhile
+                latch.await();
+            }
+
+            if (exception != null)
+            {
+                throw exception;
+            }
+        }
+    }
+
 }
@@ -11,6 +11,7 @@ import org.mule.api.endpoint.EndpointURI;
 import org.mule.transport.ConnectException;
 
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,6 +20,7 @@ import org.apache.commons.logging.LogFactory;
 
 /**
  * Manager {@link HttpRequestDispatcher} connections and disconnections to {@link EndpointURI}.
+ * When the connector is non-blocking a {@link NioHttpRequestDispatcher} is used instead.
  * <p/>
  * Starts listening for HTTP request when at least one endpoint is associated to a given port are connected and
  * stops listening for HTTP request when all endpoints associated to a given port are disconnected.
@@ -29,7 +31,7 @@ class HttpConnectionManager
     private static final int LAST_CONNECTION = 1;
     protected final Log logger = LogFactory.getLog(getClass());
     final private HttpConnector connector;
-    final private Map<String, HttpRequestDispatcher> socketDispatchers = new HashMap<String, HttpRequestDispatcher>();
+    final private Map<String, ConnectionDispatcher> socketDispatchers = new HashMap<String, ConnectionDispatcher>();
     final private Map<String, Integer> socketDispatcherCount = new HashMap<String, Integer>();
     final private WorkManager workManager;
 
@@ -56,6 +58,14 @@ class HttpConnectionManager
             {
                 socketDispatcherCount.put(endpointKey, socketDispatcherCount.get(endpointKey) + 1);
             }
+            else if (connector.isNonBlocking())
+            {
+                ServerSocketChannel serverChannel = connector.getServerSocketChannel(endpointURI.getUri());
+                NioHttpRequestDispatcher nioHttpRequestDispatcher = new NioHttpRequestDispatcher(connector, serverChannel, workManager);
+                socketDispatchers.put(endpointKey, nioHttpRequestDispatcher);
+                socketDispatcherCount.put(endpointKey, new Integer(1));
+                nioHttpRequestDispatcher.start();
+            }
             else
             {
                 ServerSocket serverSocket = connector.getServerSocket(endpointURI.getUri());
@@ -82,8 +92,8 @@ class HttpConnectionManager
         Integer connectionsRequested = socketDispatcherCount.get(endpointKey);
         if (connectionsRequested == LAST_CONNECTION)
         {
-            HttpRequestDispatcher httpRequestDispatcher = socketDispatchers.get(endpointKey);
-            httpRequestDispatcher.disconnect();
+            ConnectionDispatcher connectionDispatcher = socketDispatchers.get(endpointKey);
+            connectionDispatcher.disconnect();
             socketDispatchers.remove(endpointKey);
             socketDispatcherCount.remove(endpointKey);
         }
@@ -100,12 +110,21 @@ class HttpConnectionManager
 
     public void dispose()
     {
-        for (HttpRequestDispatcher httpRequestDispatcher : socketDispatchers.values())
+        for (ConnectionDispatcher connectionDispatcher : socketDispatchers.values())
         {
-            httpRequestDispatcher.disconnect();
+            connectionDispatcher.disconnect();
         }
         socketDispatchers.clear();
         socketDispatcherCount.clear();
         workManager.dispose();
     }
+
+    /**
+     * Accepts the connections to a port and dispatches their requests.
+     */
+    interface ConnectionDispatcher
+    {
+
+        void disconnect();
+    }
 }
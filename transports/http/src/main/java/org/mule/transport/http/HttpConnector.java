@@ -22,8 +22,11 @@ import org.mule.config.i18n.CoreMessages;
 import org.mule.transport.ConnectException;
 import org.mule.transport.http.i18n.HttpMessages;
 import org.mule.transport.http.ntlm.NTLMScheme;
+import org.mule.transport.tcp.NioSelectorLoopGroup;
 import org.mule.transport.tcp.TcpConnector;
 import org.mule.util.MapUtils;
+import org.mule.util.StringUtils;
+import org.mule.util.concurrent.ThreadNameHelper;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -31,6 +34,7 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -66,6 +70,19 @@ import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
  * <li>proxyUsername - If the proxy requires authentication supply a username</li>
  * <li>proxyPassword - If the proxy requires authentication supply a password</li>
  * </ul>
+ * When <code>nonBlocking</code> is set the requests are received on non-blocking
+ * connections: a few I/O threads read all the connections and a receiver thread is
+ * only used once a request has been read completely, so a large number of
+ * keep-alive clients can be connected at the same time. Requests pipelined in a
+ * connection are processed in order.
+ * <p/>
+ * When <code>nonBlockingClient</code> is set the requests are sent on non-blocking
+ * connections kept alive in a pool per host and port, with at most
+ * <code>maxConnectionsPerHost</code> connections to each of them. One-way requests
+ * are queued and the dispatching thread returns straight away, and no thread is
+ * used while a response is on its way. Once <code>maxWaitingRequestsPerHost</code>
+ * requests wait for a connection to the same host, the dispatching threads wait for
+ * room in the queue.
  */
 
 public class HttpConnector extends TcpConnector
@@ -173,6 +190,11 @@ public class HttpConnector extends TcpConnector
     public static final String ROOT_PATH = "/";
     public static final int DEFAULT_CONNECTION_TIMEOUT = 2000;
 
+    public static final int DEFAULT_IDLE_CONNECTION_TIMEOUT = 3000;
+    public static final int DEFAULT_MAX_WAITING_REQUESTS_PER_HOST = 1000;
+    public static final int DEFAULT_IO_BUFFER_SIZE = 8192;
+    public static final int DEFAULT_MAX_REQUEST_SIZE = HttpRequestFramer.DEFAULT_MAX_REQUEST_SIZE;
+
     private String proxyHostname = null;
 
     private int proxyPort = HttpConstants.DEFAULT_HTTP_PORT;
@@ -195,6 +217,26 @@ public class HttpConnector extends TcpConnector
 
     private org.mule.transport.http.HttpConnectionManager connectionManager;
 
+    private boolean nonBlocking = false;
+
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+
+    private int ioBufferSize = DEFAULT_IO_BUFFER_SIZE;
+
+    private int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+
+    private NioSelectorLoopGroup selectorLoops;
+
+    private boolean nonBlockingClient = false;
+
+    private int maxConnectionsPerHost = 0;
+
+    private int maxWaitingRequestsPerHost = DEFAULT_MAX_WAITING_REQUESTS_PER_HOST;
+
+    private int idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+
+    private NioHttpClient nioClient;
+
     public HttpConnector(MuleContext context)
     {
         super(context);
@@ -213,6 +255,7 @@ public class HttpConnector extends TcpConnector
             {
                 connectionCleaner = new IdleConnectionTimeoutThread();
                 connectionCleaner.setName("HttpClient-connection-cleaner-" + getName());
+                connectionCleaner.setConnectionTimeout(idleConnectionTimeout);
                 connectionCleaner.addConnectionManager(clientConnectionManager);
                 connectionCleaner.start();
             }
@@ -237,7 +280,7 @@ public class HttpConnector extends TcpConnector
 
             params.setTcpNoDelay(isSendTcpNoDelay());
             params.setMaxTotalConnections(dispatchers.getMaxTotal());
-            params.setDefaultMaxConnectionsPerHost(dispatchers.getMaxTotal());
+            params.setDefaultMaxConnectionsPerHost(getMaxConnectionsPerHost());
 
             if (getConnectionTimeout() != INT_VALUE_NOT_SET)
             {
@@ -250,6 +293,20 @@ public class HttpConnector extends TcpConnector
 
             clientConnectionManager.setParams(params);
         }
+        if (nonBlocking || nonBlockingClient)
+        {
+            if (!HTTP.equals(getProtocol()))
+            {
+                throw new InitialisationException(HttpMessages.nonBlockingConnectionsNotSupported(getProtocol()), this);
+            }
+            if (nonBlockingClient && StringUtils.isNotBlank(getProxyHostname()))
+            {
+                throw new InitialisationException(HttpMessages.nonBlockingClientProxyNotSupported(), this);
+            }
+            selectorLoops = new NioSelectorLoopGroup(String.format("%s%s.io",
+                ThreadNameHelper.getPrefix(muleContext), getName()), getClass().getClassLoader(), ioThreads,
+                ioBufferSize);
+        }
         //connection manager must be created during initialization due that devkit requires the connection manager before start phase.
         //That's why it not manager only during stop/start phases and must be created also here.
         if (connectionManager == null)
@@ -282,6 +339,10 @@ public class HttpConnector extends TcpConnector
             connectionManager.dispose();
             connectionManager = null;
         }
+        if (selectorLoops != null)
+        {
+            selectorLoops.stop();
+        }
         super.doDispose();
     }
 
@@ -290,6 +351,11 @@ public class HttpConnector extends TcpConnector
     {
         this.connectionManager.dispose();
         this.connectionManager = null;
+        if (nioClient != null)
+        {
+            nioClient.close();
+            nioClient = null;
+        }
     }
 
     @Override
@@ -300,6 +366,11 @@ public class HttpConnector extends TcpConnector
         {
             this.connectionManager = new org.mule.transport.http.HttpConnectionManager(this,getReceiverWorkManager());
         }
+        if (nonBlockingClient)
+        {
+            nioClient = new NioHttpClient(this, getDispatcherWorkManager(), getMaxConnectionsPerHost(),
+                maxWaitingRequestsPerHost, idleConnectionTimeout);
+        }
     }
 
     @Override
@@ -539,6 +610,129 @@ public class HttpConnector extends TcpConnector
         this.proxyNtlmAuthentication = proxyNtlmAuthentication;
     }
 
+    public boolean isNonBlocking()
+    {
+        return nonBlocking;
+    }
+
+    /**
+     * Receives the requests on non-blocking connections. It can only be used with
+     * plain http.
+     */
+    public void setNonBlocking(boolean nonBlocking)
+    {
+        this.nonBlocking = nonBlocking;
+    }
+
+    public int getIoThreads()
+    {
+        return ioThreads;
+    }
+
+    /**
+     * Sets the number of threads that read from the non-blocking connections, by
+     * default the number of processors.
+     */
+    public void setIoThreads(int ioThreads)
+    {
+        this.ioThreads = ioThreads;
+    }
+
+    public int getIoBufferSize()
+    {
+        return ioBufferSize;
+    }
+
+    /**
+     * Sets the size of the buffers the non-blocking connections are read into.
+     */
+    public void setIoBufferSize(int ioBufferSize)
+    {
+        this.ioBufferSize = ioBufferSize;
+    }
+
+    public int getMaxRequestSize()
+    {
+        return maxRequestSize;
+    }
+
+    /**
+     * Sets the maximum size of the requests received on non-blocking connections,
+     * which are read completely before they are processed. Larger requests are
+     * rejected with a 413 response.
+     */
+    public void setMaxRequestSize(int maxRequestSize)
+    {
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    public boolean isNonBlockingClient()
+    {
+        return nonBlockingClient;
+    }
+
+    /**
+     * Sends the requests on non-blocking connections. It can only be used with plain
+     * http and without a proxy.
+     */
+    public void setNonBlockingClient(boolean nonBlockingClient)
+    {
+        this.nonBlockingClient = nonBlockingClient;
+    }
+
+    /**
+     * @return the maximum number of connections the dispatchers open to the same
+     *         host and port, by default as many as dispatchers can be active
+     */
+    public int getMaxConnectionsPerHost()
+    {
+        return maxConnectionsPerHost > 0 ? maxConnectionsPerHost : dispatchers.getMaxTotal();
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost)
+    {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getMaxWaitingRequestsPerHost()
+    {
+        return maxWaitingRequestsPerHost;
+    }
+
+    /**
+     * Sets how many requests can wait for a connection to the same host and port.
+     * Once they are that many, dispatching a request waits for one of them to be
+     * sent, for at most the response timeout of the endpoint.
+     */
+    public void setMaxWaitingRequestsPerHost(int maxWaitingRequestsPerHost)
+    {
+        this.maxWaitingRequestsPerHost = maxWaitingRequestsPerHost;
+    }
+
+    public int getIdleConnectionTimeout()
+    {
+        return idleConnectionTimeout;
+    }
+
+    /**
+     * Sets how long a client connection can be kept alive without being used before
+     * it is closed.
+     */
+    public void setIdleConnectionTimeout(int idleConnectionTimeout)
+    {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    NioSelectorLoopGroup getSelectorLoops()
+    {
+        return selectorLoops;
+    }
+
+    NioHttpClient getNioClient()
+    {
+        return nioClient;
+    }
+
     public void connect(EndpointURI endpointURI) throws ConnectException
     {
         connectionManager.addConnection(endpointURI);
@@ -654,6 +848,12 @@ public class HttpConnector extends TcpConnector
         return super.getServerSocket(uri);
     }
 
+    @Override
+    protected ServerSocketChannel getServerSocketChannel(URI uri) throws IOException
+    {
+        return super.getServerSocketChannel(uri);
+    }
+
     /**
      * @deprecated Use keepAlive property in the outbound endpoint.
      */
@@ -19,6 +19,7 @@ import org.mule.api.config.MuleProperties;
 import org.mule.api.context.WorkManager;
 import org.mule.api.endpoint.ImmutableEndpoint;
 import org.mule.api.transport.PropertyScope;
+import org.mule.construct.AbstractPipeline;
 import org.mule.config.ExceptionHelper;
 import org.mule.execution.EndPhaseTemplate;
 import org.mule.execution.RequestResponseFlowProcessingPhaseTemplate;
@@ -46,6 +47,7 @@ public class HttpMessageProcessTemplate extends AbstractTransportMessageProcessT
     private final HttpServerConnection httpServerConnection;
     private HttpRequest request;
     private boolean badRequest;
+    private boolean flowConstructBusy;
     private Latch messageProcessedLatch = new Latch();
     private boolean failureSendingResponse;
     private Long remainingRequestInCurrentPeriod;
@@ -374,6 +376,11 @@ public class HttpMessageProcessTemplate extends AbstractTransportMessageProcessT
                 badRequest = true;
                 return false;
             }
+            if (AbstractPipeline.isInFlightBudgetExhausted(getFlowConstruct()))
+            {
+                flowConstructBusy = true;
+                return false;
+            }
         }
         catch (IOException e)
         {
@@ -396,6 +403,17 @@ public class HttpMessageProcessTemplate extends AbstractTransportMessageProcessT
                 throw new DefaultMuleException(e);
             }
         }
+        else if (flowConstructBusy)
+        {
+            try
+            {
+                sendFailureResponseToClient(HttpConstants.SC_SERVICE_UNAVAILABLE, "Service busy");
+            }
+            catch (IOException e)
+            {
+                throw new DefaultMuleException(e);
+            }
+        }
     }
 
 
@@ -32,7 +32,7 @@ import org.apache.commons.logging.LogFactory;
  * <p/>
  * Lookup the right MessageReceiver for each HttpRequest and dispatch the socket to the MessageReceiver for further processing.
  */
-class HttpRequestDispatcher implements Work
+class HttpRequestDispatcher implements Work, HttpConnectionManager.ConnectionDispatcher
 {
 
     private static Log logger = LogFactory.getLog(HttpRequestDispatcher.class);
@@ -136,7 +136,8 @@ class HttpRequestDispatcher implements Work
 
     }
 
-    void disconnect()
+    @Override
+    public void disconnect()
     {
         disconnect.set(true);
         try
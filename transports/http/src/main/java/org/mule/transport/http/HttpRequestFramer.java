@@ -0,0 +1,439 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.transport.tcp.FrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Frames the requests read from a non-blocking connection. The head of a request is
+ * read line by line into a buffer that is reused by the next requests of the
+ * connection and its body is delimited by the Content-Length header or by its
+ * chunks, so that each frame holds a complete request as the client sent it. Only
+ * the headers that delimit the request are looked at, the request is parsed by
+ * {@link HttpServerConnection} when it is processed.
+ * <p/>
+ * Requests larger than the maximum request size, as told by their Content-Length
+ * header or by the size of their chunks, are rejected before their body is read.
+ */
+class HttpRequestFramer implements FrameDecoder
+{
+
+    public static final int DEFAULT_MAX_HEAD_SIZE = 16 * 1024;
+    public static final int DEFAULT_MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+
+    private static final int INITIAL_REQUEST_SIZE = 1024;
+    // larger buffers are not kept for the next request
+    private static final int MAX_RETAINED_REQUEST_SIZE = 64 * 1024;
+
+    private static final byte[] CONTENT_LENGTH = headerName(HttpConstants.HEADER_CONTENT_LENGTH);
+    private static final byte[] TRANSFER_ENCODING = headerName(HttpConstants.HEADER_TRANSFER_ENCODING);
+    private static final byte[] EXPECT = headerName(HttpConstants.HEADER_EXPECT);
+
+    private enum State
+    {
+        REQUEST_LINE, HEADERS, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, DISCARD
+    }
+
+    private final int maxHeadSize;
+    private final int maxRequestSize;
+    private State state = State.REQUEST_LINE;
+    private byte[] request = new byte[INITIAL_REQUEST_SIZE];
+    private int requestLength;
+    private int lineStart;
+    private long contentLength;
+    private boolean chunked;
+    private int expectLineStart;
+    private int expectLineEnd;
+    private long remaining;
+
+    public HttpRequestFramer()
+    {
+        this(DEFAULT_MAX_HEAD_SIZE);
+    }
+
+    public HttpRequestFramer(int maxHeadSize)
+    {
+        this(maxHeadSize, DEFAULT_MAX_REQUEST_SIZE);
+    }
+
+    /**
+     * @param maxHeadSize the maximum size of the request line and headers of a
+     *            request, and of each line of a chunked body
+     * @param maxRequestSize the maximum size of a whole request, head and body
+     */
+    public HttpRequestFramer(int maxHeadSize, int maxRequestSize)
+    {
+        this.maxHeadSize = maxHeadSize;
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    /**
+     * Called when the head of a request that expects a 100 Continue response before
+     * sending its body has been read. When the response is not sent the client sends
+     * the body after waiting for it, and it is answered when the request is processed.
+     *
+     * @return whether the 100 Continue response was sent, in which case the Expect
+     *         header is removed from the request
+     */
+    protected boolean sendContinue() throws IOException
+    {
+        return false;
+    }
+
+    /**
+     * Called when a request is larger than the maximum request size and the requests
+     * read before it have all been framed. When the request is not rejected the
+     * connection is closed.
+     *
+     * @return whether the request was rejected with a response, in which case the
+     *         rest of the data read from the connection is discarded
+     */
+    protected boolean rejectRequest() throws IOException
+    {
+        return false;
+    }
+
+    public void decode(ByteBuffer buffer, List<Object> frames) throws IOException
+    {
+        try
+        {
+            decodeRequests(buffer, frames);
+        }
+        catch (RequestTooLargeException e)
+        {
+            // requests pipelined before this one are answered first
+            if (!frames.isEmpty() || !rejectRequest())
+            {
+                throw e;
+            }
+            state = State.DISCARD;
+            buffer.position(buffer.limit());
+        }
+    }
+
+    private void decodeRequests(ByteBuffer buffer, List<Object> frames) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            switch (state)
+            {
+                case REQUEST_LINE:
+                    if (readLine(buffer))
+                    {
+                        if (isEmptyLine())
+                        {
+                            // blank lines before a request are ignored
+                            requestLength = lineStart;
+                        }
+                        else
+                        {
+                            contentLength = -1;
+                            chunked = false;
+                            expectLineStart = -1;
+                            state = State.HEADERS;
+                            lineStart = requestLength;
+                        }
+                    }
+                    break;
+                case HEADERS:
+                    if (readLine(buffer))
+                    {
+                        if (isEmptyLine())
+                        {
+                            headRead(frames);
+                        }
+                        else
+                        {
+                            header();
+                            lineStart = requestLength;
+                        }
+                    }
+                    break;
+                case BODY:
+                    if (readData(buffer))
+                    {
+                        requestRead(frames);
+                    }
+                    break;
+                case CHUNK_SIZE:
+                    if (readLine(buffer))
+                    {
+                        long chunkSize = chunkSize();
+                        checkRequestSize(chunkSize);
+                        lineStart = requestLength;
+                        if (chunkSize == 0)
+                        {
+                            state = State.TRAILERS;
+                        }
+                        else
+                        {
+                            remaining = chunkSize;
+                            state = State.CHUNK_DATA;
+                        }
+                    }
+                    break;
+                case CHUNK_DATA:
+                    if (readData(buffer))
+                    {
+                        lineStart = requestLength;
+                        state = State.CHUNK_END;
+                    }
+                    break;
+                case CHUNK_END:
+                    if (readLine(buffer))
+                    {
+                        lineStart = requestLength;
+                        state = State.CHUNK_SIZE;
+                    }
+                    break;
+                case TRAILERS:
+                    if (readLine(buffer))
+                    {
+                        if (isEmptyLine())
+                        {
+                            requestRead(frames);
+                        }
+                        else
+                        {
+                            lineStart = requestLength;
+                        }
+                    }
+                    break;
+                case DISCARD:
+                    buffer.position(buffer.limit());
+                    break;
+            }
+        }
+    }
+
+    public void endOfData(List<Object> frames)
+    {
+        // requests are only complete once their body is read
+    }
+
+    public void endOfStream(List<Object> frames)
+    {
+        // an incomplete request is discarded
+        reset();
+    }
+
+    private void headRead(List<Object> frames) throws IOException
+    {
+        boolean hasBody = chunked || contentLength > 0;
+        // requests pipelined before this one are answered first
+        if (hasBody && expectLineStart >= 0 && frames.isEmpty() && sendContinue())
+        {
+            // the client is not told twice to continue
+            System.arraycopy(request, expectLineEnd, request, expectLineStart, requestLength - expectLineEnd);
+            requestLength -= expectLineEnd - expectLineStart;
+        }
+
+        if (chunked)
+        {
+            lineStart = requestLength;
+            state = State.CHUNK_SIZE;
+        }
+        else if (contentLength > 0)
+        {
+            checkRequestSize(contentLength);
+            remaining = contentLength;
+            state = State.BODY;
+        }
+        else
+        {
+            requestRead(frames);
+        }
+    }
+
+    private void requestRead(List<Object> frames)
+    {
+        frames.add(Arrays.copyOf(request, requestLength));
+        reset();
+    }
+
+    private void reset()
+    {
+        if (request.length > MAX_RETAINED_REQUEST_SIZE)
+        {
+            request = new byte[INITIAL_REQUEST_SIZE];
+        }
+        requestLength = 0;
+        lineStart = 0;
+        state = State.REQUEST_LINE;
+    }
+
+    private void header() throws IOException
+    {
+        if (contentLength < 0 && isHeader(CONTENT_LENGTH))
+        {
+            try
+            {
+                contentLength = Long.parseLong(headerValue(CONTENT_LENGTH));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Invalid Content-Length header: " + headerValue(CONTENT_LENGTH));
+            }
+        }
+        else if (isHeader(TRANSFER_ENCODING))
+        {
+            // same check as HttpRequest so that both agree on how the body is delimited
+            chunked = headerValue(TRANSFER_ENCODING).indexOf(HttpConstants.TRANSFER_ENCODING_CHUNKED) != -1;
+        }
+        else if (isHeader(EXPECT) && HttpConstants.HEADER_EXPECT_CONTINUE_REQUEST_VALUE.equalsIgnoreCase(headerValue(EXPECT)))
+        {
+            expectLineStart = lineStart;
+            expectLineEnd = requestLength;
+        }
+    }
+
+    /**
+     * Checks that the request does not get larger than the maximum request size once
+     * the given number of bytes are added to it.
+     */
+    private void checkRequestSize(long length) throws RequestTooLargeException
+    {
+        if (length > (long) maxRequestSize - requestLength)
+        {
+            throw new RequestTooLargeException("Request larger than " + maxRequestSize + " bytes");
+        }
+    }
+
+    private long chunkSize() throws IOException
+    {
+        String line = new String(request, lineStart, requestLength - lineStart, "ISO-8859-1");
+        int extension = line.indexOf(';');
+        if (extension != -1)
+        {
+            line = line.substring(0, extension);
+        }
+        long chunkSize;
+        try
+        {
+            chunkSize = Long.parseLong(line.trim(), 16);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Invalid chunk size: " + line.trim());
+        }
+        if (chunkSize < 0)
+        {
+            throw new IOException("Invalid chunk size: " + line.trim());
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Copies the buffer up to the end of the current line.
+     *
+     * @return whether the line is complete
+     */
+    private boolean readLine(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (requestLength - lineStart >= maxHeadSize
+                || ((state == State.REQUEST_LINE || state == State.HEADERS) && requestLength >= maxHeadSize))
+            {
+                throw new IOException("Request head larger than " + maxHeadSize + " bytes");
+            }
+            // the lines of a chunked body count towards the size of the request
+            checkRequestSize(1);
+
+            byte b = buffer.get();
+            ensureCapacity(1);
+            request[requestLength++] = b;
+            if (b == '\n')
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the buffer up to the end of the body or chunk being read.
+     *
+     * @return whether all the data was read
+     */
+    private boolean readData(ByteBuffer buffer)
+    {
+        int length = (int) Math.min(remaining, buffer.remaining());
+        ensureCapacity(length);
+        buffer.get(request, requestLength, length);
+        requestLength += length;
+        remaining -= length;
+        return remaining == 0;
+    }
+
+    private void ensureCapacity(int length)
+    {
+        if (requestLength + length > request.length)
+        {
+            request = Arrays.copyOf(request, Math.max(request.length * 2, requestLength + length));
+        }
+    }
+
+    private boolean isEmptyLine()
+    {
+        int length = requestLength - lineStart;
+        return length == 1 || (length == 2 && request[lineStart] == '\r');
+    }
+
+    private boolean isHeader(byte[] name)
+    {
+        if (requestLength - lineStart < name.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++)
+        {
+            byte b = request[lineStart + i];
+            if (b != name[i] && Character.toLowerCase((char) b) != name[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String headerValue(byte[] name) throws IOException
+    {
+        int start = lineStart + name.length;
+        return new String(request, start, requestLength - start, "ISO-8859-1").trim();
+    }
+
+    private static byte[] headerName(String name)
+    {
+        String lowerCaseName = name.toLowerCase() + ":";
+        byte[] bytes = new byte[lowerCaseName.length()];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte) lowerCaseName.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Thrown when a request is larger than the maximum request size.
+     */
+    private static class RequestTooLargeException extends IOException
+    {
+
+        private static final long serialVersionUID = 4325614409946253287L;
+
+        RequestTooLargeException(String message)
+        {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.transport.tcp.FrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Frames the responses read from a non-blocking client connection, the counterpart
+ * of {@link HttpRequestFramer}. Interim 1xx responses are kept in the frame of the
+ * final response that follows them, and a body that is not delimited by its
+ * Content-Length or by its chunks is read until the server closes the connection.
+ * The response is parsed by the {@link org.apache.commons.httpclient.HttpMethod} that
+ * sent the request once the frame is complete.
+ */
+class HttpResponseFramer implements FrameDecoder
+{
+
+    public static final int DEFAULT_MAX_HEAD_SIZE = HttpRequestFramer.DEFAULT_MAX_HEAD_SIZE;
+
+    private static final int INITIAL_RESPONSE_SIZE = 1024;
+    // larger buffers are not kept for the next response
+    private static final int MAX_RETAINED_RESPONSE_SIZE = 64 * 1024;
+
+    private static final byte[] CONTENT_LENGTH = headerName(HttpConstants.HEADER_CONTENT_LENGTH);
+    private static final byte[] TRANSFER_ENCODING = headerName(HttpConstants.HEADER_TRANSFER_ENCODING);
+    private static final byte[] CONNECTION = headerName(HttpConstants.HEADER_CONNECTION);
+
+    /**
+     * A complete response as the server sent it.
+     */
+    static class ResponseFrame
+    {
+
+        private final byte[] data;
+        private final boolean keepAlive;
+
+        ResponseFrame(byte[] data, boolean keepAlive)
+        {
+            this.data = data;
+            this.keepAlive = keepAlive;
+        }
+
+        public byte[] getData()
+        {
+            return data;
+        }
+
+        /**
+         * @return whether the server allows the connection to be used for another
+         *         request
+         */
+        public boolean isKeepAlive()
+        {
+            return keepAlive;
+        }
+    }
+
+    private enum State
+    {
+        STATUS_LINE, HEADERS, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, UNTIL_CLOSE
+    }
+
+    private final int maxHeadSize;
+    private State state = State.STATUS_LINE;
+    private byte[] response = new byte[INITIAL_RESPONSE_SIZE];
+    private int responseLength;
+    private int lineStart;
+    private int headStart;
+    private int statusCode;
+    private boolean http10;
+    private long contentLength;
+    private boolean chunked;
+    private String connection;
+    private long remaining;
+
+    public HttpResponseFramer()
+    {
+        this(DEFAULT_MAX_HEAD_SIZE);
+    }
+
+    /**
+     * @param maxHeadSize the maximum size of the status line and headers of a
+     *            response, and of each line of a chunked body
+     */
+    public HttpResponseFramer(int maxHeadSize)
+    {
+        this.maxHeadSize = maxHeadSize;
+    }
+
+    /**
+     * Called once the head of the response has been read, the response to a HEAD
+     * request has no body whatever its headers say.
+     */
+    protected boolean isHeadRequest()
+    {
+        return false;
+    }
+
+    public void decode(ByteBuffer buffer, List<Object> frames) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            switch (state)
+            {
+                case STATUS_LINE:
+                    if (readLine(buffer))
+                    {
+                        statusLine();
+                        state = State.HEADERS;
+                        lineStart = responseLength;
+                    }
+                    break;
+                case HEADERS:
+                    if (readLine(buffer))
+                    {
+                        if (isEmptyLine())
+                        {
+                            headRead(frames);
+                        }
+                        else
+                        {
+                            header();
+                            lineStart = responseLength;
+                        }
+                    }
+                    break;
+                case BODY:
+                    if (readData(buffer))
+                    {
+                        responseRead(frames, isKeepAlive());
+                    }
+                    break;
+                case CHUNK_SIZE:
+                    if (readLine(buffer))
+                    {
+                        long chunkSize = chunkSize();
+                        lineStart = responseLength;
+                        if (chunkSize == 0)
+                        {
+                            state = State.TRAILERS;
+                        }
+                        else
+                        {
+                            remaining = chunkSize;
+                            state = State.CHUNK_DATA;
+                        }
+                    }
+                    break;
+                case CHUNK_DATA:
+                    if (readData(buffer))
+                    {
+                        lineStart = responseLength;
+                        state = State.CHUNK_END;
+                    }
+                    break;
+                case CHUNK_END:
+                    if (readLine(buffer))
+                    {
+                        lineStart = responseLength;
+                        state = State.CHUNK_SIZE;
+                    }
+                    break;
+                case TRAILERS:
+                    if (readLine(buffer))
+                    {
+                        if (isEmptyLine())
+                        {
+                            responseRead(frames, isKeepAlive());
+                        }
+                        else
+                        {
+                            lineStart = responseLength;
+                        }
+                    }
+                    break;
+                case UNTIL_CLOSE:
+                    remaining = buffer.remaining();
+                    readData(buffer);
+                    break;
+            }
+        }
+    }
+
+    public void endOfData(List<Object> frames)
+    {
+        // responses are only complete once their body is read
+    }
+
+    public void endOfStream(List<Object> frames)
+    {
+        if (state == State.UNTIL_CLOSE)
+        {
+            responseRead(frames, false);
+        }
+        else
+        {
+            // an incomplete response is discarded
+            reset();
+        }
+    }
+
+    /**
+     * @return whether part of a response has been read
+     */
+    public boolean isReading()
+    {
+        return responseLength > 0;
+    }
+
+    private void headRead(List<Object> frames)
+    {
+        if (statusCode >= HttpConstants.SC_CONTINUE && statusCode < HttpConstants.SC_OK
+            && statusCode != HttpConstants.SC_SWITCHING_PROTOCOLS)
+        {
+            // the final response follows in the same frame
+            state = State.STATUS_LINE;
+            headStart = responseLength;
+            lineStart = responseLength;
+        }
+        else if (isHeadRequest() || statusCode == HttpConstants.SC_NO_CONTENT
+                 || statusCode == HttpConstants.SC_NOT_MODIFIED || statusCode < HttpConstants.SC_OK)
+        {
+            responseRead(frames, isKeepAlive());
+        }
+        else if (chunked)
+        {
+            lineStart = responseLength;
+            state = State.CHUNK_SIZE;
+        }
+        else if (contentLength > 0)
+        {
+            remaining = contentLength;
+            state = State.BODY;
+        }
+        else if (contentLength == 0)
+        {
+            responseRead(frames, isKeepAlive());
+        }
+        else
+        {
+            state = State.UNTIL_CLOSE;
+        }
+    }
+
+    private boolean isKeepAlive()
+    {
+        if (connection != null)
+        {
+            if (connection.equalsIgnoreCase("close"))
+            {
+                return false;
+            }
+            if (connection.equalsIgnoreCase("keep-alive"))
+            {
+                return true;
+            }
+        }
+        return !http10;
+    }
+
+    private void responseRead(List<Object> frames, boolean keepAlive)
+    {
+        frames.add(new ResponseFrame(Arrays.copyOf(response, responseLength), keepAlive));
+        reset();
+    }
+
+    private void reset()
+    {
+        if (response.length > MAX_RETAINED_RESPONSE_SIZE)
+        {
+            response = new byte[INITIAL_RESPONSE_SIZE];
+        }
+        responseLength = 0;
+        lineStart = 0;
+        headStart = 0;
+        state = State.STATUS_LINE;
+    }
+
+    private void statusLine() throws IOException
+    {
+        String line = new String(response, lineStart, responseLength - lineStart, "ISO-8859-1").trim();
+        int versionEnd = line.indexOf(' ');
+        if (!line.startsWith("HTTP/") || versionEnd == -1)
+        {
+            throw new IOException("Invalid status line: " + line);
+        }
+        int codeEnd = line.indexOf(' ', versionEnd + 1);
+        try
+        {
+            statusCode = Integer.parseInt(line.substring(versionEnd + 1, codeEnd == -1 ? line.length() : codeEnd));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Invalid status line: " + line);
+        }
+        http10 = line.startsWith(HttpConstants.HTTP10);
+        contentLength = -1;
+        chunked = false;
+        connection = null;
+    }
+
+    private void header() throws IOException
+    {
+        if (contentLength < 0 && isHeader(CONTENT_LENGTH))
+        {
+            try
+            {
+                contentLength = Long.parseLong(headerValue(CONTENT_LENGTH));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Invalid Content-Length header: " + headerValue(CONTENT_LENGTH));
+            }
+        }
+        else if (isHeader(TRANSFER_ENCODING))
+        {
+            chunked = headerValue(TRANSFER_ENCODING).indexOf(HttpConstants.TRANSFER_ENCODING_CHUNKED) != -1;
+        }
+        else if (isHeader(CONNECTION))
+        {
+            connection = headerValue(CONNECTION);
+        }
+    }
+
+    private long chunkSize() throws IOException
+    {
+        String line = new String(response, lineStart, responseLength - lineStart, "ISO-8859-1");
+        int extension = line.indexOf(';');
+        if (extension != -1)
+        {
+            line = line.substring(0, extension);
+        }
+        try
+        {
+            return Long.parseLong(line.trim(), 16);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Invalid chunk size: " + line.trim());
+        }
+    }
+
+    /**
+     * Copies the buffer up to the end of the current line.
+     *
+     * @return whether the line is complete
+     */
+    private boolean readLine(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (responseLength - lineStart >= maxHeadSize
+                || ((state == State.STATUS_LINE || state == State.HEADERS) && responseLength - headStart >= maxHeadSize))
+            {
+                throw new IOException("Response head larger than " + maxHeadSize + " bytes");
+            }
+
+            byte b = buffer.get();
+            ensureCapacity(1);
+            response[responseLength++] = b;
+            if (b == '\n')
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the buffer up to the end of the body or chunk being read.
+     *
+     * @return whether all the data was read
+     */
+    private boolean readData(ByteBuffer buffer) throws IOException
+    {
+        int length = (int) Math.min(remaining, buffer.remaining());
+        if (length > Integer.MAX_VALUE - responseLength)
+        {
+            throw new IOException("Response larger than " + Integer.MAX_VALUE + " bytes");
+        }
+        ensureCapacity(length);
+        buffer.get(response, responseLength, length);
+        responseLength += length;
+        remaining -= length;
+        return remaining == 0;
+    }
+
+    private void ensureCapacity(int length)
+    {
+        if (responseLength + length > response.length)
+        {
+            response = Arrays.copyOf(response, (int) Math.min(Integer.MAX_VALUE,
+                Math.max(response.length * 2L, responseLength + length)));
+        }
+    }
+
+    private boolean isEmptyLine()
+    {
+        int length = responseLength - lineStart;
+        return length == 1 || (length == 2 && response[lineStart] == '\r');
+    }
+
+    private boolean isHeader(byte[] name)
+    {
+        if (responseLength - lineStart < name.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++)
+        {
+            byte b = response[lineStart + i];
+            if (b != name[i] && Character.toLowerCase((char) b) != name[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String headerValue(byte[] name) throws IOException
+    {
+        int start = lineStart + name.length;
+        return new String(response, start, responseLength - start, "ISO-8859-1").trim();
+    }
+
+    private static byte[] headerName(String name)
+    {
+        String lowerCaseName = name.toLowerCase() + ":";
+        byte[] bytes = new byte[lowerCaseName.length()];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte) lowerCaseName.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -9,6 +9,7 @@ package org.mule.transport.http;
 import org.mule.RequestContext;
 import org.mule.api.transport.Connector;
 import org.mule.api.transport.OutputHandler;
+import org.mule.util.IOUtils;
 import org.mule.util.SystemUtils;
 import org.mule.util.concurrent.Latch;
 
@@ -35,7 +36,6 @@ import org.apache.commons.httpclient.ChunkedOutputStream;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpParser;
 import org.apache.commons.httpclient.StatusLine;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -94,6 +94,23 @@ public class HttpServerConnection implements HandshakeCompletedListener
         this.encoding = encoding;
     }
 
+    /**
+     * Creates a connection that reads and writes the given streams instead of the
+     * ones of the socket, which is already configured.
+     */
+    protected HttpServerConnection(final Socket socket, InputStream in, OutputStream out, String encoding)
+    {
+        if (socket == null)
+        {
+            throw new IllegalArgumentException("Socket may not be null");
+        }
+
+        this.socket = socket;
+        this.in = in;
+        this.out = new DataOutputStream(out);
+        this.encoding = encoding;
+    }
+
     private void setSocketTcpNoDelay(boolean tcpNoDelay) throws IOException
     {
         try
@@ -285,7 +302,7 @@ public class HttpServerConnection implements HandshakeCompletedListener
                 }
             }
 
-            IOUtils.copy(content, outstream);
+            IOUtils.transfer(content, outstream);
 
             if (outstream instanceof ChunkedOutputStream)
             {
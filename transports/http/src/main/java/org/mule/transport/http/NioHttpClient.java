@@ -0,0 +1,946 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.transport.tcp.FrameDecoder;
+import org.mule.transport.tcp.NioConnection;
+import org.mule.transport.tcp.NioSelectorLoop;
+import org.mule.transport.tcp.TcpConnector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpState;
+import org.apache.commons.httpclient.NoHttpResponseException;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.protocol.Protocol;
+import org.apache.commons.httpclient.protocol.ProtocolSocketFactory;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Sends requests on non-blocking connections kept alive in a pool per host and port.
+ * <p/>
+ * The requests are written by the {@link HttpMethod} created by the dispatcher into
+ * a buffer, so that headers, cookies and entities are handled as for blocking
+ * connections, and the buffer is then written by the I/O threads of the connector.
+ * No thread waits while the response is on its way: it is framed by a
+ * {@link HttpResponseFramer} and, once complete, read back by the same
+ * {@link HttpMethod} on a dispatcher thread before the {@link Callback} is called.
+ * <p/>
+ * At most <code>maxConnectionsPerHost</code> connections are opened to the same
+ * host and port, the requests that find them all busy wait in order for one of them
+ * to be free. At most <code>maxWaitingExchanges</code> requests wait per host and
+ * port, past that the threads executing more requests wait for room. A connection that has been idle for <code>idleConnectionTimeout</code>
+ * is closed, and a request that finds a kept-alive connection closed by the server
+ * before any response was read is sent again once on a new connection.
+ */
+class NioHttpClient
+{
+
+    /**
+     * Notified once on a dispatcher thread when the exchange ends.
+     */
+    interface Callback
+    {
+
+        /**
+         * @param method the method that sent the request, with the response read
+         */
+        void completed(HttpMethod method);
+
+        void failed(Exception e);
+    }
+
+    private static Log logger = LogFactory.getLog(NioHttpClient.class);
+
+    private final HttpConnector httpConnector;
+    private final WorkManager workManager;
+    private final int maxConnectionsPerHost;
+    private final int maxWaitingExchanges;
+    private final int idleConnectionTimeout;
+    private final Map<String, Route> routes = new ConcurrentHashMap<String, Route>();
+    private volatile boolean disposed;
+
+    /**
+     * @param maxConnectionsPerHost the maximum number of connections to the same
+     *            host and port, or zero if there is no limit
+     * @param maxWaitingExchanges the maximum number of requests waiting for a
+     *            connection to the same host and port, or zero if there is no limit
+     * @param idleConnectionTimeout how long a connection can be idle before it is
+     *            closed, or zero if it is never closed
+     */
+    public NioHttpClient(HttpConnector httpConnector, WorkManager workManager, int maxConnectionsPerHost,
+                         int maxWaitingExchanges, int idleConnectionTimeout)
+    {
+        this.httpConnector = httpConnector;
+        this.workManager = workManager;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxWaitingExchanges = maxWaitingExchanges;
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    /**
+     * Writes the request of the method and queues it to be sent. The callback is
+     * not called by the calling thread, which only waits while too many requests
+     * wait for a connection to the same host and port.
+     *
+     * @param state the state the request takes the cookies from
+     * @param responseTimeout how long to wait for the response once the request has
+     *            been sent, or zero to wait forever
+     * @return the exchange, which can be cancelled while no response has been
+     *         received
+     */
+    public Exchange execute(String host, int port, HttpMethod method, HttpState state, int responseTimeout,
+                            Callback callback) throws IOException
+    {
+        if (disposed)
+        {
+            throw new IOException("The HTTP client of " + httpConnector.getName() + " is closed");
+        }
+
+        Exchange exchange = new Exchange(host, port, method, writeRequest(host, port, method, state),
+            responseTimeout, callback);
+        getRoute(host, port).execute(exchange, true);
+        return exchange;
+    }
+
+    /**
+     * Closes all the connections, the requests waiting for a response fail.
+     */
+    public void close()
+    {
+        disposed = true;
+        for (Route route : routes.values())
+        {
+            route.close();
+        }
+        routes.clear();
+    }
+
+    private Route getRoute(String host, int port)
+    {
+        String key = host + ":" + port;
+        Route route = routes.get(key);
+        if (route == null)
+        {
+            synchronized (routes)
+            {
+                route = routes.get(key);
+                if (route == null)
+                {
+                    route = new Route(host, port);
+                    routes.put(key, route);
+                }
+            }
+        }
+        return route;
+    }
+
+    private byte[] writeRequest(String host, int port, HttpMethod method, HttpState state) throws IOException
+    {
+        if (method instanceof EntityEnclosingMethod)
+        {
+            // the method writes the request again when it reads the response
+            EntityEnclosingMethod entityMethod = (EntityEnclosingMethod) method;
+            RequestEntity entity = entityMethod.getRequestEntity();
+            if (entity != null && !entity.isRepeatable())
+            {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                entity.writeRequest(body);
+                entityMethod.setRequestEntity(new ByteArrayRequestEntity(body.toByteArray(), entity.getContentType()));
+            }
+        }
+        // the body is sent without waiting for a 100 Continue response
+        method.getParams().setBooleanParameter(HttpMethodParams.USE_EXPECT_CONTINUE, false);
+        method.removeRequestHeader(HttpConstants.HEADER_EXPECT);
+
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        HttpConnection connection = new BufferConnection(host, port, request, null);
+        connection.open();
+        try
+        {
+            method.execute(state, connection);
+        }
+        catch (RequestWrittenException e)
+        {
+            return request.toByteArray();
+        }
+        throw new IllegalStateException("The request was not written");
+    }
+
+    private static void readResponse(Exchange exchange, byte[] response) throws IOException
+    {
+        HttpConnection connection = new BufferConnection(exchange.host, exchange.port, new NullOutputStream(),
+            new ByteArrayInputStream(response));
+        connection.open();
+        exchange.method.execute(new HttpState(), connection);
+    }
+
+    /**
+     * A request and the response it is waiting for.
+     */
+    class Exchange
+    {
+
+        private final String host;
+        private final int port;
+        private final HttpMethod method;
+        private final byte[] request;
+        private final int responseTimeout;
+        private final Callback callback;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private volatile ClientConnection connection;
+        private volatile long deadline;
+        private volatile boolean responseStarted;
+        private boolean retried;
+
+        Exchange(String host, int port, HttpMethod method, byte[] request, int responseTimeout, Callback callback)
+        {
+            this.host = host;
+            this.port = port;
+            this.method = method;
+            this.request = request;
+            this.responseTimeout = responseTimeout;
+            this.callback = callback;
+        }
+
+        /**
+         * Gives up waiting for the response. The connection it was sent on is
+         * closed, as the response may still arrive.
+         *
+         * @return whether the exchange had not ended yet
+         */
+        public boolean cancel()
+        {
+            if (!done.compareAndSet(false, true))
+            {
+                return false;
+            }
+
+            ClientConnection sentOn = connection;
+            if (sentOn != null)
+            {
+                sentOn.close();
+            }
+            else
+            {
+                getRoute(host, port).remove(this);
+            }
+            return true;
+        }
+
+        boolean isDone()
+        {
+            return done.get();
+        }
+
+        void sent(ClientConnection connection)
+        {
+            this.connection = connection;
+            responseStarted = false;
+            deadline = responseTimeout > 0 ? System.currentTimeMillis() + responseTimeout : Long.MAX_VALUE;
+        }
+
+        boolean isExpired(long now)
+        {
+            return now > deadline;
+        }
+
+        void complete(final HttpResponseFramer.ResponseFrame response)
+        {
+            if (done.compareAndSet(false, true))
+            {
+                try
+                {
+                    readResponse(this, response.getData());
+                }
+                catch (Exception e)
+                {
+                    callback.failed(e);
+                    return;
+                }
+                callback.completed(method);
+            }
+        }
+
+        void fail(final Exception e)
+        {
+            if (done.compareAndSet(false, true))
+            {
+                try
+                {
+                    workManager.scheduleWork(new FailureWork(callback, e), WorkManager.INDEFINITE, null,
+                        httpConnector);
+                }
+                catch (WorkException workException)
+                {
+                    logger.warn("Failed to schedule the failure of a request: " + workException.getMessage());
+                    callback.failed(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The connections to a host and port, and the requests waiting for one.
+     */
+    private class Route
+    {
+
+        private final String host;
+        private final int port;
+        private final LinkedList<ClientConnection> idleConnections = new LinkedList<ClientConnection>();
+        private final LinkedList<Exchange> waitingExchanges = new LinkedList<Exchange>();
+        private final List<ClientConnection> connections = new ArrayList<ClientConnection>();
+        private int openConnections;
+        private boolean closed;
+
+        Route(String host, int port)
+        {
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * @param waitForRoom whether to wait while too many requests wait for a
+         *            connection, which the I/O threads must not do
+         */
+        void execute(Exchange exchange, boolean waitForRoom) throws IOException
+        {
+            ClientConnection connection;
+            synchronized (this)
+            {
+                long deadline = exchange.responseTimeout > 0
+                                ? System.currentTimeMillis() + exchange.responseTimeout : Long.MAX_VALUE;
+                while (true)
+                {
+                    // the connection used last is the least likely to have been closed
+                    connection = idleConnections.pollFirst();
+                    if (connection != null)
+                    {
+                        break;
+                    }
+                    if (maxConnectionsPerHost <= 0 || openConnections < maxConnectionsPerHost)
+                    {
+                        openConnections++;
+                        break;
+                    }
+                    if (!waitForRoom || maxWaitingExchanges <= 0 || waitingExchanges.size() < maxWaitingExchanges)
+                    {
+                        waitingExchanges.add(exchange);
+                        return;
+                    }
+                    awaitRoom(deadline);
+                }
+            }
+
+            if (connection != null)
+            {
+                connection.send(exchange);
+            }
+            else
+            {
+                connect(exchange);
+            }
+        }
+
+        /**
+         * Waits for a request to leave the queue, called with the lock of the route
+         * held.
+         */
+        private void awaitRoom(long deadline) throws IOException
+        {
+            if (closed)
+            {
+                throw new IOException("The HTTP client of " + httpConnector.getName() + " was closed");
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+            {
+                throw new SocketTimeoutException("Timed out waiting for a connection to " + host + ":" + port);
+            }
+            try
+            {
+                wait(remaining);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a connection to " + host + ":"
+                                                 + port);
+            }
+        }
+
+        void remove(Exchange exchange)
+        {
+            synchronized (this)
+            {
+                if (waitingExchanges.remove(exchange))
+                {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Called when a connection can be used for another request.
+         */
+        void released(ClientConnection connection)
+        {
+            Exchange next;
+            synchronized (this)
+            {
+                next = waitingExchanges.poll();
+                if (next == null)
+                {
+                    idleConnections.addFirst(connection);
+                    return;
+                }
+                notifyAll();
+            }
+            connection.send(next);
+        }
+
+        /**
+         * Called when a connection is closed or could not be opened.
+         */
+        void closed(ClientConnection connection)
+        {
+            Exchange next;
+            synchronized (this)
+            {
+                if (connection != null)
+                {
+                    idleConnections.remove(connection);
+                    connections.remove(connection);
+                }
+                openConnections--;
+                // a thread waiting for room can open a connection now
+                notifyAll();
+                next = waitingExchanges.poll();
+                if (next == null)
+                {
+                    return;
+                }
+                openConnections++;
+            }
+            connect(next);
+        }
+
+        void close()
+        {
+            List<ClientConnection> open;
+            List<Exchange> waiting;
+            synchronized (this)
+            {
+                closed = true;
+                open = new ArrayList<ClientConnection>(connections);
+                waiting = new ArrayList<Exchange>(waitingExchanges);
+                waitingExchanges.clear();
+                notifyAll();
+            }
+            for (Exchange exchange : waiting)
+            {
+                exchange.fail(new IOException("The HTTP client of " + httpConnector.getName() + " was closed"));
+            }
+            for (ClientConnection connection : open)
+            {
+                connection.close();
+            }
+        }
+
+        private void connect(Exchange exchange)
+        {
+            if (exchange.isDone())
+            {
+                closed(null);
+                return;
+            }
+
+            SocketChannel channel = null;
+            try
+            {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                httpConnector.configureSocket(TcpConnector.CLIENT, channel.socket());
+
+                NioSelectorLoop selectorLoop = httpConnector.getSelectorLoops().next();
+                if (channel.connect(new InetSocketAddress(host, port)))
+                {
+                    connected(channel, selectorLoop, null).send(exchange);
+                }
+                else
+                {
+                    selectorLoop.register(channel, SelectionKey.OP_CONNECT,
+                        new ConnectHandler(this, exchange, channel, selectorLoop));
+                }
+            }
+            catch (IOException e)
+            {
+                connectFailed(exchange, channel, e);
+            }
+        }
+
+        ClientConnection connected(SocketChannel channel, NioSelectorLoop selectorLoop, SelectionKey key)
+        {
+            ClientConnection connection = new ClientConnection(this, channel, selectorLoop);
+            synchronized (this)
+            {
+                connections.add(connection);
+            }
+            if (key == null)
+            {
+                selectorLoop.register(channel, SelectionKey.OP_READ, connection);
+            }
+            else
+            {
+                key.attach(connection);
+                key.interestOps(SelectionKey.OP_READ);
+                connection.registered(key);
+            }
+            return connection;
+        }
+
+        void connectFailed(Exchange exchange, SocketChannel channel, IOException e)
+        {
+            if (channel != null)
+            {
+                try
+                {
+                    channel.close();
+                }
+                catch (IOException closeException)
+                {
+                    logger.debug("Failed to close channel: " + closeException.getMessage());
+                }
+            }
+            exchange.fail(e);
+            closed(null);
+        }
+    }
+
+    /**
+     * Waits for a connection to be established.
+     */
+    private class ConnectHandler implements NioSelectorLoop.Handler
+    {
+
+        private final Route route;
+        private final Exchange exchange;
+        private final SocketChannel channel;
+        private final NioSelectorLoop selectorLoop;
+        private final long started = System.currentTimeMillis();
+        private SelectionKey key;
+
+        ConnectHandler(Route route, Exchange exchange, SocketChannel channel, NioSelectorLoop selectorLoop)
+        {
+            this.route = route;
+            this.exchange = exchange;
+            this.channel = channel;
+            this.selectorLoop = selectorLoop;
+        }
+
+        public void registered(SelectionKey key)
+        {
+            this.key = key;
+        }
+
+        public void ready(SelectionKey key)
+        {
+            try
+            {
+                if (key.isConnectable() && channel.finishConnect())
+                {
+                    route.connected(channel, selectorLoop, key).send(exchange);
+                }
+            }
+            catch (IOException e)
+            {
+                key.cancel();
+                route.connectFailed(exchange, channel, e);
+            }
+        }
+
+        public void checkIdle(long now)
+        {
+            int connectionTimeout = httpConnector.getConnectionTimeout();
+            if (connectionTimeout > 0 && now - started > connectionTimeout)
+            {
+                key.cancel();
+                route.connectFailed(exchange, channel, new SocketTimeoutException("connect timed out"));
+            }
+        }
+    }
+
+    /**
+     * A connection that sends one request at a time.
+     */
+    private class ClientConnection extends NioConnection
+    {
+
+        private final Route route;
+        private final AtomicReference<Exchange> current = new AtomicReference<Exchange>();
+        private volatile boolean reused;
+
+        ClientConnection(Route route, SocketChannel channel, NioSelectorLoop selectorLoop)
+        {
+            super(channel, selectorLoop, httpConnector.getSelectorLoops().getBufferPool(), workManager,
+                httpConnector, idleConnectionTimeout);
+            this.route = route;
+        }
+
+        void send(Exchange exchange)
+        {
+            if (exchange.isDone())
+            {
+                // cancelled while waiting for the connection
+                route.released(this);
+                return;
+            }
+
+            exchange.sent(this);
+            current.set(exchange);
+            try
+            {
+                write(ByteBuffer.wrap(exchange.request));
+            }
+            catch (IOException e)
+            {
+                if (current.compareAndSet(exchange, null))
+                {
+                    lost(exchange, e);
+                }
+                close();
+            }
+        }
+
+        /**
+         * Called when the connection is closed before the response is received.
+         */
+        private void lost(Exchange exchange, IOException e)
+        {
+            if (exchange.isDone())
+            {
+                return;
+            }
+            if (reused && !exchange.responseStarted && !exchange.retried && !disposed)
+            {
+                // the server closed the kept-alive connection before reading the request
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Connection to " + getRemoteAddress() + " closed by the server, sending the request again");
+                }
+                exchange.retried = true;
+                try
+                {
+                    // queued even when the queue is full, as the request was already in
+                    route.execute(exchange, false);
+                }
+                catch (IOException retryException)
+                {
+                    exchange.fail(retryException);
+                }
+            }
+            else
+            {
+                exchange.fail(e);
+            }
+        }
+
+        @Override
+        protected FrameDecoder createFrameDecoder()
+        {
+            return new HttpResponseFramer()
+            {
+                @Override
+                protected boolean isHeadRequest()
+                {
+                    Exchange exchange = current.get();
+                    return exchange != null && HttpConstants.METHOD_HEAD.equals(exchange.method.getName());
+                }
+
+                @Override
+                public void decode(ByteBuffer buffer, List<Object> frames) throws IOException
+                {
+                    Exchange exchange = current.get();
+                    if (exchange != null)
+                    {
+                        exchange.responseStarted = true;
+                    }
+                    super.decode(buffer, frames);
+                }
+            };
+        }
+
+        @Override
+        protected void process(List<Object> frames)
+        {
+            for (Object frame : frames)
+            {
+                Exchange exchange = current.getAndSet(null);
+                if (exchange == null)
+                {
+                    logger.warn("Discarding unexpected response from " + getRemoteAddress());
+                    close();
+                    return;
+                }
+
+                HttpResponseFramer.ResponseFrame response = (HttpResponseFramer.ResponseFrame) frame;
+                if (response.isKeepAlive() && !isCloseRequested(exchange.method) && isOpen())
+                {
+                    reused = true;
+                    route.released(this);
+                }
+                else
+                {
+                    closeWhenFlushed();
+                }
+                exchange.complete(response);
+            }
+        }
+
+        private boolean isCloseRequested(HttpMethod method)
+        {
+            Header connection = method.getRequestHeader(HttpConstants.HEADER_CONNECTION);
+            return connection != null && "close".equalsIgnoreCase(connection.getValue());
+        }
+
+        @Override
+        public void checkIdle(long now)
+        {
+            Exchange exchange = current.get();
+            if (exchange == null)
+            {
+                super.checkIdle(now);
+            }
+            else if (exchange.isExpired(now) && current.compareAndSet(exchange, null))
+            {
+                exchange.fail(new SocketTimeoutException("Read timed out"));
+                close();
+            }
+        }
+
+        @Override
+        protected void handleWorkException(WorkException e)
+        {
+            Exchange exchange = current.getAndSet(null);
+            if (exchange != null)
+            {
+                exchange.fail(e);
+            }
+        }
+
+        @Override
+        protected void closed()
+        {
+            Exchange exchange = current.getAndSet(null);
+            if (exchange != null)
+            {
+                lost(exchange, new NoHttpResponseException("The server " + route.host
+                                                           + " failed to respond"));
+            }
+            route.closed(this);
+        }
+    }
+
+    private static class FailureWork implements Work
+    {
+
+        private final Callback callback;
+        private final Exception exception;
+
+        FailureWork(Callback callback, Exception exception)
+        {
+            this.callback = callback;
+            this.exception = exception;
+        }
+
+        public void run()
+        {
+            callback.failed(exception);
+        }
+
+        public void release()
+        {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Thrown once the method has written its request and starts reading the
+     * response.
+     */
+    private static class RequestWrittenException extends IOException
+    {
+
+        private static final long serialVersionUID = -2651178325618430862L;
+    }
+
+    /**
+     * A connection that writes the request to a buffer and reads the response from
+     * another one, without opening a socket.
+     */
+    private static class BufferConnection extends HttpConnection
+    {
+
+        BufferConnection(String host, int port, final OutputStream out, final InputStream in)
+        {
+            // the Host header only has the port when it is not the default one
+            super(host, port, new Protocol(HttpConnector.HTTP, new ProtocolSocketFactory()
+            {
+                public Socket createSocket(String host, int port, InetAddress localAddress, int localPort,
+                                           HttpConnectionParams params)
+                {
+                    return new BufferSocket(out, in);
+                }
+
+                public Socket createSocket(String host, int port, InetAddress localAddress, int localPort)
+                {
+                    return new BufferSocket(out, in);
+                }
+
+                public Socket createSocket(String host, int port)
+                {
+                    return new BufferSocket(out, in);
+                }
+            }, HttpConstants.DEFAULT_HTTP_PORT));
+        }
+    }
+
+    private static class BufferSocket extends Socket
+    {
+
+        private final OutputStream out;
+        private final InputStream in;
+
+        BufferSocket(OutputStream out, InputStream in)
+        {
+            this.out = out;
+            this.in = in;
+        }
+
+        @Override
+        public OutputStream getOutputStream()
+        {
+            return out;
+        }
+
+        @Override
+        public InputStream getInputStream()
+        {
+            if (in != null)
+            {
+                return in;
+            }
+            return new InputStream()
+            {
+                @Override
+                public int read() throws IOException
+                {
+                    throw new RequestWrittenException();
+                }
+            };
+        }
+
+        @Override
+        public void setTcpNoDelay(boolean on)
+        {
+            // not a real socket
+        }
+
+        @Override
+        public void setSoTimeout(int timeout)
+        {
+            // not a real socket
+        }
+
+        @Override
+        public int getSoTimeout()
+        {
+            return 0;
+        }
+
+        @Override
+        public void setSoLinger(boolean on, int linger)
+        {
+            // not a real socket
+        }
+
+        @Override
+        public void setSendBufferSize(int size)
+        {
+            // not a real socket
+        }
+
+        @Override
+        public int getSendBufferSize()
+        {
+            return 0;
+        }
+
+        @Override
+        public void setReceiveBufferSize(int size)
+        {
+            // not a real socket
+        }
+
+        @Override
+        public int getReceiveBufferSize()
+        {
+            return 0;
+        }
+
+        @Override
+        public void shutdownInput()
+        {
+            // not a real socket
+        }
+
+        @Override
+        public void shutdownOutput()
+        {
+            // not a real socket
+        }
+
+        @Override
+        public synchronized void close()
+        {
+            // not a real socket
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.api.transport.NoReceiverForEndpointException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.transport.ConnectException;
+import org.mule.transport.http.i18n.HttpMessages;
+import org.mule.transport.tcp.FrameDecoder;
+import org.mule.transport.tcp.NioConnection;
+import org.mule.transport.tcp.NioSelectorLoop;
+import org.mule.transport.tcp.TcpConnector;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Manage a non-blocking server socket channel.
+ * <p/>
+ * The accepted connections are read by the I/O threads of the connector, which frame
+ * the requests with a {@link HttpRequestFramer}. Once a request has been read
+ * completely a work looks up the right MessageReceiver and dispatches the request to
+ * it, as {@link HttpRequestDispatcherWork} does for blocking connections. The
+ * requests of a connection are processed in order by a single work at a time.
+ */
+class NioHttpRequestDispatcher implements HttpConnectionManager.ConnectionDispatcher
+{
+
+    private static Log logger = LogFactory.getLog(NioHttpRequestDispatcher.class);
+
+    private static final byte[] CONTINUE_RESPONSE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes();
+    private static final byte[] REQUEST_TOO_LONG_RESPONSE = ("HTTP/1.1 " + HttpConstants.SC_REQUEST_TOO_LONG
+                                                             + " Request Entity Too Large\r\n"
+                                                             + "Connection: close\r\nContent-Length: 0\r\n\r\n").getBytes();
+
+    private final HttpConnector httpConnector;
+    private final ServerSocketChannel serverChannel;
+    private final WorkManager workManager;
+    private final Set<NioHttpConnection> connections = Collections.newSetFromMap(
+        new ConcurrentHashMap<NioHttpConnection, Boolean>());
+
+    public NioHttpRequestDispatcher(HttpConnector httpConnector, ServerSocketChannel serverChannel, WorkManager workManager)
+    {
+        if (httpConnector == null)
+        {
+            throw new IllegalArgumentException("HttpConnector can not be null");
+        }
+        if (serverChannel == null)
+        {
+            throw new IllegalArgumentException("ServerSocketChannel can not be null");
+        }
+        if (workManager == null)
+        {
+            throw new IllegalArgumentException("WorkManager can not be null");
+        }
+        this.httpConnector = httpConnector;
+        this.serverChannel = serverChannel;
+        this.workManager = workManager;
+    }
+
+    void start() throws IOException
+    {
+        httpConnector.getSelectorLoops().next().register(serverChannel, SelectionKey.OP_ACCEPT, new Acceptor());
+    }
+
+    @Override
+    public void disconnect()
+    {
+        try
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing: " + serverChannel);
+            }
+            serverChannel.close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to close server socket: " + e.getMessage(), e);
+        }
+
+        for (NioHttpConnection connection : connections)
+        {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return how long connections can be idle before they are closed, or zero if
+     *         they are never closed
+     */
+    private int getIdleTimeout()
+    {
+        if (httpConnector.getKeepAliveTimeout() > 0)
+        {
+            return httpConnector.getKeepAliveTimeout();
+        }
+        return httpConnector.getServerSoTimeout() > 0 ? httpConnector.getServerSoTimeout() : 0;
+    }
+
+    private class Acceptor implements NioSelectorLoop.Handler
+    {
+
+        @Override
+        public void registered(SelectionKey key)
+        {
+            // nothing to do
+        }
+
+        @Override
+        public void ready(SelectionKey key) throws IOException
+        {
+            SocketChannel channel;
+            while ((channel = ((ServerSocketChannel) key.channel()).accept()) != null)
+            {
+                try
+                {
+                    channel.configureBlocking(false);
+                    httpConnector.configureSocket(TcpConnector.SERVER, channel.socket());
+
+                    NioSelectorLoop selectorLoop = httpConnector.getSelectorLoops().next();
+                    NioHttpConnection connection = new NioHttpConnection(channel, selectorLoop);
+                    connections.add(connection);
+                    selectorLoop.register(channel, SelectionKey.OP_READ, connection);
+                }
+                catch (IOException e)
+                {
+                    logger.warn("Failed to configure accepted connection: " + e.getMessage());
+                    channel.close();
+                }
+            }
+        }
+
+        @Override
+        public void checkIdle(long now)
+        {
+            // the server socket is never idle
+        }
+    }
+
+    /**
+     * An accepted connection. Each request is processed with its own
+     * {@link HttpServerConnection}, which reads the framed request and writes the
+     * response to the connection.
+     */
+    private class NioHttpConnection extends NioConnection
+    {
+
+        private final Socket socket;
+        private final String encoding;
+        private OutputStream out;
+
+        NioHttpConnection(SocketChannel channel, NioSelectorLoop selectorLoop)
+        {
+            super(channel, selectorLoop, httpConnector.getSelectorLoops().getBufferPool(), workManager,
+                httpConnector, getIdleTimeout());
+            this.socket = channel.socket();
+            this.encoding = httpConnector.getMuleContext().getConfiguration().getDefaultEncoding();
+        }
+
+        @Override
+        protected FrameDecoder createFrameDecoder()
+        {
+            return new HttpRequestFramer(HttpRequestFramer.DEFAULT_MAX_HEAD_SIZE, httpConnector.getMaxRequestSize())
+            {
+                @Override
+                protected boolean sendContinue() throws IOException
+                {
+                    // the response of a previous request may be being written
+                    if (isIdle())
+                    {
+                        write(ByteBuffer.wrap(CONTINUE_RESPONSE));
+                        return true;
+                    }
+                    return false;
+                }
+
+                @Override
+                protected boolean rejectRequest() throws IOException
+                {
+                    // otherwise the response would be written before the ones of the
+                    // previous requests
+                    if (isIdle())
+                    {
+                        write(ByteBuffer.wrap(REQUEST_TOO_LONG_RESPONSE));
+                        closeWhenFlushed();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        protected void process(List<Object> frames)
+        {
+            if (out == null)
+            {
+                out = createOutputStream();
+            }
+
+            for (Object frame : frames)
+            {
+                if (!isOpen() || !processRequest((byte[]) frame))
+                {
+                    closeWhenFlushed();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return whether the connection is kept alive
+         */
+        private boolean processRequest(byte[] request)
+        {
+            HttpServerConnection httpServerConnection = new NioHttpServerConnection(this, socket,
+                new ByteArrayInputStream(request), out, encoding);
+            try
+            {
+                RequestLine requestLine = httpServerConnection.getRequestLine();
+                if (requestLine != null)
+                {
+                    try
+                    {
+                        HttpMessageReceiver httpMessageReceiver = httpConnector.lookupReceiver(socket, requestLine);
+                        httpMessageReceiver.processRequest(httpServerConnection);
+                    }
+                    catch (NoReceiverForEndpointException e)
+                    {
+                        httpServerConnection.writeFailureResponse(HttpConstants.SC_NOT_FOUND, HttpMessages.cannotBindToAddress(httpServerConnection.getFullUri()).toString());
+                    }
+                }
+                httpServerConnection.reset();
+                return httpServerConnection.isKeepAlive();
+            }
+            catch (HttpMessageReceiver.EmptyRequestException e)
+            {
+                logger.debug("Discarding request since content was empty");
+            }
+            catch (HttpMessageReceiver.FailureProcessingRequestException e)
+            {
+                logger.debug("Closing socket due to failure during request processing");
+            }
+            catch (Exception e)
+            {
+                httpConnector.getMuleContext().getExceptionListener().handleException(e);
+            }
+            return false;
+        }
+
+        @Override
+        protected void handleWorkException(WorkException e)
+        {
+            httpConnector.getMuleContext().getExceptionListener().handleException(
+                new ConnectException(CoreMessages.failedToScheduleWork(), e, httpConnector));
+        }
+
+        @Override
+        protected void closed()
+        {
+            connections.remove(this);
+        }
+    }
+
+    /**
+     * Closing the connection of a request waits for its response to be written.
+     */
+    private static class NioHttpServerConnection extends HttpServerConnection
+    {
+
+        private final NioConnection connection;
+
+        NioHttpServerConnection(NioConnection connection, Socket socket, ByteArrayInputStream in, OutputStream out, String encoding)
+        {
+            super(socket, in, out, encoding);
+            this.connection = connection;
+        }
+
+        @Override
+        public synchronized void close()
+        {
+            connection.closeWhenFlushed();
+        }
+
+        @Override
+        public synchronized boolean isOpen()
+        {
+            return connection.isOpen();
+        }
+    }
+}
@@ -116,4 +116,14 @@ public class HttpMessages extends MessageFactory
     {
         return factory.createMessage(BUNDLE_PATH, 26, url);
     }
+
+    public static Message nonBlockingConnectionsNotSupported(String protocol)
+    {
+        return factory.createMessage(BUNDLE_PATH, 27, protocol);
+    }
+
+    public static Message nonBlockingClientProxyNotSupported()
+    {
+        return factory.createMessage(BUNDLE_PATH, 28);
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+@SmallTest
+public class HttpRequestFramerTestCase extends AbstractMuleTestCase
+{
+
+    private static final String GET = "GET /path HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    private static final String POST = "POST /path HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello";
+    private static final String CHUNKED_POST = "POST /path HTTP/1.1\r\ntransfer-encoding: chunked\r\n\r\n"
+                                               + "5;name=value\r\nhello\r\n1\r\n!\r\n0\r\nTrailer: value\r\n\r\n";
+
+    private final List<Object> frames = new ArrayList<Object>();
+
+    @Test
+    public void framesRequestsWithoutBody() throws Exception
+    {
+        decode(new HttpRequestFramer(), GET);
+
+        assertFrames(GET);
+    }
+
+    @Test
+    public void framesBodiesByContentLength() throws Exception
+    {
+        decode(new HttpRequestFramer(), POST);
+
+        assertFrames(POST);
+    }
+
+    @Test
+    public void framesChunkedBodies() throws Exception
+    {
+        decode(new HttpRequestFramer(), CHUNKED_POST);
+
+        assertFrames(CHUNKED_POST);
+    }
+
+    @Test
+    public void framesPipelinedRequests() throws Exception
+    {
+        decode(new HttpRequestFramer(), POST + GET + CHUNKED_POST + GET);
+
+        assertFrames(POST, GET, CHUNKED_POST, GET);
+    }
+
+    @Test
+    public void framesRequestsReadByteByByte() throws Exception
+    {
+        HttpRequestFramer framer = new HttpRequestFramer();
+        for (byte b : (CHUNKED_POST + POST).getBytes("US-ASCII"))
+        {
+            framer.decode(ByteBuffer.wrap(new byte[] {b}), frames);
+        }
+
+        assertFrames(CHUNKED_POST, POST);
+    }
+
+    @Test
+    public void ignoresBlankLinesBeforeRequests() throws Exception
+    {
+        decode(new HttpRequestFramer(), "\r\n" + GET + "\r\n\r\n" + GET);
+
+        assertFrames(GET, GET);
+    }
+
+    @Test
+    public void discardsIncompleteRequestsAtEndOfStream() throws Exception
+    {
+        HttpRequestFramer framer = new HttpRequestFramer();
+        decode(framer, POST.substring(0, POST.length() - 2));
+        framer.endOfStream(frames);
+
+        assertTrue(frames.isEmpty());
+    }
+
+    @Test
+    public void removesExpectHeaderOnceContinueIsSent() throws Exception
+    {
+        HttpRequestFramer framer = new HttpRequestFramer()
+        {
+            @Override
+            protected boolean sendContinue()
+            {
+                return true;
+            }
+        };
+        decode(framer, "POST /path HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 5\r\n\r\nhello");
+
+        assertFrames(POST);
+    }
+
+    @Test
+    public void keepsExpectHeaderWhenContinueIsNotSent() throws Exception
+    {
+        String request = "POST /path HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 5\r\n\r\nhello";
+        decode(new HttpRequestFramer(), request);
+
+        assertFrames(request);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsLargeHeads() throws Exception
+    {
+        decode(new HttpRequestFramer(64), "GET /path HTTP/1.1\r\nHeader: " + new String(new char[64]) + "\r\n\r\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidContentLength() throws Exception
+    {
+        decode(new HttpRequestFramer(), "POST /path HTTP/1.1\r\nContent-Length: five\r\n\r\nhello");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsContentLengthsOverTheMaximumRequestSize() throws Exception
+    {
+        decode(new HttpRequestFramer(64, POST.length() - 1), POST);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsContentLengthsThatOverflow() throws Exception
+    {
+        decode(new HttpRequestFramer(), "POST /path HTTP/1.1\r\nContent-Length: " + Long.MAX_VALUE + "\r\n\r\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsChunksOverTheMaximumRequestSize() throws Exception
+    {
+        HttpRequestFramer framer = new HttpRequestFramer(64, 256);
+        decode(framer, "POST /path HTTP/1.1\r\ntransfer-encoding: chunked\r\n\r\n");
+        for (int i = 0; i < 10; i++)
+        {
+            decode(framer, "10\r\n0123456789abcdef\r\n");
+        }
+    }
+
+    @Test
+    public void discardsRejectedRequests() throws Exception
+    {
+        HttpRequestFramer framer = new HttpRequestFramer(64, POST.length() - 1)
+        {
+            @Override
+            protected boolean rejectRequest()
+            {
+                return true;
+            }
+        };
+        decode(framer, POST + GET);
+        decode(framer, GET);
+
+        assertTrue(frames.isEmpty());
+    }
+
+    @Test
+    public void framesRequestsPipelinedBeforeARejectedOne() throws Exception
+    {
+        HttpRequestFramer framer = new HttpRequestFramer(64, GET.length());
+        try
+        {
+            decode(framer, GET + POST + POST);
+        }
+        catch (IOException e)
+        {
+            // the connection is closed once the previous requests are answered
+        }
+
+        assertFrames(GET);
+    }
+
+    private void decode(HttpRequestFramer framer, String data) throws Exception
+    {
+        framer.decode(ByteBuffer.wrap(data.getBytes("US-ASCII")), frames);
+    }
+
+    private void assertFrames(String... expected) throws Exception
+    {
+        assertEquals(expected.length, frames.size());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(expected[i], new String((byte[]) frames.get(i), "US-ASCII"));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+@SmallTest
+public class HttpResponseFramerTestCase extends AbstractMuleTestCase
+{
+
+    private static final String OK = "HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello";
+    private static final String CHUNKED = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                                          + "5;name=value\r\nhello\r\n1\r\n!\r\n0\r\nTrailer: value\r\n\r\n";
+    private static final String NO_CONTENT = "HTTP/1.1 204 No Content\r\n\r\n";
+
+    private final List<Object> frames = new ArrayList<Object>();
+
+    @Test
+    public void framesBodiesByContentLength() throws Exception
+    {
+        decode(new HttpResponseFramer(), OK);
+
+        assertFrames(OK);
+        assertTrue(frame(0).isKeepAlive());
+    }
+
+    @Test
+    public void framesChunkedBodies() throws Exception
+    {
+        decode(new HttpResponseFramer(), CHUNKED);
+
+        assertFrames(CHUNKED);
+    }
+
+    @Test
+    public void framesResponsesReadByteByByte() throws Exception
+    {
+        HttpResponseFramer framer = new HttpResponseFramer();
+        for (byte b : (CHUNKED + NO_CONTENT + OK).getBytes("US-ASCII"))
+        {
+            framer.decode(ByteBuffer.wrap(new byte[] {b}), frames);
+        }
+
+        assertFrames(CHUNKED, NO_CONTENT, OK);
+    }
+
+    @Test
+    public void keepsInterimResponsesWithTheFinalOne() throws Exception
+    {
+        String response = "HTTP/1.1 100 Continue\r\n\r\n" + OK;
+        decode(new HttpResponseFramer(), response);
+
+        assertFrames(response);
+    }
+
+    @Test
+    public void ignoresTheBodyOfResponsesToHeadRequests() throws Exception
+    {
+        HttpResponseFramer framer = new HttpResponseFramer()
+        {
+            @Override
+            protected boolean isHeadRequest()
+            {
+                return true;
+            }
+        };
+        String response = "HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\n";
+        decode(framer, response);
+
+        assertFrames(response);
+    }
+
+    @Test
+    public void readsUndelimitedBodiesUntilTheEndOfTheStream() throws Exception
+    {
+        String response = "HTTP/1.1 200 OK\r\n\r\nhello";
+        HttpResponseFramer framer = new HttpResponseFramer();
+        decode(framer, response);
+        assertTrue(frames.isEmpty());
+
+        framer.endOfStream(frames);
+
+        assertFrames(response);
+        assertFalse(frame(0).isKeepAlive());
+    }
+
+    @Test
+    public void followsTheConnectionHeader() throws Exception
+    {
+        decode(new HttpResponseFramer(), "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 0\r\n\r\n"
+                                         + "HTTP/1.0 200 OK\r\nContent-Length: 0\r\n\r\n"
+                                         + "HTTP/1.0 200 OK\r\nConnection: Keep-Alive\r\nContent-Length: 0\r\n\r\n");
+
+        assertEquals(3, frames.size());
+        assertFalse(frame(0).isKeepAlive());
+        assertFalse(frame(1).isKeepAlive());
+        assertTrue(frame(2).isKeepAlive());
+    }
+
+    @Test
+    public void discardsIncompleteResponsesAtEndOfStream() throws Exception
+    {
+        HttpResponseFramer framer = new HttpResponseFramer();
+        decode(framer, OK.substring(0, OK.length() - 2));
+        framer.endOfStream(frames);
+
+        assertTrue(frames.isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidStatusLines() throws Exception
+    {
+        decode(new HttpResponseFramer(), "HTTP/1.1 OK\r\n\r\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsLargeHeads() throws Exception
+    {
+        decode(new HttpResponseFramer(64), "HTTP/1.1 200 OK\r\nHeader: " + new String(new char[64]) + "\r\n\r\n");
+    }
+
+    private void decode(HttpResponseFramer framer, String data) throws Exception
+    {
+        framer.decode(ByteBuffer.wrap(data.getBytes("US-ASCII")), frames);
+    }
+
+    private HttpResponseFramer.ResponseFrame frame(int index)
+    {
+        return (HttpResponseFramer.ResponseFrame) frames.get(index);
+    }
+
+    private void assertFrames(String... expected) throws Exception
+    {
+        assertEquals(expected.length, frames.size());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(expected[i], new String(frame(i).getData(), "US-ASCII"));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http.functional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+public class NioHttpClientFunctionalTestCase extends FunctionalTestCase
+{
+
+    @Rule
+    public DynamicPort dynamicPort = new DynamicPort("port1");
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "nio-http-client-functional-test-flow.xml";
+    }
+
+    @Test
+    public void sendsRequests() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        MuleMessage result = client.send("vm://requestResponse", TEST_MESSAGE, null);
+
+        assertNotNull(result);
+        assertNull(result.getExceptionPayload());
+        assertEquals(TEST_MESSAGE, result.getPayloadAsString());
+    }
+
+    @Test
+    public void sendsConcurrentRequestsOnLimitedConnections() throws Exception
+    {
+        final MuleClient client = muleContext.getClient();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 20; i++)
+            {
+                final String payload = TEST_MESSAGE + i;
+                results.add(executor.submit(new Callable<String>()
+                {
+                    public String call() throws Exception
+                    {
+                        return client.send("vm://requestResponse", payload, null).getPayloadAsString();
+                    }
+                }));
+            }
+
+            for (int i = 0; i < results.size(); i++)
+            {
+                assertEquals(TEST_MESSAGE + i, results.get(i).get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void dispatchesOneWayRequests() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        client.dispatch("vm://oneWay", TEST_MESSAGE, null);
+
+        MuleMessage received = client.request("vm://received", RECEIVE_TIMEOUT);
+        assertNotNull(received);
+        assertEquals(TEST_MESSAGE, received.getPayloadAsString());
+    }
+}
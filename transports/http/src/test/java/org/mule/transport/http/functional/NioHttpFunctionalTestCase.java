@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http.functional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.transport.http.HttpConnector;
+import org.mule.transport.http.HttpConstants;
+
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import org.apache.commons.httpclient.ChunkedInputStream;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpParser;
+import org.apache.commons.httpclient.StatusLine;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class NioHttpFunctionalTestCase extends FunctionalTestCase
+{
+
+    private static final String ENCODING = "US-ASCII";
+
+    @Rule
+    public DynamicPort dynamicPort = new DynamicPort("port1");
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "nio-http-functional-test-flow.xml";
+    }
+
+    @Test
+    public void receivesRequests() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        MuleMessage result = client.send(getEchoAddress(), TEST_MESSAGE, null);
+
+        assertNotNull(result);
+        assertEquals(TEST_MESSAGE, result.getPayloadAsString());
+        assertEquals("200", result.getInboundProperty(HttpConnector.HTTP_STATUS_PROPERTY));
+    }
+
+    @Test
+    public void processesPipelinedRequestsInOrder() throws Exception
+    {
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            StringBuilder requests = new StringBuilder();
+            for (int i = 0; i < 10; i++)
+            {
+                requests.append(post("request " + i));
+            }
+            // split in the middle of a request
+            byte[] data = requests.toString().getBytes(ENCODING);
+            out.write(data, 0, data.length / 2 + 3);
+            out.flush();
+            out.write(data, data.length / 2 + 3, data.length - data.length / 2 - 3);
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            for (int i = 0; i < 10; i++)
+            {
+                assertEquals("request " + i, readResponse(in, HttpConstants.SC_OK));
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void receivesChunkedRequests() throws Exception
+    {
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        try
+        {
+            String request = "POST /echo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                             + "5\r\nchunk\r\n7;ext=1\r\ned body\r\n0\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(ENCODING));
+
+            assertEquals("chunked body", readResponse(socket.getInputStream(), HttpConstants.SC_OK));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void sendsContinueBeforeTheBodyIsSent() throws Exception
+    {
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /echo HTTP/1.1\r\nHost: localhost\r\nExpect: 100-continue\r\n"
+                       + "Content-Length: 4\r\n\r\n").getBytes(ENCODING));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            StatusLine statusLine = new StatusLine(HttpParser.readLine(in, ENCODING));
+            assertEquals(HttpConstants.SC_CONTINUE, statusLine.getStatusCode());
+            HttpParser.parseHeaders(in, ENCODING);
+
+            out.write("body".getBytes(ENCODING));
+            assertEquals("body", readResponse(in, HttpConstants.SC_OK));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void rejectsRequestsLargerThanTheMaximumRequestSize() throws Exception
+    {
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        try
+        {
+            socket.getOutputStream().write(("POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                                            + (HttpConnector.DEFAULT_MAX_REQUEST_SIZE + 1) + "\r\n\r\n").getBytes(ENCODING));
+
+            InputStream in = socket.getInputStream();
+            readResponse(in, HttpConstants.SC_REQUEST_TOO_LONG);
+            assertEquals(-1, in.read());
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void respondsNotFoundForUnknownPaths() throws Exception
+    {
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        try
+        {
+            socket.getOutputStream().write(
+                "GET /unknown HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(ENCODING));
+
+            readResponse(socket.getInputStream(), HttpConstants.SC_NOT_FOUND);
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    private String getEchoAddress()
+    {
+        return "http://localhost:" + dynamicPort.getNumber() + "/echo";
+    }
+
+    private String post(String body)
+    {
+        return "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\nContent-Length: "
+               + body.length() + "\r\n\r\n" + body;
+    }
+
+    private String readResponse(InputStream in, int expectedStatus) throws Exception
+    {
+        StatusLine statusLine = new StatusLine(HttpParser.readLine(in, ENCODING));
+        assertEquals(expectedStatus, statusLine.getStatusCode());
+
+        int contentLength = -1;
+        boolean chunked = false;
+        for (Header header : HttpParser.parseHeaders(in, ENCODING))
+        {
+            if (HttpConstants.HEADER_CONTENT_LENGTH.equalsIgnoreCase(header.getName()))
+            {
+                contentLength = Integer.parseInt(header.getValue());
+            }
+            else if (HttpConstants.HEADER_TRANSFER_ENCODING.equalsIgnoreCase(header.getName()))
+            {
+                chunked = true;
+            }
+        }
+
+        if (chunked)
+        {
+            return IOUtils.toString(new ChunkedInputStream(in), ENCODING);
+        }
+        if (contentLength < 0)
+        {
+            return IOUtils.toString(in, ENCODING);
+        }
+        byte[] body = new byte[contentLength];
+        new DataInputStream(in).readFully(body);
+        return new String(body, ENCODING);
+    }
+}
@@ -35,6 +35,7 @@ import org.mule.transport.ConnectException;
 import org.mule.transport.jdbc.sqlstrategy.DefaultSqlStatementStrategyFactory;
 import org.mule.transport.jdbc.sqlstrategy.SqlStatementStrategyFactory;
 import org.mule.transport.jdbc.xa.DataSourceWrapper;
+import org.mule.util.MapUtils;
 import org.mule.util.StringUtils;
 import org.mule.util.TemplateParser;
 
@@ -43,6 +44,8 @@ import java.sql.SQLException;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -61,6 +64,11 @@ public class JdbcConnector extends AbstractConnector implements Testable
     public static final String PROPERTY_POLLING_FREQUENCY = "pollingFrequency";
     public static final long DEFAULT_POLLING_FREQUENCY = 1000;
 
+    // These are properties of outbound endpoints that batch their update statements
+    public static final String PROPERTY_BATCH_SIZE = "batchSize";
+    public static final String PROPERTY_BATCH_TIMEOUT = "batchTimeout";
+    public static final long DEFAULT_BATCH_TIMEOUT = 100;
+
     private static final Pattern STATEMENT_ARGS = TemplateParser.WIGGLY_MULE_TEMPLATE_PATTERN;
 
     private SqlStatementStrategyFactory sqlStatementStrategyFactory = new DefaultSqlStatementStrategyFactory();
@@ -80,6 +88,9 @@ public class JdbcConnector extends AbstractConnector implements Testable
 
     private int queryTimeout;
 
+    private final ConcurrentMap<ImmutableEndpoint, JdbcStatementBatcher> statementBatchers =
+        new ConcurrentHashMap<ImmutableEndpoint, JdbcStatementBatcher>();
+
     /**
      * Should each DB record be received in a separate transaction or should there be a single transaction for
      * the entire ResultSet?
@@ -388,6 +399,7 @@ public class JdbcConnector extends AbstractConnector implements Testable
     @Override
     protected void doDispose()
     {
+        statementBatchers.clear();
         if (dataSource instanceof BitronixXaDataSourceWrapper)
         {
             ((BitronixXaDataSourceWrapper) dataSource).close();
@@ -515,6 +527,34 @@ public class JdbcConnector extends AbstractConnector implements Testable
         }
     }
 
+    /**
+     * Returns the batcher that groups the update statements of an outbound endpoint
+     * which sets the <code>batchSize</code> property, or <code>null</code> if the
+     * endpoint executes each statement on its own.
+     */
+    public JdbcStatementBatcher getStatementBatcher(ImmutableEndpoint endpoint, String sql)
+    {
+        int batchSize = MapUtils.getIntValue(endpoint.getProperties(), PROPERTY_BATCH_SIZE, 0);
+        if (batchSize <= 1)
+        {
+            return null;
+        }
+
+        JdbcStatementBatcher batcher = statementBatchers.get(endpoint);
+        if (batcher == null)
+        {
+            long batchTimeout = MapUtils.getLongValue(endpoint.getProperties(), PROPERTY_BATCH_TIMEOUT,
+                DEFAULT_BATCH_TIMEOUT);
+            batcher = new JdbcStatementBatcher(this, getQueryRunnerFor(endpoint), sql, batchSize, batchTimeout);
+            JdbcStatementBatcher existing = statementBatchers.putIfAbsent(endpoint, batcher);
+            if (existing != null)
+            {
+                batcher = existing;
+            }
+        }
+        return batcher;
+    }
+
     public QueryRunner getQueryRunner()
     {
         return queryRunner;
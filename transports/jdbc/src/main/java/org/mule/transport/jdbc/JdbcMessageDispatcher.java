@@ -7,13 +7,19 @@
 package org.mule.transport.jdbc;
 
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.mule.DefaultMuleMessage;
 import org.mule.api.MuleEvent;
 import org.mule.api.MuleMessage;
 import org.mule.api.endpoint.OutboundEndpoint;
+import org.mule.api.transaction.Transaction;
 import org.mule.transaction.TransactionCoordination;
 import org.mule.transport.AbstractMessageDispatcher;
+import org.mule.transport.jdbc.sqlstrategy.SimpleUpdateSqlStatementStrategy;
 import org.mule.transport.jdbc.sqlstrategy.SqlStatementStrategy;
+import org.mule.util.ArrayUtils;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -22,6 +28,11 @@ import org.mule.transport.jdbc.sqlstrategy.SqlStatementStrategyExecutor;
 /**
  * The Jdbc Message dispatcher is responsible for executing SQL queries against a
  * database.
+ * <p/>
+ * When the endpoint sets the <code>batchSize</code> property, insert, update and
+ * delete statements are executed in JDBC batches: outside of a transaction the
+ * statements of concurrent events are grouped by a {@link JdbcStatementBatcher},
+ * within a {@link JdbcTransaction} they are added to the batch of the transaction.
  */
 public class JdbcMessageDispatcher extends AbstractMessageDispatcher
 {
@@ -64,10 +75,76 @@ public class JdbcMessageDispatcher extends AbstractMessageDispatcher
         
         SqlStatementStrategy strategy = 
             jdbcConnector.getSqlStatementStrategyFactory().create(statement, payload);
+
+        // subclasses of the update strategy escape the statement, e.g. to call procedures
+        if (strategy.getClass() == SimpleUpdateSqlStatementStrategy.class)
+        {
+            List<String> paramNames = new ArrayList<String>();
+            String sql = jdbcConnector.parseStatement(statement, paramNames);
+            JdbcStatementBatcher batcher = jdbcConnector.getStatementBatcher(endpoint, sql);
+            if (batcher != null)
+            {
+                MuleMessage result = doSendBatched(batcher, event, paramNames);
+                if (result != null)
+                {
+                    return result;
+                }
+            }
+        }
+
         Connection connection = (Connection) connector.getTransactionalResource(endpoint);
+        Transaction tx = TransactionCoordination.getInstance().getTransaction();
+        if (tx instanceof JdbcTransaction)
+        {
+            ((JdbcTransaction) tx).executeBatch();
+        }
         return sqlStatementExecutor.execute(strategy,jdbcConnector, endpoint, event, event.getTimeout(), connection);
     }
 
+    /**
+     * @return the message of the event once its row has been batched, or
+     *         <code>null</code> if the transaction in progress cannot batch it
+     */
+    protected MuleMessage doSendBatched(JdbcStatementBatcher batcher, MuleEvent event, List<String> paramNames)
+        throws Exception
+    {
+        MuleMessage message = event.getMessage();
+        Object[] paramValues = connector.getParams(endpoint, paramNames, new DefaultMuleMessage(
+            message.getPayload(), message, event.getMuleContext()), endpoint.getEndpointURI().getAddress());
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("SQL UPDATE (batched): " + batcher.getSql() + ", params = " + ArrayUtils.toString(paramValues));
+        }
+
+        Transaction tx = TransactionCoordination.getInstance().getTransaction();
+        if (tx == null)
+        {
+            int nbRows = batcher.execute(paramValues);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Executing SQL statement: " + nbRows + " row(s) updated");
+            }
+            return message;
+        }
+
+        if (!(tx instanceof JdbcTransaction))
+        {
+            // XA transactions cannot run the batch before they commit
+            return null;
+        }
+        // binds the connection the batch is executed on
+        connector.getTransactionalResource(endpoint);
+
+        int[] nbRows = ((JdbcTransaction) tx).addBatch(batcher.getQueryRunner(), batcher.getSql(), paramValues,
+            batcher.getBatchSize());
+        if (nbRows != null && logger.isDebugEnabled())
+        {
+            logger.debug("Executing SQL batch: " + nbRows.length + " statement(s) executed");
+        }
+        return message;
+    }
+
     @Override
     protected void doConnect() throws Exception
     {
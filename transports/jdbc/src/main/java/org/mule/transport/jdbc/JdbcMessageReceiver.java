@@ -7,13 +7,18 @@
 package org.mule.transport.jdbc;
 
 import org.mule.DefaultMuleMessage;
+import org.mule.api.MessagingException;
+import org.mule.api.MuleEvent;
 import org.mule.api.MuleMessage;
 import org.mule.api.construct.FlowConstruct;
 import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.execution.ExecutionTemplate;
 import org.mule.api.lifecycle.CreateException;
 import org.mule.api.transaction.Transaction;
 import org.mule.api.transport.Connector;
 import org.mule.transaction.TransactionCoordination;
+import org.mule.streaming.PagingDelegateProducer;
+import org.mule.streaming.Producer;
 import org.mule.transaction.XaTransactionFactory;
 import org.mule.transport.TransactedPollingMessageReceiver;
 import org.mule.transport.jdbc.i18n.JdbcMessages;
@@ -22,17 +27,30 @@ import org.mule.util.MapUtils;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.dbutils.QueryRunner;
 
 /**
  * Implements {@link TransactedPollingMessageReceiver} reading data from a database.
  * Provides a way to acknowledge each read data using a SQL statement.
+ * <p/>
+ * When the endpoint sets the <code>streaming</code> property, the rows are read
+ * through a cursor and delivered in pages of <code>pageSize</code> rows instead of
+ * being read in a single list, and the rows of each page are acknowledged in a batch
+ * once the page has been processed.
  */
 public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
 {
     public static final String RECEIVE_MESSAGE_IN_TRANSCTION = "receiveMessageInTransaction";
     public static final String RECEIVE_MESSAGES_IN_XA_TRANSCTION = "receiveMessagesInXaTransaction";
+    public static final String STREAMING = "streaming";
+    public static final String PAGE_SIZE = "pageSize";
+    public static final String FETCH_SIZE = "fetchSize";
+    public static final int DEFAULT_PAGE_SIZE = 100;
 
     protected JdbcConnector connector;
     protected String readStmt;
@@ -41,6 +59,11 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
     protected List<String> ackParams;
     public boolean receiveMessagesInXaTransaction = false;
     private volatile boolean aggregateResult;
+    protected boolean streaming;
+    protected int pageSize;
+    protected int fetchSize;
+    // the messages of the page being processed that were routed successfully
+    private volatile List<MuleMessage> pageMessages;
 
     public JdbcMessageReceiver(Connector connector,
                                FlowConstruct flowConstruct,
@@ -81,6 +104,16 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
         this.setReceiveMessagesInTransaction(endpoint.getTransactionConfig().isTransacted()
             && !this.connector.isTransactionPerMessage());
 
+        streaming = MapUtils.getBooleanValue(endpoint.getProperties(), STREAMING, false);
+        if (streaming && transactedEndpoint)
+        {
+            // the acknowledgement of a page is not part of the transaction of each row
+            logger.warn(JdbcMessages.forcePropertyTransactedEndpoint(STREAMING));
+            streaming = false;
+        }
+        pageSize = MapUtils.getIntValue(endpoint.getProperties(), PAGE_SIZE, DEFAULT_PAGE_SIZE);
+        fetchSize = MapUtils.getIntValue(endpoint.getProperties(), FETCH_SIZE, pageSize);
+
         parseStatements(readStmt, ackStmt);
     }
 
@@ -122,7 +155,12 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
         {
             MuleMessage muleMessage = createMuleMessage(message, endpoint.getEncoding());
             routeMessage(muleMessage);
-            if (hasAckStatement())
+            if (streaming)
+            {
+                // acknowledged together with the rest of the page
+                pageMessages.add(muleMessage);
+            }
+            else if (hasAckStatement())
             {
                 con = this.connector.getConnection();
 
@@ -241,6 +279,103 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
         return nbRows;
     }
 
+    @Override
+    public void poll() throws Exception
+    {
+        if (!streaming)
+        {
+            super.poll();
+            return;
+        }
+
+        if (!flowConstruct.getMuleContext().isPrimaryPollingInstance())
+        {
+            return;
+        }
+        try
+        {
+            ExecutionTemplate<MuleEvent> pt = createExecutionTemplate();
+            Producer<Object> producer = createReadProducer();
+            try
+            {
+                List<Object> page = producer.produce();
+                while (page != null && !page.isEmpty() && !isStopping())
+                {
+                    processPage(pt, page);
+                    page = producer.produce();
+                }
+            }
+            finally
+            {
+                producer.close();
+            }
+        }
+        catch (MessagingException e)
+        {
+            //Already handled by exception strategy
+        }
+        catch (Exception e)
+        {
+            getConnector().getMuleContext().handleException(e);
+        }
+    }
+
+    /**
+     * Creates the producer of the pages of rows returned by the read statement.
+     */
+    protected Producer<Object> createReadProducer() throws Exception
+    {
+        Object[] readParams = connector.getParams(endpoint, this.readParams, null, this.endpoint.getEndpointURI().getAddress());
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("SQL QUERY (streaming): " + readStmt + ", params = " + ArrayUtils.toString(readParams));
+        }
+
+        QueryRunner queryRunner = connector.getQueryRunnerFor(endpoint);
+        int queryTimeout = queryRunner instanceof ExtendedQueryRunner
+                           ? ((ExtendedQueryRunner) queryRunner).getQueryTimeout() : -1;
+        return new PagingDelegateProducer<Object>(new ResultSetPagingDelegate(connector.getConnection(),
+            readStmt, readParams, queryTimeout, fetchSize, pageSize, new ColumnAliasRowProcessor()));
+    }
+
+    /**
+     * Processes the rows of a page the same way as the rows read by
+     * {@link #getMessages()}, then acknowledges the rows that were routed.
+     */
+    protected void processPage(ExecutionTemplate<MuleEvent> pt, List<Object> page) throws Exception
+    {
+        pageMessages = Collections.synchronizedList(new ArrayList<MuleMessage>(page.size()));
+        CountDownLatch countdown = new CountDownLatch(page.size());
+        for (Object row : page)
+        {
+            try
+            {
+                this.getWorkManager().scheduleWork(new MessageProcessorWorker(pt, countdown, row));
+            }
+            catch (Exception e)
+            {
+                countdown.countDown();
+                throw e;
+            }
+        }
+        countdown.await();
+
+        if (hasAckStatement() && !pageMessages.isEmpty())
+        {
+            Connection con = connector.getConnection();
+            try
+            {
+                executeBatchAckStatement(con, pageMessages);
+                JdbcUtils.commitAndClose(con);
+            }
+            catch (Exception e)
+            {
+                JdbcUtils.rollbackAndClose(con);
+                throw e;
+            }
+        }
+    }
+
     @Override
     public List getMessages() throws Exception
     {
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Groups the update statements that are executed outside of a transaction on an
+ * outbound endpoint, so that they reach the database as a single JDBC batch. The
+ * thread that fills a batch, or the first one whose batch timeout expires, executes
+ * it while the threads that added the other rows wait for their own update count.
+ * <p/>
+ * Rows that the driver reports as failed in a {@link BatchUpdateException}, or that
+ * it did not execute after a failure, get the exception; the other rows of the batch
+ * are committed.
+ */
+public class JdbcStatementBatcher
+{
+
+    protected transient Log logger = LogFactory.getLog(getClass());
+
+    private final JdbcConnector connector;
+    private final QueryRunner queryRunner;
+    private final String sql;
+    private final int batchSize;
+    private final long batchTimeout;
+
+    private Batch current;
+
+    /**
+     * @param batchSize the number of rows after which a batch is executed
+     * @param batchTimeout the number of milliseconds after which a batch is executed
+     *            even if it is not full
+     */
+    public JdbcStatementBatcher(JdbcConnector connector, QueryRunner queryRunner, String sql, int batchSize,
+                                long batchTimeout)
+    {
+        this.connector = connector;
+        this.queryRunner = queryRunner;
+        this.sql = sql;
+        this.batchSize = batchSize;
+        this.batchTimeout = batchTimeout;
+    }
+
+    /**
+     * Adds a row to the current batch and waits until the batch has been executed.
+     *
+     * @return the number of rows updated by the statement for this row
+     * @throws SQLException if the statement failed for this row
+     */
+    public int execute(Object[] params) throws Exception
+    {
+        Batch batch;
+        int index;
+        boolean full;
+        synchronized (this)
+        {
+            if (current == null)
+            {
+                current = new Batch(System.currentTimeMillis() + batchTimeout);
+            }
+            batch = current;
+            index = batch.add(params);
+            full = batch.size() >= batchSize;
+            if (full)
+            {
+                current = null;
+            }
+        }
+
+        if (full)
+        {
+            batch.execute();
+        }
+        else if (!batch.await())
+        {
+            boolean expired;
+            synchronized (this)
+            {
+                // only one of the waiting threads executes the batch
+                expired = current == batch;
+                if (expired)
+                {
+                    current = null;
+                }
+            }
+            if (expired)
+            {
+                batch.execute();
+            }
+            else
+            {
+                batch.awaitExecution();
+            }
+        }
+        return batch.getUpdateCount(index);
+    }
+
+    public QueryRunner getQueryRunner()
+    {
+        return queryRunner;
+    }
+
+    public String getSql()
+    {
+        return sql;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public long getBatchTimeout()
+    {
+        return batchTimeout;
+    }
+
+    private class Batch
+    {
+
+        private final long deadline;
+        private final List<Object[]> rows = new ArrayList<Object[]>();
+        private final CountDownLatch executed = new CountDownLatch(1);
+        private int[] updateCounts;
+        private SQLException failure;
+
+        Batch(long deadline)
+        {
+            this.deadline = deadline;
+        }
+
+        int add(Object[] params)
+        {
+            rows.add(params);
+            return rows.size() - 1;
+        }
+
+        int size()
+        {
+            return rows.size();
+        }
+
+        /**
+         * @return whether the batch was executed before its timeout expired
+         */
+        boolean await() throws InterruptedException
+        {
+            return executed.await(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        void awaitExecution() throws InterruptedException
+        {
+            executed.await();
+        }
+
+        void execute()
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("SQL BATCH: " + sql + ", " + rows.size() + " row(s)");
+            }
+
+            Connection connection = null;
+            try
+            {
+                connection = connector.getConnection();
+                updateCounts = queryRunner.batch(connection, sql, rows.toArray(new Object[rows.size()][]));
+                JdbcUtils.commitAndClose(connection);
+            }
+            catch (Exception e)
+            {
+                failure = e instanceof SQLException ? (SQLException) e : new SQLException(e.getMessage());
+                if (failure != e)
+                {
+                    failure.initCause(e);
+                }
+                closeAfterFailure(connection);
+            }
+            finally
+            {
+                executed.countDown();
+            }
+        }
+
+        int getUpdateCount(int index) throws SQLException
+        {
+            if (failure == null)
+            {
+                return updateCounts[index];
+            }
+
+            BatchUpdateException batchFailure = getBatchUpdateException(failure);
+            if (batchFailure != null)
+            {
+                int[] counts = batchFailure.getUpdateCounts();
+                if (counts != null && index < counts.length && counts[index] != Statement.EXECUTE_FAILED)
+                {
+                    return counts[index];
+                }
+            }
+            throw failure;
+        }
+
+        private void closeAfterFailure(Connection connection)
+        {
+            try
+            {
+                // the rows executed before a failure are reported as updated so
+                // they have to be kept
+                if (getBatchUpdateException(failure) != null)
+                {
+                    JdbcUtils.commitAndClose(connection);
+                }
+                else
+                {
+                    JdbcUtils.rollbackAndClose(connection);
+                }
+            }
+            catch (SQLException e)
+            {
+                logger.warn("Could not close the connection of a failed batch: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * {@link QueryRunner} wraps the exceptions thrown by the driver, so the
+     * {@link BatchUpdateException} can be a nested exception.
+     */
+    static BatchUpdateException getBatchUpdateException(SQLException e)
+    {
+        for (SQLException next = e; next != null; next = next.getNextException())
+        {
+            if (next instanceof BatchUpdateException)
+            {
+                return (BatchUpdateException) next;
+            }
+        }
+        return null;
+    }
+}
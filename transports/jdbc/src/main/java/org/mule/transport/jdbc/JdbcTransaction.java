@@ -16,15 +16,24 @@ import org.mule.transport.jdbc.i18n.JdbcMessages;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.dbutils.QueryRunner;
+
 /**
  * TODO
  */
 public class JdbcTransaction extends AbstractSingleResourceTransaction
 {
 
+    // rows added by batching outbound endpoints, executed before the commit
+    private QueryRunner batchQueryRunner;
+    private String batchSql;
+    private List<Object[]> batchRows = new ArrayList<Object[]>();
+
     public JdbcTransaction(MuleContext muleContext)
     {
         super(muleContext);
@@ -65,6 +74,24 @@ public class JdbcTransaction extends AbstractSingleResourceTransaction
             return;
         }
         
+        try
+        {
+            executeBatch();
+        }
+        catch (SQLException e)
+        {
+            try
+            {
+                ((Connection)resource).rollback();
+                ((Connection)resource).close();
+            }
+            catch (SQLException rollbackException)
+            {
+                logger.warn("Could not roll back after the batch failed: " + rollbackException.getMessage());
+            }
+            throw new TransactionException(CoreMessages.transactionCommitFailed(), e);
+        }
+
         try
         {
             ((Connection)resource).commit();
@@ -84,6 +111,7 @@ public class JdbcTransaction extends AbstractSingleResourceTransaction
             return;
         }
 
+        batchRows.clear();
         try
         {
             ((Connection)resource).rollback();
@@ -95,6 +123,43 @@ public class JdbcTransaction extends AbstractSingleResourceTransaction
         }
     }
 
+    /**
+     * Adds a row to the batch of the transaction instead of executing the statement
+     * right away. The batch is executed on the connection of the transaction when it
+     * reaches <code>batchSize</code> rows, before another statement is added and
+     * before the transaction commits.
+     *
+     * @return the update counts of the batch if it was executed
+     */
+    public int[] addBatch(QueryRunner queryRunner, String sql, Object[] params, int batchSize) throws SQLException
+    {
+        if (!batchRows.isEmpty() && (queryRunner != batchQueryRunner || !sql.equals(batchSql)))
+        {
+            // keeps the statements in the order they were executed
+            executeBatch();
+        }
+        batchQueryRunner = queryRunner;
+        batchSql = sql;
+        batchRows.add(params);
+        return batchRows.size() >= batchSize ? executeBatch() : null;
+    }
+
+    /**
+     * Executes the rows added to the batch of the transaction, if any. Statements that
+     * are not batched execute the batch first so that they see its rows.
+     */
+    public int[] executeBatch() throws SQLException
+    {
+        if (batchRows.isEmpty())
+        {
+            return null;
+        }
+
+        Object[][] params = batchRows.toArray(new Object[batchRows.size()][]);
+        batchRows.clear();
+        return batchQueryRunner.batch((Connection) resource, batchSql, params);
+    }
+
     protected Class<Connection> getResourceType()
     {
         return Connection.class;
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jdbc;
+
+import org.mule.api.DefaultMuleException;
+import org.mule.api.MuleException;
+import org.mule.api.MuleRuntimeException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.streaming.PagingDelegate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.RowProcessor;
+
+/**
+ * A {@link PagingDelegate} that reads the rows of a query through an open cursor, so
+ * that only one page of rows is held in memory at a time. The statement is executed
+ * with a fetch size hint when the first page is requested, and the cursor, the
+ * statement and the connection are closed once the last row is read or the delegate
+ * is closed.
+ */
+public class ResultSetPagingDelegate extends PagingDelegate<Object>
+{
+
+    private final Connection connection;
+    private final String sql;
+    private final Object[] params;
+    private final int queryTimeout;
+    private final int fetchSize;
+    private final int pageSize;
+    private final RowProcessor rowProcessor;
+
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private boolean exhausted;
+
+    /**
+     * @param queryTimeout the query timeout in seconds, or a negative value to use
+     *            the default of the driver
+     * @param fetchSize the number of rows the driver is hinted to fetch at a time
+     * @param pageSize the maximum number of rows returned by each page
+     * @param rowProcessor converts each row to the item of the page
+     */
+    public ResultSetPagingDelegate(Connection connection, String sql, Object[] params, int queryTimeout,
+                                   int fetchSize, int pageSize, RowProcessor rowProcessor)
+    {
+        this.connection = connection;
+        this.sql = sql;
+        this.params = params;
+        this.queryTimeout = queryTimeout;
+        this.fetchSize = fetchSize;
+        this.pageSize = pageSize;
+        this.rowProcessor = rowProcessor;
+    }
+
+    @Override
+    public List<Object> getPage()
+    {
+        if (exhausted)
+        {
+            return null;
+        }
+
+        try
+        {
+            if (resultSet == null)
+            {
+                executeQuery();
+            }
+
+            List<Object> page = new ArrayList<Object>(pageSize);
+            while (page.size() < pageSize)
+            {
+                if (!resultSet.next())
+                {
+                    exhausted = true;
+                    closeQuietly();
+                    break;
+                }
+                page.add(rowProcessor.toMap(resultSet));
+            }
+            return page;
+        }
+        catch (SQLException e)
+        {
+            exhausted = true;
+            closeQuietly();
+            throw new MuleRuntimeException(CoreMessages.createStaticMessage("Could not read rows of: " + sql), e);
+        }
+    }
+
+    /**
+     * The number of rows is not known until they are all read
+     */
+    @Override
+    public int getTotalResults()
+    {
+        return -1;
+    }
+
+    @Override
+    public void close() throws MuleException
+    {
+        exhausted = true;
+        try
+        {
+            DbUtils.close(resultSet);
+            DbUtils.close(statement);
+            DbUtils.close(connection);
+        }
+        catch (SQLException e)
+        {
+            throw new DefaultMuleException(e);
+        }
+    }
+
+    private void executeQuery() throws SQLException
+    {
+        statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        if (queryTimeout >= 0)
+        {
+            statement.setQueryTimeout(queryTimeout);
+        }
+        new StatementFiller().fill(statement, params);
+        resultSet = statement.executeQuery();
+    }
+
+    private void closeQuietly()
+    {
+        DbUtils.closeQuietly(connection, statement, resultSet);
+    }
+
+    /**
+     * Fills the parameters the same way as the {@link QueryRunner} of the connector
+     * does for statements that are not streamed.
+     */
+    private static class StatementFiller extends QueryRunner
+    {
+
+        void fill(PreparedStatement statement, Object[] params) throws SQLException
+        {
+            fillStatement(statement, params);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jdbc.functional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+import org.mule.api.MuleEvent;
+import org.mule.construct.Flow;
+import org.mule.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hamcrest.core.Is;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+
+public class JdbcBatchedOutboundTestCase extends AbstractJdbcFunctionalTestCase
+{
+
+    public JdbcBatchedOutboundTestCase(ConfigVariant variant, String configResources)
+    {
+        super(variant, configResources);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        return Arrays.asList(new Object[][]{
+                {ConfigVariant.FLOW, AbstractJdbcFunctionalTestCase.getConfig() + ",jdbc-batched-outbound.xml"}
+        });
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        execSqlUpdate("delete from TEST");
+    }
+
+    @Test
+    public void executesConcurrentMessagesInBatches() throws Exception
+    {
+        List<Future<MuleEvent>> results = sendConcurrently("batched", "one", "two", "three", "four", "five");
+
+        for (Future<MuleEvent> result : results)
+        {
+            result.get();
+        }
+        assertThat(getCountWithType1(), Is.is(5));
+    }
+
+    @Test
+    public void executesIncompleteBatchAfterTimeout() throws Exception
+    {
+        Flow flow = (Flow) getFlowConstruct("batched");
+        flow.process(getTestEvent("single", flow));
+
+        assertThat(getCountWithType1(), Is.is(1));
+    }
+
+    @Test
+    public void reportsFailuresToTheirOwnMessages() throws Exception
+    {
+        String invalid = StringUtils.repeat("x", 300);
+        List<Future<MuleEvent>> results = sendConcurrently("batched", "one", invalid, "three");
+
+        int executed = 0;
+        for (int i = 0; i < results.size(); i++)
+        {
+            try
+            {
+                results.get(i).get();
+                assertFalse("Row larger than the column was inserted", i == 1);
+                executed++;
+            }
+            catch (ExecutionException e)
+            {
+                // the driver may not execute the rows that follow a failure
+            }
+        }
+        assertThat(getCountWithType1(), Is.is(executed));
+    }
+
+    @Test
+    public void executesBatchBeforeTransactionCommits() throws Exception
+    {
+        Flow flow = (Flow) getFlowConstruct("batchedTransactional");
+        flow.process(getTestEvent("message", flow));
+
+        assertThat(getCountWithType1(), Is.is(2));
+        assertThat(getCountWithType2(), Is.is(1));
+    }
+
+    @Test
+    public void discardsBatchWhenTransactionRollsBack() throws Exception
+    {
+        Flow flow = (Flow) getFlowConstruct("batchedTransactionalFailAtEnd");
+        try
+        {
+            flow.process(getTestEvent("message", flow));
+        }
+        catch (Exception e)
+        {
+            // expected
+        }
+
+        assertEquals(0, execSqlQuery("select * from TEST").size());
+    }
+
+    private List<Future<MuleEvent>> sendConcurrently(String flowName, String... payloads) throws Exception
+    {
+        final Flow flow = (Flow) getFlowConstruct(flowName);
+        ExecutorService executor = Executors.newFixedThreadPool(payloads.length);
+        try
+        {
+            List<Future<MuleEvent>> results = new ArrayList<Future<MuleEvent>>();
+            for (final String payload : payloads)
+            {
+                final MuleEvent event = getTestEvent(payload, flow);
+                results.add(executor.submit(new Callable<MuleEvent>()
+                {
+                    public MuleEvent call() throws Exception
+                    {
+                        return flow.process(event);
+                    }
+                }));
+            }
+            for (Future<MuleEvent> result : results)
+            {
+                try
+                {
+                    result.get();
+                }
+                catch (ExecutionException e)
+                {
+                    // checked by the test
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jdbc.functional;
+
+import org.mule.tck.probe.PollingProber;
+import org.mule.tck.probe.Probe;
+import org.mule.tck.probe.Prober;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runners.Parameterized;
+
+public class JdbcStreamingInboundTestCase extends AbstractJdbcFunctionalTestCase
+{
+
+    private static final int ROWS = 5;
+
+    private Prober prober = new PollingProber(10000, 100);
+
+    public JdbcStreamingInboundTestCase(ConfigVariant variant, String configResources)
+    {
+        super(variant, configResources);
+        setPopulateTestData(false);
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters()
+    {
+        return Arrays.asList(new Object[][]{
+                {ConfigVariant.FLOW, AbstractJdbcFunctionalTestCase.getConfig() + ",jdbc-streaming-inbound.xml"}
+        });
+    }
+
+    @Test
+    public void receivesAndAcknowledgesRowsInPages() throws Exception
+    {
+        for (int i = 0; i < ROWS; i++)
+        {
+            execSqlUpdate("INSERT INTO TEST(TYPE, DATA) VALUES (4, 'row " + i + "')");
+        }
+
+        prober.check(new Probe()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                try
+                {
+                    return count("select count(*) from TEST where TYPE = 5") == ROWS
+                           && count("select count(*) from TEST where TYPE = 4 and ACK IS NULL") == 0;
+                }
+                catch (Exception e)
+                {
+                    return false;
+                }
+            }
+
+            @Override
+            public String describeFailure()
+            {
+                return "All rows should be received and acknowledged";
+            }
+        });
+    }
+
+    private int count(String sql) throws Exception
+    {
+        return ((Number) ((Object[]) execSqlQuery(sql).get(0))[0]).intValue();
+    }
+}
@@ -86,6 +86,7 @@ public class JmsMessageReceiver extends AbstractMessageReceiver implements Messa
 
     public void onMessage(Message message)
     {
+        waitWhileFlowConstructBusy();
         try
         {
             getWorkManager().scheduleWork(new JmsWorker(message, this));
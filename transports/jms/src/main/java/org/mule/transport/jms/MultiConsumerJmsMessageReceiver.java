@@ -424,6 +424,8 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
         @Override
         public void onMessage(final Message message)
         {
+            // holding the listener thread stops the session from consuming more messages
+            waitWhileFlowConstructBusy();
             try
             {
                 isProcessingMessage = true;
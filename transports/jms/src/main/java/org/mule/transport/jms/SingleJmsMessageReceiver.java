@@ -29,6 +29,7 @@ public class SingleJmsMessageReceiver extends JmsMessageReceiver implements Mess
 
     public void onMessage(Message message)
     {
+        waitWhileFlowConstructBusy();
         JmsWorker worker = new JmsWorker(message, this);
         worker.run();
     }
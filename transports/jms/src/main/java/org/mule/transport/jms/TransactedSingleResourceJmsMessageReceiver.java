@@ -194,6 +194,7 @@ public class TransactedSingleResourceJmsMessageReceiver extends AbstractMessageR
 
     public void onMessage(Message message)
     {
+        waitWhileFlowConstructBusy();
         try
         {
             processMessages(message, this);
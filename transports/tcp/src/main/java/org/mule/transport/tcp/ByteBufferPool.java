@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct {@link ByteBuffer}s of the same size. Direct buffers are expensive
+ * to allocate but are read into by the socket channels without an intermediate
+ * copy, so they are reused instead of being allocated for each read. Buffers are
+ * allocated when the pool is empty and released buffers beyond the capacity of the
+ * pool are left to the garbage collector.
+ */
+public class ByteBufferPool
+{
+
+    private final int bufferSize;
+    private final int capacity;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    public ByteBufferPool(int bufferSize, int capacity)
+    {
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return a cleared buffer
+     */
+    public ByteBuffer acquire()
+    {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null)
+        {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        size.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer)
+    {
+        if (size.incrementAndGet() <= capacity)
+        {
+            buffers.offer(buffer);
+        }
+        else
+        {
+            size.decrementAndGet();
+        }
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+}
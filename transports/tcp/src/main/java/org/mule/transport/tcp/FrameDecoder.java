@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Splits the data received on a non-blocking connection into messages, as the
+ * {@link TcpProtocol} it was created by would do reading from a stream. A decoder
+ * keeps the state of a single connection and is never used by more than one thread
+ * at a time.
+ */
+public interface FrameDecoder
+{
+
+    /**
+     * Consumes all the remaining data in the buffer, adding the complete messages
+     * found to the list. Incomplete messages are kept by the decoder until more data
+     * is received.
+     *
+     * @param buffer the data read from the connection
+     * @param frames the list to add the decoded messages to
+     * @throws IOException if the data does not follow the protocol
+     */
+    void decode(ByteBuffer buffer, List<Object> frames) throws IOException;
+
+    /**
+     * Called when all the data currently available on the connection has been
+     * decoded, for the protocols that delimit messages by the pauses in the input.
+     *
+     * @param frames the list to add the decoded messages to
+     * @throws IOException if the data does not follow the protocol
+     */
+    void endOfData(List<Object> frames) throws IOException;
+
+    /**
+     * Called when the connection has been closed by the remote peer.
+     *
+     * @param frames the list to add the decoded messages to
+     * @throws IOException if the stream ended in the middle of a message
+     */
+    void endOfStream(List<Object> frames) throws IOException;
+}
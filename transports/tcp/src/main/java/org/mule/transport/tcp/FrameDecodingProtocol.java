@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+/**
+ * Implemented by the {@link TcpProtocol}s that can read messages from non-blocking
+ * connections, see {@link NioTcpConnector}.
+ */
+public interface FrameDecodingProtocol
+{
+
+    /**
+     * @return true if the messages of this protocol can be read incrementally, false
+     *         for example when the payload is the connection stream itself
+     */
+    boolean supportsFrameDecoding();
+
+    /**
+     * Creates the decoder for a new connection.
+     *
+     * @return a decoder that reads the same messages as {@link TcpProtocol#read(java.io.InputStream)}
+     * @throws UnsupportedOperationException if {@link #supportsFrameDecoding()} is false
+     */
+    FrameDecoder createFrameDecoder();
+}
@@ -0,0 +1,592 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkListener;
+import javax.resource.spi.work.WorkManager;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A connection read by a {@link NioSelectorLoop}. The data is decoded into frames by
+ * the I/O thread and the frames are processed in order by a single work at a time,
+ * which is only scheduled while there are frames to process.
+ * <p/>
+ * Reads and changes to the registration are only made by the I/O thread of the
+ * connection; the work writes the responses directly when the socket can take them
+ * and leaves the rest to the I/O thread. The work waits for the I/O thread once too
+ * much data is left, so that a peer that does not read its responses can not make
+ * them pile up in memory.
+ */
+public abstract class NioConnection implements NioSelectorLoop.Handler
+{
+
+    // a connection stops being read while this many frames wait to be processed
+    private static final int MAX_PENDING_FRAMES = 64;
+    // reads made for a connection before moving on to the next ready one
+    private static final int MAX_READS_PER_EVENT = 16;
+    // the stream of a connection waits while more bytes than this are left to write
+    private static final int MAX_PENDING_WRITE_SIZE = 256 * 1024;
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final SocketChannel channel;
+    private final NioSelectorLoop selectorLoop;
+    private final ByteBufferPool bufferPool;
+    private final WorkManager workManager;
+    private final WorkListener workListener;
+    private final int idleTimeout;
+    private final SocketAddress remoteAddress;
+    private final Queue<Object> pendingFrames = new ConcurrentLinkedQueue<Object>();
+    private final AtomicInteger pendingFrameCount = new AtomicInteger(0);
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final LinkedList<ByteBuffer> pendingWrites = new LinkedList<ByteBuffer>();
+    private int pendingWriteSize;
+    private FrameDecoder decoder;
+    private volatile SelectionKey key;
+    private volatile long lastActivity = System.currentTimeMillis();
+    private volatile boolean inputClosed;
+    private volatile boolean closeRequested;
+    private boolean readSuspended;
+
+    /**
+     * @param idleTimeout how long the connection can be idle before it is closed, or
+     *            zero if it is never closed
+     */
+    protected NioConnection(SocketChannel channel, NioSelectorLoop selectorLoop, ByteBufferPool bufferPool,
+                            WorkManager workManager, WorkListener workListener, int idleTimeout)
+    {
+        this.channel = channel;
+        this.selectorLoop = selectorLoop;
+        this.bufferPool = bufferPool;
+        this.workManager = workManager;
+        this.workListener = workListener;
+        this.idleTimeout = idleTimeout;
+        this.remoteAddress = channel.socket().getRemoteSocketAddress();
+    }
+
+    /**
+     * Called by the I/O thread before the first read.
+     */
+    protected abstract FrameDecoder createFrameDecoder();
+
+    /**
+     * Processes frames in the order they were read. Only one thread at a time
+     * processes the frames of a connection.
+     */
+    protected abstract void process(List<Object> frames);
+
+    /**
+     * Called when the work that processes the frames cannot be scheduled, the
+     * connection is closed afterwards.
+     */
+    protected abstract void handleWorkException(WorkException e);
+
+    /**
+     * Called once the connection is closed.
+     */
+    protected void closed()
+    {
+        // nothing to do
+    }
+
+    public void registered(SelectionKey key)
+    {
+        this.key = key;
+        if (closed.get())
+        {
+            key.cancel();
+        }
+    }
+
+    public void ready(SelectionKey key) throws IOException
+    {
+        if (key.isReadable())
+        {
+            read();
+        }
+        if (key.isValid() && key.isWritable())
+        {
+            flushWrites();
+        }
+    }
+
+    public void checkIdle(long now)
+    {
+        if (idleTimeout > 0 && now - lastActivity > idleTimeout && !processing.get())
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing idle connection from " + remoteAddress);
+            }
+            close();
+        }
+    }
+
+    private void read()
+    {
+        if (decoder == null)
+        {
+            decoder = createFrameDecoder();
+        }
+
+        List<Object> frames = new ArrayList<Object>();
+        ByteBuffer buffer = bufferPool.acquire();
+        int read = 0;
+        try
+        {
+            for (int i = 0; i < MAX_READS_PER_EVENT && (read = channel.read(buffer)) > 0; i++)
+            {
+                buffer.flip();
+                decoder.decode(buffer, frames);
+                buffer.clear();
+            }
+
+            if (read < 0)
+            {
+                decoder.endOfStream(frames);
+            }
+            else if (read == 0)
+            {
+                decoder.endOfData(frames);
+            }
+        }
+        catch (IOException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Failed to read from " + remoteAddress + ": " + e.getMessage());
+            }
+            close();
+            return;
+        }
+        finally
+        {
+            bufferPool.release(buffer);
+        }
+        if (closed.get())
+        {
+            // closed by the decoder
+            return;
+        }
+
+        lastActivity = System.currentTimeMillis();
+        if (read < 0 || closeRequested)
+        {
+            // the peer may still wait for the responses
+            inputClosed = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+        if (!closeRequested)
+        {
+            enqueue(frames);
+        }
+        if (inputClosed && pendingFrameCount.get() == 0 && !processing.get())
+        {
+            closeWhenFlushed();
+        }
+    }
+
+    private void enqueue(List<Object> frames)
+    {
+        if (frames.isEmpty())
+        {
+            return;
+        }
+
+        pendingFrames.addAll(frames);
+        if (pendingFrameCount.addAndGet(frames.size()) >= MAX_PENDING_FRAMES && !inputClosed)
+        {
+            readSuspended = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+        scheduleProcessing();
+    }
+
+    private void scheduleProcessing()
+    {
+        if (processing.compareAndSet(false, true))
+        {
+            try
+            {
+                workManager.scheduleWork(new ProcessingWork(), WorkManager.INDEFINITE, null, workListener);
+            }
+            catch (WorkException e)
+            {
+                processing.set(false);
+                handleWorkException(e);
+                close();
+            }
+        }
+    }
+
+    /**
+     * Moves the pending frames to the list, up to the limit of frames a connection
+     * can have waiting.
+     */
+    private void drainTo(List<Object> frames)
+    {
+        if (closeRequested)
+        {
+            // the frames read after the connection was asked to close are discarded
+            pendingFrames.clear();
+            pendingFrameCount.set(0);
+            return;
+        }
+
+        Object frame;
+        while (frames.size() < MAX_PENDING_FRAMES && (frame = pendingFrames.poll()) != null)
+        {
+            frames.add(frame);
+        }
+        pendingFrameCount.addAndGet(-frames.size());
+    }
+
+    /**
+     * Called by the work once it has no more frames to process.
+     */
+    private void processed()
+    {
+        processing.set(false);
+        if (!pendingFrames.isEmpty() && !closeRequested)
+        {
+            // more frames were read meanwhile
+            scheduleProcessing();
+            return;
+        }
+
+        selectorLoop.execute(new Runnable()
+        {
+            public void run()
+            {
+                if (closed.get() || key == null || !key.isValid())
+                {
+                    return;
+                }
+                if (inputClosed || closeRequested)
+                {
+                    if (!processing.get())
+                    {
+                        closeWhenFlushed();
+                    }
+                }
+                else if (readSuspended)
+                {
+                    readSuspended = false;
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the data to the connection, leaving to the I/O thread the part that the
+     * socket can't take now.
+     *
+     * @return whether all the data was written, otherwise the buffer is kept until the
+     *         I/O thread writes the rest and must not be modified
+     */
+    public boolean write(ByteBuffer data) throws IOException
+    {
+        synchronized (pendingWrites)
+        {
+            if (closed.get())
+            {
+                throw new ClosedChannelException();
+            }
+            if (pendingWrites.isEmpty())
+            {
+                channel.write(data);
+                if (!data.hasRemaining())
+                {
+                    lastActivity = System.currentTimeMillis();
+                    return true;
+                }
+            }
+            pendingWrites.add(data);
+            pendingWriteSize += data.remaining();
+        }
+
+        selectorLoop.execute(new Runnable()
+        {
+            public void run()
+            {
+                if (key != null && key.isValid())
+                {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+        });
+        return false;
+    }
+
+    private void flushWrites() throws IOException
+    {
+        synchronized (pendingWrites)
+        {
+            try
+            {
+                while (!pendingWrites.isEmpty())
+                {
+                    ByteBuffer data = pendingWrites.getFirst();
+                    pendingWriteSize -= channel.write(data);
+                    if (data.hasRemaining())
+                    {
+                        return;
+                    }
+                    pendingWrites.removeFirst();
+                }
+            }
+            finally
+            {
+                if (pendingWriteSize <= MAX_PENDING_WRITE_SIZE)
+                {
+                    pendingWrites.notifyAll();
+                }
+            }
+            lastActivity = System.currentTimeMillis();
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (closeRequested)
+            {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Waits until the data left to the I/O thread fits in the limit. Only the thread
+     * that processes the frames waits, the I/O thread must never block.
+     *
+     * @throws SocketTimeoutException if nothing could be written for longer than the
+     *             idle timeout, in which case the connection is closed
+     */
+    private void awaitPendingWrites() throws IOException
+    {
+        synchronized (pendingWrites)
+        {
+            int size = pendingWriteSize;
+            long deadline = System.currentTimeMillis() + idleTimeout;
+            while (pendingWriteSize > MAX_PENDING_WRITE_SIZE)
+            {
+                if (closed.get())
+                {
+                    throw new ClosedChannelException();
+                }
+
+                long now = System.currentTimeMillis();
+                if (pendingWriteSize < size)
+                {
+                    // the peer is reading, only a peer that stops reading times out
+                    size = pendingWriteSize;
+                    deadline = now + idleTimeout;
+                }
+                if (idleTimeout > 0 && now >= deadline)
+                {
+                    close();
+                    throw new SocketTimeoutException("Timed out writing to " + remoteAddress);
+                }
+
+                try
+                {
+                    pendingWrites.wait(idleTimeout > 0 ? deadline - now : 0);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while writing to " + remoteAddress);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops reading from the connection and closes it once the pending responses are
+     * written. Frames that were not processed yet are discarded.
+     */
+    public void closeWhenFlushed()
+    {
+        synchronized (pendingWrites)
+        {
+            closeRequested = true;
+            if (pendingWrites.isEmpty())
+            {
+                close();
+            }
+        }
+    }
+
+    public void close()
+    {
+        if (!closed.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        if (key != null)
+        {
+            key.cancel();
+        }
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("Socket close failed with: " + e);
+        }
+        synchronized (pendingWrites)
+        {
+            pendingWrites.clear();
+            pendingWriteSize = 0;
+            pendingWrites.notifyAll();
+        }
+        closed();
+    }
+
+    public boolean isOpen()
+    {
+        return !closed.get() && !closeRequested;
+    }
+
+    /**
+     * @return whether there are no frames being processed or waiting to be
+     */
+    public boolean isIdle()
+    {
+        return !processing.get() && pendingFrameCount.get() == 0;
+    }
+
+    /**
+     * @return a stream that writes to the connection in chunks of the size of the I/O
+     *         buffers. It must only be used by the thread that processes the frames,
+     *         which it blocks while too much data waits to be written.
+     */
+    public OutputStream createOutputStream()
+    {
+        return new ConnectionOutputStream(bufferPool.getBufferSize());
+    }
+
+    public SocketChannel getChannel()
+    {
+        return channel;
+    }
+
+    public SocketAddress getRemoteAddress()
+    {
+        return remoteAddress;
+    }
+
+    private class ProcessingWork implements Work
+    {
+
+        public void run()
+        {
+            try
+            {
+                List<Object> frames = new ArrayList<Object>();
+                drainTo(frames);
+                while (!frames.isEmpty())
+                {
+                    process(frames);
+                    frames.clear();
+                    drainTo(frames);
+                }
+            }
+            finally
+            {
+                processed();
+            }
+        }
+
+        public void release()
+        {
+            // nothing to do
+        }
+    }
+
+    private class ConnectionOutputStream extends OutputStream
+    {
+
+        private byte[] buffer;
+        private int count;
+
+        ConnectionOutputStream(int bufferSize)
+        {
+            buffer = new byte[bufferSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            if (count == buffer.length)
+            {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            while (len > 0)
+            {
+                if (count == buffer.length)
+                {
+                    flush();
+                }
+                int length = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, length);
+                count += length;
+                off += length;
+                len -= length;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if (count > 0)
+            {
+                boolean written = NioConnection.this.write(ByteBuffer.wrap(buffer, 0, count));
+                count = 0;
+                if (!written)
+                {
+                    // the I/O thread owns the buffer now
+                    buffer = new byte[buffer.length];
+                    awaitPendingWrites();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            flush();
+        }
+    }
+}
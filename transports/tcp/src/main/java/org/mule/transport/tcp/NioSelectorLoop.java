@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An I/O thread of a {@link NioSelectorLoopGroup}. It owns a {@link Selector} and notifies
+ * the {@link Handler} attached to each registered channel when it is ready. All the
+ * changes to the registrations are made by the loop thread itself, other threads
+ * submit them with {@link #execute(Runnable)}.
+ */
+public class NioSelectorLoop implements Runnable
+{
+
+    /**
+     * Attached to the channels registered in the loop.
+     */
+    public interface Handler
+    {
+
+        void registered(SelectionKey key);
+
+        void ready(SelectionKey key) throws IOException;
+
+        /**
+         * Called about once a second so that idle connections can be closed.
+         */
+        void checkIdle(long now);
+    }
+
+    private static final long SELECT_TIMEOUT = 1000;
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private volatile boolean running;
+    private Thread thread;
+
+    public NioSelectorLoop() throws IOException
+    {
+        selector = Selector.open();
+    }
+
+    public void start(ThreadFactory threadFactory)
+    {
+        running = true;
+        thread = threadFactory.newThread(this);
+        thread.start();
+    }
+
+    public void stop()
+    {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the task in the loop thread.
+     */
+    public void execute(Runnable task)
+    {
+        tasks.add(task);
+        if (Thread.currentThread() != thread)
+        {
+            selector.wakeup();
+        }
+    }
+
+    public void register(final SelectableChannel channel, final int ops, final Handler handler)
+    {
+        execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    handler.registered(channel.register(selector, ops, handler));
+                }
+                catch (ClosedChannelException e)
+                {
+                    logger.debug("Channel closed before it could be registered");
+                }
+            }
+        });
+    }
+
+    public void run()
+    {
+        long lastIdleCheck = System.currentTimeMillis();
+        while (running)
+        {
+            try
+            {
+                selector.select(SELECT_TIMEOUT);
+                runTasks();
+                processSelectedKeys();
+
+                long now = System.currentTimeMillis();
+                if (now - lastIdleCheck >= SELECT_TIMEOUT)
+                {
+                    checkIdle(now);
+                    lastIdleCheck = now;
+                }
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to select ready channels: " + e.getMessage(), e);
+            }
+        }
+
+        try
+        {
+            selector.close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to close selector: " + e.getMessage());
+        }
+    }
+
+    private void runTasks()
+    {
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+        {
+            try
+            {
+                task.run();
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Failed to run I/O task", e);
+            }
+        }
+    }
+
+    private void processSelectedKeys()
+    {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext())
+        {
+            SelectionKey key = keys.next();
+            keys.remove();
+            try
+            {
+                if (key.isValid())
+                {
+                    ((Handler) key.attachment()).ready(key);
+                }
+            }
+            catch (CancelledKeyException e)
+            {
+                // the channel was closed by another thread
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to process ready channel: " + e.getMessage());
+            }
+        }
+    }
+
+    private void checkIdle(long now)
+    {
+        for (SelectionKey key : selector.keys())
+        {
+            if (key.isValid())
+            {
+                ((Handler) key.attachment()).checkIdle(now);
+            }
+        }
+    }
+}
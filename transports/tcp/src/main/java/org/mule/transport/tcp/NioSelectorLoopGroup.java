@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import org.mule.util.concurrent.NamedThreadFactory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The I/O threads of a connector that receives on non-blocking connections. The
+ * loops are started when the first channel is registered and the channels are
+ * spread among them in turn. Each I/O thread only holds a buffer of the pool while
+ * reading.
+ */
+public class NioSelectorLoopGroup
+{
+
+    private final String threadNamePrefix;
+    private final ClassLoader classLoader;
+    private final int ioThreads;
+    private final ByteBufferPool bufferPool;
+    private final AtomicInteger nextSelectorLoop = new AtomicInteger(0);
+    private NioSelectorLoop[] selectorLoops;
+    private boolean stopped;
+
+    public NioSelectorLoopGroup(String threadNamePrefix, ClassLoader classLoader, int ioThreads, int ioBufferSize)
+    {
+        this.threadNamePrefix = threadNamePrefix;
+        this.classLoader = classLoader;
+        this.ioThreads = Math.max(1, ioThreads);
+        this.bufferPool = new ByteBufferPool(ioBufferSize, this.ioThreads * 2);
+    }
+
+    public NioSelectorLoop next() throws IOException
+    {
+        NioSelectorLoop[] loops;
+        synchronized (this)
+        {
+            if (stopped)
+            {
+                throw new IOException("The I/O threads " + threadNamePrefix + " are stopped");
+            }
+            if (selectorLoops == null)
+            {
+                NamedThreadFactory threadFactory = new NamedThreadFactory(threadNamePrefix, classLoader);
+                NioSelectorLoop[] created = new NioSelectorLoop[ioThreads];
+                for (int i = 0; i < created.length; i++)
+                {
+                    created[i] = new NioSelectorLoop();
+                    created[i].start(threadFactory);
+                }
+                selectorLoops = created;
+            }
+            loops = selectorLoops;
+        }
+        return loops[(nextSelectorLoop.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+    }
+
+    public ByteBufferPool getBufferPool()
+    {
+        return bufferPool;
+    }
+
+    public synchronized void stop()
+    {
+        stopped = true;
+        if (selectorLoops != null)
+        {
+            for (NioSelectorLoop selectorLoop : selectorLoops)
+            {
+                selectorLoop.stop();
+            }
+            selectorLoops = null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import org.mule.api.MuleContext;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.lifecycle.InitialisationException;
+import org.mule.transport.tcp.i18n.TcpMessages;
+import org.mule.util.concurrent.ThreadNameHelper;
+
+import java.util.Properties;
+
+/**
+ * <code>NioTcpConnector</code> receives on non-blocking connections: a small group
+ * of I/O threads waits for data on all the accepted connections, decodes them with
+ * the {@link FrameDecoder} of the configured protocol and dispatches the complete
+ * messages to the work manager of the receiver. Threads are only used while there
+ * are messages to process, so a large number of mostly idle connections can be kept
+ * open. The protocol must implement {@link FrameDecodingProtocol} and support frame
+ * decoding, which all the standard protocols but the streaming one do.
+ * <p/>
+ * Connections that are idle for longer than the keep alive timeout, or the server
+ * socket timeout when it is not set, are closed. Dispatching works as in
+ * {@link TcpConnector}.
+ */
+public class NioTcpConnector extends TcpConnector
+{
+
+    public static final int DEFAULT_IO_BUFFER_SIZE = 8192;
+
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+    private int ioBufferSize = DEFAULT_IO_BUFFER_SIZE;
+    private NioSelectorLoopGroup selectorLoops;
+
+    public NioTcpConnector(MuleContext context)
+    {
+        super(context);
+        serviceOverrides = new Properties();
+        serviceOverrides.setProperty(MuleProperties.CONNECTOR_MESSAGE_RECEIVER_CLASS,
+            NioTcpMessageReceiver.class.getName());
+    }
+
+    @Override
+    protected void doInitialise() throws InitialisationException
+    {
+        super.doInitialise();
+
+        TcpProtocol protocol = getTcpProtocol();
+        if (!(protocol instanceof FrameDecodingProtocol)
+            || !((FrameDecodingProtocol) protocol).supportsFrameDecoding())
+        {
+            throw new InitialisationException(
+                TcpMessages.protocolCannotBeUsedWithNonBlockingConnections(protocol), this);
+        }
+
+        selectorLoops = new NioSelectorLoopGroup(String.format("%s%s.io",
+            ThreadNameHelper.getPrefix(muleContext), getName()), getClass().getClassLoader(), ioThreads,
+            ioBufferSize);
+    }
+
+    @Override
+    protected void doDispose()
+    {
+        super.doDispose();
+        if (selectorLoops != null)
+        {
+            selectorLoops.stop();
+        }
+    }
+
+    /**
+     * The I/O threads are shared by all the receivers of the connector and started
+     * when the first one connects.
+     */
+    NioSelectorLoopGroup getSelectorLoops()
+    {
+        return selectorLoops;
+    }
+
+    /**
+     * @return how long connections can be idle before they are closed, or zero if
+     *         they are never closed
+     */
+    int getIdleTimeout()
+    {
+        if (getKeepAliveTimeout() > 0)
+        {
+            return getKeepAliveTimeout();
+        }
+        return getServerSoTimeout() > 0 ? getServerSoTimeout() : 0;
+    }
+
+    public int getIoThreads()
+    {
+        return ioThreads;
+    }
+
+    /**
+     * Sets the number of threads that read from the connections, by default the
+     * number of processors.
+     */
+    public void setIoThreads(int ioThreads)
+    {
+        this.ioThreads = ioThreads;
+    }
+
+    public int getIoBufferSize()
+    {
+        return ioBufferSize;
+    }
+
+    /**
+     * Sets the size of the direct buffers the connections are read into.
+     */
+    public void setIoBufferSize(int ioBufferSize)
+    {
+        this.ioBufferSize = ioBufferSize;
+    }
+}
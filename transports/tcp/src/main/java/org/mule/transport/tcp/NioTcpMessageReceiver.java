@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.lifecycle.CreateException;
+import org.mule.api.transaction.Transaction;
+import org.mule.api.transaction.TransactionException;
+import org.mule.api.transport.Connector;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.transport.AbstractMessageReceiver;
+import org.mule.transport.AbstractReceiverWorker;
+import org.mule.transport.ConnectException;
+import org.mule.transport.tcp.i18n.TcpMessages;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.resource.spi.work.WorkException;
+
+/**
+ * <code>NioTcpMessageReceiver</code> accepts non-blocking connections and reads
+ * them from the I/O threads of its {@link NioTcpConnector}. The messages of a
+ * connection are processed in order by a single work at a time, which is only
+ * scheduled while there are messages to process, and the responses are written
+ * back in the same order.
+ */
+public class NioTcpMessageReceiver extends AbstractMessageReceiver
+{
+
+    private final NioTcpConnector nioConnector;
+    private final Set<NioTcpConnection> connections = Collections.newSetFromMap(
+        new ConcurrentHashMap<NioTcpConnection, Boolean>());
+    private ServerSocketChannel serverChannel;
+
+    public NioTcpMessageReceiver(Connector connector, FlowConstruct flowConstruct, InboundEndpoint endpoint)
+        throws CreateException
+    {
+        super(connector, flowConstruct, endpoint);
+
+        if (connector instanceof NioTcpConnector)
+        {
+            this.nioConnector = (NioTcpConnector) connector;
+        }
+        else
+        {
+            throw new CreateException(TcpMessages.nonBlockingReceiverCannotBeUsed(), this);
+        }
+    }
+
+    @Override
+    protected void doConnect() throws ConnectException
+    {
+        URI uri = endpoint.getEndpointURI().getUri();
+
+        try
+        {
+            serverChannel = nioConnector.getServerSocketChannel(uri);
+            nioConnector.getSelectorLoops().next().register(serverChannel, SelectionKey.OP_ACCEPT, new Acceptor());
+        }
+        catch (IOException e)
+        {
+            throw new ConnectException(TcpMessages.failedToBindToUri(uri), e, this);
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws ConnectException
+    {
+        closeChannels();
+    }
+
+    @Override
+    protected void doStart() throws MuleException
+    {
+        // nothing to do
+    }
+
+    @Override
+    protected void doStop() throws MuleException
+    {
+        // nothing to do
+    }
+
+    @Override
+    protected void doDispose()
+    {
+        closeChannels();
+        logger.info("Closed Tcp port");
+        super.doDispose();
+    }
+
+    private void closeChannels()
+    {
+        if (serverChannel != null)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing: " + serverChannel);
+            }
+            try
+            {
+                serverChannel.close();
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to close server socket: " + e.getMessage(), e);
+            }
+            serverChannel = null;
+        }
+
+        for (NioTcpConnection connection : connections)
+        {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public int getConnectionCount()
+    {
+        return connections.size();
+    }
+
+    protected void handleException(Exception e)
+    {
+        getConnector().getMuleContext().getExceptionListener().handleException(e);
+    }
+
+    private class Acceptor implements NioSelectorLoop.Handler
+    {
+
+        public void registered(SelectionKey key)
+        {
+            // nothing to do
+        }
+
+        public void ready(SelectionKey key) throws IOException
+        {
+            SocketChannel channel;
+            while ((channel = ((ServerSocketChannel) key.channel()).accept()) != null)
+            {
+                try
+                {
+                    channel.configureBlocking(false);
+                    nioConnector.configureSocket(TcpConnector.SERVER, channel.socket());
+
+                    NioSelectorLoop selectorLoop = nioConnector.getSelectorLoops().next();
+                    NioTcpConnection connection = new NioTcpConnection(channel, selectorLoop);
+                    connections.add(connection);
+                    selectorLoop.register(channel, SelectionKey.OP_READ, connection);
+                }
+                catch (IOException e)
+                {
+                    logger.warn("Failed to configure accepted connection: " + e.getMessage());
+                    channel.close();
+                }
+            }
+        }
+
+        public void checkIdle(long now)
+        {
+            // the server socket is never idle
+        }
+    }
+
+    /**
+     * An accepted connection, decoded with the protocol of the connector.
+     */
+    protected class NioTcpConnection extends NioConnection
+    {
+
+        NioTcpConnection(SocketChannel channel, NioSelectorLoop selectorLoop)
+        {
+            super(channel, selectorLoop, nioConnector.getSelectorLoops().getBufferPool(), getWorkManager(),
+                connector, nioConnector.getIdleTimeout());
+        }
+
+        @Override
+        protected FrameDecoder createFrameDecoder()
+        {
+            return ((FrameDecodingProtocol) nioConnector.getTcpProtocol()).createFrameDecoder();
+        }
+
+        @Override
+        protected void process(List<Object> frames)
+        {
+            new NioTcpWorker(this, frames).run();
+        }
+
+        @Override
+        protected void handleWorkException(WorkException e)
+        {
+            handleException(new ConnectException(CoreMessages.failedToScheduleWork(), e,
+                NioTcpMessageReceiver.this));
+        }
+
+        @Override
+        protected void closed()
+        {
+            connections.remove(this);
+        }
+    }
+
+    /**
+     * Processes messages of a connection in order, writing back the responses when
+     * the exchange pattern has them.
+     */
+    protected class NioTcpWorker extends AbstractReceiverWorker
+    {
+
+        private final NioTcpConnection connection;
+
+        public NioTcpWorker(NioTcpConnection connection, List<Object> messages)
+        {
+            super(messages, NioTcpMessageReceiver.this);
+            this.connection = connection;
+        }
+
+        @Override
+        protected void bindTransaction(Transaction tx) throws TransactionException
+        {
+            //nothing to do
+        }
+
+        @Override
+        protected void preRouteMuleMessage(final MuleMessage message) throws Exception
+        {
+            super.preRouteMuleMessage(message);
+
+            final SocketAddress clientAddress = connection.getRemoteAddress();
+            if (clientAddress != null)
+            {
+                message.setOutboundProperty(MuleProperties.MULE_REMOTE_CLIENT_ADDRESS, clientAddress.toString());
+            }
+        }
+
+        @Override
+        protected void handleResults(List messages) throws Exception
+        {
+            //should send back only if remote synch is set or no outbound endpoints
+            if (endpoint.getExchangePattern().hasResponse())
+            {
+                TcpProtocol protocol = nioConnector.getTcpProtocol();
+                OutputStream out = connection.createOutputStream();
+                for (Object message : messages)
+                {
+                    protocol.write(out, message);
+                }
+                out.flush();
+            }
+        }
+    }
+}
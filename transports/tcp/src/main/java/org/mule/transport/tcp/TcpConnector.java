@@ -18,7 +18,9 @@ import org.mule.config.i18n.CoreMessages;
 import org.mule.model.streaming.CallbackOutputStream;
 import org.mule.transport.AbstractConnector;
 import org.mule.transport.ConfigurableKeyedObjectPool;
+import org.mule.transport.tcp.i18n.TcpMessages;
 import org.mule.transport.tcp.protocols.SafeProtocol;
+import org.mule.util.StringUtils;
 import org.mule.util.concurrent.ThreadNameHelper;
 import org.mule.util.monitor.ExpiryMonitor;
 
@@ -26,10 +28,13 @@ import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 
@@ -482,6 +487,48 @@ public class TcpConnector extends AbstractConnector
         return getServerSocketFactory().createServerSocket(uri, getReceiveBacklog(), isReuseAddress());
     }
 
+    /**
+     * Opens a non-blocking server socket channel bound as the server sockets returned
+     * by {@link #getServerSocket(URI)}, which is used by the connectors that receive on
+     * non-blocking connections.
+     */
+    protected ServerSocketChannel getServerSocketChannel(URI uri) throws IOException
+    {
+        String host = StringUtils.defaultIfEmpty(uri.getHost(), "localhost");
+        InetAddress inetAddress = InetAddress.getByName(host);
+
+        InetSocketAddress address;
+        if ((inetAddress.equals(InetAddress.getLocalHost()) || host.trim().equals("localhost"))
+            && TcpPropertyHelper.isBindingLocalhostToAllLocalInterfaces())
+        {
+            logger.warn(TcpMessages.localhostBoundToAllLocalInterfaces());
+            address = new InetSocketAddress(uri.getPort());
+        }
+        else
+        {
+            address = new InetSocketAddress(inetAddress, uri.getPort());
+        }
+
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try
+        {
+            Boolean reuse = isReuseAddress();
+            if (null != reuse && reuse.booleanValue() != channel.socket().getReuseAddress())
+            {
+                channel.socket().setReuseAddress(reuse.booleanValue());
+            }
+            // bind *after* setting so_reuseaddress
+            channel.socket().bind(address, getReceiveBacklog() < 0 ? 0 : getReceiveBacklog());
+            channel.configureBlocking(false);
+            return channel;
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
     private static int valueOrDefault(int value, int threshhold, int deflt)
     {
         if (value < threshhold)
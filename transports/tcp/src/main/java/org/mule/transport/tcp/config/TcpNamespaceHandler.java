@@ -11,6 +11,7 @@ import org.mule.config.spring.parsers.ClassOrRefDefinitionParser;
 import org.mule.config.spring.parsers.generic.ChildDefinitionParser;
 import org.mule.config.spring.parsers.generic.MuleOrphanDefinitionParser;
 import org.mule.endpoint.URIBuilder;
+import org.mule.transport.tcp.NioTcpConnector;
 import org.mule.transport.tcp.PollingTcpConnector;
 import org.mule.transport.tcp.TcpConnector;
 import org.mule.transport.tcp.TcpProtocol;
@@ -40,6 +41,7 @@ public class TcpNamespaceHandler extends AbstractMuleNamespaceHandler
         registerConnectorDefinitionParser(TcpConnector.class);
 
         registerBeanDefinitionParser("polling-connector", new MuleOrphanDefinitionParser(PollingTcpConnector.class, true));
+        registerBeanDefinitionParser("nio-connector", new MuleOrphanDefinitionParser(NioTcpConnector.class, true));
         registerBeanDefinitionParser("custom-protocol", new ChildDefinitionParser("tcpProtocol", null, TcpProtocol.class, true));
         registerBeanDefinitionParser("xml-protocol", new ChildDefinitionParser("tcpProtocol", XmlMessageProtocol.class));
         registerBeanDefinitionParser("xml-eof-protocol", new ChildDefinitionParser("tcpProtocol", XmlMessageEOFProtocol.class));
@@ -48,6 +48,14 @@ public class TcpMessages extends MessageFactory
     {
         return factory.createMessage(BUNDLE_PATH, 6, TcpPropertyHelper.MULE_TCP_BIND_LOCALHOST_TO_ALL_LOCAL_INTERFACES_PROPERTY);
     }
-}
 
+    public static Message protocolCannotBeUsedWithNonBlockingConnections(Object protocol)
+    {
+        return factory.createMessage(BUNDLE_PATH, 7, protocol.getClass().getName());
+    }
 
+    public static Message nonBlockingReceiverCannotBeUsed()
+    {
+        return factory.createMessage(BUNDLE_PATH, 8);
+    }
+}
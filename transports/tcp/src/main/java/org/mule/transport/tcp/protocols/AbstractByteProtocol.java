@@ -64,7 +64,7 @@ public abstract class AbstractByteProtocol implements TcpProtocol
             if (streamOk)
             {
                 InputStream is = (InputStream) data;
-                IOUtils.copyLarge(is, os);
+                IOUtils.transfer(is, os);
                 os.flush();
                 os.close();
                 is.close();
@@ -6,8 +6,12 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.FrameDecoder;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 import org.apache.commons.io.input.ClassLoaderObjectInputStream;
 import org.apache.log4j.Logger;
@@ -54,6 +58,35 @@ public class CustomClassLoadingLengthProtocol extends LengthProtocol
         }
     }
 
+    @Override
+    public FrameDecoder createFrameDecoder()
+    {
+        return new LengthFrameDecoder(getMaxMessageLength())
+        {
+            @Override
+            protected void frameDecoded(byte[] frame, List<Object> frames) throws IOException
+            {
+                ClassLoaderObjectInputStream classLoaderIS = new ClassLoaderObjectInputStream(
+                    getClassLoader(), new ByteArrayInputStream(frame));
+                try
+                {
+                    frames.add(classLoaderIS.readObject());
+                }
+                catch (ClassNotFoundException e)
+                {
+                    logger.warn(e.getMessage());
+                    IOException iox = new IOException();
+                    iox.initCause(e);
+                    throw iox;
+                }
+                finally
+                {
+                    classLoaderIS.close();
+                }
+            }
+        };
+    }
+
     public ClassLoader getClassLoader()
     {
         if (this.classLoader == null)
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import org.mule.transport.tcp.FrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+
+/**
+ * The {@link FrameDecoder} for {@link DirectProtocol}, which takes all the data
+ * (momentarily) available as a message, and {@link EOFProtocol}, which reads until
+ * the connection is closed.
+ */
+public class DirectFrameDecoder implements FrameDecoder
+{
+
+    private final boolean untilEndOfStream;
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+    /**
+     * @param untilEndOfStream whether the message ends when the connection is
+     *            closed rather than when no more data is available
+     */
+    public DirectFrameDecoder(boolean untilEndOfStream)
+    {
+        this.untilEndOfStream = untilEndOfStream;
+    }
+
+    public void decode(ByteBuffer buffer, List<Object> frames) throws IOException
+    {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        data.write(bytes);
+    }
+
+    public void endOfData(List<Object> frames) throws IOException
+    {
+        if (!untilEndOfStream)
+        {
+            addFrame(frames);
+        }
+    }
+
+    public void endOfStream(List<Object> frames) throws IOException
+    {
+        addFrame(frames);
+    }
+
+    private void addFrame(List<Object> frames)
+    {
+        if (data.size() > 0)
+        {
+            frames.add(data.toByteArray());
+            data.reset();
+        }
+    }
+}
@@ -6,6 +6,9 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.FrameDecoder;
+import org.mule.transport.tcp.FrameDecodingProtocol;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
@@ -24,7 +27,7 @@ import org.apache.commons.logging.LogFactory;
  *
  * <p>Writing simply writes the data to the socket.</p>
  */
-public class DirectProtocol extends AbstractByteProtocol
+public class DirectProtocol extends AbstractByteProtocol implements FrameDecodingProtocol
 {
 
     protected static final int UNLIMITED = -1;
@@ -85,6 +88,16 @@ public class DirectProtocol extends AbstractByteProtocol
         return nullEmptyArray(baos.toByteArray());
     }
 
+    public boolean supportsFrameDecoding()
+    {
+        return true;
+    }
+
+    public FrameDecoder createFrameDecoder()
+    {
+        return new DirectFrameDecoder(false);
+    }
+
     protected int remaining(int limit, int remain, int len)
     {
         if (UNLIMITED == limit)
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import org.mule.transport.tcp.FrameDecoder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The {@link FrameDecoder} for {@link LengthProtocol}: each message is preceded by
+ * its length as a four byte integer. The message is allocated once its length is
+ * known and filled as data arrive, so no intermediate copies are made.
+ */
+public class LengthFrameDecoder implements FrameDecoder
+{
+
+    private static final int SIZE_INT = 4;
+
+    private final int maxMessageLength;
+    private final ByteBuffer header = ByteBuffer.allocate(SIZE_INT);
+    private byte[] frame;
+    private int position;
+
+    public LengthFrameDecoder(int maxMessageLength)
+    {
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    public void decode(ByteBuffer buffer, List<Object> frames) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (frame == null)
+            {
+                while (header.hasRemaining() && buffer.hasRemaining())
+                {
+                    header.put(buffer.get());
+                }
+                if (header.hasRemaining())
+                {
+                    return;
+                }
+                header.flip();
+                int length = header.getInt();
+                header.clear();
+
+                int limit = getMaxMessageLength();
+                if (length < 0 || (limit > 0 && length > limit))
+                {
+                    throw new IOException("Length " + length + " exceeds limit: " + limit);
+                }
+                frame = new byte[length];
+                position = 0;
+            }
+
+            int count = Math.min(buffer.remaining(), frame.length - position);
+            buffer.get(frame, position, count);
+            position += count;
+            if (position == frame.length)
+            {
+                byte[] complete = frame;
+                frame = null;
+                frameDecoded(complete, frames);
+            }
+        }
+    }
+
+    public void endOfData(List<Object> frames) throws IOException
+    {
+        // messages are delimited by their length
+    }
+
+    public void endOfStream(List<Object> frames) throws IOException
+    {
+        if (frame != null || header.position() > 0)
+        {
+            throw new EOFException("Connection closed in the middle of a message");
+        }
+    }
+
+    /**
+     * @return the maximum length of the next message, or a negative value when there
+     *         is no limit
+     */
+    protected int getMaxMessageLength()
+    {
+        return maxMessageLength;
+    }
+
+    /**
+     * Called for each complete message.
+     */
+    protected void frameDecoded(byte[] frame, List<Object> frames) throws IOException
+    {
+        frames.add(frame);
+    }
+}
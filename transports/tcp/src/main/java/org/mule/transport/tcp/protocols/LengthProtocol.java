@@ -6,6 +6,8 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.FrameDecoder;
+
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -111,6 +113,12 @@ public class LengthProtocol extends DirectProtocol
         return true;
     }
 
+    @Override
+    public FrameDecoder createFrameDecoder()
+    {
+        return new LengthFrameDecoder(getMaxMessageLength());
+    }
+
     public int getMaxMessageLength()
     {
         return maxMessageLength;
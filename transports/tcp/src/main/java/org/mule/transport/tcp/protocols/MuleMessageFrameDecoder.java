@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import org.mule.transport.tcp.FrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the Mule messages sent by the MuleMessage protocols from the frames decoded
+ * by the decoder of the underlying protocol.
+ */
+class MuleMessageFrameDecoder implements FrameDecoder
+{
+
+    private final FrameDecoder delegate;
+    private final MuleMessageWorker messageWorker;
+    private final List<Object> decoded = new ArrayList<Object>();
+
+    MuleMessageFrameDecoder(FrameDecoder delegate, MuleMessageWorker messageWorker)
+    {
+        this.delegate = delegate;
+        this.messageWorker = messageWorker;
+    }
+
+    public void decode(ByteBuffer buffer, List<Object> frames) throws IOException
+    {
+        delegate.decode(buffer, decoded);
+        readMessages(frames);
+    }
+
+    public void endOfData(List<Object> frames) throws IOException
+    {
+        delegate.endOfData(decoded);
+        readMessages(frames);
+    }
+
+    public void endOfStream(List<Object> frames) throws IOException
+    {
+        delegate.endOfStream(decoded);
+        readMessages(frames);
+    }
+
+    private void readMessages(List<Object> frames) throws IOException
+    {
+        try
+        {
+            for (Object frame : decoded)
+            {
+                frames.add(messageWorker.doRead(frame));
+            }
+        }
+        finally
+        {
+            decoded.clear();
+        }
+    }
+}
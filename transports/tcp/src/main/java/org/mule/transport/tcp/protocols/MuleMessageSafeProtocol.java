@@ -9,6 +9,7 @@ package org.mule.transport.tcp.protocols;
 import org.mule.api.MuleContext;
 import org.mule.api.context.MuleContextAware;
 import org.mule.transformer.wire.SerializedMuleMessageWireFormat;
+import org.mule.transport.tcp.FrameDecoder;
 
 import java.io.InputStream;
 import java.io.IOException;
@@ -32,6 +33,12 @@ public class MuleMessageSafeProtocol extends SafeProtocol implements MuleContext
         return messageWorker.doRead(super.read(is));
     }
 
+    @Override
+    public FrameDecoder createFrameDecoder()
+    {
+        return new MuleMessageFrameDecoder(super.createFrameDecoder(), messageWorker);
+    }
+
     @Override
     public void write(OutputStream os, Object unused) throws IOException
     {
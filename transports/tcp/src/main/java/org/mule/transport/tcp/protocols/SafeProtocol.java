@@ -7,12 +7,15 @@
 package org.mule.transport.tcp.protocols;
 
 import org.mule.ResponseOutputStream;
+import org.mule.transport.tcp.FrameDecoder;
+import org.mule.transport.tcp.FrameDecodingProtocol;
 import org.mule.transport.tcp.TcpProtocol;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.util.List;
 
 /**
  * This precedes every message with a cookie.
@@ -21,12 +24,13 @@ import java.net.Socket;
  * You should probably change to LengthProtocol.
  * Remember - both sender and receiver must use the same protocol.
  */
-public class SafeProtocol implements TcpProtocol
+public class SafeProtocol implements TcpProtocol, FrameDecodingProtocol
 {
 
     public static final String COOKIE = "You are using SafeProtocol";
     private TcpProtocol delegate = new LengthProtocol();
     private TcpProtocol cookieProtocol = new LengthProtocol(COOKIE.length());
+    private int maxMessageLength = LengthProtocol.NO_MAX_LENGTH;
 
     public Object read(InputStream is) throws IOException
     {
@@ -52,6 +56,16 @@ public class SafeProtocol implements TcpProtocol
         delegate.write(os, data);
     }
 
+    public boolean supportsFrameDecoding()
+    {
+        return true;
+    }
+
+    public FrameDecoder createFrameDecoder()
+    {
+        return new SafeFrameDecoder();
+    }
+
     public ResponseOutputStream createResponse(Socket socket) throws IOException
     {
         return new ResponseOutputStream(socket, new ProtocolStream(this, false, socket.getOutputStream()));
@@ -111,7 +125,57 @@ public class SafeProtocol implements TcpProtocol
 
     public void setMaxMessageLength(int maxMessageLength)
     {
+        this.maxMessageLength = maxMessageLength;
         delegate = new LengthProtocol(maxMessageLength);
     }
 
+    /**
+     * Decodes the length encoded cookie and message pairs.
+     */
+    private class SafeFrameDecoder extends LengthFrameDecoder
+    {
+
+        private boolean cookieExpected = true;
+
+        SafeFrameDecoder()
+        {
+            super(maxMessageLength);
+        }
+
+        @Override
+        protected int getMaxMessageLength()
+        {
+            return cookieExpected ? COOKIE.length() : super.getMaxMessageLength();
+        }
+
+        @Override
+        protected void frameDecoded(byte[] frame, List<Object> frames) throws IOException
+        {
+            if (cookieExpected)
+            {
+                if (frame.length != COOKIE.length() || !COOKIE.equals(new String(frame)))
+                {
+                    helpUser();
+                }
+                cookieExpected = false;
+            }
+            else
+            {
+                frames.add(frame);
+                cookieExpected = true;
+            }
+        }
+
+        @Override
+        public void endOfStream(List<Object> frames) throws IOException
+        {
+            if (!cookieExpected)
+            {
+                // EOF after cookie but before data
+                helpUser();
+            }
+            super.endOfStream(frames);
+        }
+    }
+
 }
@@ -6,6 +6,7 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.FrameDecoder;
 import org.mule.transport.tcp.TcpInputStream;
 import org.mule.transport.tcp.TcpProtocol;
 
@@ -31,6 +32,22 @@ public class StreamingProtocol extends EOFProtocol implements TcpProtocol
         return is;
     }
 
+    /**
+     * The payload is the connection stream itself, so messages can't be decoded
+     * from non-blocking connections.
+     */
+    @Override
+    public boolean supportsFrameDecoding()
+    {
+        return false;
+    }
+
+    @Override
+    public FrameDecoder createFrameDecoder()
+    {
+        throw new UnsupportedOperationException("TCP protocol StreamingProtocol cannot be used with non-blocking connections");
+    }
+
     /**
      * 
      * @param is
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import org.mule.transport.tcp.FrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The {@link FrameDecoder} for {@link XmlMessageProtocol} and
+ * {@link XmlMessageEOFProtocol}: a message ends where the xml declaration of the
+ * next document starts and, depending on the protocol, when no more data are
+ * available or when the connection is closed.
+ */
+public class XmlFrameDecoder implements FrameDecoder
+{
+
+    private static final byte[] XML_PATTERN = "<?xml".getBytes();
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final boolean untilEndOfStream;
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int count;
+    // the pattern can't start before this index, as the data before it were searched already
+    private int searchFrom = 1;
+
+    /**
+     * @param untilEndOfStream whether the last message ends when the connection is
+     *            closed rather than when no more data is available
+     */
+    public XmlFrameDecoder(boolean untilEndOfStream)
+    {
+        this.untilEndOfStream = untilEndOfStream;
+    }
+
+    public void decode(ByteBuffer buffer, List<Object> frames) throws IOException
+    {
+        ensureCapacity(count + buffer.remaining());
+        int read = buffer.remaining();
+        buffer.get(data, count, read);
+        count += read;
+
+        int patternIndex;
+        while ((patternIndex = indexOfPattern()) > 0)
+        {
+            byte[] frame = new byte[patternIndex];
+            System.arraycopy(data, 0, frame, 0, patternIndex);
+            frames.add(frame);
+
+            System.arraycopy(data, patternIndex, data, 0, count - patternIndex);
+            count -= patternIndex;
+            searchFrom = 1;
+        }
+    }
+
+    public void endOfData(List<Object> frames) throws IOException
+    {
+        if (!untilEndOfStream)
+        {
+            addRemaining(frames);
+        }
+    }
+
+    public void endOfStream(List<Object> frames) throws IOException
+    {
+        addRemaining(frames);
+    }
+
+    private int indexOfPattern()
+    {
+        int last = count - XML_PATTERN.length;
+        for (int i = searchFrom; i <= last; i++)
+        {
+            int j = 0;
+            while (j < XML_PATTERN.length && data[i + j] == XML_PATTERN[j])
+            {
+                j++;
+            }
+            if (j == XML_PATTERN.length)
+            {
+                return i;
+            }
+        }
+        searchFrom = Math.max(1, last + 1);
+        return -1;
+    }
+
+    private void addRemaining(List<Object> frames)
+    {
+        if (count > 0)
+        {
+            byte[] frame = new byte[count];
+            System.arraycopy(data, 0, frame, 0, count);
+            frames.add(frame);
+            count = 0;
+            searchFrom = 1;
+        }
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > data.length)
+        {
+            byte[] grown = new byte[Math.max(capacity, data.length * 2)];
+            System.arraycopy(data, 0, grown, 0, count);
+            data = grown;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.transport.tcp.protocols.LengthProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+public class NioTcpFunctionalTestCase extends FunctionalTestCase
+{
+
+    private static final String TEST_MESSAGE = "Test TCP Request";
+
+    @Rule
+    public DynamicPort dynamicPort1 = new DynamicPort("port1");
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "nio-tcp-functional-test-flow.xml";
+    }
+
+    @Test
+    public void testSend() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        for (int i = 0; i < 10; i++)
+        {
+            MuleMessage result = client.send("clientEndpoint", TEST_MESSAGE + i, null);
+            assertEquals(TEST_MESSAGE + i + " Received", result.getPayloadAsString());
+        }
+    }
+
+    @Test
+    public void testPipelinedRequestsOnManyConnections() throws Exception
+    {
+        LengthProtocol protocol = new LengthProtocol();
+        Socket[] sockets = new Socket[20];
+        for (int i = 0; i < sockets.length; i++)
+        {
+            sockets[i] = new Socket("localhost", dynamicPort1.getNumber());
+        }
+
+        try
+        {
+            for (int i = 0; i < sockets.length; i++)
+            {
+                // several messages in a single write, larger than the I/O buffers
+                OutputStream out = new BufferedOutputStream(sockets[i].getOutputStream());
+                for (int j = 0; j < 3; j++)
+                {
+                    protocol.write(out, message(i, j));
+                }
+                out.flush();
+            }
+
+            for (int i = 0; i < sockets.length; i++)
+            {
+                InputStream in = new BufferedInputStream(sockets[i].getInputStream());
+                for (int j = 0; j < 3; j++)
+                {
+                    assertEquals(message(i, j) + " Received", new String((byte[]) protocol.read(in)));
+                }
+            }
+        }
+        finally
+        {
+            for (Socket socket : sockets)
+            {
+                socket.close();
+            }
+        }
+    }
+
+    private String message(int connection, int index)
+    {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 20; i++)
+        {
+            message.append(TEST_MESSAGE).append(' ').append(connection).append('.').append(index);
+        }
+        return message.toString();
+    }
+}
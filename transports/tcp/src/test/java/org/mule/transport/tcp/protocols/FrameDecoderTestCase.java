@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.transport.tcp.FrameDecoder;
+import org.mule.transport.tcp.FrameDecodingProtocol;
+import org.mule.transport.tcp.TcpProtocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+@SmallTest
+public class FrameDecoderTestCase extends AbstractMuleTestCase
+{
+
+    @Test
+    public void lengthProtocolSplitAcrossReads() throws Exception
+    {
+        byte[] data = write(new LengthProtocol(), "first", "", "second message");
+
+        // one byte at a time so that headers are split too
+        List<Object> frames = decode(new LengthProtocol(), data, 1, false);
+
+        assertFrames(frames, "first", "", "second message");
+    }
+
+    @Test(expected = IOException.class)
+    public void lengthProtocolRejectsLongMessages() throws Exception
+    {
+        decode(new LengthProtocol(4), write(new LengthProtocol(), "too long"), 64, false);
+    }
+
+    @Test(expected = EOFException.class)
+    public void lengthProtocolFailsOnTruncatedMessage() throws Exception
+    {
+        byte[] data = write(new LengthProtocol(), "message");
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+
+        decode(new LengthProtocol(), truncated, 64, true);
+    }
+
+    @Test
+    public void safeProtocol() throws Exception
+    {
+        byte[] data = write(new SafeProtocol(), "first", "second");
+
+        assertFrames(decode(new SafeProtocol(), data, 3, true), "first", "second");
+    }
+
+    @Test(expected = IOException.class)
+    public void safeProtocolRejectsMissingCookie() throws Exception
+    {
+        decode(new SafeProtocol(), write(new LengthProtocol(), "no cookie at all, just data"), 64, false);
+    }
+
+    @Test
+    public void directProtocolEndsMessagesWhenNoMoreData() throws Exception
+    {
+        FrameDecoder decoder = new DirectProtocol().createFrameDecoder();
+        List<Object> frames = new ArrayList<Object>();
+
+        decoder.decode(ByteBuffer.wrap("fir".getBytes()), frames);
+        decoder.decode(ByteBuffer.wrap("st".getBytes()), frames);
+        decoder.endOfData(frames);
+        decoder.decode(ByteBuffer.wrap("second".getBytes()), frames);
+        decoder.endOfData(frames);
+        decoder.endOfData(frames);
+        decoder.endOfStream(frames);
+
+        assertFrames(frames, "first", "second");
+    }
+
+    @Test
+    public void eofProtocolEndsMessageWithStream() throws Exception
+    {
+        List<Object> frames = decode(new EOFProtocol(), "first part, second part".getBytes(), 5, true);
+
+        assertFrames(frames, "first part, second part");
+    }
+
+    @Test
+    public void xmlProtocolSplitsDocuments() throws Exception
+    {
+        String first = "<?xml version=\"1.0\"?><a>1</a>";
+        String second = "<?xml version=\"1.0\"?><b>2</b>";
+        byte[] data = (first + second).getBytes();
+
+        // the declaration of the second document is split across reads
+        assertFrames(decode(new XmlMessageProtocol(), data, 7, true), first, second);
+        assertFrames(decode(new XmlMessageEOFProtocol(), data, 3, true), first, second);
+    }
+
+    @Test
+    public void xmlProtocolEndsDocumentWhenNoMoreData() throws Exception
+    {
+        FrameDecoder decoder = new XmlMessageProtocol().createFrameDecoder();
+        List<Object> frames = new ArrayList<Object>();
+
+        decoder.decode(ByteBuffer.wrap("<?xml version=\"1.0\"?><a>".getBytes()), frames);
+        decoder.endOfData(frames);
+
+        assertFrames(frames, "<?xml version=\"1.0\"?><a>");
+    }
+
+    @Test
+    public void streamingProtocolIsNotSupported() throws Exception
+    {
+        assertFalse(new StreamingProtocol().supportsFrameDecoding());
+        assertTrue(new EOFProtocol().supportsFrameDecoding());
+    }
+
+    private byte[] write(TcpProtocol protocol, String... messages) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String message : messages)
+        {
+            protocol.write(out, message);
+        }
+        return out.toByteArray();
+    }
+
+    private List<Object> decode(FrameDecodingProtocol protocol, byte[] data, int chunkSize, boolean endOfStream)
+        throws IOException
+    {
+        FrameDecoder decoder = protocol.createFrameDecoder();
+        List<Object> frames = new ArrayList<Object>();
+        for (int offset = 0; offset < data.length; offset += chunkSize)
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(chunkSize);
+            buffer.put(data, offset, Math.min(chunkSize, data.length - offset));
+            buffer.flip();
+            decoder.decode(buffer, frames);
+            assertTrue(!buffer.hasRemaining());
+        }
+        if (endOfStream)
+        {
+            decoder.endOfStream(frames);
+        }
+        return frames;
+    }
+
+    private void assertFrames(List<Object> frames, String... expected)
+    {
+        assertEquals(expected.length, frames.size());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(expected[i], new String((byte[]) frames.get(i)));
+        }
+    }
+}
@@ -36,6 +36,8 @@ public class VMConnector extends AbstractConnector
     public static final String VM = "vm";
     private QueueProfile queueProfile;
     private Integer queueTimeout;
+    /** The number of events a transacted receiver takes off its queue in one transaction */
+    private int transactedBatchSize = 1;
     /** The queue manager to use for vm queues only */
     private QueueManager queueManager;
 
@@ -193,6 +195,20 @@ public class VMConnector extends AbstractConnector
         this.queueTimeout = queueTimeout;
     }
 
+    public int getTransactedBatchSize()
+    {
+        return transactedBatchSize;
+    }
+
+    /**
+     * Sets how many queued events a transacted receiver processes in a single
+     * transaction. All of them are rolled back if any fails, so the default is one.
+     */
+    public void setTransactedBatchSize(int transactedBatchSize)
+    {
+        this.transactedBatchSize = transactedBatchSize;
+    }
+
     public QueueManager getQueueManager()
     {
         return queueManager;
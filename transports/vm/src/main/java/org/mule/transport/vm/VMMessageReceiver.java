@@ -25,8 +25,8 @@ import org.mule.transport.TransactedPollingMessageReceiver;
 import org.mule.util.queue.Queue;
 import org.mule.util.queue.QueueSession;
 
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.RejectedExecutionException;
 
@@ -140,13 +140,19 @@ public class VMMessageReceiver extends TransactedPollingMessageReceiver
     }
 
     /**
-     * It's impossible to process all messages in the receive transaction
+     * Only up to {@link VMConnector#getTransactedBatchSize()} messages are processed in
+     * the receive transaction, as all of them are rolled back if any fails
      */
     @Override
     protected List<MuleMessage> getMessages() throws Exception
     {
         if (isReceiveMessagesInTransaction())
         {
+            if (connector.getTransactedBatchSize() > 1)
+            {
+                return drainMessages(connector.getTransactedBatchSize());
+            }
+
             MuleEvent message = getFirstMessage();
             if (message == null)
             {
@@ -169,31 +175,34 @@ public class VMMessageReceiver extends TransactedPollingMessageReceiver
         QueueSession qs = connector.getTransactionalResource(endpoint);
         Queue queue = qs.getQueue(endpoint.getEndpointURI().getAddress());
 
-        // The list of retrieved messages that will be returned
-        List<MuleMessage> messages = new LinkedList<MuleMessage>();
-
+        // the first event plus as many more as the batch allows, if available
         int batchSize = getBatchSize(queue.size());
 
-        // try to get the first event off the queue
-        MuleEvent message = (MuleEvent) queue.poll(connector.getQueueTimeout());
+        // let our workManager handle the batch of events
+        return drainMessages(queue, batchSize + 1);
+    }
 
-        if (message != null)
-        {
-            // keep first dequeued event
-            messages.add(message.getMessage());
+    /**
+     * Takes up to <code>maxMessages</code> events off the queue at once, waiting up to
+     * the queue timeout for the first one
+     */
+    protected List<MuleMessage> drainMessages(int maxMessages) throws Exception
+    {
+        QueueSession qs = connector.getTransactionalResource(endpoint);
+        Queue queue = qs.getQueue(endpoint.getEndpointURI().getAddress());
+        return drainMessages(queue, maxMessages);
+    }
 
-            // keep batching if more events are available
-            for (int i = 0; i < batchSize && message != null; i++)
-            {
-                message = (MuleEvent)queue.poll(0);
-                if (message != null)
-                {
-                    messages.add(message.getMessage());
-                }
-            }
-        }
+    private List<MuleMessage> drainMessages(Queue queue, int maxMessages) throws Exception
+    {
+        List<Serializable> events = new ArrayList<Serializable>(maxMessages);
+        queue.drainTo(events, maxMessages, connector.getQueueTimeout());
 
-        // let our workManager handle the batch of events
+        List<MuleMessage> messages = new ArrayList<MuleMessage>(events.size());
+        for (Serializable event : events)
+        {
+            messages.add(((MuleEvent) event).getMessage());
+        }
         return messages;
     }
     
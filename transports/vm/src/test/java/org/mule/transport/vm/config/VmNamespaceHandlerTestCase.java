@@ -69,6 +69,7 @@ public class VmNamespaceHandlerTestCase extends FunctionalTestCase
         assertNotNull(c);
         
         assertEquals(5000, c.getQueueTimeout());
+        assertEquals(10, c.getTransactedBatchSize());
         QueueProfile queueProfile = c.getQueueProfile();
         assertNotNull(queueProfile);
         //assertTrue(queueProfile.isPersistent());